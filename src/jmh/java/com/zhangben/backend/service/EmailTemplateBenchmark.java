@@ -0,0 +1,107 @@
+package com.zhangben.backend.service;
+
+import com.zhangben.backend.config.RedisHealthMonitor;
+import com.zhangben.backend.mapper.EmailTemplateMapper;
+import com.zhangben.backend.model.EmailTemplate;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * V69: 账单通知模板渲染吞吐 —— 已编译模板缓存开启 / 关闭（关闭时每次按原始内容解析）
+ * 两种模式都经过真实的 ReferenceDataCache（Caffeine 命中），Redis 与 Mapper 为桩对象
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private static final String HTML = """
+            <html><body>
+            <h2 th:text="${creatorName} + ' 添加了一笔账单'">title</h2>
+            <p>你好，<span th:text="${recipientName}">user</span></p>
+            <table>
+              <tr><td>金额</td><td th:text="'¥' + ${amount}">0</td></tr>
+              <tr><td>人均</td><td th:text="'¥' + ${perAmount}">0</td></tr>
+              <tr><td>分类</td><td th:text="${styleName}">style</td></tr>
+              <tr th:if="${activityName != null}"><td>活动</td><td th:text="${activityName}">activity</td></tr>
+              <tr th:if="${comment != null}"><td>备注</td><td th:text="${comment}">comment</td></tr>
+            </table>
+            <p th:if="${isUpdate}">账单已更新</p>
+            <a th:href="${loginUrl}">查看详情</a>
+            <footer th:text="'© ' + ${year}">footer</footer>
+            </body></html>
+            """;
+
+    private static final Map<String, Object> VARIABLES = Map.of(
+            "recipientName", "李四",
+            "creatorName", "张三",
+            "amount", "128.00",
+            "perAmount", "32.00",
+            "styleName", "餐饮",
+            "comment", "周五晚饭",
+            "activityName", "周末聚餐",
+            "isUpdate", false,
+            "loginUrl", "https://www.aabillpay.com/login",
+            "year", "2026");
+
+    @Param({"true", "false"})
+    public boolean compiledCache;
+
+    private EmailTemplateService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmailTemplate template = new EmailTemplate();
+        template.setId(1);
+        template.setTemplateCode("bill_notification");
+        template.setLanguage("zh-CN");
+        template.setSubject("[[${creatorName}]] 添加了一笔 ¥[[${amount}]] 的账单");
+        template.setHtmlContent(HTML);
+        template.setUpdatedAt(new Date(0));
+
+        EmailTemplateMapper mapper = Mockito.mock(EmailTemplateMapper.class);
+        Mockito.when(mapper.selectByCodeAndLanguage("bill_notification", "zh-CN")).thenReturn(template);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(null, mapper, null, null,
+                Mockito.mock(StringRedisTemplate.class), Mockito.mock(RedisHealthMonitor.class),
+                Mockito.mock(RedisMessageListenerContainer.class), 1000, 30);
+
+        service = new EmailTemplateService();
+        ReflectionTestUtils.setField(service, "referenceDataCache", referenceDataCache);
+        ReflectionTestUtils.setField(service, "compiledCacheEnabled", compiledCache);
+        ReflectionTestUtils.setField(service, "compiledCacheMaxSize", 500L);
+        ReflectionTestUtils.setField(service, "compiledCacheTtlMinutes", 30L);
+        service.init();
+    }
+
+    @Benchmark
+    public String renderBody() {
+        return service.renderTemplate("bill_notification", "zh-CN", VARIABLES);
+    }
+
+    @Benchmark
+    public String renderSubject() {
+        return service.renderSubject("bill_notification", "zh-CN", VARIABLES);
+    }
+}
@@ -0,0 +1,120 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.model.DebtLedgerEntry;
+import com.zhangben.backend.util.LongLongHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * V55: 账本条目 → 原始欠款表 → 净额欠款表
+ * packedLongPairs 调用 DebtServiceImpl 当前的 toRawDebtMap / netFromRaw（DebtPair + LongLongHashMap）；
+ * stringKeys 为 V55 之前以 "debtor-creditor" 字符串为键、split 解析的实现
+ *
+ * 规模：单个用户的债务（几十个债务对）、活跃用户（约一千）、全局结算读取的全部一般模式条目
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DebtNettingBenchmark {
+
+    /** 账本条目数 */
+    @Param({"50", "1000", "50000"})
+    public int entries;
+
+    private List<DebtLedgerEntry> ledger;
+    private DebtServiceImpl debtService;
+    private MethodHandle toRawDebtMap;
+    private MethodHandle netFromRaw;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        // 用户数约为条目数的 1/5；约三成的债务对双向都有欠款，部分债务对有第二种币种
+        Random random = new Random(55);
+        int users = Math.max(10, entries / 5);
+        ledger = new ArrayList<>(entries);
+        while (ledger.size() < entries) {
+            int debtor = 1 + random.nextInt(users);
+            int creditor = 1 + random.nextInt(users);
+            if (debtor == creditor) {
+                continue;
+            }
+            long amount = 100L * (1 + random.nextInt(500));
+            ledger.add(new DebtLedgerEntry(0, debtor, creditor, "CNY", amount));
+            if (ledger.size() < entries && random.nextInt(10) < 3) {
+                ledger.add(new DebtLedgerEntry(0, creditor, debtor, "CNY", 100L * (1 + random.nextInt(500))));
+            }
+            if (ledger.size() < entries && random.nextInt(10) == 0) {
+                ledger.add(new DebtLedgerEntry(0, debtor, creditor, "JPY", amount));
+            }
+        }
+
+        debtService = new DebtServiceImpl();
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(DebtServiceImpl.class, MethodHandles.lookup());
+        toRawDebtMap = lookup.findVirtual(DebtServiceImpl.class, "toRawDebtMap",
+                MethodType.methodType(LongLongHashMap.class, List.class));
+        netFromRaw = lookup.findVirtual(DebtServiceImpl.class, "netFromRaw",
+                MethodType.methodType(LongLongHashMap.class, LongLongHashMap.class));
+    }
+
+    @Benchmark
+    public LongLongHashMap packedLongPairs() throws Throwable {
+        LongLongHashMap raw = (LongLongHashMap) toRawDebtMap.invokeExact(debtService, ledger);
+        return (LongLongHashMap) netFromRaw.invokeExact(debtService, raw);
+    }
+
+    @Benchmark
+    public Map<String, Long> stringKeys() {
+        Map<String, Long> rawMap = new HashMap<>();
+        for (DebtLedgerEntry e : ledger) {
+            rawMap.merge(e.getDebtorId() + "-" + e.getCreditorId(), e.getAmount(), Long::sum);
+        }
+
+        Map<String, Long> netMap = new HashMap<>();
+        Set<String> processed = new HashSet<>();
+        for (Map.Entry<String, Long> e : rawMap.entrySet()) {
+            String[] parts = e.getKey().split("-");
+            Integer userA = Integer.valueOf(parts[0]);
+            Integer userB = Integer.valueOf(parts[1]);
+
+            String pairKey = userA < userB ? userA + ":" + userB : userB + ":" + userA;
+            if (!processed.add(pairKey)) {
+                continue;
+            }
+
+            String keyAB = userA + "-" + userB;
+            String keyBA = userB + "-" + userA;
+            long net = rawMap.getOrDefault(keyAB, 0L) - rawMap.getOrDefault(keyBA, 0L);
+            if (net > 0) {
+                netMap.put(keyAB, net);
+            } else if (net < 0) {
+                netMap.put(keyBA, -net);
+            }
+        }
+        return netMap;
+    }
+}
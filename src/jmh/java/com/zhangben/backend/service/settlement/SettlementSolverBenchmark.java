@@ -0,0 +1,122 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+import com.zhangben.backend.util.DebtPair;
+import com.zhangben.backend.util.LongLongHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * V56: 结算求解耗时
+ * exact / greedy：单个圈子（groupSize 人，余额来自随机债务）分别用精确与贪心求解器
+ * managerAuto：全局结算 —— GROUPS 个互不往来的圈子经 SettlementSolverManager 按连通分量逐个求解
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SettlementSolverBenchmark {
+
+    /** 全局结算中的圈子数 */
+    private static final int GROUPS = 200;
+
+    /** 圈子人数：室友 / 小型旅行到精确求解的默认上限 20 */
+    @Param({"4", "8", "12", "16", "20"})
+    public int groupSize;
+
+    private GreedySettlementSolver greedy;
+    private ExactSettlementSolver exact;
+    private SettlementSolverManager manager;
+
+    private int[] userIds;
+    private long[] balances;
+    private LongLongHashMap globalBalances;
+    private LongLongHashMap globalDebts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        greedy = new GreedySettlementSolver();
+        exact = new ExactSettlementSolver();
+        ReflectionTestUtils.setField(exact, "greedySolver", greedy);
+        ReflectionTestUtils.setField(exact, "maxMembers", 20);
+        manager = new SettlementSolverManager();
+        ReflectionTestUtils.setField(manager, "greedySolver", greedy);
+        ReflectionTestUtils.setField(manager, "exactSolver", exact);
+        ReflectionTestUtils.setField(manager, "defaultMode", SettlementSolverManager.MODE_AUTO);
+        ReflectionTestUtils.setField(manager, "slowThresholdMs", Long.MAX_VALUE);
+
+        Random random = new Random(56);
+        LongLongHashMap single = balancesOf(randomDebts(random, 1, groupSize, new LongLongHashMap()));
+        userIds = new int[single.size()];
+        balances = new long[single.size()];
+        int i = 0;
+        for (LongLongHashMap.Cursor c = single.cursor(); c.advance(); i++) {
+            userIds[i] = (int) c.key();
+            balances[i] = c.value();
+        }
+
+        globalDebts = new LongLongHashMap();
+        for (int g = 0; g < GROUPS; g++) {
+            randomDebts(random, g * 100 + 1, groupSize, globalDebts);
+        }
+        globalBalances = balancesOf(globalDebts);
+    }
+
+    @Benchmark
+    public List<SettlementItem> exact() {
+        return exact.solve(userIds, balances);
+    }
+
+    @Benchmark
+    public List<SettlementItem> greedy() {
+        return greedy.solve(userIds, balances);
+    }
+
+    @Benchmark
+    public SettlementPlan managerAuto() {
+        return manager.solve(globalBalances, globalDebts, SettlementSolverManager.MODE_AUTO);
+    }
+
+    /**
+     * 在 [first, first + size) 的用户之间生成一条链和若干随机债务，保证整个圈子连通
+     */
+    private static LongLongHashMap randomDebts(Random random, int first, int size, LongLongHashMap debts) {
+        for (int i = 0; i < size - 1; i++) {
+            debts.addTo(DebtPair.of(first + i, first + i + 1), 100L * (1 + random.nextInt(50)));
+        }
+        for (int k = 0; k < size * 2; k++) {
+            int a = first + random.nextInt(size);
+            int b = first + random.nextInt(size);
+            if (a != b) {
+                debts.addTo(DebtPair.of(a, b), 100L * (1 + random.nextInt(50)));
+            }
+        }
+        return debts;
+    }
+
+    private static LongLongHashMap balancesOf(LongLongHashMap debts) {
+        LongLongHashMap balances = new LongLongHashMap();
+        for (LongLongHashMap.Cursor c = debts.cursor(); c.advance(); ) {
+            balances.addTo(DebtPair.creditor(c.key()), c.value());
+            balances.addTo(DebtPair.debtor(c.key()), -c.value());
+        }
+        return balances;
+    }
+}
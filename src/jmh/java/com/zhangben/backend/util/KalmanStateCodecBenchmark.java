@@ -0,0 +1,84 @@
+package com.zhangben.backend.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * V76: 卡尔曼状态的存取 —— 定长二进制编码（state_blob）与原先的 JSON 列（state_vector / covariance_matrix）
+ * JSON 一侧与 V76 之前的 PredictionEngine 相同：ObjectMapper 读写 double[] 与 double[][]，再 reset 到滤波器
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KalmanStateCodecBenchmark {
+
+    // 与 PredictionEngine 相同的过程噪声
+    private static final double Q_LEVEL = 1000000;
+    private static final double Q_TREND = 250000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LinearTrendKalman trained;
+    private LinearTrendKalman target;
+    private byte[] blob;
+    private String stateJson;
+    private String covarianceJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        trained = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        trained.reset(new double[]{231456.78, 0}, new double[][]{{3.7e9, 0}, {0, 3.7e9}}, 1.85e9);
+        double level = 231456.78;
+        for (int i = 0; i < 24; i++) {
+            level += 1873.21;
+            trained.predict();
+            trained.correct(level + (i % 3 - 1) * 41234.56);
+        }
+        target = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+
+        blob = KalmanStateCodec.encode(trained);
+        stateJson = objectMapper.writeValueAsString(trained.stateVector());
+        covarianceJson = objectMapper.writeValueAsString(trained.covarianceMatrix());
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return KalmanStateCodec.encode(trained);
+    }
+
+    @Benchmark
+    public void encodeJson(Blackhole bh) throws JsonProcessingException {
+        bh.consume(objectMapper.writeValueAsString(trained.stateVector()));
+        bh.consume(objectMapper.writeValueAsString(trained.covarianceMatrix()));
+    }
+
+    @Benchmark
+    public double decodeBinary() {
+        KalmanStateCodec.decodeInto(blob, target, 0);
+        return target.level();
+    }
+
+    @Benchmark
+    public double decodeJson() throws JsonProcessingException {
+        target.reset(objectMapper.readValue(stateJson, double[].class),
+                objectMapper.readValue(covarianceJson, double[][].class), 0);
+        return target.level();
+    }
+}
@@ -0,0 +1,111 @@
+package com.zhangben.backend.util;
+
+import org.apache.commons.math3.filter.DefaultProcessModel;
+import org.apache.commons.math3.filter.KalmanFilter;
+import org.apache.commons.math3.filter.MeasurementModel;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * V74: 单个用户训练一次的耗时 —— LinearTrendKalman 与原先使用的 commons-math3 KalmanFilter
+ * 与 PredictionEngine.initializeAndTrain 相同：按数据方差初始化，逐月 predict + correct，最后预测下一个月
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinearTrendKalmanBenchmark {
+
+    // 与 PredictionEngine 相同的过程噪声
+    private static final double Q_LEVEL = 1000000;
+    private static final double Q_TREND = 250000;
+
+    /** 历史月数：新用户约一年，老用户三年 */
+    @Param({"12", "36"})
+    public int months;
+
+    private double[] observations;
+    private double variance;
+    private double r;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(74);
+        observations = new double[months];
+        double level = 250000;
+        for (int i = 0; i < months; i++) {
+            level += 2000;
+            observations[i] = Math.max(0, level + random.nextGaussian() * 60000);
+        }
+        double mean = 0;
+        for (double v : observations) {
+            mean += v;
+        }
+        mean /= months;
+        double sum = 0;
+        for (double v : observations) {
+            sum += (v - mean) * (v - mean);
+        }
+        variance = sum / months;
+        r = Math.max(variance * 0.5, 100000);
+    }
+
+    @Benchmark
+    public double linearTrendKalman() {
+        LinearTrendKalman kf = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        kf.reset(new double[]{observations[0], 0}, new double[][]{{variance, 0}, {0, variance}}, r);
+        for (double z : observations) {
+            kf.predict();
+            kf.correct(z);
+        }
+        kf.predict();
+        return kf.level() + kf.levelVariance();
+    }
+
+    @Benchmark
+    public double commonsMathKalmanFilter() {
+        RealMatrix a = new Array2DRowRealMatrix(new double[][]{{1, 1}, {0, 1}});
+        RealMatrix q = new Array2DRowRealMatrix(new double[][]{{Q_LEVEL, 0}, {0, Q_TREND}});
+        RealMatrix h = new Array2DRowRealMatrix(new double[][]{{1, 0}});
+        RealMatrix noise = new Array2DRowRealMatrix(new double[][]{{r}});
+        DefaultProcessModel process = new DefaultProcessModel(a, null, q,
+                new ArrayRealVector(new double[]{observations[0], 0}),
+                new Array2DRowRealMatrix(new double[][]{{variance, 0}, {0, variance}}));
+        MeasurementModel measurement = new MeasurementModel() {
+            @Override
+            public RealMatrix getMeasurementMatrix() {
+                return h;
+            }
+
+            @Override
+            public RealMatrix getMeasurementNoise() {
+                return noise;
+            }
+        };
+        KalmanFilter kf = new KalmanFilter(process, measurement);
+        for (double z : observations) {
+            kf.predict();
+            kf.correct(new double[]{z});
+        }
+        kf.predict();
+        return kf.getStateEstimation()[0] + kf.getErrorCovariance()[0][0];
+    }
+}
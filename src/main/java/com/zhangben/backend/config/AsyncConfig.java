@@ -2,8 +2,10 @@ package com.zhangben.backend.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -13,6 +15,7 @@ import java.util.concurrent.Executor;
 /**
  * V34: 异步任务配置
  * 配置邮件发送等异步任务的线程池
+ * V64: spring.threads.virtual.enabled=true 时 Tomcat 请求、默认 @Async 执行器和 @Scheduled 调度均运行在虚拟线程上
  */
 @Configuration
 @EnableAsync
@@ -22,21 +25,41 @@ public class AsyncConfig {
     private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
 
     /**
-     * 邮件任务专用线程池
-     * - 核心线程数: 2
-     * - 最大线程数: 5
-     * - 队列容量: 100
-     * - 线程名前缀: email-
+     * V64: 与 Tomcat / @Scheduled 共用同一开关（Spring Boot 的 spring.threads.virtual.enabled）
+     */
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * 邮件任务执行器
+     * V64: 虚拟线程模式下每个任务一个虚拟线程，不再排队也不会丢任务，
+     *      并发发送数由 DownstreamLimiter 的 MAIL 许可控制；
+     *      平台线程模式沿用原线程池（core 2 / max 5 / queue 100，线程名前缀 email-），
+     *      队列满时改为由提交线程自己执行，不再静默丢弃。
      */
     @Bean(name = "emailTaskExecutor")
     public Executor emailTaskExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("email-");
+            executor.setVirtualThreads(true);
+            // 关闭时等待进行中的发送完成
+            executor.setTaskTerminationTimeout(30_000);
+            logger.info("【邮件线程池】虚拟线程模式");
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(5);
         executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("email-");
         executor.setRejectedExecutionHandler((r, exec) -> {
-            logger.warn("【邮件线程池】任务被拒绝，队列已满");
+            if (exec.isShutdown()) {
+                logger.warn("【邮件线程池】线程池已关闭，任务被丢弃");
+                return;
+            }
+            logger.warn("【邮件线程池】队列已满，由提交线程同步执行");
+            r.run();
         });
         executor.initialize();
 
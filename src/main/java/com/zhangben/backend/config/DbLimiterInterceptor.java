@@ -0,0 +1,57 @@
+package com.zhangben.backend.config;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * V64: MyBatis 语句级数据库闸门
+ * 非事务语句执行前先取 DB 许可，使排队发生在信号量上（可观测、可快速失败），而不是连接池的 connectionTimeout 上。
+ * 事务内的语句已经持有连接，直接放行：若让持有连接的线程再去等许可，而许可被等连接的线程占满，会互相卡住。
+ * 同一线程嵌套调用（如延迟加载）只占一个许可。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class})
+})
+public class DbLimiterInterceptor implements Interceptor {
+
+    private static final ThreadLocal<Boolean> HOLDING = new ThreadLocal<>();
+
+    private final DownstreamLimiter downstreamLimiter;
+
+    public DbLimiterInterceptor(DownstreamLimiter downstreamLimiter) {
+        this.downstreamLimiter = downstreamLimiter;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (HOLDING.get() != null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+
+        downstreamLimiter.acquire(DownstreamLimiter.Downstream.DB);
+        HOLDING.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } finally {
+            HOLDING.remove();
+            downstreamLimiter.release(DownstreamLimiter.Downstream.DB);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.zhangben.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * V64: 下游并发闸门（每个下游一个有界公平信号量）
+ *
+ * 虚拟线程模式下请求线程不再受 Tomcat 线程池约束，背压改由这里承担：
+ * 同一时刻访问某个下游的调用数不超过 permits，超出的调用排队等待 acquire-timeout，
+ * 仍拿不到许可时抛出 BusyException（接口层返回 503），而不是把压力全部堆到连接池 / 第三方接口上。
+ * Redis 走 Lettuce 单连接多路复用，本身不按线程占用连接，不在此限流。
+ */
+@Component
+public class DownstreamLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownstreamLimiter.class);
+
+    public enum Downstream {
+        /** MySQL（非事务语句，见 DbLimiterInterceptor） */
+        DB,
+        /** 邮件供应商 HTTP 接口 */
+        MAIL
+    }
+
+    private final Map<Downstream, Gate> gates = new EnumMap<>(Downstream.class);
+
+    public DownstreamLimiter(@Value("${downstream.limit.db.permits:10}") int dbPermits,
+                             @Value("${downstream.limit.db.acquire-timeout-ms:3000}") long dbTimeoutMs,
+                             @Value("${downstream.limit.mail.permits:5}") int mailPermits,
+                             @Value("${downstream.limit.mail.acquire-timeout-ms:30000}") long mailTimeoutMs) {
+        gates.put(Downstream.DB, new Gate(dbPermits, dbTimeoutMs));
+        gates.put(Downstream.MAIL, new Gate(mailPermits, mailTimeoutMs));
+
+        logger.info("【下游闸门】初始化完成: db={} (等待{}ms), mail={} (等待{}ms)",
+                dbPermits, dbTimeoutMs, mailPermits, mailTimeoutMs);
+    }
+
+    /**
+     * 在许可内执行调用；等待超时抛出 BusyException
+     */
+    public <T> T call(Downstream downstream, Supplier<T> action) {
+        Gate gate = gates.get(downstream);
+        gate.acquire(downstream);
+        try {
+            return action.get();
+        } finally {
+            gate.release();
+        }
+    }
+
+    /**
+     * 获取许可（调用方负责在 finally 中 release）；等待超时抛出 BusyException
+     */
+    public void acquire(Downstream downstream) {
+        gates.get(downstream).acquire(downstream);
+    }
+
+    public void release(Downstream downstream) {
+        gates.get(downstream).release();
+    }
+
+    /**
+     * 各下游统计（许可数 / 当前占用 / 峰值 / 排队中 / 通过 / 拒绝 / 累计等待）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<Downstream, Gate> e : gates.entrySet()) {
+            Gate g = e.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("permits", g.permits);
+            item.put("inUse", g.permits - g.semaphore.availablePermits());
+            item.put("peakInUse", g.peak.get());
+            item.put("queued", g.semaphore.getQueueLength());
+            item.put("acquired", g.acquired.sum());
+            item.put("rejected", g.rejected.sum());
+            item.put("totalWaitMs", TimeUnit.NANOSECONDS.toMillis(g.waitNanos.sum()));
+            result.put(e.getKey().name(), item);
+        }
+        return result;
+    }
+
+    /**
+     * 下游繁忙：排队超过 acquire-timeout 仍未拿到许可
+     */
+    public static class BusyException extends RuntimeException {
+        public BusyException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Gate {
+        private final int permits;
+        private final long timeoutMs;
+        private final Semaphore semaphore;
+        private final AtomicInteger peak = new AtomicInteger();
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        private Gate(int permits, long timeoutMs) {
+            this.permits = Math.max(1, permits);
+            this.timeoutMs = timeoutMs;
+            // 公平模式：按到达顺序放行，避免高并发下个别请求长期饥饿
+            this.semaphore = new Semaphore(this.permits, true);
+        }
+
+        private void acquire(Downstream downstream) {
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = semaphore.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusyException(downstream.name() + " 等待被中断");
+            }
+            waitNanos.add(System.nanoTime() - start);
+            if (!ok) {
+                rejected.increment();
+                logger.warn("【下游闸门】{} 繁忙，等待 {}ms 未获得许可（排队 {}）",
+                        downstream, timeoutMs, semaphore.getQueueLength());
+                throw new BusyException(downstream.name() + " 繁忙，请稍后重试");
+            }
+            acquired.increment();
+            peak.accumulateAndGet(permits - semaphore.availablePermits(), Math::max);
+        }
+
+        private void release() {
+            semaphore.release();
+        }
+    }
+}
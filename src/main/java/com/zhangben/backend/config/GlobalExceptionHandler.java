@@ -78,6 +78,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(result);
     }
 
+    /**
+     * V64: 下游繁忙（等待并发许可超时）- 返回 503，提示客户端稍后重试
+     */
+    @ExceptionHandler(DownstreamLimiter.BusyException.class)
+    public ResponseEntity<Map<String, Object>> handleDownstreamBusy(DownstreamLimiter.BusyException e) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 503);
+        result.put("message", "服务繁忙，请稍后重试");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(result);
+    }
+
     /**
      * 处理SQL异常 - 不暴露数据库错误详情
      */
@@ -96,6 +109,10 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(DataAccessException.class)
     public ResponseEntity<Map<String, Object>> handleDataAccessException(DataAccessException e) {
+        // V64: MyBatis 拦截器抛出的繁忙异常会被包装为 MyBatisSystemException
+        if (e.getRootCause() instanceof DownstreamLimiter.BusyException busy) {
+            return handleDownstreamBusy(busy);
+        }
         Map<String, Object> result = new HashMap<>();
         result.put("code", 500);
         result.put("message", "数据操作失败，请稍后重试");
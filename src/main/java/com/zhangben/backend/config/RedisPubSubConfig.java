@@ -0,0 +1,24 @@
+package com.zhangben.backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * V57: Redis 发布/订阅配置
+ * 多节点部署时，本地缓存通过 Redis 频道广播失效消息保持一致。
+ * Redis 不可用时容器在后台自动重连，订阅方应依赖本地 TTL 兜底。
+ */
+@Configuration
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        // 连接断开后每 5 秒尝试重新订阅
+        container.setRecoveryInterval(5000L);
+        return container;
+    }
+}
@@ -0,0 +1,152 @@
+package com.zhangben.backend.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * V64: 虚拟线程钉住（pinning）诊断
+ *
+ * 通过进程内 JFR 流订阅 jdk.VirtualThreadPinned 事件：虚拟线程阻塞时无法从载体线程卸载、且持续超过阈值即记录一次。
+ * JDK 24 起 synchronized 不再导致钉住，剩余来源主要是本地方法帧（JNI）和类初始化；
+ * 监控按"首个业务帧（或栈顶帧）"聚合次数与耗时，同一位置只在第一次出现时打印完整栈，
+ * 用于确认 MyBatis / Connector-J / Lettuce 路径上是否存在钉住。
+ * 默认关闭，仅在排查时通过 virtual-threads.pinning-monitor.enabled 打开。
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.zhangben.";
+
+    /** 首次出现时打印的栈深度 */
+    private static final int LOGGED_FRAMES = 12;
+
+    @Value("${virtual-threads.pinning-monitor.enabled:false}")
+    private boolean enabled;
+
+    @Value("${virtual-threads.pinning-monitor.threshold-ms:20}")
+    private long thresholdMs;
+
+    private RecordingStream stream;
+
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            stream.onEvent(EVENT, this::onPinned);
+            stream.startAsync();
+            logger.info("【虚拟线程诊断】钉住监控已启动，阈值 {}ms", thresholdMs);
+        } catch (Exception e) {
+            // JFR 不可用（如裁剪过的运行时）时不影响启动
+            stream = null;
+            logger.warn("【虚拟线程诊断】无法启动 JFR 流: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    /**
+     * 按位置聚合的钉住统计，次数多的在前
+     */
+    public Map<String, Object> getStats() {
+        List<Map.Entry<String, Site>> entries = new ArrayList<>(sites.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Site> e) -> e.getValue().count.sum()).reversed());
+
+        List<Map<String, Object>> bySite = new ArrayList<>();
+        for (Map.Entry<String, Site> e : entries) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("site", e.getKey());
+            item.put("count", e.getValue().count.sum());
+            item.put("totalMs", e.getValue().nanos.sum() / 1_000_000);
+            bySite.add(item);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", isRunning());
+        result.put("thresholdMs", thresholdMs);
+        result.put("total", total.sum());
+        result.put("sites", bySite);
+        return result;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        total.increment();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String site = siteOf(frames);
+
+        Site s = sites.computeIfAbsent(site, k -> new Site());
+        s.count.increment();
+        s.nanos.add(event.getDuration().toNanos());
+
+        if (s.logged.compareAndSet(false, true)) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+                sb.append("\n    at ").append(frameName(frames.get(i)));
+            }
+            logger.warn("【虚拟线程诊断】检测到钉住 {}ms @ {}{}", event.getDuration().toMillis(), site, sb);
+        }
+    }
+
+    /**
+     * 首个业务代码帧，没有时取栈顶帧
+     */
+    private static String siteOf(List<RecordedFrame> frames) {
+        if (frames.isEmpty()) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return frameName(frame);
+            }
+        }
+        return frameName(frames.get(0));
+    }
+
+    private static String frameName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    private static final class Site {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicBoolean logged = new AtomicBoolean();
+    }
+}
@@ -10,6 +10,8 @@ import com.zhangben.backend.model.User;
 import com.zhangben.backend.service.ActivityAuthService;
 import com.zhangben.backend.service.ActivityEventService;
 import com.zhangben.backend.service.ActivityRateService;
+import com.zhangben.backend.service.OutcomeService;
+import com.zhangben.backend.service.notify.ChangeEventPublisher;
 import com.zhangben.backend.util.CurrencyUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -41,6 +43,12 @@ public class ActivityController {
     @Autowired
     private ActivityEventService activityEventService;
 
+    @Autowired
+    private OutcomeService outcomeService;
+
+    @Autowired
+    private ChangeEventPublisher changeEventPublisher;
+
     /**
      * 获取用户的语言偏好，默认中文
      */
@@ -241,8 +249,8 @@ public class ActivityController {
             throw new RuntimeException("账单不存在或不属于该活动");
         }
 
-        // 软删除账单
-        outcomeMapper.softDeleteById(outcomeId);
+        // 软删除账单（V52: 同时更新欠款账本）
+        outcomeService.deleteActivityOutcome(outcomeId);
 
         Map<String, Object> result = new HashMap<>();
         result.put("message", "删除成功");
@@ -283,6 +291,8 @@ public class ActivityController {
         // V51: Log join event
         activityEventService.logJoin(id, targetUserId,
                 newMember != null ? newMember.getPrimaryCurrency() : null);
+        // V67: 推送成员变动
+        changeEventPublisher.memberChanged(ChangeEventPublisher.MEMBER_JOINED, id, targetUserId);
 
         Map<String, Object> result = new HashMap<>();
         result.put("message", "成员添加成功");
@@ -318,6 +328,7 @@ public class ActivityController {
         activityEventService.logRemoved(id, memberId, removedByName);
 
         memberMapper.delete(id, memberId);
+        changeEventPublisher.memberChanged(ChangeEventPublisher.MEMBER_LEFT, id, memberId);
 
         Map<String, Object> result = new HashMap<>();
         result.put("message", "成员已移除");
@@ -357,6 +368,7 @@ public class ActivityController {
         // Log event before deletion
         activityEventService.logLeave(id, userId);
         memberMapper.delete(id, userId);
+        changeEventPublisher.memberChanged(ChangeEventPublisher.MEMBER_LEFT, id, userId);
 
         Map<String, Object> result = new HashMap<>();
         result.put("message", "已退出活动");
@@ -13,6 +13,7 @@ import com.zhangben.backend.service.ActivityAuthService;
 import com.zhangben.backend.service.ActivityEventService;
 import com.zhangben.backend.service.ActivityRateService;
 import com.zhangben.backend.service.EmailService;
+import com.zhangben.backend.service.notify.ChangeEventPublisher;
 import cn.hutool.core.util.StrUtil;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +55,9 @@ public class ActivityInvitationController {
     @Autowired
     private ActivityEventService activityEventService;
 
+    @Autowired
+    private ChangeEventPublisher changeEventPublisher;
+
     @Value("${app.base-url:https://www.aabillpay.com}")
     private String baseUrl;
 
@@ -196,6 +200,8 @@ public class ActivityInvitationController {
         Map<String, Object> existingMember = memberMapper.selectByActivityAndUser(invitation.getActivityId(), userId);
         if (existingMember == null) {
             memberMapper.insert(invitation.getActivityId(), userId, "member");
+            // V67: 推送成员变动
+            changeEventPublisher.memberChanged(ChangeEventPublisher.MEMBER_JOINED, invitation.getActivityId(), userId);
         }
 
         // V49: Lock rate for new member's primary currency
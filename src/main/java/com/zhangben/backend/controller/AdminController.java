@@ -1,14 +1,29 @@
 package com.zhangben.backend.controller;
 
 import cn.dev33.satoken.stp.StpUtil;
+import com.zhangben.backend.config.DownstreamLimiter;
+import com.zhangben.backend.config.VirtualThreadPinningMonitor;
 import com.zhangben.backend.dto.SubscriptionInfoResponse;
 import com.zhangben.backend.mapper.SystemConfigMapper;
 import com.zhangben.backend.mapper.UserMapper;
 import com.zhangben.backend.model.SystemConfig;
 import com.zhangben.backend.model.User;
 import com.zhangben.backend.model.UserExample;
+import com.zhangben.backend.service.DailySpendService;
+import com.zhangben.backend.service.DebtLedgerService;
+import com.zhangben.backend.service.EmailTemplateService;
+import com.zhangben.backend.service.MonthlySpendingService;
+import com.zhangben.backend.service.PredictionService;
 import com.zhangben.backend.service.SubscriptionService;
+import com.zhangben.backend.service.cache.ActivityBalanceCache;
+import com.zhangben.backend.service.cache.MonthlyExpenseCache;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import com.zhangben.backend.service.cache.UnreadCountCache;
+import com.zhangben.backend.service.email.EmailOutbox;
+import com.zhangben.backend.service.notify.UserEventHub;
+import com.zhangben.backend.service.settlement.SettlementSolverManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -31,6 +46,51 @@ public class AdminController {
     @Autowired
     private SubscriptionService subscriptionService;
 
+    @Autowired
+    private DebtLedgerService debtLedgerService;
+
+    @Autowired
+    private MonthlySpendingService monthlySpendingService;
+
+    @Autowired
+    private DailySpendService dailySpendService;
+
+    @Autowired
+    private SettlementSolverManager settlementSolverManager;
+
+    @Autowired
+    private ActivityBalanceCache activityBalanceCache;
+
+    @Autowired
+    private MonthlyExpenseCache monthlyExpenseCache;
+
+    @Autowired
+    private PredictionService predictionService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
+    @Autowired
+    private UnreadCountCache unreadCountCache;
+
+    @Autowired
+    private UserEventHub userEventHub;
+
+    @Autowired
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    @Autowired
+    private EmailOutbox emailOutbox;
+
+    @Autowired
+    private EmailTemplateService emailTemplateService;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     /**
@@ -135,8 +195,8 @@ public class AdminController {
             return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
         }
 
-        SystemConfig enabledConfig = systemConfigMapper.selectByKey("feedback.enabled");
-        SystemConfig emailConfig = systemConfigMapper.selectByKey("feedback.target_email");
+        SystemConfig enabledConfig = referenceDataCache.getConfig("feedback.enabled");
+        SystemConfig emailConfig = referenceDataCache.getConfig("feedback.target_email");
 
         Map<String, Object> result = new HashMap<>();
         result.put("enabled", enabledConfig != null ? "true".equals(enabledConfig.getConfigValue()) : false);
@@ -160,6 +220,7 @@ public class AdminController {
             if (config != null) {
                 config.setConfigValue(Boolean.TRUE.equals(body.get("enabled")) ? "true" : "false");
                 systemConfigMapper.updateValue(config);
+                referenceDataCache.invalidateConfig(config.getConfigKey());
             }
         }
 
@@ -169,6 +230,7 @@ public class AdminController {
             if (config != null) {
                 config.setConfigValue((String) body.get("targetEmail"));
                 systemConfigMapper.updateValue(config);
+                referenceDataCache.invalidateConfig(config.getConfigKey());
             }
         }
 
@@ -242,6 +304,229 @@ public class AdminController {
         return ResponseEntity.ok(info);
     }
 
+    // ==================== V52: 欠款账本 ====================
+
+    /**
+     * V52: 手动触发欠款账本对账
+     * repair=false 仅报告差异，repair=true 同时写回差额
+     */
+    @PostMapping("/debt-ledger/reconcile")
+    public ResponseEntity<?> reconcileDebtLedger(@RequestParam(defaultValue = "false") boolean repair) {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(debtLedgerService.reconcile(repair));
+    }
+
+    /**
+     * V61: 手动触发月度支出物化表对账
+     * repair=false 仅报告差异，repair=true 同时写回差额
+     */
+    @PostMapping("/monthly-spending/reconcile")
+    public ResponseEntity<?> reconcileMonthlySpending(@RequestParam(defaultValue = "false") boolean repair) {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(monthlySpendingService.reconcile(repair));
+    }
+
+    /**
+     * V62: 从原始数据重建每日消费汇总（按用户ID范围分段提交），不传范围时重建全部
+     */
+    @PostMapping("/daily-spend/rebuild")
+    public ResponseEntity<?> rebuildDailySpend(@RequestParam(required = false) Integer fromUserId,
+                                               @RequestParam(required = false) Integer toUserId) {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        try {
+            return ResponseEntity.ok(dailySpendService.rebuild(fromUserId, toUserId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * V62: 抽样检查每日消费汇总与原始数据是否一致
+     * repair=false 仅报告差异，repair=true 同时重建有差异的用户
+     */
+    @PostMapping("/daily-spend/check")
+    public ResponseEntity<?> checkDailySpend(@RequestParam(defaultValue = "50") int sample,
+                                             @RequestParam(defaultValue = "false") boolean repair) {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(dailySpendService.check(sample, repair));
+    }
+
+    /**
+     * V77: 全量核对最近若干天每日消费汇总的按日合计
+     * repair=false 仅报告差异，repair=true 同时重建合计不一致的用户
+     */
+    @PostMapping("/daily-spend/check-totals")
+    public ResponseEntity<?> checkDailySpendTotals(@RequestParam(defaultValue = "35") int days,
+                                                   @RequestParam(defaultValue = "false") boolean repair) {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(dailySpendService.checkTotals(days, repair));
+    }
+
+    /**
+     * V56: 结算求解器调用统计（次数 / 平均耗时 / 最大耗时 / 回退次数）
+     */
+    @GetMapping("/settlement/metrics")
+    public ResponseEntity<?> getSettlementMetrics() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(settlementSolverManager.getMetrics());
+    }
+
+    /**
+     * V57: 活动净欠款缓存统计（条目数 / 命中 / 未命中 / 失效次数）
+     */
+    @GetMapping("/activity-balance-cache/stats")
+    public ResponseEntity<?> getActivityBalanceCacheStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(activityBalanceCache.getStats());
+    }
+
+    /**
+     * V60: 引用数据缓存统计（按区域：条目数 / 命中 / 未命中 / 命中率 / 失效次数）
+     */
+    @GetMapping("/reference-cache/stats")
+    public ResponseEntity<?> getReferenceCacheStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(referenceDataCache.getStats());
+    }
+
+    /**
+     * V60: 手动使引用数据缓存失效（直接改库后使用），region 为空时清空全部区域
+     */
+    @PostMapping("/reference-cache/invalidate")
+    public ResponseEntity<?> invalidateReferenceCache(@RequestParam(required = false) String region) {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        if (region == null || region.isEmpty()) {
+            for (ReferenceDataCache.Region r : ReferenceDataCache.Region.values()) {
+                referenceDataCache.invalidate(r);
+            }
+        } else {
+            try {
+                referenceDataCache.invalidate(ReferenceDataCache.Region.valueOf(region.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "未知区域: " + region));
+            }
+        }
+        return ResponseEntity.ok(Map.of("message", "引用数据缓存已失效"));
+    }
+
+    /**
+     * V69: 已编译邮件模板缓存统计（条目数 / 命中率 / 加载与剔除次数 / 已解析的模板版本数）
+     */
+    @GetMapping("/email-template-cache/stats")
+    public ResponseEntity<?> getEmailTemplateCacheStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(emailTemplateService.getCompiledCacheStats());
+    }
+
+    /**
+     * V73: 历史记录月度总支出缓存统计（条目数 / 命中 / 未命中 / 失效次数）
+     */
+    @GetMapping("/monthly-expense-cache/stats")
+    public ResponseEntity<?> getMonthlyExpenseCacheStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(monthlyExpenseCache.getStats());
+    }
+
+    /**
+     * V75: 支出预测批量重训状态（是否运行中 + 上一次运行的耗时 / 吞吐 / 失败数）
+     */
+    @GetMapping("/prediction-retrain/stats")
+    public ResponseEntity<?> getPredictionRetrainStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(predictionService.getRetrainStats());
+    }
+
+    /**
+     * V64: 并发运行状态（是否虚拟线程模式 / 各下游许可占用与拒绝次数 / 虚拟线程钉住统计）
+     */
+    @GetMapping("/runtime/concurrency")
+    public ResponseEntity<?> getConcurrencyStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("virtualThreads", virtualThreads);
+        result.put("downstreams", downstreamLimiter.getStats());
+        result.put("pinning", pinningMonitor.getStats());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * V66: 未读通知计数对账（Redis 计数器 vs notification 表），repair=true 时修正差异
+     */
+    @PostMapping("/unread-count/reconcile")
+    public ResponseEntity<?> reconcileUnreadCounts(@RequestParam(defaultValue = "false") boolean repair) {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(unreadCountCache.reconcile(repair));
+    }
+
+    /**
+     * V66: 未读计数与 SSE 推送统计
+     */
+    @GetMapping("/unread-count/stats")
+    public ResponseEntity<?> getUnreadCountStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("counter", unreadCountCache.getStats());
+        result.put("push", userEventHub.getStats());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * V68: 邮件发件箱统计（队列深度、最早未发送消息等待时长、投递吞吐、供应商限速）
+     */
+    @GetMapping("/email-outbox/stats")
+    public ResponseEntity<?> getEmailOutboxStats() {
+        if (!checkAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "无权限，仅管理员可操作"));
+        }
+
+        return ResponseEntity.ok(emailOutbox.getStats());
+    }
+
     /**
      * 检查当前用户是否是管理员
      */
@@ -151,11 +151,12 @@ public class DebtController {
 
     /**
      * 获取最优结算方案（全局债务简化）
+     * V56: mode 可选 auto / greedy / exact
      */
     @GetMapping("/settlements")
-    public SettlementResponse getMinimizedSettlements() {
+    public SettlementResponse getMinimizedSettlements(@RequestParam(required = false) String mode) {
         Integer userId = StpUtil.getLoginIdAsInt();
-        return debtService.getMinimizedSettlements(userId);
+        return debtService.getMinimizedSettlements(userId, mode);
     }
 
     /**
@@ -0,0 +1,42 @@
+package com.zhangben.backend.controller;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.zhangben.backend.service.NotificationService;
+import com.zhangben.backend.service.notify.UserEventHub;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * V67: 用户实时事件流
+ * 客户端收到变更事件后只刷新受影响的数据，不再轮询欠款汇总 / 待确认还款 / 活动详情:
+ * - outcome.created / outcome.updated / outcome.deleted  {outcomeId, activityId, repayFlag, actorId}
+ * - repayment.submitted / repayment.confirmed            {outcomeId, activityId, repayFlag, actorId}
+ * - member.joined / member.left                          {activityId, userId}
+ * - unread / notification                                通知相关（见 NotificationController）
+ * 只有与变更相关的用户会收到事件；断线重连后客户端应全量刷新一次。
+ */
+@RestController
+@RequestMapping("/api/events")
+public class EventStreamController {
+
+    @Autowired
+    private UserEventHub userEventHub;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        Integer userId = StpUtil.getLoginIdAsInt();
+        Map<String, Object> initial = new HashMap<>();
+        initial.put("count", notificationService.getUnreadCount(userId));
+        return userEventHub.subscribe(userId, "unread", initial);
+    }
+}
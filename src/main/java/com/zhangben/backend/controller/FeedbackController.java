@@ -1,11 +1,11 @@
 package com.zhangben.backend.controller;
 
 import cn.dev33.satoken.stp.StpUtil;
-import com.zhangben.backend.mapper.SystemConfigMapper;
 import com.zhangben.backend.mapper.UserMapper;
 import com.zhangben.backend.model.SystemConfig;
 import com.zhangben.backend.model.User;
 import com.zhangben.backend.service.EmailService;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,7 +26,7 @@ public class FeedbackController {
     private static final Logger logger = LoggerFactory.getLogger(FeedbackController.class);
 
     @Autowired
-    private SystemConfigMapper systemConfigMapper;
+    private ReferenceDataCache referenceDataCache;
 
     @Autowired
     private EmailService emailService;
@@ -39,7 +39,7 @@ public class FeedbackController {
      */
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getStatus() {
-        SystemConfig enabledConfig = systemConfigMapper.selectByKey("feedback.enabled");
+        SystemConfig enabledConfig = referenceDataCache.getConfig("feedback.enabled");
         boolean isEnabled = enabledConfig != null && "true".equals(enabledConfig.getConfigValue());
 
         return ResponseEntity.ok(Map.of("enabled", isEnabled));
@@ -51,13 +51,13 @@ public class FeedbackController {
     @PostMapping("/submit")
     public ResponseEntity<?> submitFeedback(@RequestBody FeedbackRequest request) {
         // 检查功能是否启用
-        SystemConfig enabledConfig = systemConfigMapper.selectByKey("feedback.enabled");
+        SystemConfig enabledConfig = referenceDataCache.getConfig("feedback.enabled");
         if (enabledConfig == null || !"true".equals(enabledConfig.getConfigValue())) {
             return ResponseEntity.badRequest().body(Map.of("error", "反馈功能暂未开放"));
         }
 
         // 获取目标邮箱
-        SystemConfig targetEmailConfig = systemConfigMapper.selectByKey("feedback.target_email");
+        SystemConfig targetEmailConfig = referenceDataCache.getConfig("feedback.target_email");
         if (targetEmailConfig == null || targetEmailConfig.getConfigValue() == null || targetEmailConfig.getConfigValue().isEmpty()) {
             logger.error("反馈目标邮箱未配置");
             return ResponseEntity.internalServerError().body(Map.of("error", "反馈服务配置错误"));
@@ -9,7 +9,10 @@ import com.zhangben.backend.mapper.UserMapper;
 import com.zhangben.backend.model.User;
 import com.zhangben.backend.service.DebtService;
 import com.zhangben.backend.service.PredictionService;
+import com.zhangben.backend.util.FanOut;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
@@ -30,6 +33,10 @@ public class InsightsController {
     @Autowired
     private PredictionService predictionService;
 
+    /** V63: /all 各子查询共享的截止时间 */
+    @Value("${insights.fanout.timeout-ms:3000}")
+    private long fanoutTimeoutMs;
+
     private String getUserLanguage(Integer userId) {
         User user = userMapper.selectByPrimaryKey(userId);
         if (user != null && user.getPreferredLanguage() != null && !user.getPreferredLanguage().isEmpty()) {
@@ -40,18 +47,65 @@ public class InsightsController {
 
     /**
      * 获取消费洞察聚合数据
+     * V63: 各子查询互不依赖，在虚拟线程上并行执行，共享 insights.fanout.timeout-ms 截止时间；
+     * 超时或失败的部分按空结果返回并列入 partial，各子查询耗时写入 Server-Timing 响应头。
      */
     @GetMapping("/all")
-    public Map<String, Object> getInsightsAll() {
+    public ResponseEntity<Map<String, Object>> getInsightsAll() {
         StpUtil.checkLogin();
         Integer userId = StpUtil.getLoginIdAsInt();
-        String language = getUserLanguage(userId);
 
         Map<String, Object> result = new HashMap<>();
 
+        // 子任务不在请求线程上运行，只传入已解析的 userId
+        try (FanOut fanOut = FanOut.withTimeout(fanoutTimeoutMs)) {
+            FanOut.Task<List<Map<String, Object>>> monthlyPaidTask =
+                    fanOut.fork("monthlyPaid", () -> statsMapper.getMonthlyStats(userId, 6));
+            FanOut.Task<List<Map<String, Object>>> monthlyOwedTask =
+                    fanOut.fork("monthlyOwed", () -> statsMapper.getMonthlyOwedStats(userId, 6));
+            FanOut.Task<List<MyCreditOverviewItem>> creditsTask =
+                    fanOut.fork("creditOverview", () -> debtService.getMyCreditOverview(userId));
+            FanOut.Task<List<Map<String, Object>>> categoryTask =
+                    fanOut.fork("categoryStats", () -> statsMapper.getCategoryStats(userId, 1, getUserLanguage(userId)));
+            FanOut.Task<Map<String, Object>> overviewTask =
+                    fanOut.fork("overview", () -> statsMapper.getOverviewStats(userId, 1));
+            FanOut.Task<List<Map<String, Object>>> thisMonthOwedTask =
+                    fanOut.fork("thisMonthOwed", () -> statsMapper.getMonthlyOwedStats(userId, 1));
+            FanOut.Task<SettlementResponse> settlementTask =
+                    fanOut.fork("settlement", () -> debtService.getMinimizedSettlements(userId));
+            fanOut.join();
+
+            fillInsights(result,
+                    monthlyPaidTask.getOrDefault(Collections.emptyList()),
+                    monthlyOwedTask.getOrDefault(Collections.emptyList()),
+                    creditsTask.getOrDefault(Collections.emptyList()),
+                    categoryTask.getOrDefault(Collections.emptyList()),
+                    overviewTask.getOrDefault(null),
+                    thisMonthOwedTask.getOrDefault(Collections.emptyList()),
+                    settlementTask.getOrDefault(null));
+
+            List<String> partial = fanOut.incomplete();
+            if (!partial.isEmpty()) {
+                result.put("partial", partial);
+            }
+            return ResponseEntity.ok()
+                    .header("Server-Timing", fanOut.serverTiming())
+                    .body(result);
+        }
+    }
+
+    /**
+     * 由各子查询结果组装洞察数据
+     */
+    private void fillInsights(Map<String, Object> result,
+                              List<Map<String, Object>> monthlyPaid,
+                              List<Map<String, Object>> monthlyOwed,
+                              List<MyCreditOverviewItem> credits,
+                              List<Map<String, Object>> categoryStats,
+                              Map<String, Object> overview,
+                              List<Map<String, Object>> thisMonthOwed,
+                              SettlementResponse settlement) {
         // 1. 月度趋势（6个月）- 合并支出和应付
-        List<Map<String, Object>> monthlyPaid = statsMapper.getMonthlyStats(userId, 6);
-        List<Map<String, Object>> monthlyOwed = statsMapper.getMonthlyOwedStats(userId, 6);
 
         // 构建应付按月索引
         Map<String, Double> owedByMonth = new HashMap<>();
@@ -91,7 +145,6 @@ public class InsightsController {
         result.put("monthlyTrend", monthlyTrend);
 
         // 2. 最大债务人（别人欠我最多的人）
-        List<MyCreditOverviewItem> credits = debtService.getMyCreditOverview(userId);
         if (!credits.isEmpty()) {
             MyCreditOverviewItem top = credits.stream()
                     .max(Comparator.comparingLong(MyCreditOverviewItem::getTotalAmount))
@@ -111,7 +164,6 @@ public class InsightsController {
         }
 
         // 3. 本月最高消费分类
-        List<Map<String, Object>> categoryStats = statsMapper.getCategoryStats(userId, 1, language);
         if (!categoryStats.isEmpty()) {
             Map<String, Object> topCat = categoryStats.get(0);
             Map<String, Object> topCategory = new HashMap<>();
@@ -125,12 +177,10 @@ public class InsightsController {
         }
 
         // 4. 本月余额概览
-        Map<String, Object> overview = statsMapper.getOverviewStats(userId, 1);
         Map<String, Object> monthlyBalance = new HashMap<>();
         Object totalExpense = overview != null ? overview.get("totalExpense") : 0;
         monthlyBalance.put("totalPaid", totalExpense != null ? ((Number) totalExpense).doubleValue() / 100.0 : 0);
 
-        List<Map<String, Object>> thisMonthOwed = statsMapper.getMonthlyOwedStats(userId, 1);
         double totalOwedThisMonth = 0;
         for (Map<String, Object> item : thisMonthOwed) {
             Object amt = item.get("totalAmount");
@@ -140,10 +190,7 @@ public class InsightsController {
         result.put("monthlyBalance", monthlyBalance);
 
         // 5. 最优结算方案
-        SettlementResponse settlement = debtService.getMinimizedSettlements(userId);
         result.put("settlement", settlement);
-
-        return result;
     }
 
     /**
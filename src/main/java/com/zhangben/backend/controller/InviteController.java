@@ -10,6 +10,7 @@ import com.zhangben.backend.model.Activity;
 import com.zhangben.backend.model.FavoredUser;
 import com.zhangben.backend.model.InviteLink;
 import com.zhangben.backend.model.User;
+import com.zhangben.backend.service.notify.ChangeEventPublisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
@@ -35,6 +36,9 @@ public class InviteController {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private ChangeEventPublisher changeEventPublisher;
+
     @Value("${app.base-url:https://www.aabillpay.com}")
     private String baseUrl;
 
@@ -242,6 +246,8 @@ public class InviteController {
             }
 
             activityMemberMapper.insert(link.getActivityId(), userId, "member");
+            // V67: 推送成员变动
+            changeEventPublisher.memberChanged(ChangeEventPublisher.MEMBER_JOINED, link.getActivityId(), userId);
             result.put("message", "已成功加入活动");
             result.put("activityId", link.getActivityId());
         }
@@ -3,8 +3,11 @@ package com.zhangben.backend.controller;
 import cn.dev33.satoken.stp.StpUtil;
 import com.zhangben.backend.model.Notification;
 import com.zhangben.backend.service.NotificationService;
+import com.zhangben.backend.service.notify.UserEventHub;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -17,6 +20,9 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private UserEventHub userEventHub;
+
     /**
      * 获取通知列表
      */
@@ -38,6 +44,18 @@ public class NotificationController {
         return result;
     }
 
+    /**
+     * V66: SSE 推送（unread: 未读数变化，notification: 新通知摘要），连接后立即推送一次未读数
+     * V67: 与 /api/events/stream 为同一事件流，也包含数据变更事件
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        Integer userId = StpUtil.getLoginIdAsInt();
+        Map<String, Object> initial = new HashMap<>();
+        initial.put("count", notificationService.getUnreadCount(userId));
+        return userEventHub.subscribe(userId, "unread", initial);
+    }
+
     /**
      * 标记单个通知为已读
      */
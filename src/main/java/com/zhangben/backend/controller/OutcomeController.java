@@ -132,7 +132,8 @@ public class OutcomeController {
      * @param endDate 结束日期（格式：yyyy-MM-dd）
      * @param styleId 分类ID
      * @param limit 返回数量
-     * @param offset 偏移量
+     * @param offset 偏移量（V72: 已废弃，请使用 cursor；仅在未传 cursor 且 offset > 0 时生效）
+     * @param cursor V72: 上一页返回的 nextCursor（首页不传）
      */
     @GetMapping("/search")
     public ResponseEntity<?> searchOutcomes(
@@ -141,17 +142,25 @@ public class OutcomeController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Integer styleId,
             @RequestParam(defaultValue = "20") Integer limit,
-            @RequestParam(defaultValue = "0") Integer offset) {
+            @RequestParam(defaultValue = "0") Integer offset,
+            @RequestParam(required = false) String cursor) {
         Integer userId = StpUtil.getLoginIdAsInt();
 
-        List<RecentOutcomeItem> items = outcomeService.searchOutcomes(
-                userId, keyword, startDate, endDate, styleId, limit, offset);
-        Integer total = outcomeService.countSearchOutcomes(
-                userId, keyword, startDate, endDate, styleId);
-
         Map<String, Object> result = new HashMap<>();
-        result.put("items", items);
-        result.put("total", total);
+        if ((cursor == null || cursor.isEmpty()) && offset != null && offset > 0) {
+            // 旧客户端的 offset 分页
+            List<RecentOutcomeItem> items = outcomeService.searchOutcomes(
+                    userId, keyword, startDate, endDate, styleId, limit, offset);
+            result.put("items", items);
+        } else {
+            result.putAll(outcomeService.searchOutcomesPage(
+                    userId, keyword, startDate, endDate, styleId, limit, cursor));
+        }
+        // 总数只在首页计算，翻页时不再重复统计
+        if (cursor == null || cursor.isEmpty()) {
+            result.put("total", outcomeService.countSearchOutcomes(
+                    userId, keyword, startDate, endDate, styleId));
+        }
         result.put("limit", limit);
         result.put("offset", offset);
 
@@ -3,8 +3,8 @@ package com.zhangben.backend.controller;
 import cn.dev33.satoken.stp.StpUtil;
 import com.zhangben.backend.model.PayStyle;
 import com.zhangben.backend.model.User;
-import com.zhangben.backend.mapper.PayStyleMapper;
 import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,7 +15,7 @@ import java.util.List;
 public class PayStyleController {
 
     @Autowired
-    private PayStyleMapper payStyleMapper;
+    private ReferenceDataCache referenceDataCache;
 
     @Autowired
     private UserMapper userMapper;
@@ -36,6 +36,6 @@ public class PayStyleController {
             language = user.getPreferredLanguage();
         }
 
-        return payStyleMapper.selectAllLocalized(language);
+        return referenceDataCache.getLocalizedStyles(language);
     }
 }
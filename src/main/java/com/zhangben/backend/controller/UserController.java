@@ -6,6 +6,7 @@ import com.zhangben.backend.model.User;
 import com.zhangben.backend.model.UserExample;
 import com.zhangben.backend.mapper.UserMapper;
 import com.zhangben.backend.service.AccountDeletionService;
+import com.zhangben.backend.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,36 +28,27 @@ public class UserController {
     @Autowired
     private AccountDeletionService accountDeletionService;
 
+    @Autowired
+    private UserService userService;
+
     /**
-     * 搜索用户（通过昵称或邮箱）
+     * 搜索用户（通过昵称、邮箱或姓名）
+     * V71: 走索引召回并按匹配程度排序，最多返回 limit 个（默认 user.search.default-limit）
      * @param keyword 搜索关键词
+     * @param limit 返回数量上限（不超过 user.search.max-limit）
+     * @param friendsFirst 好友排在前面
      */
     @GetMapping("/search")
-    public List<UserSearchResult> searchUsers(@RequestParam String keyword) {
+    public List<UserSearchResult> searchUsers(@RequestParam String keyword,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(defaultValue = "true") boolean friendsFirst) {
         StpUtil.checkLogin();
         Integer currentUserId = StpUtil.getLoginIdAsInt();
 
-        if (keyword == null || keyword.trim().isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        String searchKey = "%" + keyword.trim() + "%";
-
-        UserExample example = new UserExample();
-        example.or().andNicknameLike(searchKey);
-        example.or().andEmailLike(searchKey);
-        example.or().andFirstnameLike(searchKey);
-        example.or().andSecondnameLike(searchKey);
-
-        List<User> users = userMapper.selectByExample(example);
+        List<User> users = userService.searchUsers(currentUserId, keyword, limit, friendsFirst);
 
         List<UserSearchResult> result = new ArrayList<>();
         for (User u : users) {
-            // 排除自己
-            if (u.getId().equals(currentUserId)) {
-                continue;
-            }
-
             UserSearchResult item = new UserSearchResult();
             item.setId(u.getId());
             item.setNickname(u.getNickname());
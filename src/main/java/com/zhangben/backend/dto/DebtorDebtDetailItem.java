@@ -14,6 +14,7 @@ public class DebtorDebtDetailItem {
     private String currency; // V47: 金额所在币种
     private Long originalAmount; // V47: 原始币种金额 (cents)
     private String originalCurrency; // V47: 原始交易币种
+    private Long repaidAmount; // V58: 按 FIFO 已被确认还款冲销的金额，仅主方向的消费明细有值
 
     public Integer getOutcomeId() {
         return outcomeId;
@@ -94,4 +95,12 @@ public class DebtorDebtDetailItem {
     public void setOriginalCurrency(String originalCurrency) {
         this.originalCurrency = originalCurrency;
     }
+
+    public Long getRepaidAmount() {
+        return repaidAmount;
+    }
+
+    public void setRepaidAmount(Long repaidAmount) {
+        this.repaidAmount = repaidAmount;
+    }
 }
\ No newline at end of file
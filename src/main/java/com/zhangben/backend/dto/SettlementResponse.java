@@ -8,6 +8,9 @@ public class SettlementResponse {
     private List<SettlementItem> mySettlements;
     private int originalTransferCount;
     private int minimizedTransferCount;
+    // V56: 实际使用的求解器（greedy / exact）及求解耗时（微秒）
+    private String algorithm;
+    private long solveMicros;
 
     public List<SettlementItem> getSettlements() {
         return settlements;
@@ -40,4 +43,20 @@ public class SettlementResponse {
     public void setMinimizedTransferCount(int minimizedTransferCount) {
         this.minimizedTransferCount = minimizedTransferCount;
     }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public long getSolveMicros() {
+        return solveMicros;
+    }
+
+    public void setSolveMicros(long solveMicros) {
+        this.solveMicros = solveMicros;
+    }
 }
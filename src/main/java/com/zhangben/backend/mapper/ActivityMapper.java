@@ -33,4 +33,9 @@ public interface ActivityMapper {
      * V40: Update activity creator (for ownership transfer)
      */
     int updateCreatorId(@Param("id") Integer id, @Param("newCreatorId") Integer newCreatorId);
+
+    /**
+     * V59: Batch lookup by ids (DTO enrichment)
+     */
+    List<Activity> selectByIds(@Param("ids") java.util.Collection<Integer> ids);
 }
@@ -39,4 +39,9 @@ public interface ActivityMemberMapper {
      * V40: Get first other member of an activity (for ownership transfer)
      */
     Map<String, Object> selectFirstOtherMember(@Param("activityId") Integer activityId, @Param("excludeUserId") Integer excludeUserId);
+
+    /**
+     * V67: All member user IDs of an activity (change event recipients)
+     */
+    List<Integer> selectUserIds(@Param("activityId") Integer activityId);
 }
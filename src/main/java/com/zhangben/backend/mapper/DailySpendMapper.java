@@ -0,0 +1,71 @@
+package com.zhangben.backend.mapper;
+
+import com.zhangben.backend.model.UserDailySpend;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * V62: 用户每日消费汇总 Mapper
+ */
+@Mapper
+public interface DailySpendMapper {
+
+    /**
+     * 批量累加增量（不存在则插入）
+     * @param deltas amount / shareAmount / txnCount 为变化量
+     */
+    int batchAddDelta(@Param("deltas") List<UserDailySpend> deltas);
+
+    /**
+     * 查询某用户的全部汇总行（一致性检查用）
+     */
+    List<UserDailySpend> selectByUser(@Param("userId") Integer userId);
+
+    /**
+     * 从 outcome / outcome_participant 重新计算某用户应有的汇总行（一致性检查用）
+     */
+    List<UserDailySpend> selectExpectedByUser(@Param("userId") Integer userId);
+
+    /**
+     * 删除一段用户ID范围内的汇总行（重建用）
+     */
+    int deleteUsers(@Param("fromUserId") Integer fromUserId, @Param("toUserId") Integer toUserId);
+
+    /**
+     * 从 outcome / outcome_participant 重新写入一段用户ID范围内的汇总行（重建用）
+     */
+    int insertUsersFromOutcome(@Param("fromUserId") Integer fromUserId, @Param("toUserId") Integer toUserId);
+
+    /**
+     * 参与过消费的最大用户ID（重建全部时的上界）
+     */
+    Integer selectMaxParticipantUserId();
+
+    /**
+     * 随机抽样用户ID（一致性检查用）
+     */
+    List<Integer> selectRandomUserIds(@Param("limit") int limit);
+
+    /**
+     * V77: 按日期合计汇总表（userId / styleId / payerId 为空）
+     */
+    List<UserDailySpend> selectDayTotals(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+
+    /**
+     * V77: 按日期合计原始数据（与 selectDayTotals 口径一致）
+     */
+    List<UserDailySpend> selectExpectedDayTotals(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+
+    /**
+     * V77: 某一天各用户的汇总合计（styleId / payerId 为空）
+     */
+    List<UserDailySpend> selectUserTotalsByDay(@Param("day") LocalDate day);
+
+    /**
+     * V77: 某一天各用户的原始数据合计
+     */
+    List<UserDailySpend> selectExpectedUserTotalsByDay(@Param("day") LocalDate day);
+}
@@ -0,0 +1,54 @@
+package com.zhangben.backend.mapper;
+
+import com.zhangben.backend.model.DebtLedgerEntry;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * V52: 两两欠款账本 Mapper
+ */
+@Mapper
+public interface DebtLedgerMapper {
+
+    /**
+     * 批量累加增量（不存在则插入）
+     * @param entries amount 为变化量
+     */
+    int batchAddDelta(@Param("entries") List<DebtLedgerEntry> entries);
+
+    /**
+     * 查询某用户在指定作用域内作为债务人或债权人的全部条目
+     * @param activityId 0=一般模式
+     */
+    List<DebtLedgerEntry> selectByUser(@Param("activityId") Integer activityId,
+                                       @Param("userId") Integer userId);
+
+    /**
+     * 查询一组用户在指定作用域内作为债务人或债权人的全部条目
+     */
+    List<DebtLedgerEntry> selectByUsers(@Param("activityId") Integer activityId,
+                                        @Param("userIds") Collection<Integer> userIds);
+
+    /**
+     * 查询指定作用域内的全部非零条目
+     */
+    List<DebtLedgerEntry> selectByScope(@Param("activityId") Integer activityId);
+
+    /**
+     * 查询账本全部条目（对账用）
+     */
+    List<DebtLedgerEntry> selectAll();
+
+    /**
+     * 从 outcome / outcome_participant 重新计算应有的账本（对账用）
+     */
+    List<DebtLedgerEntry> selectExpectedEntries();
+
+    /**
+     * 清理已归零的条目
+     */
+    int deleteZeroEntries();
+}
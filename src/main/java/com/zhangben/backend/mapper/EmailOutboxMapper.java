@@ -0,0 +1,70 @@
+package com.zhangben.backend.mapper;
+
+import com.zhangben.backend.model.EmailOutboxMessage;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * V68: 邮件发件箱 Mapper
+ */
+@Mapper
+public interface EmailOutboxMapper {
+
+    /**
+     * 入队（随调用方事务提交）
+     */
+    int insert(EmailOutboxMessage message);
+
+    /**
+     * V70: 批量入队（一条多行 INSERT，随调用方事务提交）
+     */
+    int batchInsert(@Param("list") List<EmailOutboxMessage> messages);
+
+    /**
+     * 锁定一批到期的待发送 / 租约已过期的消息，跳过其他节点已锁定的行（须在事务中调用）
+     */
+    List<EmailOutboxMessage> selectClaimable(@Param("limit") int limit);
+
+    /**
+     * 标记为发送中并续租，attempts + 1
+     */
+    int markSending(@Param("ids") List<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 续租（仅当仍是 attempts 这次领取时生效），返回 0 表示租约已被其他 worker 接管
+     */
+    int renewLease(@Param("id") Long id, @Param("attempts") int attempts,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 发送成功（按 attempts 围栏，过期的领取者写入返回 0）
+     */
+    int markSent(@Param("id") Long id, @Param("attempts") int attempts, @Param("provider") String provider,
+                 @Param("messageId") String messageId, @Param("lastResult") String lastResult);
+
+    /**
+     * 发送失败，退回待发送并设置下次重试时间（按 attempts 围栏）
+     */
+    int markRetry(@Param("id") Long id, @Param("attempts") int attempts,
+                  @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("provider") String provider, @Param("lastResult") String lastResult);
+
+    /**
+     * 重试次数用尽，最终失败（按 attempts 围栏）
+     */
+    int markFailed(@Param("id") Long id, @Param("attempts") int attempts, @Param("provider") String provider,
+                   @Param("lastResult") String lastResult);
+
+    /**
+     * 队列统计：pending / sending / failed 数量与最早未发送消息的创建时间（oldestCreatedAt）
+     */
+    Map<String, Object> selectQueueStats();
+
+    /**
+     * 删除早于指定时间的已发送消息（单批）
+     */
+    int deleteSentBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
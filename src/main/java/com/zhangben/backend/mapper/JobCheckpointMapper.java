@@ -0,0 +1,50 @@
+package com.zhangben.backend.mapper;
+
+import com.zhangben.backend.model.JobCheckpoint;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * V70: 批处理任务检查点 Mapper
+ * 除 selectByJob / insertIfAbsent / tryAcquire 外，写操作都以 owner 为条件，租约被其他节点接管后返回 0
+ */
+@Mapper
+public interface JobCheckpointMapper {
+
+    JobCheckpoint selectByJob(@Param("jobName") String jobName);
+
+    /**
+     * 任务行不存在时创建（已完成状态、无租约）
+     */
+    int insertIfAbsent(@Param("jobName") String jobName);
+
+    /**
+     * 获取或续期租约：无人持有、本节点持有或租约已过期时成功（返回 1）
+     */
+    int tryAcquire(@Param("jobName") String jobName, @Param("owner") String owner,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 开始新批次：游标归零、状态置为运行中
+     */
+    int startRun(@Param("jobName") String jobName, @Param("owner") String owner, @Param("runKey") String runKey);
+
+    /**
+     * 推进游标并续租（与分块的业务写入在同一事务内调用）
+     */
+    int advance(@Param("jobName") String jobName, @Param("owner") String owner,
+                @Param("cursorId") Long cursorId, @Param("processedDelta") int processedDelta,
+                @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 批次完成并释放租约
+     */
+    int complete(@Param("jobName") String jobName, @Param("owner") String owner);
+
+    /**
+     * 释放租约（批次保持未完成，下次从游标处继续）
+     */
+    int release(@Param("jobName") String jobName, @Param("owner") String owner);
+}
@@ -1,7 +1,9 @@
 package com.zhangben.backend.mapper;
 
 import com.zhangben.backend.model.Notification;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.apache.ibatis.annotations.Param;
 
 public interface NotificationMapper {
@@ -10,6 +12,11 @@ public interface NotificationMapper {
 
     int insertSelective(Notification notification);
 
+    /**
+     * V65: 多行插入（不回填主键）
+     */
+    int batchInsert(@Param("list") List<Notification> notifications);
+
     Notification selectByPrimaryKey(Long id);
 
     List<Notification> selectByUserId(@Param("userId") Integer userId, @Param("limit") Integer limit);
@@ -18,6 +25,11 @@ public interface NotificationMapper {
 
     int countUnreadByUserId(@Param("userId") Integer userId);
 
+    /**
+     * V66: 批量统计未读数（只返回有未读的用户），每行 userId / cnt
+     */
+    List<Map<String, Object>> countUnreadByUserIds(@Param("userIds") Collection<Integer> userIds);
+
     int markAsRead(@Param("id") Long id);
 
     int markAllAsRead(@Param("userId") Integer userId);
@@ -1,5 +1,6 @@
 package com.zhangben.backend.mapper;
 
+import com.zhangben.backend.model.DebtFlowRow;
 import com.zhangben.backend.model.Outcome;
 import com.zhangben.backend.model.OutcomeExample;
 import java.util.List;
@@ -131,6 +132,12 @@ public interface OutcomeMapper {
      */
     int softDeleteById(@Param("id") Integer id);
 
+    /**
+     * V52: 加行锁读取账单（SELECT ... FOR UPDATE），修改 / 删除 / 确认还款据此计算账本冲减，
+     * 并发的同一账单操作在此串行，不会按同一份旧值重复冲减
+     */
+    Outcome selectByPrimaryKeyForUpdate(@Param("id") Integer id);
+
     /**
      * V40: Get outcomes by activity ID (GDPR)
      */
@@ -183,4 +190,57 @@ public interface OutcomeMapper {
     List<Integer> selectDistinctDays(@Param("userId") Integer userId,
                                       @Param("monthStart") java.time.LocalDateTime monthStart,
                                       @Param("monthEnd") java.time.LocalDateTime monthEnd);
+
+    /**
+     * V58: 一般模式下某用户的消费分摊流水（该用户为付款人或非付款参与者），金额已按份额计算
+     * 按 pay_datetime 升序
+     * @param counterpartyId 不为空时只返回与该用户之间的流水
+     */
+    List<DebtFlowRow> selectExpenseFlows(@Param("userId") Integer userId,
+                                         @Param("counterpartyId") Integer counterpartyId);
+
+    /**
+     * V58: 一般模式下某用户的还款流水（该用户为真正债务人或还款对象），附带债权人的确认状态
+     * 按 pay_datetime 升序
+     * @param counterpartyId 不为空时只返回与该用户之间的流水
+     * @param confirmedOnly 是否只返回已确认的还款
+     */
+    List<DebtFlowRow> selectRepaymentFlows(@Param("userId") Integer userId,
+                                           @Param("counterpartyId") Integer counterpartyId,
+                                           @Param("confirmedOnly") boolean confirmedOnly);
+
+    /**
+     * V54: 按真正债务人（onBehalfOf 或付款人）汇总某债权人的待确认还款
+     * @return debtor_id, pending_amount
+     */
+    List<Map<String, Object>> sumPendingRepaymentsByDebtor(@Param("creditorId") Integer creditorId);
+
+    /**
+     * V72: 搜索某用户付款的账单，按 (pay_datetime, id) 倒序
+     * @param phrase 备注全文检索短语（布尔模式，如 "午饭"），为空时使用 likePattern
+     * @param likePattern 备注 LIKE 模式（已转义，关键词过短无法走全文索引时使用），可为空
+     * @param cursorTime 上一页最后一条的 pay_datetime（首页传 null）
+     * @param cursorId 上一页最后一条的 id
+     * @param offset 未传游标时跳过的条数（兼容旧的 offset 分页）
+     */
+    List<Outcome> searchByPayer(@Param("userId") Integer userId,
+                                @Param("phrase") String phrase,
+                                @Param("likePattern") String likePattern,
+                                @Param("rangeStart") java.time.LocalDateTime rangeStart,
+                                @Param("rangeEnd") java.time.LocalDateTime rangeEnd,
+                                @Param("styleId") Integer styleId,
+                                @Param("cursorTime") java.time.LocalDateTime cursorTime,
+                                @Param("cursorId") Integer cursorId,
+                                @Param("offset") Integer offset,
+                                @Param("limit") int limit);
+
+    /**
+     * V72: searchByPayer 条件下的总数
+     */
+    int countSearchByPayer(@Param("userId") Integer userId,
+                           @Param("phrase") String phrase,
+                           @Param("likePattern") String likePattern,
+                           @Param("rangeStart") java.time.LocalDateTime rangeStart,
+                           @Param("rangeEnd") java.time.LocalDateTime rangeEnd,
+                           @Param("styleId") Integer styleId);
 }
\ No newline at end of file
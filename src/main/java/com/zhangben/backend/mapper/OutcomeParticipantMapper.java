@@ -2,6 +2,7 @@ package com.zhangben.backend.mapper;
 
 import com.zhangben.backend.model.OutcomeParticipant;
 import com.zhangben.backend.model.OutcomeParticipantExample;
+import java.time.LocalDateTime;
 import java.util.List;
 import org.apache.ibatis.annotations.Param;
 
@@ -103,4 +104,17 @@ public interface OutcomeParticipantMapper {
      * 根据还款ID和债权人ID查询参与记录
      */
     OutcomeParticipant selectByOutcomeAndUser(@Param("outcomeId") Integer outcomeId, @Param("userId") Integer userId);
+
+    /**
+     * V53: 批量查询多个账单的参与记录，按 outcome_id 排序
+     * @param outcomeIds 账单ID列表（调用方按批次分块）
+     */
+    List<OutcomeParticipant> selectByOutcomeIds(@Param("outcomeIds") List<Integer> outcomeIds);
+
+    /**
+     * V52: 仅在仍为待确认且还款未删除时标记为已确认，返回影响行数（0 表示已被并发 / 重复请求确认或已删除）
+     */
+    int confirmIfPending(@Param("id") Integer id,
+                         @Param("confirmedBy") Integer confirmedBy,
+                         @Param("confirmedAt") LocalDateTime confirmedAt);
 }
\ No newline at end of file
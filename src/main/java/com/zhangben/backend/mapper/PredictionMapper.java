@@ -16,19 +16,56 @@ public interface PredictionMapper {
 
     int updateByUserId(KalmanFilterState record);
 
+    /**
+     * 用户有支出的月份（transaction_count > 0），按月份升序
+     */
     List<UserMonthlySpending> selectMonthlySpending(@Param("userId") Integer userId);
 
-    int upsertMonthlySpending(UserMonthlySpending record);
+    /**
+     * V61: 批量累加月度支出增量（ON DUPLICATE KEY UPDATE 各列 += 增量）
+     */
+    int batchAddSpendingDelta(@Param("deltas") List<UserMonthlySpending> deltas);
 
-    List<UserMonthlySpending> aggregateMonthlySpending(@Param("userId") Integer userId);
+    /**
+     * V61: 从 outcome / outcome_participant 重新计算的全部用户月度支出（对账用）
+     */
+    List<UserMonthlySpending> selectExpectedMonthlySpending();
+
+    /**
+     * V61: 物化表全部行（对账用）
+     */
+    List<UserMonthlySpending> selectAllMonthlySpending();
+
+    /**
+     * V61: 删除已无支出的月份
+     */
+    int deleteEmptyMonthlySpending();
+
+    /**
+     * V75: sinceMonth 及之后有支出、且 user_id > afterId 的用户，按 user_id 升序取 limit 个（批量重训游标）
+     */
+    List<Integer> selectActiveUserIds(@Param("sinceMonth") String sinceMonth,
+                                      @Param("afterId") Integer afterId,
+                                      @Param("limit") int limit);
+
+    /**
+     * V75: 一批用户有支出的月份，按 (user_id, month) 升序
+     */
+    List<UserMonthlySpending> selectMonthlySpendingByUsers(@Param("userIds") List<Integer> userIds);
+
+    /**
+     * V75: 一批用户的卡尔曼状态
+     */
+    List<KalmanFilterState> selectByUserIds(@Param("userIds") List<Integer> userIds);
 
     /**
-     * 聚合固定支出（is_fixed=true 的分类）
+     * V76: state_blob 为空（仍为 JSON 编码）且 id > afterId 的状态，按 id 升序取 limit 行
      */
-    List<UserMonthlySpending> aggregateFixedSpending(@Param("userId") Integer userId);
+    List<KalmanFilterState> selectLegacyEncodedStates(@Param("afterId") Integer afterId,
+                                                      @Param("limit") int limit);
 
     /**
-     * 聚合变动支出（is_fixed=false 或 NULL 的分类）
+     * V75: 批量写入卡尔曼状态（按 user_id INSERT ... ON DUPLICATE KEY UPDATE）
      */
-    List<UserMonthlySpending> aggregateVariableSpending(@Param("userId") Integer userId);
+    int batchUpsertKalmanState(@Param("states") List<KalmanFilterState> states);
 }
@@ -109,11 +109,47 @@ public interface UserMapper {
         @Param("expiryThreshold") LocalDateTime expiryThreshold
     );
 
+    /**
+     * V70: 按 ID 游标分块查找即将到期的订阅（id > afterId，按 id 升序）
+     */
+    List<User> selectExpiringSubscriptionsAfter(
+        @Param("now") LocalDateTime now,
+        @Param("expiryThreshold") LocalDateTime expiryThreshold,
+        @Param("afterId") Integer afterId,
+        @Param("limit") int limit
+    );
+
+    /**
+     * V70: 批量标记续费提醒已发送
+     */
+    int markSubscriptionReminderSent(@Param("ids") List<Integer> ids);
+
     /**
      * V42: 重置所有用户的提醒发送状态
      */
     int resetSubscriptionReminderStatus();
 
+    /**
+     * V71: 用户搜索 - 邮箱精确匹配
+     */
+    List<User> searchByEmail(@Param("email") String email, @Param("limit") int limit);
+
+    /**
+     * V71: 用户搜索 - 昵称前缀匹配（prefix 需已转义 LIKE 通配符），按昵称索引顺序返回
+     */
+    List<User> searchByNicknamePrefix(@Param("prefix") String prefix, @Param("limit") int limit);
+
+    /**
+     * V71: 用户搜索 - FULLTEXT ngram 子串匹配（phrase 为布尔模式短语，如 "abc"），按相关度排序
+     */
+    List<User> searchByFulltext(@Param("phrase") String phrase, @Param("limit") int limit);
+
+    /**
+     * V71: 用户搜索 - 在 userId 的好友中做子串匹配（pattern 为已转义的 %kw%）
+     */
+    List<User> searchFavored(@Param("userId") Integer userId, @Param("pattern") String pattern,
+                             @Param("limit") int limit);
+
     /**
      * V43: 按 Microsoft ID 查找用户
      */
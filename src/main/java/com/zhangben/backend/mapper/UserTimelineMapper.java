@@ -0,0 +1,25 @@
+package com.zhangben.backend.mapper;
+
+import com.zhangben.backend.model.UserTimeline;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * V73: 用户账单时间线 Mapper
+ * 分页 / 月份 / 日期查询见 OutcomeMapper.selectPagedByUser / selectDistinctMonths / selectDistinctDays
+ */
+@Mapper
+public interface UserTimelineMapper {
+
+    /**
+     * 批量写入（已存在则更新身份与时间）
+     */
+    int batchUpsert(@Param("rows") List<UserTimeline> rows);
+
+    /**
+     * 删除某账单的全部时间线行
+     */
+    int deleteByOutcome(@Param("outcomeId") Integer outcomeId);
+}
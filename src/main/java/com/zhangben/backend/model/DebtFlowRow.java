@@ -0,0 +1,136 @@
+package com.zhangben.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * V58: 欠款流水行（OutcomeMapper.selectExpenseFlows / selectRepaymentFlows 的结果）
+ * 一行对应一笔账单在一对用户之间产生的欠款或还款，SQL 侧已完成参与者份额计算与确认状态关联
+ */
+public class DebtFlowRow {
+
+    private Integer outcomeId;         // 账单ID
+    private Byte repayFlag;            // 1=消费，2=还款
+    private Integer debtorId;          // 债务人（消费为参与者，还款为 onBehalfOf 或付款人）
+    private Integer creditorId;        // 债权人（消费为付款人，还款为还款对象）
+    private Long amount;               // 消费为 perAmount * shares，还款为还款金额（分）
+    private LocalDateTime payDatetime;
+    private String comment;
+    private Integer styleId;
+    private String currency;           // target_currency_snapshot
+    private Long originalAmount;
+    private String originalCurrency;
+    private Integer payerUserid;       // 实际付款人（代还时与债务人不同）
+    private Byte confirmStatus;        // 还款：债权人参与记录的确认状态，无记录为 null；消费为 null
+
+    public Integer getOutcomeId() {
+        return outcomeId;
+    }
+
+    public void setOutcomeId(Integer outcomeId) {
+        this.outcomeId = outcomeId;
+    }
+
+    public Byte getRepayFlag() {
+        return repayFlag;
+    }
+
+    public void setRepayFlag(Byte repayFlag) {
+        this.repayFlag = repayFlag;
+    }
+
+    public Integer getDebtorId() {
+        return debtorId;
+    }
+
+    public void setDebtorId(Integer debtorId) {
+        this.debtorId = debtorId;
+    }
+
+    public Integer getCreditorId() {
+        return creditorId;
+    }
+
+    public void setCreditorId(Integer creditorId) {
+        this.creditorId = creditorId;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public LocalDateTime getPayDatetime() {
+        return payDatetime;
+    }
+
+    public void setPayDatetime(LocalDateTime payDatetime) {
+        this.payDatetime = payDatetime;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    public Integer getStyleId() {
+        return styleId;
+    }
+
+    public void setStyleId(Integer styleId) {
+        this.styleId = styleId;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public Long getOriginalAmount() {
+        return originalAmount;
+    }
+
+    public void setOriginalAmount(Long originalAmount) {
+        this.originalAmount = originalAmount;
+    }
+
+    public String getOriginalCurrency() {
+        return originalCurrency;
+    }
+
+    public void setOriginalCurrency(String originalCurrency) {
+        this.originalCurrency = originalCurrency;
+    }
+
+    public Integer getPayerUserid() {
+        return payerUserid;
+    }
+
+    public void setPayerUserid(Integer payerUserid) {
+        this.payerUserid = payerUserid;
+    }
+
+    public Byte getConfirmStatus() {
+        return confirmStatus;
+    }
+
+    public void setConfirmStatus(Byte confirmStatus) {
+        this.confirmStatus = confirmStatus;
+    }
+
+    public boolean isExpense() {
+        return repayFlag != null && repayFlag == (byte) 1;
+    }
+
+    public boolean isConfirmed() {
+        return confirmStatus != null && confirmStatus == 1;
+    }
+}
@@ -0,0 +1,76 @@
+package com.zhangben.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * V52: 两两欠款账本条目
+ * 累计 debtor 对 creditor 的原始欠款（消费分摊为正，已确认还款为负）
+ */
+public class DebtLedgerEntry {
+
+    private Integer activityId;     // 作用域：0=一般模式，其余=活动ID
+    private Integer debtorId;       // 债务人
+    private Integer creditorId;     // 债权人
+    private String currency;        // 结算币种，未知为空串
+    private Long amount;            // 原始欠款累计（分），增量写入时为变化量
+    private LocalDateTime updatedAt;
+
+    public DebtLedgerEntry() {
+    }
+
+    public DebtLedgerEntry(Integer activityId, Integer debtorId, Integer creditorId, String currency, Long amount) {
+        this.activityId = activityId;
+        this.debtorId = debtorId;
+        this.creditorId = creditorId;
+        this.currency = currency;
+        this.amount = amount;
+    }
+
+    public Integer getActivityId() {
+        return activityId;
+    }
+
+    public void setActivityId(Integer activityId) {
+        this.activityId = activityId;
+    }
+
+    public Integer getDebtorId() {
+        return debtorId;
+    }
+
+    public void setDebtorId(Integer debtorId) {
+        this.debtorId = debtorId;
+    }
+
+    public Integer getCreditorId() {
+        return creditorId;
+    }
+
+    public void setCreditorId(Integer creditorId) {
+        this.creditorId = creditorId;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,132 @@
+package com.zhangben.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * V68: 邮件发件箱行（email_outbox）
+ */
+public class EmailOutboxMessage {
+
+    public static final byte STATUS_PENDING = 0;
+    public static final byte STATUS_SENDING = 1;
+    public static final byte STATUS_SENT = 2;
+    public static final byte STATUS_FAILED = 3;
+
+    private Long id;
+    private String toEmail;
+    private String toName;
+    private String subject;
+    private String htmlContent;
+    private Byte status;                    // 见 STATUS_*
+    private Integer attempts;               // 已尝试次数
+    private LocalDateTime nextAttemptAt;    // 下次可领取时间（发送中为租约到期时间）
+    private String provider;                // 最后一次使用的供应商
+    private String messageId;               // 供应商返回的消息ID
+    private String lastResult;              // 最后一次 EmailResult 信息
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getToEmail() {
+        return toEmail;
+    }
+
+    public void setToEmail(String toEmail) {
+        this.toEmail = toEmail;
+    }
+
+    public String getToName() {
+        return toName;
+    }
+
+    public void setToName(String toName) {
+        this.toName = toName;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getHtmlContent() {
+        return htmlContent;
+    }
+
+    public void setHtmlContent(String htmlContent) {
+        this.htmlContent = htmlContent;
+    }
+
+    public Byte getStatus() {
+        return status;
+    }
+
+    public void setStatus(Byte status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getLastResult() {
+        return lastResult;
+    }
+
+    public void setLastResult(String lastResult) {
+        this.lastResult = lastResult;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+}
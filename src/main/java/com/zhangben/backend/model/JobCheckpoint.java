@@ -0,0 +1,94 @@
+package com.zhangben.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * V70: 批处理任务检查点（job_checkpoint）
+ */
+public class JobCheckpoint {
+
+    public static final byte STATUS_RUNNING = 0;
+    public static final byte STATUS_COMPLETED = 1;
+
+    private String jobName;
+    private String runKey;              // 当前批次标识
+    private Long cursorId;              // 已处理到的最大ID
+    private Byte status;                // 见 STATUS_*
+    private Integer processed;          // 本批次已处理数
+    private String owner;               // 持有租约的节点
+    private LocalDateTime leaseUntil;   // 租约到期时间
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getRunKey() {
+        return runKey;
+    }
+
+    public void setRunKey(String runKey) {
+        this.runKey = runKey;
+    }
+
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public void setCursorId(Long cursorId) {
+        this.cursorId = cursorId;
+    }
+
+    public Byte getStatus() {
+        return status;
+    }
+
+    public void setStatus(Byte status) {
+        this.status = status;
+    }
+
+    public Integer getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Integer processed) {
+        this.processed = processed;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -6,8 +6,9 @@ public class KalmanFilterState {
 
     private Integer id;
     private Integer userId;
-    private String stateVector;          // JSON: [level, trend]
-    private String covarianceMatrix;     // JSON: [[p00,p01],[p10,p11]]
+    private String stateVector;          // JSON: [level, trend]（V76: 仅旧行，新写入为 NULL）
+    private String covarianceMatrix;     // JSON: [[p00,p01],[p10,p11]]（V76: 仅旧行，新写入为 NULL）
+    private byte[] stateBlob;            // V76: 状态 + 协方差的二进制编码，见 KalmanStateCodec
     private Long predictedNextMonth;
     private Long predictedConfidenceLow;
     private Long predictedConfidenceHigh;
@@ -29,6 +30,9 @@ public class KalmanFilterState {
     public String getCovarianceMatrix() { return covarianceMatrix; }
     public void setCovarianceMatrix(String covarianceMatrix) { this.covarianceMatrix = covarianceMatrix; }
 
+    public byte[] getStateBlob() { return stateBlob; }
+    public void setStateBlob(byte[] stateBlob) { this.stateBlob = stateBlob; }
+
     public Long getPredictedNextMonth() { return predictedNextMonth; }
     public void setPredictedNextMonth(Long predictedNextMonth) { this.predictedNextMonth = predictedNextMonth; }
 
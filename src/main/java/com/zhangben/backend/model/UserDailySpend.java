@@ -0,0 +1,88 @@
+package com.zhangben.backend.model;
+
+import java.time.LocalDate;
+
+/**
+ * V62: 用户每日消费汇总行（user_daily_spend）
+ * 主键 (userId, day, styleId, payerId)；payerId 等于 userId 为本人支付，否则为他人代付。
+ * 增量写入时 amount / shareAmount / txnCount 为变化量。
+ */
+public class UserDailySpend {
+
+    private Integer userId;         // 参与者
+    private LocalDate day;          // 消费日期
+    private Integer styleId;        // 分类，0=无分类
+    private Integer payerId;        // 付款人
+    private Long amount;            // SUM(per_amount)（分）
+    private Long shareAmount;       // SUM(per_amount * shares)（分）
+    private Integer txnCount;       // 参与记录数
+
+    public UserDailySpend() {
+    }
+
+    public UserDailySpend(Integer userId, LocalDate day, Integer styleId, Integer payerId) {
+        this.userId = userId;
+        this.day = day;
+        this.styleId = styleId;
+        this.payerId = payerId;
+        this.amount = 0L;
+        this.shareAmount = 0L;
+        this.txnCount = 0;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public Integer getStyleId() {
+        return styleId;
+    }
+
+    public void setStyleId(Integer styleId) {
+        this.styleId = styleId;
+    }
+
+    public Integer getPayerId() {
+        return payerId;
+    }
+
+    public void setPayerId(Integer payerId) {
+        this.payerId = payerId;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public Long getShareAmount() {
+        return shareAmount;
+    }
+
+    public void setShareAmount(Long shareAmount) {
+        this.shareAmount = shareAmount;
+    }
+
+    public Integer getTxnCount() {
+        return txnCount;
+    }
+
+    public void setTxnCount(Integer txnCount) {
+        this.txnCount = txnCount;
+    }
+}
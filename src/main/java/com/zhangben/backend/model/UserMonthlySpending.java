@@ -2,6 +2,10 @@ package com.zhangben.backend.model;
 
 import java.time.LocalDateTime;
 
+/**
+ * 用户月度支出物化行（user_monthly_spending）
+ * V61: 拆分固定 / 变动支出，随账单写入增量维护；增量写入时各字段为变化量
+ */
 public class UserMonthlySpending {
 
     private Integer id;
@@ -9,6 +13,10 @@ public class UserMonthlySpending {
     private String month;            // "YYYY-MM"
     private Long totalSpending;      // cents
     private Integer transactionCount;
+    private Long fixedSpending;      // cents, pay_style.is_fixed = TRUE
+    private Integer fixedCount;
+    private Long variableSpending;   // cents, other / no category
+    private Integer variableCount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -27,6 +35,18 @@ public class UserMonthlySpending {
     public Integer getTransactionCount() { return transactionCount; }
     public void setTransactionCount(Integer transactionCount) { this.transactionCount = transactionCount; }
 
+    public Long getFixedSpending() { return fixedSpending; }
+    public void setFixedSpending(Long fixedSpending) { this.fixedSpending = fixedSpending; }
+
+    public Integer getFixedCount() { return fixedCount; }
+    public void setFixedCount(Integer fixedCount) { this.fixedCount = fixedCount; }
+
+    public Long getVariableSpending() { return variableSpending; }
+    public void setVariableSpending(Long variableSpending) { this.variableSpending = variableSpending; }
+
+    public Integer getVariableCount() { return variableCount; }
+    public void setVariableCount(Integer variableCount) { this.variableCount = variableCount; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,61 @@
+package com.zhangben.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * V73: 用户账单时间线行（user_timeline）
+ * 主键 (userId, outcomeId)；同一账单对同一用户只保留优先级最高（数值最小）的身份。
+ */
+public class UserTimeline {
+
+    public static final byte ROLE_PAYER = 1;
+    public static final byte ROLE_REPAY_TARGET = 2;
+    public static final byte ROLE_PARTICIPANT = 3;
+
+    private Integer userId;
+    private Integer outcomeId;
+    private Byte role;                  // 见 ROLE_*
+    private LocalDateTime payDatetime;  // 账单时间（冗余）
+
+    public UserTimeline() {
+    }
+
+    public UserTimeline(Integer userId, Integer outcomeId, Byte role, LocalDateTime payDatetime) {
+        this.userId = userId;
+        this.outcomeId = outcomeId;
+        this.role = role;
+        this.payDatetime = payDatetime;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public Integer getOutcomeId() {
+        return outcomeId;
+    }
+
+    public void setOutcomeId(Integer outcomeId) {
+        this.outcomeId = outcomeId;
+    }
+
+    public Byte getRole() {
+        return role;
+    }
+
+    public void setRole(Byte role) {
+        this.role = role;
+    }
+
+    public LocalDateTime getPayDatetime() {
+        return payDatetime;
+    }
+
+    public void setPayDatetime(LocalDateTime payDatetime) {
+        this.payDatetime = payDatetime;
+    }
+}
@@ -34,7 +34,7 @@ public interface CurrencyConverterService {
     Map<String, BigDecimal> getAllRates();
 
     /**
-     * Refresh the Redis cache from DB.
+     * Reload rates from DB (all nodes).
      */
     void refreshCache();
 }
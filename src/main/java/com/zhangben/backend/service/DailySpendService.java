@@ -0,0 +1,50 @@
+package com.zhangben.backend.service;
+
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * V62: 用户每日消费汇总服务
+ * 在账单写入的同一事务内增量维护 user_daily_spend，统计 / 洞察接口只做按用户 + 日期的范围扫描。
+ */
+public interface DailySpendService {
+
+    /**
+     * 计入一条账单对每日汇总的影响（仅消费 repay_flag=1）
+     * @param outcome 账单（使用其当前金额 / 分类 / 时间）
+     * @param participants 该账单的参与者记录
+     */
+    void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 撤销一条账单对每日汇总的影响（删除账单、修改金额或分类前调用）
+     */
+    void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 从原始数据重建一段用户ID范围内的汇总，按段分批提交
+     * @param fromUserId 起始用户ID（含），null 表示从头开始
+     * @param toUserId 结束用户ID（含），null 表示到最大参与者ID
+     * @return 重建报告（fromUserId / toUserId / batches / rows / costMs）
+     */
+    Map<String, Object> rebuild(Integer fromUserId, Integer toUserId);
+
+    /**
+     * 随机抽样用户，比对汇总与原始数据
+     * @param sampleSize 抽样用户数
+     * @param repair 发现差异时是否重建该用户的汇总
+     * @return 检查报告（sampled / mismatchedUsers / mismatches / repaired / costMs）
+     */
+    Map<String, Object> check(int sampleSize, boolean repair);
+
+    /**
+     * 全量核对最近若干天的按日合计（汇总表 vs outcome 原始聚合），覆盖抽样检查漏掉的用户
+     * @param days 核对的天数（含今天）
+     * @param repair 发现差异时是否重建当天合计不一致的用户
+     * @return 检查报告（fromDay / toDay / mismatchedDays / mismatchedUsers / repaired / costMs）
+     */
+    Map<String, Object> checkTotals(int days, boolean repair);
+}
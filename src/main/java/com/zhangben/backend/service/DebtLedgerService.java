@@ -0,0 +1,54 @@
+package com.zhangben.backend.service;
+
+import com.zhangben.backend.model.DebtLedgerEntry;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * V52: 两两欠款账本服务
+ * 在账单 / 还款写入的同一事务内增量维护 debt_ledger，
+ * 欠款查询直接按用户读取账本，不再全表扫描 outcome。
+ */
+public interface DebtLedgerService {
+
+    /**
+     * 计入一条账单对账本的影响
+     * 消费（repay_flag=1）：每个非付款人参与者欠付款人 perAmount * shares
+     * 还款（repay_flag=2）：仅当债权人的参与记录已确认时冲减欠款
+     * @param outcome 账单（使用其当前金额）
+     * @param participants 该账单的参与者记录
+     */
+    void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 撤销一条账单对账本的影响（删除账单、修改金额前调用）
+     */
+    void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 查询某用户在指定作用域内的账本条目
+     * @param activityId null 或 0 表示一般模式
+     */
+    List<DebtLedgerEntry> getUserEntries(Integer userId, Integer activityId);
+
+    /**
+     * 查询一组用户在指定作用域内的账本条目
+     */
+    List<DebtLedgerEntry> getUsersEntries(Collection<Integer> userIds, Integer activityId);
+
+    /**
+     * 查询指定作用域内的全部账本条目
+     */
+    List<DebtLedgerEntry> getScopeEntries(Integer activityId);
+
+    /**
+     * 从 outcome / outcome_participant 重新计算账本并与现有账本比对
+     * @param repair 是否将差额写回账本
+     * @return 对账报告（checked / driftCount / drifts / repaired / costMs）
+     */
+    Map<String, Object> reconcile(boolean repair);
+}
@@ -63,6 +63,12 @@ public interface DebtService {
      */
     SettlementResponse getMinimizedSettlements(Integer userId);
 
+    /**
+     * V56: 获取最优结算方案，指定求解模式
+     * @param mode auto（默认，小规模精确求最少笔数，超出上限回退贪心）/ greedy / exact
+     */
+    SettlementResponse getMinimizedSettlements(Integer userId, String mode);
+
     /**
      * FIFO 销账还款：按时间先后对冲旧账单，返回冲销明细
      */
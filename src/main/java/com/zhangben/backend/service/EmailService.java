@@ -1,8 +1,10 @@
 package com.zhangben.backend.service;
 
 import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.model.EmailOutboxMessage;
 import com.zhangben.backend.model.User;
 import com.zhangben.backend.model.UserExample;
+import com.zhangben.backend.service.email.EmailOutbox;
 import com.zhangben.backend.service.email.EmailProviderManager;
 import com.zhangben.backend.service.email.EmailResult;
 import org.slf4j.Logger;
@@ -22,6 +24,7 @@ import java.util.*;
  * 2. 自动降级机制
  * 3. 完全容错，不影响系统启动
  * 4. 异步发送，不阻塞业务流程
+ * 5. V68: 账单通知写入邮件发件箱（EmailOutbox），失败自动重试
  */
 @Service
 public class EmailService {
@@ -42,6 +45,9 @@ public class EmailService {
     @Autowired
     private EmailTemplateService templateService;
 
+    @Autowired
+    private EmailOutbox emailOutbox;
+
     @Autowired
     private UserMapper userMapper;
 
@@ -104,16 +110,17 @@ public class EmailService {
     }
 
     /**
-     * 发送账单通知邮件（异步，失败不影响业务）
+     * 渲染账单通知邮件，返回待入队消息；邮件功能关闭或模板渲染失败时返回 null
+     * V68: 由调用方在业务事务内写入发件箱（EmailOutbox.enqueueAll），投递线程异步发送并重试
      */
-    public void sendBillNotificationAsync(String toEmail, String toName, String language,
-                                          String creatorName, Long amount, Long perAmount,
-                                          String comment, String styleName, String activityName,
-                                          boolean isUpdate) {
+    public EmailOutboxMessage renderBillNotification(String toEmail, String toName, String language,
+                                                     String creatorName, Long amount, Long perAmount,
+                                                     String comment, String styleName, String activityName,
+                                                     boolean isUpdate) {
         // 检查邮件功能是否启用
         if (!providerManager.isMailEnabled()) {
             logger.debug("【邮件服务】mail.enabled=false，跳过账单通知: {}", toEmail);
-            return;
+            return null;
         }
 
         // 构建变量
@@ -136,11 +143,9 @@ public class EmailService {
 
         if (htmlContent == null) {
             logger.warn("账单通知邮件模板渲染失败: {}", toEmail);
-            return;
+            return null;
         }
-
-        // 异步发送（Fire-and-forget）
-        providerManager.sendEmailFireAndForget(toEmail, toName, subject, htmlContent);
+        return EmailOutbox.message(toEmail, toName, subject, htmlContent);
     }
 
     /**
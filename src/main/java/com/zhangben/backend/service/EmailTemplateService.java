@@ -1,24 +1,45 @@
 package com.zhangben.backend.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.zhangben.backend.mapper.EmailTemplateMapper;
 import com.zhangben.backend.model.EmailTemplate;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.thymeleaf.IEngineConfiguration;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
+import org.thymeleaf.exceptions.TemplateInputException;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.StringTemplateResolver;
+import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.StringTemplateResource;
 
 import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 邮件模板服务 - 使用 Thymeleaf 渲染数据库中的模板
  * 支持多语言、动态变量替换
+ * V60: 渲染路径的模板读取走 ReferenceDataCache，保存 / 删除后失效
+ * V69: 已编译模板缓存 —— 按 (模板代码, 请求语言) 缓存加载结果，语言回退在加载时一次性解析；
+ *      Thymeleaf 以 "模板ID + 版本(updated_at)" 命名并开启解析缓存，同一版本只解析一次。
+ *      ReferenceDataCache 中该模板失效（保存 / 删除 / 手动失效 / 其他节点广播）时剔除对应模板代码的全部条目；
+ *      广播丢失或加载与失效并发时，条目按 reference-cache.ttl-minutes 过期兜底。
+ *      条目以任何方式移除（失效 / 过期 / 容量淘汰）时释放其模板内容和 Thymeleaf 解析结果。
  */
 @Service
 public class EmailTemplateService {
@@ -30,8 +51,34 @@ public class EmailTemplateService {
     @Autowired
     private EmailTemplateMapper templateMapper;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    // V69: 已编译模板缓存开关（关闭时每次按原始内容解析，与之前行为一致）
+    @Value("${mail.template.compiled-cache.enabled:true}")
+    private boolean compiledCacheEnabled;
+
+    @Value("${mail.template.compiled-cache.max-size:500}")
+    private long compiledCacheMaxSize;
+
+    // 与 ReferenceDataCache 相同的兜底过期时间
+    @Value("${reference-cache.ttl-minutes:30}")
+    private long compiledCacheTtlMinutes;
+
     private TemplateEngine templateEngine;
 
+    /** V69: 按模板名解析的引擎，名称 → 内容见 compiledSources */
+    private TemplateEngine compiledEngine;
+
+    /** V69: Thymeleaf 模板名 → 模板内容（名称含版本，同名内容不变） */
+    private final Map<String, String> compiledSources = new ConcurrentHashMap<>();
+
+    /** V69: (模板代码|请求语言) → 已解析语言回退的模板，不存在的模板也缓存 */
+    private Cache<String, Optional<CompiledTemplate>> compiledTemplates;
+
+    private final LongAdder compiledLoads = new LongAdder();
+    private final LongAdder compiledEvictions = new LongAdder();
+
     @PostConstruct
     public void init() {
         // 配置 Thymeleaf 模板引擎（用于字符串模板）
@@ -42,7 +89,39 @@ public class EmailTemplateService {
         templateEngine = new TemplateEngine();
         templateEngine.setTemplateResolver(resolver);
 
-        logger.info("EmailTemplateService 初始化完成");
+        // V69: 模板名带版本，解析结果可以永久缓存；模板更新后使用新名称
+        StringTemplateResolver compiledResolver = new StringTemplateResolver() {
+            @Override
+            protected ITemplateResource computeTemplateResource(IEngineConfiguration configuration,
+                                                                String ownerTemplate, String template,
+                                                                Map<String, Object> templateResolutionAttributes) {
+                String source = compiledSources.get(template);
+                if (source == null) {
+                    throw new TemplateInputException("已编译模板不存在: " + template);
+                }
+                return new StringTemplateResource(source);
+            }
+        };
+        compiledResolver.setTemplateMode(TemplateMode.HTML);
+        compiledResolver.setCacheable(true);
+
+        compiledEngine = new TemplateEngine();
+        compiledEngine.setTemplateResolver(compiledResolver);
+
+        compiledTemplates = Caffeine.newBuilder()
+                .maximumSize(compiledCacheMaxSize)
+                .expireAfterWrite(compiledCacheTtlMinutes, TimeUnit.MINUTES)
+                .executor(Runnable::run)
+                .removalListener((String key, Optional<CompiledTemplate> value, RemovalCause cause) -> {
+                    if (value != null) {
+                        value.ifPresent(this::releaseSources);
+                    }
+                })
+                .recordStats()
+                .build();
+        referenceDataCache.addInvalidationListener(ReferenceDataCache.Region.EMAIL_TEMPLATE, this::evictCompiled);
+
+        logger.info("EmailTemplateService 初始化完成（已编译模板缓存: {}）", compiledCacheEnabled ? "启用" : "禁用");
     }
 
     /**
@@ -53,13 +132,27 @@ public class EmailTemplateService {
      * @return 渲染后的 HTML 内容，如果模板不存在返回 null
      */
     public String renderTemplate(String templateCode, String language, Map<String, Object> variables) {
+        if (compiledCacheEnabled) {
+            CompiledTemplate compiled = getCompiled(templateCode, language);
+            if (compiled == null) {
+                logger.error("邮件模板不存在: {} ({})", templateCode, language);
+                return null;
+            }
+            try {
+                return process(compiled.htmlName, compiled.template.getHtmlContent(), language, variables);
+            } catch (Exception e) {
+                logger.error("渲染邮件模板失败 [{}/{}]: {}", templateCode, language, e.getMessage());
+                return null;
+            }
+        }
+
         // 尝试获取指定语言的模板
-        EmailTemplate template = templateMapper.selectByCodeAndLanguage(templateCode, language);
+        EmailTemplate template = referenceDataCache.getTemplate(templateCode, language);
 
         // 如果没有指定语言的模板，尝试默认语言
         if (template == null && !DEFAULT_LANGUAGE.equals(language)) {
             logger.info("未找到 {} 语言的模板 {}，尝试默认语言", language, templateCode);
-            template = templateMapper.selectByCodeAndLanguage(templateCode, DEFAULT_LANGUAGE);
+            template = referenceDataCache.getTemplate(templateCode, DEFAULT_LANGUAGE);
         }
 
         if (template == null) {
@@ -88,10 +181,23 @@ public class EmailTemplateService {
      * @return 渲染后的主题，如果模板不存在返回默认主题
      */
     public String renderSubject(String templateCode, String language, Map<String, Object> variables) {
-        EmailTemplate template = templateMapper.selectByCodeAndLanguage(templateCode, language);
+        if (compiledCacheEnabled) {
+            CompiledTemplate compiled = getCompiled(templateCode, language);
+            if (compiled == null) {
+                return "通知";
+            }
+            try {
+                return process(compiled.subjectName, compiled.template.getSubject(), language, variables);
+            } catch (Exception e) {
+                logger.error("渲染邮件主题失败 [{}/{}]: {}", templateCode, language, e.getMessage());
+                return compiled.template.getSubject(); // 返回原始主题
+            }
+        }
+
+        EmailTemplate template = referenceDataCache.getTemplate(templateCode, language);
 
         if (template == null && !DEFAULT_LANGUAGE.equals(language)) {
-            template = templateMapper.selectByCodeAndLanguage(templateCode, DEFAULT_LANGUAGE);
+            template = referenceDataCache.getTemplate(templateCode, DEFAULT_LANGUAGE);
         }
 
         if (template == null) {
@@ -115,9 +221,9 @@ public class EmailTemplateService {
      * 获取模板的变量说明
      */
     public String getVariablesHint(String templateCode, String language) {
-        EmailTemplate template = templateMapper.selectByCodeAndLanguage(templateCode, language);
+        EmailTemplate template = referenceDataCache.getTemplate(templateCode, language);
         if (template == null) {
-            template = templateMapper.selectByCodeAndLanguage(templateCode, DEFAULT_LANGUAGE);
+            template = referenceDataCache.getTemplate(templateCode, DEFAULT_LANGUAGE);
         }
         return template != null ? template.getVariablesHint() : null;
     }
@@ -165,11 +271,13 @@ public class EmailTemplateService {
             EmailTemplate existing = templateMapper.selectByCodeAndLanguage(
                 template.getTemplateCode(), template.getLanguage());
 
-            if (existing != null) {
-                return templateMapper.updateByCodeAndLanguage(template) > 0;
-            } else {
-                return templateMapper.insert(template) > 0;
+            boolean saved = existing != null
+                ? templateMapper.updateByCodeAndLanguage(template) > 0
+                : templateMapper.insert(template) > 0;
+            if (saved) {
+                referenceDataCache.invalidateTemplate(template.getTemplateCode(), template.getLanguage());
             }
+            return saved;
         } catch (Exception e) {
             logger.error("保存邮件模板失败: {}", e.getMessage());
             return false;
@@ -180,7 +288,12 @@ public class EmailTemplateService {
      * 删除模板
      */
     public boolean deleteTemplate(Integer id) {
-        return templateMapper.deleteById(id) > 0;
+        EmailTemplate existing = templateMapper.selectById(id);
+        boolean deleted = templateMapper.deleteById(id) > 0;
+        if (deleted && existing != null) {
+            referenceDataCache.invalidateTemplate(existing.getTemplateCode(), existing.getLanguage());
+        }
+        return deleted;
     }
 
     /**
@@ -202,6 +315,118 @@ public class EmailTemplateService {
         return renderTemplate(templateCode, language, sampleData);
     }
 
+    /**
+     * V69: 已编译模板缓存统计
+     */
+    public Map<String, Object> getCompiledCacheStats() {
+        CacheStats s = compiledTemplates.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", compiledCacheEnabled);
+        stats.put("size", compiledTemplates.estimatedSize());
+        stats.put("hits", s.hitCount());
+        stats.put("misses", s.missCount());
+        stats.put("hitRate", Math.round(s.hitRate() * 10000) / 100.0);
+        stats.put("loads", compiledLoads.sum());
+        stats.put("evictions", compiledEvictions.sum());
+        stats.put("parsedVersions", compiledSources.size());
+        return stats;
+    }
+
+    /**
+     * V69: 取已编译模板（含语言回退），不存在返回 null
+     */
+    private CompiledTemplate getCompiled(String templateCode, String language) {
+        return compiledTemplates.get(templateCode + "|" + language,
+                k -> Optional.ofNullable(loadCompiled(templateCode, language))).orElse(null);
+    }
+
+    private CompiledTemplate loadCompiled(String templateCode, String language) {
+        compiledLoads.increment();
+        EmailTemplate template = referenceDataCache.getTemplate(templateCode, language);
+        if (template == null && !DEFAULT_LANGUAGE.equals(language)) {
+            logger.info("未找到 {} 语言的模板 {}，使用默认语言", language, templateCode);
+            template = referenceDataCache.getTemplate(templateCode, DEFAULT_LANGUAGE);
+        }
+        if (template == null) {
+            return null;
+        }
+
+        long version = template.getUpdatedAt() != null ? template.getUpdatedAt().getTime() : 0L;
+        String prefix = "email-template-" + template.getId() + "-v" + version;
+        CompiledTemplate compiled = new CompiledTemplate(template, prefix + "-html", prefix + "-subject");
+        compiledSources.putIfAbsent(compiled.htmlName, template.getHtmlContent() != null ? template.getHtmlContent() : "");
+        compiledSources.putIfAbsent(compiled.subjectName, template.getSubject() != null ? template.getSubject() : "");
+        return compiled;
+    }
+
+    /**
+     * V69: 用已编译模板渲染；名称对应的内容已被替换（并发更新）时按原始内容渲染
+     */
+    private String process(String name, String rawContent, String language, Map<String, Object> variables) {
+        Context context = new Context(parseLocale(language));
+        if (variables != null) {
+            context.setVariables(variables);
+        }
+        if (compiledSources.containsKey(name)) {
+            try {
+                return compiledEngine.process(name, context);
+            } catch (TemplateInputException e) {
+                logger.debug("已编译模板 {} 已更新，按原始内容渲染", name);
+            }
+        }
+        return templateEngine.process(rawContent, context);
+    }
+
+    /**
+     * V69: ReferenceDataCache 失效回调，键为 "代码|语言" 或 ALL；
+     * 语言回退使其他语言的条目也可能指向该模板，因此剔除该代码的全部条目
+     */
+    private void evictCompiled(String key) {
+        String code = null;
+        if (!ReferenceDataCache.ALL.equals(key)) {
+            int sep = key.indexOf('|');
+            code = sep >= 0 ? key.substring(0, sep) : key;
+        }
+        for (String cacheKey : compiledTemplates.asMap().keySet()) {
+            if (code == null || cacheKey.startsWith(code + "|")) {
+                // 模板内容由 removalListener 释放
+                compiledTemplates.invalidate(cacheKey);
+                compiledEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * V69: 条目移除后释放模板内容；语言回退使多个条目可能共用同一版本，仍被其他条目引用时保留
+     */
+    private void releaseSources(CompiledTemplate compiled) {
+        for (Optional<CompiledTemplate> other : compiledTemplates.asMap().values()) {
+            if (other.isPresent() && other.get().htmlName.equals(compiled.htmlName)) {
+                return;
+            }
+        }
+        for (String name : List.of(compiled.htmlName, compiled.subjectName)) {
+            if (compiledSources.remove(name) != null) {
+                compiledEngine.clearTemplateCacheFor(name);
+            }
+        }
+    }
+
+    /**
+     * V69: 已解析语言回退的模板及其在 Thymeleaf 中的名称
+     */
+    private static final class CompiledTemplate {
+        private final EmailTemplate template;
+        private final String htmlName;
+        private final String subjectName;
+
+        private CompiledTemplate(EmailTemplate template, String htmlName, String subjectName) {
+            this.template = template;
+            this.htmlName = htmlName;
+            this.subjectName = subjectName;
+        }
+    }
+
     /**
      * 解析语言代码为 Locale
      */
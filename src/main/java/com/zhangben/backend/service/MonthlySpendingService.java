@@ -0,0 +1,35 @@
+package com.zhangben.backend.service;
+
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * V61: 用户月度支出物化服务
+ * 在账单写入的同一事务内增量维护 user_monthly_spending（含固定 / 变动拆分），
+ * 支出预测只读取物化行，不再每次请求从 outcome 聚合。
+ */
+public interface MonthlySpendingService {
+
+    /**
+     * 计入一条账单对月度支出的影响
+     * 仅消费（repay_flag=1）计入：每个参与者当月 +per_amount、笔数 +1，按分类 is_fixed 拆分固定 / 变动
+     * @param outcome 账单（使用其当前金额 / 分类 / 时间）
+     * @param participants 该账单的参与者记录
+     */
+    void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 撤销一条账单对月度支出的影响（删除账单、修改金额或分类前调用）
+     */
+    void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 从 outcome / outcome_participant 重新计算月度支出并与物化表比对
+     * @param repair 是否将差额写回物化表
+     * @return 对账报告（checked / driftCount / drifts / repaired / costMs）
+     */
+    Map<String, Object> reconcile(boolean repair);
+}
@@ -11,6 +11,16 @@ public interface NotificationService {
      */
     void createNotification(Integer userId, String type, String title, String content, Long relatedId, String relatedType);
 
+    /**
+     * V70: 批量创建通知（一条多行 INSERT，随调用方事务提交）
+     */
+    void createNotifications(List<Notification> notifications);
+
+    /**
+     * V66: 通知已写入后累加未读计数并推送（调用方保证数据已提交）
+     */
+    void onInserted(List<Notification> inserted);
+
     /**
      * 获取用户的通知列表
      */
@@ -26,6 +26,12 @@ public interface OutcomeService {
      */
     void deleteOutcome(Integer outcomeId, Integer userId);
 
+    /**
+     * V52: 软删除活动账单（权限由调用方校验），同时撤销其对欠款账本的影响
+     * @param outcomeId 记录ID
+     */
+    void deleteActivityOutcome(Integer outcomeId);
+
     /**
      * 获取单个支出记录详情
      * @param outcomeId 记录ID
@@ -55,6 +61,15 @@ public interface OutcomeService {
             java.time.LocalDate startDate, java.time.LocalDate endDate,
             Integer styleId, Integer limit, Integer offset);
 
+    /**
+     * V72: 游标分页搜索历史账单，按 (pay_datetime, id) 倒序
+     * @param cursor 上一页返回的 nextCursor（首页传 null）
+     * @return items, hasMore, nextCursor（没有下一页时为 null）
+     */
+    java.util.Map<String, Object> searchOutcomesPage(Integer userId, String keyword,
+            java.time.LocalDate startDate, java.time.LocalDate endDate,
+            Integer styleId, Integer limit, String cursor);
+
     /**
      * 获取搜索结果总数
      */
@@ -3,15 +3,8 @@ package com.zhangben.backend.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zhangben.backend.model.KalmanFilterState;
-import org.apache.commons.math3.filter.DefaultMeasurementModel;
-import org.apache.commons.math3.filter.DefaultProcessModel;
-import org.apache.commons.math3.filter.KalmanFilter;
-import org.apache.commons.math3.filter.MeasurementModel;
-import org.apache.commons.math3.filter.ProcessModel;
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.RealVector;
+import com.zhangben.backend.util.KalmanStateCodec;
+import com.zhangben.backend.util.LinearTrendKalman;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -21,14 +14,13 @@ import java.util.List;
 @Component
 public class PredictionEngine {
 
+    // V76: only used to read legacy JSON rows (state_vector / covariance_matrix)
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // State transition matrix: [[1,1],[0,1]]
-    private static final double[][] A = {{1, 1}, {0, 1}};
-    // Observation matrix: [[1,0]]
-    private static final double[][] H = {{1, 0}};
+    // State transition A = [[1,1],[0,1]], observation H = [[1,0]] (V74: built into LinearTrendKalman)
     // Process noise covariance Q: diag(1000^2, 500^2) in cents^2
-    private static final double[][] Q = {{1000000, 0}, {0, 250000}};
+    private static final double Q_LEVEL = 1000000;
+    private static final double Q_TREND = 250000;
 
     public static class PredictionResult {
         public long predicted;       // cents
@@ -104,41 +96,31 @@ public class PredictionEngine {
         double variance = filtered.stream()
                 .mapToDouble(v -> (v - mean) * (v - mean))
                 .average().orElse(1000000);
-        double[][] R = {{Math.max(variance * 0.5, 100000)}};
+        double r = Math.max(variance * 0.5, 100000);
 
         // Initial state: [first observation, 0 trend]
         double initialLevel = filtered.isEmpty() ? 0 : filtered.get(0);
         double[] initialState = {initialLevel, 0};
         double[][] initialP = {{variance, 0}, {0, variance}};
 
-        RealMatrix aMatrix = new Array2DRowRealMatrix(A);
-        RealMatrix qMatrix = new Array2DRowRealMatrix(Q);
-        RealMatrix hMatrix = new Array2DRowRealMatrix(H);
-        RealMatrix rMatrix = new Array2DRowRealMatrix(R);
-        RealVector x0 = new ArrayRealVector(initialState);
-        RealMatrix p0 = new Array2DRowRealMatrix(initialP);
-
-        ProcessModel pm = new DefaultProcessModel(aMatrix, null, qMatrix, x0, p0);
-        MeasurementModel mm = new DefaultMeasurementModel(hMatrix, rMatrix);
-        KalmanFilter kf = new KalmanFilter(pm, mm);
+        LinearTrendKalman kf = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        kf.reset(initialState, initialP, r);
 
         // Train on all observations
         for (Long obs : filtered) {
             kf.predict();
-            kf.correct(new double[]{obs});
+            kf.correct(obs);
         }
 
         // Extract state
-        double[] stateEstimate = kf.getStateEstimation();
-        double[][] errorCov = kf.getErrorCovarianceMatrix().getData();
+        byte[] stateBlob = KalmanStateCodec.encode(kf);
 
         // Predict next month
-        PredictionResult nextMonthPred = predictFromState(stateEstimate, errorCov, 1);
+        PredictionResult nextMonthPred = predictFromState(kf, 1);
 
         KalmanFilterState state = new KalmanFilterState();
         state.setUserId(userId);
-        state.setStateVector(serializeVector(stateEstimate));
-        state.setCovarianceMatrix(serializeMatrix(errorCov));
+        storeState(state, stateBlob);
         state.setPredictedNextMonth(nextMonthPred.predicted);
         state.setPredictedConfidenceLow(nextMonthPred.confidenceLow);
         state.setPredictedConfidenceHigh(nextMonthPred.confidenceHigh);
@@ -157,36 +139,23 @@ public class PredictionEngine {
                                                         String lastMonth,
                                                         int consecutiveMonths,
                                                         int totalObservations) {
-        double[] currentState = deserializeVector(existingState.getStateVector());
-        double[][] currentP = deserializeMatrix(existingState.getCovarianceMatrix());
+        LinearTrendKalman kf = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        loadState(existingState, kf, 0);
 
         // Estimate R from previous data
-        double[][] R = {{Math.max(currentP[0][0] * 0.5, 100000)}};
-
-        RealMatrix aMatrix = new Array2DRowRealMatrix(A);
-        RealMatrix qMatrix = new Array2DRowRealMatrix(Q);
-        RealMatrix hMatrix = new Array2DRowRealMatrix(H);
-        RealMatrix rMatrix = new Array2DRowRealMatrix(R);
-        RealVector x0 = new ArrayRealVector(currentState);
-        RealMatrix p0 = new Array2DRowRealMatrix(currentP);
-
-        ProcessModel pm = new DefaultProcessModel(aMatrix, null, qMatrix, x0, p0);
-        MeasurementModel mm = new DefaultMeasurementModel(hMatrix, rMatrix);
-        KalmanFilter kf = new KalmanFilter(pm, mm);
+        kf.setMeasurementNoise(Math.max(kf.levelVariance() * 0.5, 100000));
 
         List<Long> filtered = filterOutliers(newObservations);
         for (Long obs : filtered) {
             kf.predict();
-            kf.correct(new double[]{obs});
+            kf.correct(obs);
         }
 
-        double[] stateEstimate = kf.getStateEstimation();
-        double[][] errorCov = kf.getErrorCovarianceMatrix().getData();
+        byte[] stateBlob = KalmanStateCodec.encode(kf);
 
-        PredictionResult nextMonthPred = predictFromState(stateEstimate, errorCov, 1);
+        PredictionResult nextMonthPred = predictFromState(kf, 1);
 
-        existingState.setStateVector(serializeVector(stateEstimate));
-        existingState.setCovarianceMatrix(serializeMatrix(errorCov));
+        storeState(existingState, stateBlob);
         existingState.setPredictedNextMonth(nextMonthPred.predicted);
         existingState.setPredictedConfidenceLow(nextMonthPred.confidenceLow);
         existingState.setPredictedConfidenceHigh(nextMonthPred.confidenceHigh);
@@ -201,22 +170,17 @@ public class PredictionEngine {
      * Predict future months from current state
      */
     public List<PredictionResult> predict(KalmanFilterState state, int monthsAhead) {
-        double[] currentState = deserializeVector(state.getStateVector());
-        double[][] currentP = deserializeMatrix(state.getCovarianceMatrix());
-
-        List<PredictionResult> results = new ArrayList<>();
-        RealMatrix aMatrix = new Array2DRowRealMatrix(A);
-        RealMatrix qMatrix = new Array2DRowRealMatrix(Q);
-        RealVector xVec = new ArrayRealVector(currentState);
-        RealMatrix pMat = new Array2DRowRealMatrix(currentP);
+        List<PredictionResult> results = new ArrayList<>(monthsAhead);
+        // R is unused without correction
+        LinearTrendKalman kf = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        loadState(state, kf, 0);
 
         for (int i = 0; i < monthsAhead; i++) {
             // Predict step (without correction)
-            xVec = aMatrix.operate(xVec);
-            pMat = aMatrix.multiply(pMat).multiply(aMatrix.transpose()).add(qMatrix);
+            kf.predict();
 
-            double predicted = xVec.getEntry(0);
-            double uncertainty = Math.sqrt(pMat.getEntry(0, 0));
+            double predicted = kf.level();
+            double uncertainty = Math.sqrt(kf.levelVariance());
 
             // 95% confidence interval (~2 sigma)
             long predCents = Math.max(0, Math.round(predicted));
@@ -229,19 +193,16 @@ public class PredictionEngine {
         return results;
     }
 
-    private PredictionResult predictFromState(double[] state, double[][] P, int monthsAhead) {
-        RealMatrix aMatrix = new Array2DRowRealMatrix(A);
-        RealMatrix qMatrix = new Array2DRowRealMatrix(Q);
-        RealVector xVec = new ArrayRealVector(state);
-        RealMatrix pMat = new Array2DRowRealMatrix(P);
-
+    /**
+     * Predict monthsAhead steps from the trained filter (advances the filter's state)
+     */
+    private PredictionResult predictFromState(LinearTrendKalman kf, int monthsAhead) {
         for (int i = 0; i < monthsAhead; i++) {
-            xVec = aMatrix.operate(xVec);
-            pMat = aMatrix.multiply(pMat).multiply(aMatrix.transpose()).add(qMatrix);
+            kf.predict();
         }
 
-        double predicted = xVec.getEntry(0);
-        double uncertainty = Math.sqrt(pMat.getEntry(0, 0));
+        double predicted = kf.level();
+        double uncertainty = Math.sqrt(kf.levelVariance());
 
         long predCents = Math.max(0, Math.round(predicted));
         long low = Math.max(0, Math.round(predicted - 2 * uncertainty));
@@ -258,20 +219,11 @@ public class PredictionEngine {
      * - Predicted values: multiply by R
      */
     public void rescaleModel(KalmanFilterState state, double ratio) {
-        // 1. Rescale state vector: x *= R
-        double[] x = deserializeVector(state.getStateVector());
-        x[0] *= ratio;  // level
-        x[1] *= ratio;  // trend
-        state.setStateVector(serializeVector(x));
-
-        // 2. Rescale covariance: P *= R²
-        double[][] P = deserializeMatrix(state.getCovarianceMatrix());
-        double r2 = ratio * ratio;
-        P[0][0] *= r2;
-        P[0][1] *= r2;
-        P[1][0] *= r2;
-        P[1][1] *= r2;
-        state.setCovarianceMatrix(serializeMatrix(P));
+        // 1~2. Rescale state vector (x *= R) and covariance (P *= R²)
+        LinearTrendKalman kf = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        loadState(state, kf, 0);
+        kf.rescale(ratio);
+        storeState(state, KalmanStateCodec.encode(kf));
 
         // 3. Rescale predictions
         if (state.getPredictedNextMonth() != null) {
@@ -285,22 +237,41 @@ public class PredictionEngine {
         }
     }
 
+    /**
+     * V76: Convert a legacy JSON-encoded row to the binary encoding (values unchanged).
+     * Returns true if the state was changed; the caller writes it back.
+     */
+    public boolean upgradeEncoding(KalmanFilterState state) {
+        if (state.getStateBlob() != null) {
+            return false;
+        }
+        LinearTrendKalman kf = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        loadState(state, kf, 0);
+        storeState(state, KalmanStateCodec.encode(kf));
+        return true;
+    }
+
     // --- Serialization helpers ---
 
-    private String serializeVector(double[] vec) {
-        try {
-            return objectMapper.writeValueAsString(vec);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize state vector", e);
+    /**
+     * V76: Load a stored state into the filter: binary state_blob first, legacy JSON columns as fallback
+     */
+    private void loadState(KalmanFilterState state, LinearTrendKalman kf, double measurementNoise) {
+        if (state.getStateBlob() != null) {
+            KalmanStateCodec.decodeInto(state.getStateBlob(), kf, measurementNoise);
+        } else {
+            kf.reset(deserializeVector(state.getStateVector()),
+                    deserializeMatrix(state.getCovarianceMatrix()), measurementNoise);
         }
     }
 
-    private String serializeMatrix(double[][] mat) {
-        try {
-            return objectMapper.writeValueAsString(mat);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize covariance matrix", e);
-        }
+    /**
+     * V76: New writes only carry the binary encoding; the JSON columns are cleared
+     */
+    private void storeState(KalmanFilterState state, byte[] stateBlob) {
+        state.setStateBlob(stateBlob);
+        state.setStateVector(null);
+        state.setCovarianceMatrix(null);
     }
 
     private double[] deserializeVector(String json) {
@@ -2,6 +2,20 @@ package com.zhangben.backend.service;
 
 import com.zhangben.backend.dto.PredictionResponse;
 
+import java.util.Map;
+import java.util.function.BiConsumer;
+
 public interface PredictionService {
     PredictionResponse getPrediction(Integer userId, String language);
+
+    /**
+     * V75: 批量重训全部活跃用户的卡尔曼状态，返回本次运行统计
+     * onChunk 在每个分块派发时由调用线程回调 (分块最后一个用户ID, 分块用户数)，用于续租 / 记录进度
+     */
+    Map<String, Object> retrainAll(BiConsumer<Integer, Integer> onChunk);
+
+    /**
+     * V75: 批量重训状态（是否运行中 + 本节点上一次运行的统计）
+     */
+    Map<String, Object> getRetrainStats();
 }
@@ -4,6 +4,7 @@ import com.zhangben.backend.dto.SubscriptionInfoResponse;
 import com.zhangben.backend.model.User;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * V42: 订阅服务接口
@@ -30,6 +31,17 @@ public interface SubscriptionService {
      */
     List<User> findExpiringSubscriptions(int daysBeforeExpiry);
 
+    /**
+     * V70: 按用户ID游标分块查找即将到期的订阅（id > afterId，按 id 升序，最多 limit 条）
+     */
+    List<User> findExpiringSubscriptions(int daysBeforeExpiry, Integer afterId, int limit);
+
+    /**
+     * V70: 批量发送续费提醒：在 executor 上并发生成通知与邮件，
+     * 再以批量 INSERT 写入通知和邮件发件箱、一条 UPDATE 标记已发送（随调用方事务提交），返回发送数
+     */
+    int sendRenewalReminders(List<User> users, Executor executor);
+
     /**
      * 发送续费提醒
      */
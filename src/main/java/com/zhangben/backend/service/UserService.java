@@ -3,6 +3,8 @@ package com.zhangben.backend.service;
 import com.zhangben.backend.dto.RegisterRequest;
 import com.zhangben.backend.model.User;
 
+import java.util.List;
+
 public interface UserService {
 
     User findByEmail(String email);
@@ -12,4 +14,10 @@ public interface UserService {
     User createUser(RegisterRequest req);
 
     boolean checkPassword(String raw, String encoded);
+
+    /**
+     * V71: 按关键词搜索用户（不含自己），按匹配程度排序并最多返回 limit 个：
+     * 邮箱完全一致 > 昵称完全一致 > 昵称前缀 > 昵称 / 邮箱 / 姓名子串；friendsFirst 时好友排在前面
+     */
+    List<User> searchUsers(Integer currentUserId, String keyword, Integer limit, boolean friendsFirst);
 }
\ No newline at end of file
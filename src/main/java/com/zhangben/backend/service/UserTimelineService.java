@@ -0,0 +1,32 @@
+package com.zhangben.backend.service;
+
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * V73: 用户账单时间线服务
+ * 在账单写入的同一事务内维护 user_timeline，历史记录分页 / 月份 / 日期列表只做按用户的索引范围扫描；
+ * 同时负责历史记录页月度总支出缓存的读取与失效。
+ */
+public interface UserTimelineService {
+
+    /**
+     * 写入一条账单的时间线行（付款人、还款对象、他人付款的分摊参与者）
+     * @param outcome 账单（使用其当前付款人 / 还款对象 / 时间）
+     * @param participants 该账单的参与者记录
+     */
+    void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 删除一条账单的时间线行（删除账单、修改账单前调用）
+     */
+    void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants);
+
+    /**
+     * 某用户某月本人付款的消费总额（带缓存）
+     */
+    long getMonthlyExpense(Integer userId, YearMonth month);
+}
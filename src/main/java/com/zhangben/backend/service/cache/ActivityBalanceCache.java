@@ -0,0 +1,188 @@
+package com.zhangben.backend.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zhangben.backend.config.RedisHealthMonitor;
+import com.zhangben.backend.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * V57: 活动净欠款缓存
+ *
+ * 每个活动缓存一份两两净欠款表（DebtPair → 金额，只含正值），附带版本号。
+ * 读路径: Caffeine → miss → 按活动读取账本并轧差 → 本地版本未变才回填
+ * 失效路径: 账本写入该活动的事务提交后，本节点立即剔除，再经 Redis 频道广播给其他节点；
+ * 收到其他节点的消息一律剔除，只忽略本节点自身广播的回环
+ *
+ * Redis 不可用时只剔除本节点，其他节点依赖 TTL 兜底。
+ * 缓存的 LongLongHashMap 为共享只读对象，调用方不得修改。
+ */
+@Component
+public class ActivityBalanceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityBalanceCache.class);
+
+    private static final String CHANNEL = "zhangben:activity-balance:invalidate";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisHealthMonitor redisHealthMonitor;
+
+    private final Cache<Integer, Entry> cache;
+
+    /** 本节点标识，用于忽略自身广播的回环 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 本节点各活动的版本号，每次失效 +1；计算前后比对，防止并发写入期间回填旧数据。
+     * 按访问过期（缓存 TTL 的 2 倍）：条目被回收时对应的缓存值早已过期，版本归 0 只会多一次 miss。
+     */
+    private final Map<Integer, Long> versions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ActivityBalanceCache(StringRedisTemplate stringRedisTemplate,
+                                RedisHealthMonitor redisHealthMonitor,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${activity.balance-cache.max-size:5000}") long maxSize,
+                                @Value("${activity.balance-cache.ttl-minutes:10}") long ttlMinutes) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisHealthMonitor = redisHealthMonitor;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .expireAfterAccess(ttlMinutes * 2, TimeUnit.MINUTES)
+                .<Integer, Long>build()
+                .asMap();
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRemoteInvalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+
+        logger.info("【活动余额缓存】初始化完成: Caffeine L1 (max={}, ttl={}min) + Redis 失效广播", maxSize, ttlMinutes);
+    }
+
+    /**
+     * 获取活动的净欠款表，未命中时调用 loader 计算
+     * @param loader 按活动ID计算净欠款表（DebtPair → 正金额）
+     */
+    public LongLongHashMap get(int activityId, IntFunction<LongLongHashMap> loader) {
+        Entry entry = cache.getIfPresent(activityId);
+        long current = versions.getOrDefault(activityId, 0L);
+        if (entry != null && entry.version == current) {
+            hits.increment();
+            return entry.net;
+        }
+
+        misses.increment();
+        LongLongHashMap net = loader.apply(activityId);
+        // 计算期间版本发生变化说明有并发写入，本次结果不回填，避免把旧数据写进缓存
+        if (versions.getOrDefault(activityId, 0L) == current) {
+            cache.put(activityId, new Entry(current, net));
+        }
+        return net;
+    }
+
+    /**
+     * 使活动缓存失效：处于事务中时在提交后执行，否则立即执行
+     */
+    public void invalidate(Collection<Integer> activityIds) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Integer id : activityIds) {
+            if (id != null && id > 0) ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(ActivityBalanceCache.this::evictAndBroadcast);
+                }
+            });
+        } else {
+            ids.forEach(this::evictAndBroadcast);
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "size", cache.estimatedSize(),
+            "hits", hits.sum(),
+            "misses", misses.sum(),
+            "invalidations", invalidations.sum()
+        );
+    }
+
+    private void evictAndBroadcast(int activityId) {
+        // 本节点立即生效，不等待广播
+        evict(activityId);
+
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, nodeId + "|" + activityId);
+            } catch (Exception e) {
+                logger.warn("【活动余额缓存】Redis 广播失效失败, activityId={}: {}", activityId, e.getMessage());
+            }
+        }
+    }
+
+    private void onRemoteInvalidate(String body) {
+        int sep = body.indexOf('|');
+        if (sep < 0) {
+            logger.warn("【活动余额缓存】无法解析失效消息: {}", body);
+            return;
+        }
+        // 只忽略自身广播的回环；其他节点的消息一律剔除，重复或乱序最多多一次 miss
+        if (nodeId.equals(body.substring(0, sep))) {
+            return;
+        }
+        try {
+            evict(Integer.parseInt(body.substring(sep + 1)));
+        } catch (NumberFormatException e) {
+            logger.warn("【活动余额缓存】无法解析失效消息: {}", body);
+        }
+    }
+
+    private void evict(int activityId) {
+        versions.merge(activityId, 1L, Long::sum);
+        cache.invalidate(activityId);
+        invalidations.increment();
+    }
+
+    private static final class Entry {
+        final long version;
+        final LongLongHashMap net;
+
+        Entry(long version, LongLongHashMap net) {
+            this.version = version;
+            this.net = net;
+        }
+    }
+}
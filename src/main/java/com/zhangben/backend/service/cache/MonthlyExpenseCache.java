@@ -0,0 +1,161 @@
+package com.zhangben.backend.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zhangben.backend.config.RedisHealthMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * V73: 用户月度总支出缓存（历史记录页的 monthlyTotal）
+ *
+ * 键为 (用户, 月份)，值为该月本人付款的消费总额。
+ * 读路径: Caffeine → miss → loader 聚合 → 期间无失效才回填
+ * 失效路径: 该用户该月的账单写入提交后，本节点立即剔除，再经 Redis 频道广播给其他节点；
+ * Redis 不可用时其他节点依赖 TTL 兜底。
+ */
+@Component
+public class MonthlyExpenseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonthlyExpenseCache.class);
+
+    private static final String CHANNEL = "zhangben:monthly-expense:invalidate";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisHealthMonitor redisHealthMonitor;
+
+    private final Cache<String, Long> cache;
+
+    /** 本节点标识，用于忽略自身广播的回环 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /** 每次失效 +1；加载前后比对，期间有失效则不回填，防止把旧值写进缓存 */
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public MonthlyExpenseCache(StringRedisTemplate stringRedisTemplate,
+                               RedisHealthMonitor redisHealthMonitor,
+                               RedisMessageListenerContainer listenerContainer,
+                               @Value("${history.monthly-total-cache.max-size:50000}") long maxSize,
+                               @Value("${history.monthly-total-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisHealthMonitor = redisHealthMonitor;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRemoteInvalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+
+        logger.info("【月度支出缓存】初始化完成: Caffeine L1 (max={}, ttl={}min) + Redis 失效广播", maxSize, ttlMinutes);
+    }
+
+    /**
+     * 获取某用户某月的总支出，未命中时调用 loader 计算
+     */
+    public long get(Integer userId, YearMonth month, Supplier<Long> loader) {
+        String key = key(userId, month);
+        Long cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        long current = version.get();
+        Long total = loader.get();
+        long value = total != null ? total : 0L;
+        if (version.get() == current) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 使某用户某月的缓存失效：处于事务中时在提交后执行，否则立即执行
+     */
+    public void invalidate(Integer userId, YearMonth month) {
+        if (userId == null || month == null) {
+            return;
+        }
+        String key = key(userId, month);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndBroadcast(key);
+                }
+            });
+        } else {
+            evictAndBroadcast(key);
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "size", cache.estimatedSize(),
+            "hits", hits.sum(),
+            "misses", misses.sum(),
+            "invalidations", invalidations.sum()
+        );
+    }
+
+    private void evictAndBroadcast(String key) {
+        // 本节点立即生效，不等待广播
+        evict(key);
+
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, nodeId + "|" + key);
+            } catch (Exception e) {
+                logger.warn("【月度支出缓存】Redis 广播失效失败, key={}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private void onRemoteInvalidate(String body) {
+        int sep = body.indexOf('|');
+        if (sep < 0) {
+            logger.warn("【月度支出缓存】无法解析失效消息: {}", body);
+            return;
+        }
+        if (nodeId.equals(body.substring(0, sep))) {
+            return;
+        }
+        evict(body.substring(sep + 1));
+    }
+
+    private void evict(String key) {
+        version.incrementAndGet();
+        cache.invalidate(key);
+        invalidations.increment();
+    }
+
+    private static String key(Integer userId, YearMonth month) {
+        return userId + ":" + month;
+    }
+}
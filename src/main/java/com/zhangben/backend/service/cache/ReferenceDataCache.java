@@ -0,0 +1,312 @@
+package com.zhangben.backend.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.zhangben.backend.config.RedisHealthMonitor;
+import com.zhangben.backend.mapper.EmailTemplateMapper;
+import com.zhangben.backend.mapper.ExchangeRateMapper;
+import com.zhangben.backend.mapper.PayStyleMapper;
+import com.zhangben.backend.mapper.SystemConfigMapper;
+import com.zhangben.backend.model.EmailTemplate;
+import com.zhangben.backend.model.ExchangeRate;
+import com.zhangben.backend.model.PayStyle;
+import com.zhangben.backend.model.PayStyleExample;
+import com.zhangben.backend.model.SystemConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * V60: 全局引用数据近端缓存
+ *
+ * 分类（pay_style / pay_style_i18n）、汇率（exchange_rate）、邮件模板（email_template）、
+ * 系统配置（system_config）几乎每个请求都会读，但一周才改几次。
+ * 每个区域一个 Caffeine L1（有上限 + TTL 兜底），未命中才查库；不存在的键也缓存（Optional.empty）。
+ *
+ * 失效路径: 管理端写入后调用 invalidate(region[, key])，处于事务中时在提交后执行；
+ * 本节点立即剔除，再经 Redis 频道广播给其他节点。Redis 不可用时其他节点依赖 TTL 兜底。
+ * V69: 依赖这些数据的派生缓存（如已编译邮件模板）可通过 addInvalidationListener 跟随失效（本地与远程失效都会回调）。
+ * 返回的对象为共享只读实例，调用方不得修改。
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private static final String CHANNEL = "zhangben:reference-data:invalidate";
+
+    /** 整个区域失效时消息中的键占位（也是失效监听收到的键） */
+    public static final String ALL = "*";
+
+    /** 整表缓存使用的固定键 */
+    private static final String WHOLE_TABLE = "all";
+
+    public enum Region {
+        SYSTEM_CONFIG,
+        EMAIL_TEMPLATE,
+        PAY_STYLE,
+        EXCHANGE_RATE
+    }
+
+    private final SystemConfigMapper systemConfigMapper;
+    private final EmailTemplateMapper emailTemplateMapper;
+    private final PayStyleMapper payStyleMapper;
+    private final ExchangeRateMapper exchangeRateMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisHealthMonitor redisHealthMonitor;
+
+    private final Map<Region, Cache<String, Optional<Object>>> caches = new EnumMap<>(Region.class);
+    private final Map<Region, LongAdder> invalidations = new EnumMap<>(Region.class);
+    private final Map<Region, List<Consumer<String>>> listeners = new EnumMap<>(Region.class);
+
+    /** 本节点标识，用于忽略自身广播的回环 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ReferenceDataCache(SystemConfigMapper systemConfigMapper,
+                              EmailTemplateMapper emailTemplateMapper,
+                              PayStyleMapper payStyleMapper,
+                              ExchangeRateMapper exchangeRateMapper,
+                              StringRedisTemplate stringRedisTemplate,
+                              RedisHealthMonitor redisHealthMonitor,
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${reference-cache.max-size:1000}") long maxSize,
+                              @Value("${reference-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.systemConfigMapper = systemConfigMapper;
+        this.emailTemplateMapper = emailTemplateMapper;
+        this.payStyleMapper = payStyleMapper;
+        this.exchangeRateMapper = exchangeRateMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisHealthMonitor = redisHealthMonitor;
+
+        for (Region region : Region.values()) {
+            caches.put(region, Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                    .recordStats()
+                    .build());
+            invalidations.put(region, new LongAdder());
+            listeners.put(region, new CopyOnWriteArrayList<>());
+        }
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRemoteInvalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+
+        logger.info("【引用数据缓存】初始化完成: Caffeine L1 (max={}, ttl={}min) x {} 区域 + Redis 失效广播",
+                maxSize, ttlMinutes, Region.values().length);
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 系统配置，不存在返回 null
+     */
+    public SystemConfig getConfig(String key) {
+        return (SystemConfig) lookup(Region.SYSTEM_CONFIG, key, () -> systemConfigMapper.selectByKey(key));
+    }
+
+    /**
+     * 系统配置值，不存在或为空时返回默认值
+     */
+    public String getConfigValue(String key, String defaultValue) {
+        SystemConfig config = getConfig(key);
+        return config != null && config.getConfigValue() != null ? config.getConfigValue() : defaultValue;
+    }
+
+    /**
+     * 启用状态的邮件模板（精确匹配语言），不存在返回 null
+     */
+    public EmailTemplate getTemplate(String code, String language) {
+        return (EmailTemplate) lookup(Region.EMAIL_TEMPLATE, code + "|" + language,
+                () -> emailTemplateMapper.selectByCodeAndLanguage(code, language));
+    }
+
+    /**
+     * 本地化分类列表（style_name 为对应语言名称）
+     */
+    @SuppressWarnings("unchecked")
+    public List<PayStyle> getLocalizedStyles(String language) {
+        return (List<PayStyle>) lookup(Region.PAY_STYLE, "lang|" + language,
+                () -> Collections.unmodifiableList(payStyleMapper.selectAllLocalized(language)));
+    }
+
+    /**
+     * 按ID取分类（原始名称），不存在返回 null
+     */
+    public PayStyle getStyle(Integer id) {
+        return id != null ? getStylesById().get(id) : null;
+    }
+
+    /**
+     * 全部分类（原始名称），ID → 分类；整表只有几十行，一次载入
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Integer, PayStyle> getStylesById() {
+        return (Map<Integer, PayStyle>) lookup(Region.PAY_STYLE, WHOLE_TABLE, () -> {
+            Map<Integer, PayStyle> map = new HashMap<>();
+            for (PayStyle s : payStyleMapper.selectByExample(new PayStyleExample())) {
+                map.put(s.getId(), s);
+            }
+            return Collections.unmodifiableMap(map);
+        });
+    }
+
+    /**
+     * 全部币种的 rate_to_usd（币种代码大写）
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, BigDecimal> getRatesToUsd() {
+        return (Map<String, BigDecimal>) lookup(Region.EXCHANGE_RATE, WHOLE_TABLE, () -> {
+            Map<String, BigDecimal> map = new HashMap<>();
+            for (ExchangeRate r : exchangeRateMapper.selectAll()) {
+                map.put(r.getCode().toUpperCase(), r.getRateToUsd());
+            }
+            return Collections.unmodifiableMap(map);
+        });
+    }
+
+    // ==================== 失效 ====================
+
+    /**
+     * 使整个区域失效
+     */
+    public void invalidate(Region region) {
+        invalidate(region, ALL);
+    }
+
+    /**
+     * 使区域内单个键失效（键格式与读取方法一致，如配置键）；处于事务中时在提交后执行
+     */
+    public void invalidate(Region region, String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndBroadcast(region, key);
+                }
+            });
+        } else {
+            evictAndBroadcast(region, key);
+        }
+    }
+
+    /**
+     * 使单个系统配置失效
+     */
+    public void invalidateConfig(String key) {
+        invalidate(Region.SYSTEM_CONFIG, key);
+    }
+
+    /**
+     * 使单个邮件模板（某语言版本）失效
+     */
+    public void invalidateTemplate(String code, String language) {
+        invalidate(Region.EMAIL_TEMPLATE, code + "|" + language);
+    }
+
+    /**
+     * V69: 注册区域失效监听，参数为失效的键（整个区域失效时为 ALL）
+     */
+    public void addInvalidationListener(Region region, Consumer<String> listener) {
+        listeners.get(region).add(listener);
+    }
+
+    /**
+     * 各区域统计（条目数 / 命中 / 未命中 / 命中率 / 加载耗时 / 淘汰 / 失效次数）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Region region : Region.values()) {
+            Cache<String, Optional<Object>> cache = caches.get(region);
+            CacheStats s = cache.stats();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("size", cache.estimatedSize());
+            item.put("hits", s.hitCount());
+            item.put("misses", s.missCount());
+            item.put("hitRate", Math.round(s.hitRate() * 10000) / 100.0);
+            item.put("avgLoadMicros", Math.round(s.averageLoadPenalty() / 1000));
+            item.put("evictions", s.evictionCount());
+            item.put("invalidations", invalidations.get(region).sum());
+            result.put(region.name(), item);
+        }
+        return result;
+    }
+
+    private Object lookup(Region region, String key, Supplier<Object> loader) {
+        return caches.get(region).get(key, k -> Optional.ofNullable(loader.get())).orElse(null);
+    }
+
+    private void evictAndBroadcast(Region region, String key) {
+        // 本节点立即生效，不等待广播
+        evict(region, key);
+
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, nodeId + ":" + region.name() + ":" + key);
+            } catch (Exception e) {
+                logger.warn("【引用数据缓存】Redis 广播失效失败, region={}, key={}: {}", region, key, e.getMessage());
+            }
+        }
+    }
+
+    private void onRemoteInvalidate(String body) {
+        // 格式: nodeId:REGION:key，key 本身可能含冒号
+        String[] parts = body.split(":", 3);
+        if (parts.length < 3) {
+            logger.warn("【引用数据缓存】无法解析失效消息: {}", body);
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return;
+        }
+        Region region;
+        try {
+            region = Region.valueOf(parts[1]);
+        } catch (IllegalArgumentException e) {
+            logger.warn("【引用数据缓存】未知区域: {}", parts[1]);
+            return;
+        }
+        evict(region, parts[2]);
+    }
+
+    private void evict(Region region, String key) {
+        Cache<String, Optional<Object>> cache = caches.get(region);
+        if (ALL.equals(key)) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(key);
+        }
+        invalidations.get(region).increment();
+        for (Consumer<String> listener : listeners.get(region)) {
+            try {
+                listener.accept(key);
+            } catch (Exception e) {
+                logger.warn("【引用数据缓存】失效监听异常, region={}, key={}: {}", region, key, e.getMessage());
+            }
+        }
+        logger.debug("【引用数据缓存】失效 region={}, key={}", region, key);
+    }
+}
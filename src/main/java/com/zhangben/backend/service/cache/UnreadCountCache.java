@@ -0,0 +1,266 @@
+package com.zhangben.backend.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zhangben.backend.config.RedisHealthMonitor;
+import com.zhangben.backend.mapper.NotificationMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * V66: 用户未读通知计数
+ *
+ * 主存储为 Redis 计数器（zhangben:notify:unread:{userId}），读不到时按 notification 表计数后 SETNX 回填。
+ * 写路径只对已存在的计数器做 INCRBY（Lua 原子判断），没有计数器的用户等下次读取时再从表加载，
+ * 因此不会凭空造出错误的计数。
+ * Redis 不可用时降级到本节点 Caffeine（短 TTL，过期后重新计数），多节点间的偏差由 TTL 限定；
+ * Redis 正常时写入同时剔除本地条目，避免下一次降级读到陈旧值。
+ * 定时对账（UnreadCountReconcileTask）扫描 Redis 中的计数器，与表中实际未读数比对修正漂移。
+ */
+@Component
+public class UnreadCountCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCountCache.class);
+
+    private static final String KEY_PREFIX = "zhangben:notify:unread:";
+
+    /** 对账时每批处理的计数器数 */
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    /** 对账报告中最多返回的差异条数 */
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    /** 计数器存在时累加（不小于 0）并返回新值，不存在返回 -1 */
+    private static final DefaultRedisScript<Long> ADD_IF_EXISTS = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then "
+                    + "local v = redis.call('INCRBY', KEYS[1], ARGV[1]) "
+                    + "if v < 0 then redis.call('SET', KEYS[1], 0, 'KEEPTTL') v = 0 end "
+                    + "return v "
+                    + "end "
+                    + "return -1", Long.class);
+
+    /** 计数器仍为观察值时才修正，避免覆盖对账期间的并发累加 */
+    private static final DefaultRedisScript<Long> COMPARE_AND_SET = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('SET', KEYS[1], ARGV[2], 'KEEPTTL') return 1 "
+                    + "end "
+                    + "return 0", Long.class);
+
+    private final NotificationMapper notificationMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisHealthMonitor redisHealthMonitor;
+    private final long ttlHours;
+
+    /** Redis 降级时使用的本地计数 */
+    private final Cache<Integer, AtomicLong> local;
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder dbLoads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public UnreadCountCache(NotificationMapper notificationMapper,
+                            StringRedisTemplate stringRedisTemplate,
+                            RedisHealthMonitor redisHealthMonitor,
+                            @Value("${notification.unread.ttl-hours:72}") long ttlHours,
+                            @Value("${notification.unread.local-ttl-seconds:60}") long localTtlSeconds) {
+        this.notificationMapper = notificationMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisHealthMonitor = redisHealthMonitor;
+        this.ttlHours = ttlHours;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(localTtlSeconds, TimeUnit.SECONDS)
+                .build();
+
+        logger.info("【未读计数】初始化完成: Redis 计数器 (ttl={}h) + Caffeine 降级 (ttl={}s)", ttlHours, localTtlSeconds);
+    }
+
+    /**
+     * 当前未读数
+     */
+    public long get(Integer userId) {
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                String value = stringRedisTemplate.opsForValue().get(KEY_PREFIX + userId);
+                if (value != null) {
+                    redisHits.increment();
+                    return Long.parseLong(value);
+                }
+                long count = countFromDb(userId);
+                stringRedisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + userId, String.valueOf(count),
+                        ttlHours, TimeUnit.HOURS);
+                return count;
+            } catch (Exception e) {
+                logger.warn("【未读计数】Redis 读取失败，降级本地计数: {}", e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return local.get(userId, k -> new AtomicLong(countFromDb(k))).get();
+    }
+
+    /**
+     * 累加未读数（新通知为正，标记已读为负），返回新值；计数器尚未加载时返回 -1
+     */
+    public long add(Integer userId, long delta) {
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                Long result = stringRedisTemplate.execute(ADD_IF_EXISTS,
+                        Collections.singletonList(KEY_PREFIX + userId), String.valueOf(delta));
+                local.invalidate(userId);
+                return result != null ? result : -1;
+            } catch (Exception e) {
+                logger.warn("【未读计数】Redis 累加失败，降级本地计数: {}", e.getMessage());
+            }
+        }
+        AtomicLong counter = local.getIfPresent(userId);
+        if (counter == null) {
+            return -1;
+        }
+        return counter.updateAndGet(v -> Math.max(0, v + delta));
+    }
+
+    /**
+     * 直接设置未读数（全部已读 / 清空时为 0）
+     */
+    public void set(Integer userId, long value) {
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                stringRedisTemplate.opsForValue().set(KEY_PREFIX + userId, String.valueOf(value),
+                        ttlHours, TimeUnit.HOURS);
+                local.invalidate(userId);
+                return;
+            } catch (Exception e) {
+                logger.warn("【未读计数】Redis 写入失败，降级本地计数: {}", e.getMessage());
+            }
+        }
+        local.put(userId, new AtomicLong(value));
+    }
+
+    /**
+     * 删除计数器（下次读取时重新计数）
+     */
+    public void evict(Integer userId) {
+        local.invalidate(userId);
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                stringRedisTemplate.delete(KEY_PREFIX + userId);
+            } catch (Exception e) {
+                logger.warn("【未读计数】Redis 删除失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 扫描 Redis 中的全部计数器，与表中实际未读数比对；repair 时以 CAS 方式修正
+     */
+    public Map<String, Object> reconcile(boolean repair) {
+        long start = System.currentTimeMillis();
+        Map<String, Object> report = new HashMap<>();
+        if (!redisHealthMonitor.isRedisAvailable()) {
+            report.put("skipped", "Redis 不可用");
+            return report;
+        }
+
+        int checked = 0;
+        int driftCount = 0;
+        int repaired = 0;
+        List<Map<String, Object>> drifts = new ArrayList<>();
+
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(RECONCILE_BATCH_SIZE).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            List<String> keys = new ArrayList<>(RECONCILE_BATCH_SIZE);
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+                if (keys.size() >= RECONCILE_BATCH_SIZE || !cursor.hasNext()) {
+                    List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+                    Map<Integer, Long> expected = countFromDb(keys);
+                    for (int i = 0; i < keys.size(); i++) {
+                        String observed = values != null ? values.get(i) : null;
+                        if (observed == null) {
+                            continue;
+                        }
+                        checked++;
+                        Integer userId = Integer.valueOf(keys.get(i).substring(KEY_PREFIX.length()));
+                        long exp = expected.getOrDefault(userId, 0L);
+                        if (Long.parseLong(observed) == exp) {
+                            continue;
+                        }
+                        driftCount++;
+                        if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                            Map<String, Object> drift = new HashMap<>();
+                            drift.put("userId", userId);
+                            drift.put("expected", exp);
+                            drift.put("actual", Long.parseLong(observed));
+                            drifts.add(drift);
+                        }
+                        if (repair) {
+                            Long ok = stringRedisTemplate.execute(COMPARE_AND_SET,
+                                    Collections.singletonList(keys.get(i)), observed, String.valueOf(exp));
+                            if (ok != null && ok == 1L) {
+                                repaired++;
+                            }
+                        }
+                    }
+                    keys.clear();
+                }
+            }
+        }
+
+        long cost = System.currentTimeMillis() - start;
+        if (driftCount == 0) {
+            logger.info("【未读计数】对账完成，{} 个计数器无差异，耗时 {}ms", checked, cost);
+        } else {
+            logger.warn("【未读计数】对账发现 {} 个差异（repair={}，已修正 {}），耗时 {}ms", driftCount, repair, repaired, cost);
+        }
+
+        report.put("checked", checked);
+        report.put("driftCount", driftCount);
+        report.put("drifts", drifts);
+        report.put("repaired", repaired);
+        report.put("costMs", cost);
+        return report;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("redisAvailable", redisHealthMonitor.isRedisAvailable());
+        stats.put("redisHits", redisHits.sum());
+        stats.put("dbLoads", dbLoads.sum());
+        stats.put("fallbackReads", fallbackReads.sum());
+        stats.put("localSize", local.estimatedSize());
+        return stats;
+    }
+
+    private long countFromDb(Integer userId) {
+        dbLoads.increment();
+        return notificationMapper.countUnreadByUserId(userId);
+    }
+
+    private Map<Integer, Long> countFromDb(List<String> keys) {
+        List<Integer> userIds = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            userIds.add(Integer.valueOf(key.substring(KEY_PREFIX.length())));
+        }
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Map<String, Object> row : notificationMapper.countUnreadByUserIds(userIds)) {
+            counts.put(((Number) row.get("userId")).intValue(), ((Number) row.get("cnt")).longValue());
+        }
+        return counts;
+    }
+}
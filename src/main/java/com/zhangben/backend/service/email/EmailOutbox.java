@@ -0,0 +1,150 @@
+package com.zhangben.backend.service.email;
+
+import com.zhangben.backend.mapper.EmailOutboxMapper;
+import com.zhangben.backend.model.EmailOutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * V68: 邮件发件箱
+ *
+ * 业务代码渲染好邮件后调用 enqueue，消息写入 email_outbox 并随当前事务一起提交（回滚则不发送）；
+ * 由 EmailOutboxWorker 异步投递、失败重试。替代 sendEmailFireAndForget：线程池满或进程重启不再丢邮件。
+ */
+@Component
+public class EmailOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutbox.class);
+
+    /** 清理已发送消息时每批删除的行数 */
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
+    private final EmailOutboxMapper outboxMapper;
+    private final EmailOutboxWorker worker;
+    private final EmailProviderManager providerManager;
+
+    public EmailOutbox(EmailOutboxMapper outboxMapper, EmailOutboxWorker worker,
+                       EmailProviderManager providerManager) {
+        this.outboxMapper = outboxMapper;
+        this.worker = worker;
+        this.providerManager = providerManager;
+    }
+
+    /**
+     * 入队一封邮件；邮件功能关闭或收件人为空时忽略并返回 false
+     */
+    public boolean enqueue(String toEmail, String toName, String subject, String htmlContent) {
+        if (!providerManager.isMailEnabled()) {
+            logger.debug("【邮件发件箱】mail.enabled=false，跳过: {}", toEmail);
+            return false;
+        }
+        if (toEmail == null || toEmail.isBlank() || htmlContent == null) {
+            return false;
+        }
+
+        outboxMapper.insert(message(toEmail, toName, subject, htmlContent));
+        wakeUpAfterCommit();
+        return true;
+    }
+
+    /**
+     * V70: 批量入队（一条多行 INSERT）；邮件功能关闭时忽略，收件人为空的消息跳过，返回入队数
+     */
+    public int enqueueAll(List<EmailOutboxMessage> messages) {
+        if (!providerManager.isMailEnabled()) {
+            logger.debug("【邮件发件箱】mail.enabled=false，跳过 {} 封", messages.size());
+            return 0;
+        }
+        List<EmailOutboxMessage> valid = new ArrayList<>(messages.size());
+        for (EmailOutboxMessage m : messages) {
+            if (m.getToEmail() != null && !m.getToEmail().isBlank() && m.getHtmlContent() != null) {
+                valid.add(m);
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        outboxMapper.batchInsert(valid);
+        wakeUpAfterCommit();
+        return valid.size();
+    }
+
+    /**
+     * 构造一条待入队消息
+     */
+    public static EmailOutboxMessage message(String toEmail, String toName, String subject, String htmlContent) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setToEmail(toEmail);
+        message.setToName(toName);
+        message.setSubject(subject != null ? subject : "");
+        message.setHtmlContent(htmlContent);
+        return message;
+    }
+
+    /**
+     * 提交后再唤醒，worker 才能看到新行
+     */
+    private void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    worker.wakeUp();
+                }
+            });
+        } else {
+            worker.wakeUp();
+        }
+    }
+
+    /**
+     * 队列深度、最早未发送消息的等待时长、本节点投递吞吐与供应商限速统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> queue = new LinkedHashMap<>();
+        Map<String, Object> row = outboxMapper.selectQueueStats();
+        long pending = row != null && row.get("pending") != null ? ((Number) row.get("pending")).longValue() : 0;
+        long sending = row != null && row.get("sending") != null ? ((Number) row.get("sending")).longValue() : 0;
+        long failed = row != null && row.get("failed") != null ? ((Number) row.get("failed")).longValue() : 0;
+        Object oldest = row != null ? row.get("oldestCreatedAt") : null;
+        if (oldest instanceof Timestamp ts) {
+            oldest = ts.toLocalDateTime();
+        }
+        queue.put("pending", pending);
+        queue.put("sending", sending);
+        queue.put("failed", failed);
+        queue.put("oldestAgeSeconds", oldest instanceof LocalDateTime t
+                ? Math.max(0, Duration.between(t, LocalDateTime.now()).getSeconds()) : 0);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queue", queue);
+        stats.put("worker", worker.getStats());
+        stats.put("rateLimit", providerManager.getRateLimitStats());
+        return stats;
+    }
+
+    /**
+     * 删除 retentionDays 天前的已发送消息，返回删除行数
+     */
+    public int cleanupSent(int retentionDays) {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxMapper.deleteSentBefore(before, CLEANUP_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == CLEANUP_BATCH_SIZE);
+        return total;
+    }
+}
@@ -0,0 +1,282 @@
+package com.zhangben.backend.service.email;
+
+import com.zhangben.backend.mapper.EmailOutboxMapper;
+import com.zhangben.backend.model.EmailOutboxMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * V68: 邮件发件箱投递线程
+ *
+ * 每个 worker 循环执行：
+ * 1. 短事务内 SELECT ... FOR UPDATE SKIP LOCKED 领取一批到期消息，标记为发送中并设置租约（next_attempt_at）
+ * 2. 事务提交后逐条发送：发送前按 (id, attempts) 续租，续租失败说明租约已过期并被重新领取，跳过该条；
+ *    随后经 EmailProviderManager.deliver 发送（供应商降级链 + 令牌桶限速 + MAIL 并发闸门）
+ * 3. 成功记录供应商与消息ID；失败按指数退避（带抖动）退回待发送，超过最大次数标记最终失败
+ * 一批消息逐条限速 + SMTP 超时可能远超租约，因此租约按条续期，而不是覆盖整批；
+ * 所有状态回写都以 status = 1 AND attempts 围栏，过期的领取者无法覆盖新领取者的结果。
+ * 进程在发送中崩溃时，租约到期后消息会被任一节点重新领取（至少一次投递）。
+ * 队列空闲时按 poll-interval 轮询；本节点入队的消息在事务提交后立即唤醒 worker。
+ */
+@Component
+public class EmailOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    /** last_result 列长度 */
+    private static final int MAX_RESULT_LENGTH = 500;
+
+    /** 吞吐统计窗口（秒） */
+    private static final int WINDOW_SECONDS = 60;
+
+    private final EmailOutboxMapper outboxMapper;
+    private final EmailProviderManager providerManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int workerCount;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long backoffBaseSeconds;
+    private final long backoffMaxSeconds;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+
+    /** 最近 WINDOW_SECONDS 秒每秒的发送成功数（按 epochSecond % WINDOW_SECONDS 循环使用） */
+    private final AtomicLongArray windowCounts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray windowSeconds = new AtomicLongArray(WINDOW_SECONDS);
+
+    public EmailOutboxWorker(EmailOutboxMapper outboxMapper,
+                             EmailProviderManager providerManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${mail.outbox.enabled:true}") boolean enabled,
+                             @Value("${mail.outbox.workers:2}") int workerCount,
+                             @Value("${mail.outbox.batch-size:20}") int batchSize,
+                             @Value("${mail.outbox.poll-interval-ms:2000}") long pollIntervalMs,
+                             @Value("${mail.outbox.lease-seconds:300}") long leaseSeconds,
+                             @Value("${mail.outbox.max-attempts:8}") int maxAttempts,
+                             @Value("${mail.outbox.backoff-base-seconds:30}") long backoffBaseSeconds,
+                             @Value("${mail.outbox.backoff-max-seconds:3600}") long backoffMaxSeconds) {
+        this.outboxMapper = outboxMapper;
+        this.providerManager = providerManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseSeconds = backoffBaseSeconds;
+        this.backoffMaxSeconds = backoffMaxSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("【邮件发件箱】mail.outbox.enabled=false，本节点不投递");
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            threads.add(Thread.ofPlatform().name("email-outbox-" + i).daemon().start(this::runLoop));
+        }
+        logger.info("【邮件发件箱】启动 {} 个投递线程: batch={}, poll={}ms, lease={}s, maxAttempts={}",
+                workerCount, batchSize, pollIntervalMs, leaseSeconds, maxAttempts);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wakeUp.release(threads.size());
+        for (Thread t : threads) {
+            try {
+                t.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 有新消息入队时唤醒一个空闲的 worker
+     */
+    public void wakeUp() {
+        if (running && wakeUp.availablePermits() < workerCount) {
+            wakeUp.release();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                List<EmailOutboxMessage> batch = claim();
+                if (batch.isEmpty()) {
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                for (EmailOutboxMessage message : batch) {
+                    process(message);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 数据库不可用等：记录后退避一个轮询周期，已领取的消息在租约到期后重新投递
+                logger.warn("【邮件发件箱】投递循环异常: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 领取一批消息：锁定、标记发送中并续租，随事务提交释放行锁
+     */
+    private List<EmailOutboxMessage> claim() {
+        List<EmailOutboxMessage> batch = transactionTemplate.execute(status -> {
+            List<EmailOutboxMessage> rows = outboxMapper.selectClaimable(batchSize);
+            if (rows.isEmpty()) {
+                return rows;
+            }
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (EmailOutboxMessage row : rows) {
+                ids.add(row.getId());
+                row.setAttempts(row.getAttempts() + 1);
+            }
+            outboxMapper.markSending(ids, LocalDateTime.now().plusSeconds(leaseSeconds));
+            return rows;
+        });
+        return batch != null ? batch : Collections.emptyList();
+    }
+
+    private void process(EmailOutboxMessage message) {
+        int attempts = message.getAttempts();
+        if (outboxMapper.renewLease(message.getId(), attempts, LocalDateTime.now().plusSeconds(leaseSeconds)) == 0) {
+            logger.info("【邮件发件箱】#{} 租约已过期并被重新领取，跳过", message.getId());
+            return;
+        }
+
+        long start = System.nanoTime();
+        EmailResult result;
+        try {
+            result = providerManager.deliver(message.getToEmail(), message.getToName(),
+                    message.getSubject(), message.getHtmlContent());
+        } catch (Exception e) {
+            result = EmailResult.failure("none", e.getMessage());
+        }
+        sendNanos.add(System.nanoTime() - start);
+
+        String info = truncate(result.toString());
+        if (result.isSuccess()) {
+            if (outboxMapper.markSent(message.getId(), attempts, result.getProviderUsed(),
+                    result.getMessageId(), info) == 0) {
+                logger.warn("【邮件发件箱】#{} 发送成功但租约已被接管，结果未写回: {}", message.getId(), info);
+            }
+            sent.increment();
+            recordSent();
+            return;
+        }
+
+        if (attempts >= maxAttempts) {
+            outboxMapper.markFailed(message.getId(), attempts, result.getProviderUsed(), info);
+            failed.increment();
+            logger.error("【邮件发件箱】#{} 重试 {} 次后仍失败，放弃: {} -> {}",
+                    message.getId(), attempts, message.getToEmail(), result.getMessage());
+            return;
+        }
+
+        LocalDateTime next = LocalDateTime.now().plusSeconds(backoffSeconds(attempts));
+        outboxMapper.markRetry(message.getId(), attempts, next, result.getProviderUsed(), info);
+        retried.increment();
+        logger.warn("【邮件发件箱】#{} 第 {} 次发送失败，{} 重试: {} -> {}",
+                message.getId(), attempts, next, message.getToEmail(), result.getMessage());
+    }
+
+    /**
+     * 第 n 次失败后的等待时间：base * 2^(n-1)，不超过 max，±20% 抖动避免同时失败的消息一起重试
+     */
+    private long backoffSeconds(int attempts) {
+        long delay = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, backoffMaxSeconds);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Math.max(1, Math.round(delay * jitter));
+    }
+
+    private void recordSent() {
+        long second = System.currentTimeMillis() / 1000;
+        int idx = (int) (second % WINDOW_SECONDS);
+        long seen = windowSeconds.get(idx);
+        if (seen != second && windowSeconds.compareAndSet(idx, seen, second)) {
+            windowCounts.set(idx, 0);
+        }
+        windowCounts.incrementAndGet(idx);
+    }
+
+    private long sentInWindow() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (now - windowSeconds.get(i) < WINDOW_SECONDS) {
+                total += windowCounts.get(i);
+            }
+        }
+        return total;
+    }
+
+    private static String truncate(String s) {
+        return s != null && s.length() > MAX_RESULT_LENGTH ? s.substring(0, MAX_RESULT_LENGTH) : s;
+    }
+
+    /**
+     * 本节点投递统计
+     */
+    public Map<String, Object> getStats() {
+        long sentTotal = sent.sum();
+        long attemptsTotal = sentTotal + retried.sum() + failed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("workers", running ? workerCount : 0);
+        stats.put("sent", sentTotal);
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        stats.put("sentLastMinute", sentInWindow());
+        stats.put("avgSendMs", attemptsTotal > 0 ? sendNanos.sum() / attemptsTotal / 1_000_000 : 0);
+        return stats;
+    }
+}
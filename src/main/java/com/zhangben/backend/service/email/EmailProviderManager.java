@@ -1,5 +1,6 @@
 package com.zhangben.backend.service.email;
 
+import com.zhangben.backend.config.DownstreamLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -20,6 +22,7 @@ import java.util.stream.Collectors;
  * 1. 根据配置选择主要供应商
  * 2. 自动降级到备用供应商
  * 3. 提供异步发送能力
+ * 4. V68: 按供应商令牌桶限速；为发件箱（EmailOutbox）提供不降级到 Mock 的投递入口
  */
 @Service
 public class EmailProviderManager {
@@ -38,6 +41,17 @@ public class EmailProviderManager {
     @Value("${app.mail.fallback-enabled:true}")
     private boolean fallbackEnabled;
 
+    // V68: 各供应商每秒最多发送数（0 为不限速）
+    @Value("${mail.rate-limit.brevo:10}")
+    private double brevoRatePerSecond;
+
+    @Value("${mail.rate-limit.resend:2}")
+    private double resendRatePerSecond;
+
+    // V68: 等待令牌的最长时间，超时按该供应商发送失败处理
+    @Value("${mail.rate-limit.max-wait-ms:10000}")
+    private long rateLimitMaxWaitMs;
+
     @Autowired
     private BrevoEmailProvider brevoProvider;
 
@@ -47,12 +61,18 @@ public class EmailProviderManager {
     @Autowired
     private MockEmailProvider mockProvider;
 
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     // 供应商映射表
     private Map<String, EmailProvider> providerMap;
 
     // 降级顺序
     private List<EmailProvider> fallbackChain;
 
+    // V68: 供应商名 -> 令牌桶（Mock 不限速）
+    private Map<String, TokenBucket> rateLimiters;
+
     @PostConstruct
     public void init() {
         // 构建供应商映射
@@ -81,11 +101,18 @@ public class EmailProviderManager {
         // Mock 永远作为最后的保底
         fallbackChain.add(mockProvider);
 
+        rateLimiters = Map.of(
+            "brevo", new TokenBucket(brevoRatePerSecond, brevoRatePerSecond),
+            "resend", new TokenBucket(resendRatePerSecond, resendRatePerSecond),
+            "mock", new TokenBucket(0, 1)
+        );
+
         // 输出初始化状态
         logger.info("【邮件管理器】初始化完成");
         logger.info("  - 邮件功能: {}", mailEnabled ? "启用" : "禁用");
         logger.info("  - 首选供应商: {}", preferredProvider);
         logger.info("  - 自动降级: {}", fallbackEnabled ? "启用" : "禁用");
+        logger.info("  - 速率限制: brevo={}/s, resend={}/s", brevoRatePerSecond, resendRatePerSecond);
         logger.info("  - 降级链: {}", fallbackChain.stream()
                 .map(p -> p.getProviderName() + "(" + (p.isAvailable() ? "可用" : "不可用") + ")")
                 .collect(Collectors.joining(" -> ")));
@@ -114,7 +141,7 @@ public class EmailProviderManager {
                 continue;
             }
 
-            lastResult = provider.sendEmail(toEmail, toName, subject, htmlContent);
+            lastResult = sendWithPermit(provider, toEmail, toName, subject, htmlContent);
 
             if (lastResult.isSuccess()) {
                 return lastResult;
@@ -133,8 +160,63 @@ public class EmailProviderManager {
         return lastResult != null ? lastResult : EmailResult.failure("none", "所有邮件供应商都不可用");
     }
 
+    /**
+     * V68: 发件箱投递（带自动降级）
+     * 与 sendEmail 的区别：真实供应商全部失败时返回失败（由发件箱退避重试），不会被 Mock 的“成功”吞掉；
+     * 只有首选为 mock 或没有任何可用的真实供应商（开发环境）时才使用 Mock。
+     */
+    public EmailResult deliver(String toEmail, String toName, String subject, String htmlContent) {
+        if (!mailEnabled) {
+            return EmailResult.skipped("邮件功能已禁用");
+        }
+
+        if ("mock".equalsIgnoreCase(preferredProvider)) {
+            return mockProvider.sendEmail(toEmail, toName, subject, htmlContent);
+        }
+
+        EmailResult lastResult = null;
+        for (EmailProvider provider : fallbackChain) {
+            if (provider == mockProvider || !provider.isAvailable()) {
+                continue;
+            }
+
+            lastResult = sendWithPermit(provider, toEmail, toName, subject, htmlContent);
+            if (lastResult.isSuccess() || !fallbackEnabled) {
+                return lastResult;
+            }
+            logger.warn("【邮件管理器】{} 投递失败，尝试下一个供应商...", provider.getProviderName());
+        }
+
+        // 没有任何可用的真实供应商：与 sendEmail 一致由 Mock 保底
+        return lastResult != null ? lastResult : mockProvider.sendEmail(toEmail, toName, subject, htmlContent);
+    }
+
+    /**
+     * V64: 在 MAIL 许可内调用供应商接口，等待许可超时按发送失败处理（可继续降级）
+     * V68: 先按供应商令牌桶限速，等待令牌超时同样按发送失败处理
+     */
+    private EmailResult sendWithPermit(EmailProvider provider, String toEmail, String toName,
+                                       String subject, String htmlContent) {
+        TokenBucket bucket = rateLimiters.get(provider.getProviderName());
+        try {
+            if (bucket != null && !bucket.acquire(rateLimitMaxWaitMs)) {
+                return EmailResult.failure(provider.getProviderName(), "发送速率超限");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EmailResult.failure(provider.getProviderName(), "等待发送令牌时被中断");
+        }
+        try {
+            return downstreamLimiter.call(DownstreamLimiter.Downstream.MAIL,
+                    () -> provider.sendEmail(toEmail, toName, subject, htmlContent));
+        } catch (DownstreamLimiter.BusyException e) {
+            return EmailResult.failure(provider.getProviderName(), e.getMessage());
+        }
+    }
+
     /**
      * 异步发送邮件
+     * V68: 进程退出或队列满时会丢失，业务通知请使用 EmailOutbox
      */
     @Async("emailTaskExecutor")
     public CompletableFuture<EmailResult> sendEmailAsync(String toEmail, String toName,
@@ -145,6 +227,7 @@ public class EmailProviderManager {
 
     /**
      * 异步发送邮件（Fire-and-forget 模式，不关心结果）
+     * V68: 进程退出或队列满时会丢失，业务通知请使用 EmailOutbox
      */
     @Async("emailTaskExecutor")
     public void sendEmailFireAndForget(String toEmail, String toName, String subject, String htmlContent) {
@@ -185,6 +268,23 @@ public class EmailProviderManager {
         );
     }
 
+    /**
+     * V68: 各供应商限速统计
+     */
+    public Map<String, Object> getRateLimitStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, TokenBucket> e : rateLimiters.entrySet()) {
+            TokenBucket b = e.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ratePerSecond", b.getRatePerSecond());
+            item.put("granted", b.getGranted());
+            item.put("throttled", b.getThrottled());
+            item.put("rejected", b.getRejected());
+            stats.put(e.getKey(), item);
+        }
+        return stats;
+    }
+
     /**
      * 检查邮件功能是否可用
      */
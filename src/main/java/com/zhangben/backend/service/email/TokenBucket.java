@@ -0,0 +1,87 @@
+package com.zhangben.backend.service.email;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * V68: 令牌桶（单个邮件供应商的发送速率限制）
+ *
+ * 每秒补充 ratePerSecond 个令牌，最多积累 burst 个。取令牌时若需等待，先在锁内预占（令牌可为负），
+ * 再在锁外休眠，多个线程按到达顺序排队且不会互相阻塞在锁上。ratePerSecond <= 0 表示不限速。
+ */
+public final class TokenBucket {
+
+    private final double ratePerSecond;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 取一个令牌，最多等待 maxWaitMs；超时返回 false（不消耗令牌）
+     */
+    public boolean acquire(long maxWaitMs) throws InterruptedException {
+        if (ratePerSecond <= 0) {
+            granted.increment();
+            return true;
+        }
+        long waitNanos = reserve(TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+        if (waitNanos < 0) {
+            rejected.increment();
+            return false;
+        }
+        if (waitNanos > 0) {
+            throttled.increment();
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        granted.increment();
+        return true;
+    }
+
+    /**
+     * 预占一个令牌，返回需要等待的纳秒数；超过 maxWaitNanos 时返回 -1
+     */
+    private synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * ratePerSecond);
+        lastRefillNanos = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long waitNanos = (long) Math.ceil((1 - tokens) / ratePerSecond * 1_000_000_000L);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public long getGranted() {
+        return granted.sum();
+    }
+
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,127 @@
+package com.zhangben.backend.service.enrich;
+
+import com.zhangben.backend.dto.SettlementItem;
+import com.zhangben.backend.mapper.ActivityMapper;
+import com.zhangben.backend.mapper.OutcomeParticipantMapper;
+import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.model.User;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * V59: DTO 引用数据批量补全
+ * 先收集一页结果引用到的全部 ID，每类实体一次 IN 查询加载到请求级备忘录，
+ * 再由调用方从备忘录中读取并填充 DTO，查询次数与页大小无关。
+ */
+@Service
+public class ReferenceEnricher {
+
+    private static final String MEMO_ATTRIBUTE = ReferenceMemo.class.getName();
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private ActivityMapper activityMapper;
+
+    @Autowired
+    private OutcomeParticipantMapper outcomeParticipantMapper;
+
+    /**
+     * 获取当前请求的备忘录；不在请求线程中（定时任务、异步任务）时返回新实例
+     */
+    public ReferenceMemo memo() {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs == null) {
+            return newMemo();
+        }
+        ReferenceMemo memo = (ReferenceMemo) attrs.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = newMemo();
+            attrs.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+
+    /**
+     * 预取一组账单引用的数据：参与者、用户（付款人 / 还款对象 / 被代还人 / 参与者）、分类、活动
+     * @param withParticipants 是否同时加载参与者
+     */
+    public ReferenceMemo prefetchOutcomes(List<Outcome> outcomes, boolean withParticipants) {
+        ReferenceMemo memo = memo();
+        if (outcomes.isEmpty()) {
+            return memo;
+        }
+
+        List<Integer> outcomeIds = new ArrayList<>(outcomes.size());
+        Set<Integer> userIds = new HashSet<>();
+        Set<Integer> styleIds = new HashSet<>();
+        Set<Integer> activityIds = new HashSet<>();
+        for (Outcome o : outcomes) {
+            outcomeIds.add(o.getId());
+            userIds.add(o.getPayerUserid());
+            if (o.getTargetUserid() != null && o.getTargetUserid() > 0) userIds.add(o.getTargetUserid());
+            if (o.getOnBehalfOf() != null) userIds.add(o.getOnBehalfOf());
+            if (o.getRepaidBy() != null) userIds.add(o.getRepaidBy());
+            if (o.getCreatorId() != null) userIds.add(o.getCreatorId());
+            if (o.getStyleId() != null && o.getStyleId() > 0) styleIds.add(o.getStyleId());
+            if (o.getActivityId() != null && o.getActivityId() > 0) activityIds.add(o.getActivityId());
+        }
+
+        if (withParticipants) {
+            memo.loadParticipants(outcomeIds);
+            for (Integer id : outcomeIds) {
+                for (OutcomeParticipant p : memo.participants(id)) {
+                    userIds.add(p.getUserId());
+                }
+            }
+        }
+        memo.loadUsers(userIds);
+        memo.loadStyles(styleIds);
+        memo.loadActivities(activityIds);
+        return memo;
+    }
+
+    /**
+     * 填充结算项的双方昵称与头像
+     */
+    public void fillSettlements(List<SettlementItem> items) {
+        ReferenceMemo memo = memo();
+        Set<Integer> userIds = new HashSet<>();
+        for (SettlementItem s : items) {
+            userIds.add(s.getFromId());
+            userIds.add(s.getToId());
+        }
+        memo.loadUsers(userIds);
+
+        for (SettlementItem s : items) {
+            User from = memo.user(s.getFromId());
+            User to = memo.user(s.getToId());
+            if (from != null) {
+                s.setFromName(from.getNickname());
+                s.setFromAvatarUrl(from.getAvatarUrl());
+            }
+            if (to != null) {
+                s.setToName(to.getNickname());
+                s.setToAvatarUrl(to.getAvatarUrl());
+            }
+        }
+    }
+
+    private ReferenceMemo newMemo() {
+        return new ReferenceMemo(userMapper, referenceDataCache, activityMapper, outcomeParticipantMapper);
+    }
+}
@@ -0,0 +1,178 @@
+package com.zhangben.backend.service.enrich;
+
+import com.zhangben.backend.mapper.ActivityMapper;
+import com.zhangben.backend.mapper.OutcomeParticipantMapper;
+import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.model.Activity;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.model.PayStyle;
+import com.zhangben.backend.model.User;
+import com.zhangben.backend.model.UserExample;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * V59: 请求级引用数据备忘录
+ * 缓存同一请求内查询过的用户 / 分类 / 活动 / 参与者，不存在的 ID 也会记录，避免重复查询。
+ * load* 方法只查询尚未缓存的 ID，每类实体每批一次 IN 查询；
+ * 单个读取方法在未预取时退化为按需加载，结果同样进入缓存。
+ * V60: 分类取自全局 ReferenceDataCache（整表常驻），不再逐请求查库。
+ * 由 ReferenceEnricher 创建，请求线程内共享同一份，非请求线程每次调用各自持有一份。
+ */
+public class ReferenceMemo {
+
+    /** 单次 IN 查询的最大 ID 数 */
+    private static final int BATCH_SIZE = 500;
+
+    private final UserMapper userMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final ActivityMapper activityMapper;
+    private final OutcomeParticipantMapper outcomeParticipantMapper;
+
+    private final Map<Integer, Optional<User>> users = new ConcurrentHashMap<>();
+    private final Map<Integer, Optional<PayStyle>> styles = new ConcurrentHashMap<>();
+    private final Map<Integer, Optional<Activity>> activities = new ConcurrentHashMap<>();
+    private final Map<Integer, List<OutcomeParticipant>> participants = new ConcurrentHashMap<>();
+
+    /** 本备忘录发出的查询次数 */
+    private final AtomicInteger queryCount = new AtomicInteger();
+
+    ReferenceMemo(UserMapper userMapper, ReferenceDataCache referenceDataCache,
+                  ActivityMapper activityMapper, OutcomeParticipantMapper outcomeParticipantMapper) {
+        this.userMapper = userMapper;
+        this.referenceDataCache = referenceDataCache;
+        this.activityMapper = activityMapper;
+        this.outcomeParticipantMapper = outcomeParticipantMapper;
+    }
+
+    // ==================== 批量加载 ====================
+
+    public void loadUsers(Collection<Integer> ids) {
+        List<Integer> missing = missing(ids, users);
+        for (List<Integer> batch : partition(missing)) {
+            UserExample example = new UserExample();
+            example.createCriteria().andIdIn(batch);
+            queryCount.incrementAndGet();
+            for (User u : userMapper.selectByExample(example)) {
+                users.put(u.getId(), Optional.of(u));
+            }
+        }
+        for (Integer id : missing) {
+            users.putIfAbsent(id, Optional.empty());
+        }
+    }
+
+    public void loadStyles(Collection<Integer> ids) {
+        List<Integer> missing = missing(ids, styles);
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Integer, PayStyle> all = referenceDataCache.getStylesById();
+        for (Integer id : missing) {
+            styles.put(id, Optional.ofNullable(all.get(id)));
+        }
+    }
+
+    public void loadActivities(Collection<Integer> ids) {
+        List<Integer> missing = missing(ids, activities);
+        for (List<Integer> batch : partition(missing)) {
+            queryCount.incrementAndGet();
+            for (Activity a : activityMapper.selectByIds(batch)) {
+                activities.put(a.getId(), Optional.of(a));
+            }
+        }
+        for (Integer id : missing) {
+            activities.putIfAbsent(id, Optional.empty());
+        }
+    }
+
+    public void loadParticipants(Collection<Integer> outcomeIds) {
+        List<Integer> missing = missing(outcomeIds, participants);
+        for (List<Integer> batch : partition(missing)) {
+            queryCount.incrementAndGet();
+            Map<Integer, List<OutcomeParticipant>> grouped = new HashMap<>();
+            for (OutcomeParticipant p : outcomeParticipantMapper.selectByOutcomeIds(batch)) {
+                grouped.computeIfAbsent(p.getOutcomeId(), k -> new ArrayList<>()).add(p);
+            }
+            participants.putAll(grouped);
+        }
+        for (Integer id : missing) {
+            participants.putIfAbsent(id, Collections.emptyList());
+        }
+    }
+
+    // ==================== 读取 ====================
+
+    public User user(Integer id) {
+        if (id == null) return null;
+        if (!users.containsKey(id)) loadUsers(Collections.singletonList(id));
+        return users.get(id).orElse(null);
+    }
+
+    /**
+     * 昵称，用户不存在时返回 null
+     */
+    public String nickname(Integer id) {
+        User u = user(id);
+        return u != null ? u.getNickname() : null;
+    }
+
+    public PayStyle style(Integer id) {
+        if (id == null) return null;
+        if (!styles.containsKey(id)) loadStyles(Collections.singletonList(id));
+        return styles.get(id).orElse(null);
+    }
+
+    /**
+     * 分类名称，未设置或不存在时返回 "未分类"
+     */
+    public String styleName(Integer id) {
+        PayStyle style = id != null && id > 0 ? style(id) : null;
+        return style != null ? style.getStyleName() : "未分类";
+    }
+
+    public Activity activity(Integer id) {
+        if (id == null) return null;
+        if (!activities.containsKey(id)) loadActivities(Collections.singletonList(id));
+        return activities.get(id).orElse(null);
+    }
+
+    public List<OutcomeParticipant> participants(Integer outcomeId) {
+        if (outcomeId == null) return Collections.emptyList();
+        if (!participants.containsKey(outcomeId)) loadParticipants(Collections.singletonList(outcomeId));
+        return participants.get(outcomeId);
+    }
+
+    public int getQueryCount() {
+        return queryCount.get();
+    }
+
+    private static List<Integer> missing(Collection<Integer> ids, Map<Integer, ?> cache) {
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            if (id != null && !cache.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        return new ArrayList<>(missing);
+    }
+
+    private static List<List<Integer>> partition(List<Integer> ids) {
+        List<List<Integer>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            batches.add(ids.subList(i, Math.min(i + BATCH_SIZE, ids.size())));
+        }
+        return batches;
+    }
+}
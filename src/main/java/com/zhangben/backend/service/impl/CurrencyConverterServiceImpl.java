@@ -1,40 +1,29 @@
 package com.zhangben.backend.service.impl;
 
-import com.zhangben.backend.mapper.ExchangeRateMapper;
-import com.zhangben.backend.model.ExchangeRate;
 import com.zhangben.backend.service.CurrencyConverterService;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
- * V48: USD-anchored currency converter with Redis caching.
- * Redis key: AABILL:RATES:USD_ANCHOR (Hash type)
- * Hash fields: "JPY" → "149.85", "CNY" → "7.245", ...
- * TTL: 24 hours
+ * V48: USD-anchored currency converter.
+ * V60: Rates are served from the in-process ReferenceDataCache (whole table, one DB read per TTL);
+ * the per-lookup Redis hash round trip is gone. refreshCache() invalidates every node via Redis pub/sub.
  */
 @Service
 public class CurrencyConverterServiceImpl implements CurrencyConverterService {
 
     private static final Logger log = LoggerFactory.getLogger(CurrencyConverterServiceImpl.class);
 
-    private static final String REDIS_KEY = "AABILL:RATES:USD_ANCHOR";
-    private static final long CACHE_TTL_HOURS = 24;
-
-    @Autowired
-    private ExchangeRateMapper exchangeRateMapper;
-
     @Autowired
-    private StringRedisTemplate redisTemplate;
+    private ReferenceDataCache referenceDataCache;
 
     @Override
     public BigDecimal convert(BigDecimal amount, String from, String to) {
@@ -70,33 +59,18 @@ public class CurrencyConverterServiceImpl implements CurrencyConverterService {
 
     @Override
     public Map<String, BigDecimal> getAllRates() {
-        // 1. Try Redis Hash
-        try {
-            Map<Object, Object> cached = redisTemplate.opsForHash().entries(REDIS_KEY);
-            if (!cached.isEmpty()) {
-                Map<String, BigDecimal> result = new HashMap<>();
-                for (Map.Entry<Object, Object> entry : cached.entrySet()) {
-                    result.put(entry.getKey().toString(), new BigDecimal(entry.getValue().toString()));
-                }
-                return result;
-            }
-        } catch (Exception e) {
-            log.warn("Redis unavailable for rates cache: {}", e.getMessage());
-        }
-
-        // 2. Fall back to DB
-        return loadFromDbAndCache();
+        return new HashMap<>(referenceDataCache.getRatesToUsd());
     }
 
     @Override
     public void refreshCache() {
-        loadFromDbAndCache();
-        log.info("Exchange rate cache refreshed from DB");
+        // V60: 本节点立即重载，其他节点经 Redis 广播失效
+        referenceDataCache.invalidate(ReferenceDataCache.Region.EXCHANGE_RATE);
+        log.info("Exchange rate cache refreshed from DB ({} currencies)", referenceDataCache.getRatesToUsd().size());
     }
 
     /**
-     * Get rate_to_usd for a single currency.
-     * Checks Redis first, then DB.
+     * Get rate_to_usd for a single currency from the near cache.
      */
     private BigDecimal getRateToUsd(String code) {
         String upperCode = code.toUpperCase();
@@ -106,55 +80,10 @@ public class CurrencyConverterServiceImpl implements CurrencyConverterService {
             return BigDecimal.ONE;
         }
 
-        // Try Redis
-        try {
-            Object cached = redisTemplate.opsForHash().get(REDIS_KEY, upperCode);
-            if (cached != null) {
-                return new BigDecimal(cached.toString());
-            }
-        } catch (Exception e) {
-            log.warn("Redis unavailable, falling back to DB: {}", e.getMessage());
+        BigDecimal rate = referenceDataCache.getRatesToUsd().get(upperCode);
+        if (rate == null) {
+            log.warn("No exchange rate found for currency: {}", upperCode);
         }
-
-        // Try DB
-        ExchangeRate rate = exchangeRateMapper.selectByCode(upperCode);
-        if (rate != null) {
-            // Cache the individual value
-            try {
-                redisTemplate.opsForHash().put(REDIS_KEY, upperCode, rate.getRateToUsd().toPlainString());
-            } catch (Exception e) {
-                // ignore cache failure
-            }
-            return rate.getRateToUsd();
-        }
-
-        log.warn("No exchange rate found for currency: {}", upperCode);
-        return null;
-    }
-
-    /**
-     * Load all rates from DB, write to Redis, return as Map.
-     */
-    private Map<String, BigDecimal> loadFromDbAndCache() {
-        List<ExchangeRate> rates = exchangeRateMapper.selectAll();
-        Map<String, BigDecimal> result = new HashMap<>();
-        Map<String, String> redisEntries = new HashMap<>();
-
-        for (ExchangeRate r : rates) {
-            result.put(r.getCode(), r.getRateToUsd());
-            redisEntries.put(r.getCode(), r.getRateToUsd().toPlainString());
-        }
-
-        if (!redisEntries.isEmpty()) {
-            try {
-                redisTemplate.delete(REDIS_KEY);
-                redisTemplate.opsForHash().putAll(REDIS_KEY, redisEntries);
-                redisTemplate.expire(REDIS_KEY, CACHE_TTL_HOURS, TimeUnit.HOURS);
-            } catch (Exception e) {
-                log.warn("Failed to cache rates in Redis: {}", e.getMessage());
-            }
-        }
-
-        return result;
+        return rate;
     }
 }
@@ -0,0 +1,282 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.mapper.DailySpendMapper;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.model.UserDailySpend;
+import com.zhangben.backend.service.DailySpendService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * V62: 用户每日消费汇总服务实现
+ * 写入方法加入调用方事务，保证账单与汇总同时提交或回滚；
+ * 重建按用户ID分段，每段一个事务（先删后写），避免长事务锁住整张表。
+ */
+@Service
+public class DailySpendServiceImpl implements DailySpendService {
+
+    private static final Logger log = LoggerFactory.getLogger(DailySpendServiceImpl.class);
+
+    /** 重建时每段的用户ID跨度 */
+    private static final int REBUILD_BATCH_USERS = 1000;
+
+    /** 检查报告中最多返回的差异条数 */
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    @Autowired
+    private DailySpendMapper dailySpendMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional
+    public void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        writeDeltas(collectDeltas(outcome, participants, 1));
+    }
+
+    @Override
+    @Transactional
+    public void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        writeDeltas(collectDeltas(outcome, participants, -1));
+    }
+
+    @Override
+    public Map<String, Object> rebuild(Integer fromUserId, Integer toUserId) {
+        long start = System.currentTimeMillis();
+        int from = fromUserId != null ? Math.max(fromUserId, 0) : 0;
+        int to;
+        if (toUserId != null) {
+            to = toUserId;
+        } else {
+            Integer max = dailySpendMapper.selectMaxParticipantUserId();
+            to = max != null ? max : 0;
+        }
+        if (from > to) {
+            throw new IllegalArgumentException("起始用户ID不能大于结束用户ID");
+        }
+
+        int batches = 0;
+        long rows = 0;
+        for (long lo = from; lo <= to; lo += REBUILD_BATCH_USERS) {
+            int batchFrom = (int) lo;
+            int batchTo = (int) Math.min(lo + REBUILD_BATCH_USERS - 1, to);
+            Integer written = transactionTemplate.execute(status -> {
+                dailySpendMapper.deleteUsers(batchFrom, batchTo);
+                return dailySpendMapper.insertUsersFromOutcome(batchFrom, batchTo);
+            });
+            batches++;
+            rows += written != null ? written : 0;
+        }
+
+        long cost = System.currentTimeMillis() - start;
+        log.info("【每日汇总】重建完成，用户 {}~{}，{} 段，写入 {} 行，耗时 {}ms", from, to, batches, rows, cost);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("fromUserId", from);
+        report.put("toUserId", to);
+        report.put("batches", batches);
+        report.put("rows", rows);
+        report.put("costMs", cost);
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> check(int sampleSize, boolean repair) {
+        long start = System.currentTimeMillis();
+        List<Integer> userIds = dailySpendMapper.selectRandomUserIds(Math.max(sampleSize, 1));
+
+        List<Map<String, Object>> mismatches = new ArrayList<>();
+        Set<Integer> mismatchedUsers = new TreeSet<>();
+        for (Integer userId : userIds) {
+            Map<String, UserDailySpend> expected = new HashMap<>();
+            for (UserDailySpend r : dailySpendMapper.selectExpectedByUser(userId)) {
+                expected.put(keyOf(r), r);
+            }
+            Map<String, UserDailySpend> actual = new HashMap<>();
+            for (UserDailySpend r : dailySpendMapper.selectByUser(userId)) {
+                actual.put(keyOf(r), r);
+            }
+
+            Set<String> keys = new HashSet<>(expected.keySet());
+            keys.addAll(actual.keySet());
+            for (String key : keys) {
+                UserDailySpend exp = expected.get(key);
+                UserDailySpend act = actual.get(key);
+                if (sameTotals(exp, act)) continue;
+
+                mismatchedUsers.add(userId);
+                if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                    UserDailySpend base = exp != null ? exp : act;
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("userId", userId);
+                    m.put("day", base.getDay().toString());
+                    m.put("styleId", base.getStyleId());
+                    m.put("payerId", base.getPayerId());
+                    m.put("expectedAmount", exp != null ? exp.getAmount() : 0L);
+                    m.put("actualAmount", act != null ? act.getAmount() : 0L);
+                    m.put("expectedCount", exp != null ? exp.getTxnCount() : 0);
+                    m.put("actualCount", act != null ? act.getTxnCount() : 0);
+                    mismatches.add(m);
+                }
+            }
+        }
+
+        if (repair) {
+            for (Integer userId : mismatchedUsers) {
+                rebuild(userId, userId);
+            }
+        }
+
+        long cost = System.currentTimeMillis() - start;
+        if (mismatchedUsers.isEmpty()) {
+            log.info("【每日汇总】抽样检查 {} 个用户，无差异，耗时 {}ms", userIds.size(), cost);
+        } else {
+            log.warn("【每日汇总】抽样检查 {} 个用户，{} 个存在差异（repair={}），耗时 {}ms",
+                userIds.size(), mismatchedUsers.size(), repair, cost);
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("sampled", userIds.size());
+        report.put("mismatchedUsers", new ArrayList<>(mismatchedUsers));
+        report.put("mismatches", mismatches);
+        report.put("repaired", repair && !mismatchedUsers.isEmpty());
+        report.put("costMs", cost);
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> checkTotals(int days, boolean repair) {
+        long start = System.currentTimeMillis();
+        LocalDate toDay = LocalDate.now();
+        LocalDate fromDay = toDay.minusDays(Math.max(days, 1) - 1L);
+
+        Map<LocalDate, UserDailySpend> expected = new HashMap<>();
+        for (UserDailySpend r : dailySpendMapper.selectExpectedDayTotals(fromDay, toDay)) {
+            expected.put(r.getDay(), r);
+        }
+        Map<LocalDate, UserDailySpend> actual = new HashMap<>();
+        for (UserDailySpend r : dailySpendMapper.selectDayTotals(fromDay, toDay)) {
+            actual.put(r.getDay(), r);
+        }
+
+        Set<LocalDate> mismatchedDays = new TreeSet<>();
+        Set<LocalDate> allDays = new HashSet<>(expected.keySet());
+        allDays.addAll(actual.keySet());
+        for (LocalDate day : allDays) {
+            if (!sameTotals(expected.get(day), actual.get(day))) {
+                mismatchedDays.add(day);
+            }
+        }
+
+        // 合计不一致的日期再按用户细分，定位需要重建的用户
+        Set<Integer> mismatchedUsers = new TreeSet<>();
+        for (LocalDate day : mismatchedDays) {
+            Map<Integer, UserDailySpend> exp = new HashMap<>();
+            for (UserDailySpend r : dailySpendMapper.selectExpectedUserTotalsByDay(day)) {
+                exp.put(r.getUserId(), r);
+            }
+            Map<Integer, UserDailySpend> act = new HashMap<>();
+            for (UserDailySpend r : dailySpendMapper.selectUserTotalsByDay(day)) {
+                act.put(r.getUserId(), r);
+            }
+            Set<Integer> users = new HashSet<>(exp.keySet());
+            users.addAll(act.keySet());
+            for (Integer userId : users) {
+                if (!sameTotals(exp.get(userId), act.get(userId))) {
+                    mismatchedUsers.add(userId);
+                }
+            }
+        }
+
+        if (repair) {
+            for (Integer userId : mismatchedUsers) {
+                rebuild(userId, userId);
+            }
+        }
+
+        long cost = System.currentTimeMillis() - start;
+        if (mismatchedDays.isEmpty()) {
+            log.info("【每日汇总】核对 {} ~ {} 按日合计，无差异，耗时 {}ms", fromDay, toDay, cost);
+        } else {
+            log.warn("【每日汇总】核对 {} ~ {} 按日合计，{} 天 / {} 个用户存在差异（repair={}），耗时 {}ms",
+                fromDay, toDay, mismatchedDays.size(), mismatchedUsers.size(), repair, cost);
+        }
+
+        List<String> dayList = new ArrayList<>();
+        mismatchedDays.forEach(d -> dayList.add(d.toString()));
+        Map<String, Object> report = new HashMap<>();
+        report.put("fromDay", fromDay.toString());
+        report.put("toDay", toDay.toString());
+        report.put("mismatchedDays", dayList);
+        report.put("mismatchedUsers", new ArrayList<>(mismatchedUsers));
+        report.put("repaired", repair && !mismatchedUsers.isEmpty());
+        report.put("costMs", cost);
+        return report;
+    }
+
+    /**
+     * 计算一条账单对每日汇总的增量，同一参与者合并（同一账单的日期 / 分类 / 付款人相同）
+     */
+    private List<UserDailySpend> collectDeltas(Outcome o, List<OutcomeParticipant> participants, int sign) {
+        if (o == null || participants == null || participants.isEmpty()
+                || o.getRepayFlag() == null || o.getRepayFlag() != (byte) 1
+                || o.getPayDatetime() == null || o.getPerAmount() == null || o.getPayerUserid() == null) {
+            return Collections.emptyList();
+        }
+
+        LocalDate day = o.getPayDatetime().toLocalDate();
+        Integer styleId = o.getStyleId() != null ? o.getStyleId() : 0;
+        long perAmount = sign * o.getPerAmount();
+
+        Map<Integer, UserDailySpend> byUser = new TreeMap<>();
+        for (OutcomeParticipant p : participants) {
+            if (p.getUserId() == null) continue;
+            int shares = p.getShares() != null ? p.getShares() : 1;
+            UserDailySpend d = byUser.computeIfAbsent(p.getUserId(),
+                uid -> new UserDailySpend(uid, day, styleId, o.getPayerUserid()));
+            d.setAmount(d.getAmount() + perAmount);
+            d.setShareAmount(d.getShareAmount() + perAmount * shares);
+            d.setTxnCount(d.getTxnCount() + sign);
+        }
+        return new ArrayList<>(byUser.values());
+    }
+
+    private void writeDeltas(List<UserDailySpend> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // 按主键顺序写入，降低并发事务间的死锁概率
+        List<UserDailySpend> sorted = new ArrayList<>(deltas);
+        sorted.sort(Comparator.comparing(UserDailySpend::getUserId)
+            .thenComparing(UserDailySpend::getDay)
+            .thenComparing(UserDailySpend::getStyleId)
+            .thenComparing(UserDailySpend::getPayerId));
+        dailySpendMapper.batchAddDelta(sorted);
+    }
+
+    /**
+     * 金额与笔数均一致；已归零的汇总行视同不存在
+     */
+    private static boolean sameTotals(UserDailySpend exp, UserDailySpend act) {
+        long expAmount = exp != null ? exp.getAmount() : 0L;
+        long actAmount = act != null ? act.getAmount() : 0L;
+        long expShare = exp != null ? exp.getShareAmount() : 0L;
+        long actShare = act != null ? act.getShareAmount() : 0L;
+        int expCount = exp != null ? exp.getTxnCount() : 0;
+        int actCount = act != null ? act.getTxnCount() : 0;
+        return expAmount == actAmount && expShare == actShare && expCount == actCount;
+    }
+
+    private static String keyOf(UserDailySpend r) {
+        return r.getDay() + "|" + r.getStyleId() + "|" + r.getPayerId();
+    }
+}
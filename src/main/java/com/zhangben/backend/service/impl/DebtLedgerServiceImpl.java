@@ -0,0 +1,203 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.mapper.DebtLedgerMapper;
+import com.zhangben.backend.model.DebtLedgerEntry;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.service.DebtLedgerService;
+import com.zhangben.backend.service.cache.ActivityBalanceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * V52: 两两欠款账本服务实现
+ * 写入方法加入调用方事务，保证账单与账本同时提交或回滚。
+ */
+@Service
+public class DebtLedgerServiceImpl implements DebtLedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(DebtLedgerServiceImpl.class);
+
+    /** 对账报告中最多返回的差异条数 */
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    @Autowired
+    private DebtLedgerMapper debtLedgerMapper;
+
+    @Autowired
+    private ActivityBalanceCache activityBalanceCache;
+
+    @Override
+    @Transactional
+    public void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        writeDeltas(collectDeltas(outcome, participants, 1L));
+    }
+
+    @Override
+    @Transactional
+    public void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        writeDeltas(collectDeltas(outcome, participants, -1L));
+    }
+
+    @Override
+    public List<DebtLedgerEntry> getUserEntries(Integer userId, Integer activityId) {
+        return debtLedgerMapper.selectByUser(scopeOf(activityId), userId);
+    }
+
+    @Override
+    public List<DebtLedgerEntry> getUsersEntries(Collection<Integer> userIds, Integer activityId) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return debtLedgerMapper.selectByUsers(scopeOf(activityId), userIds);
+    }
+
+    @Override
+    public List<DebtLedgerEntry> getScopeEntries(Integer activityId) {
+        return debtLedgerMapper.selectByScope(scopeOf(activityId));
+    }
+
+    @Override
+    @Transactional
+    public Map<String, Object> reconcile(boolean repair) {
+        long start = System.currentTimeMillis();
+
+        Map<String, DebtLedgerEntry> expected = new HashMap<>();
+        for (DebtLedgerEntry e : debtLedgerMapper.selectExpectedEntries()) {
+            expected.put(keyOf(e), e);
+        }
+        Map<String, DebtLedgerEntry> actual = new HashMap<>();
+        for (DebtLedgerEntry e : debtLedgerMapper.selectAll()) {
+            actual.put(keyOf(e), e);
+        }
+
+        Set<String> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+
+        List<DebtLedgerEntry> corrections = new ArrayList<>();
+        List<Map<String, Object>> drifts = new ArrayList<>();
+        for (String key : keys) {
+            DebtLedgerEntry exp = expected.get(key);
+            DebtLedgerEntry act = actual.get(key);
+            long expAmount = exp != null && exp.getAmount() != null ? exp.getAmount() : 0L;
+            long actAmount = act != null && act.getAmount() != null ? act.getAmount() : 0L;
+            if (expAmount == actAmount) continue;
+
+            DebtLedgerEntry base = exp != null ? exp : act;
+            corrections.add(new DebtLedgerEntry(base.getActivityId(), base.getDebtorId(),
+                base.getCreditorId(), base.getCurrency(), expAmount - actAmount));
+
+            if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                Map<String, Object> drift = new HashMap<>();
+                drift.put("activityId", base.getActivityId());
+                drift.put("debtorId", base.getDebtorId());
+                drift.put("creditorId", base.getCreditorId());
+                drift.put("currency", base.getCurrency());
+                drift.put("expected", expAmount);
+                drift.put("actual", actAmount);
+                drifts.add(drift);
+            }
+        }
+
+        if (repair && !corrections.isEmpty()) {
+            // 以差额方式写回，避免覆盖对账期间并发写入的增量
+            writeDeltas(corrections);
+        }
+        if (repair) {
+            debtLedgerMapper.deleteZeroEntries();
+        }
+
+        long cost = System.currentTimeMillis() - start;
+        if (corrections.isEmpty()) {
+            log.info("【欠款账本】对账完成，{} 条无差异，耗时 {}ms", keys.size(), cost);
+        } else {
+            log.warn("【欠款账本】对账发现 {} 条差异（repair={}），耗时 {}ms", corrections.size(), repair, cost);
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("checked", keys.size());
+        report.put("driftCount", corrections.size());
+        report.put("drifts", drifts);
+        report.put("repaired", repair && !corrections.isEmpty());
+        report.put("costMs", cost);
+        return report;
+    }
+
+    /**
+     * 计算一条账单对账本的增量，同一主键合并
+     */
+    private List<DebtLedgerEntry> collectDeltas(Outcome o, List<OutcomeParticipant> participants, long sign) {
+        if (o == null || participants == null || participants.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Integer scope = scopeOf(o.getActivityId());
+        String currency = o.getTargetCurrencySnapshot() != null ? o.getTargetCurrencySnapshot() : "";
+        Map<Integer, Long> deltaByDebtor = new TreeMap<>();
+        Integer creditor;
+
+        if (o.getRepayFlag() != null && o.getRepayFlag() == (byte) 1) {
+            // 消费：参与者欠付款人
+            creditor = o.getPayerUserid();
+            for (OutcomeParticipant p : participants) {
+                if (p.getUserId() == null || p.getUserId().equals(creditor)) continue;
+                int shares = p.getShares() != null ? p.getShares() : 1;
+                deltaByDebtor.merge(p.getUserId(), sign * o.getPerAmount() * shares, Long::sum);
+            }
+        } else if (o.getRepayFlag() != null && o.getRepayFlag() == (byte) 2) {
+            // 还款：仅已确认的计入，真正的债务人为 onBehalfOf（代还）或付款人
+            Integer target = o.getTargetUserid();
+            boolean confirmed = participants.stream().anyMatch(p ->
+                target != null && target.equals(p.getUserId())
+                    && p.getConfirmStatus() != null && p.getConfirmStatus() == 1);
+            creditor = target;
+            if (!confirmed) {
+                return Collections.emptyList();
+            }
+            Integer debtor = o.getOnBehalfOf() != null ? o.getOnBehalfOf() : o.getPayerUserid();
+            deltaByDebtor.put(debtor, -sign * o.getAmount());
+        } else {
+            return Collections.emptyList();
+        }
+
+        List<DebtLedgerEntry> deltas = new ArrayList<>();
+        for (Map.Entry<Integer, Long> e : deltaByDebtor.entrySet()) {
+            if (e.getValue() == 0) continue;
+            deltas.add(new DebtLedgerEntry(scope, e.getKey(), creditor, currency, e.getValue()));
+        }
+        return deltas;
+    }
+
+    private void writeDeltas(List<DebtLedgerEntry> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // 按主键顺序写入，降低并发事务间的死锁概率
+        List<DebtLedgerEntry> sorted = new ArrayList<>(deltas);
+        sorted.sort(Comparator.comparing(DebtLedgerEntry::getActivityId)
+            .thenComparing(DebtLedgerEntry::getDebtorId)
+            .thenComparing(DebtLedgerEntry::getCreditorId)
+            .thenComparing(DebtLedgerEntry::getCurrency));
+        debtLedgerMapper.batchAddDelta(sorted);
+
+        // V57: 活动作用域的账本变化后（提交后）使该活动的净欠款缓存失效
+        Set<Integer> activityIds = new HashSet<>();
+        for (DebtLedgerEntry d : sorted) {
+            activityIds.add(d.getActivityId());
+        }
+        activityBalanceCache.invalidate(activityIds);
+    }
+
+    private static Integer scopeOf(Integer activityId) {
+        return activityId == null ? 0 : activityId;
+    }
+
+    private static String keyOf(DebtLedgerEntry e) {
+        return e.getActivityId() + "|" + e.getDebtorId() + "|" + e.getCreditorId() + "|" + e.getCurrency();
+    }
+}
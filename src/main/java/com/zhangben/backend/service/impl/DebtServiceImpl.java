@@ -4,15 +4,24 @@ import com.zhangben.backend.dto.*;
 import com.zhangben.backend.mapper.ActivityMapper;
 import com.zhangben.backend.mapper.ActivityMemberMapper;
 import com.zhangben.backend.mapper.FavoredUserMapper;
-import com.zhangben.backend.mapper.NotificationMapper;
 import com.zhangben.backend.mapper.OutcomeMapper;
 import com.zhangben.backend.mapper.OutcomeParticipantMapper;
-import com.zhangben.backend.mapper.PayStyleMapper;
 import com.zhangben.backend.mapper.UserMapper;
 import com.zhangben.backend.model.*;
+import com.zhangben.backend.service.DebtLedgerService;
 import com.zhangben.backend.service.DebtService;
-import com.zhangben.backend.service.EmailService;
 import com.zhangben.backend.service.UserPaymentMethodService;
+import com.zhangben.backend.service.UserTimelineService;
+import com.zhangben.backend.service.cache.ActivityBalanceCache;
+import com.zhangben.backend.service.enrich.ReferenceEnricher;
+import com.zhangben.backend.service.enrich.ReferenceMemo;
+import com.zhangben.backend.service.notify.ChangeEventPublisher;
+import com.zhangben.backend.service.notify.NotificationDispatcher;
+import com.zhangben.backend.service.settlement.FifoAllocator;
+import com.zhangben.backend.service.settlement.SettlementPlan;
+import com.zhangben.backend.service.settlement.SettlementSolverManager;
+import com.zhangben.backend.util.DebtPair;
+import com.zhangben.backend.util.LongLongHashMap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,13 +43,10 @@ public class DebtServiceImpl implements DebtService {
     private UserMapper userMapper;
 
     @Autowired
-    private PayStyleMapper payStyleMapper;
+    private NotificationDispatcher notificationDispatcher;
 
     @Autowired
-    private NotificationMapper notificationMapper;
-
-    @Autowired
-    private EmailService emailService;
+    private ChangeEventPublisher changeEventPublisher;
 
     @Autowired
     private FavoredUserMapper favoredUserMapper;
@@ -54,135 +60,108 @@ public class DebtServiceImpl implements DebtService {
     @Autowired
     private ActivityMemberMapper activityMemberMapper;
 
-    /**
-     * 使用 Example 查询所有未删除的 outcome
-     */
-    private List<Outcome> loadAllOutcomes() {
-        OutcomeExample example = new OutcomeExample();
-        example.createCriteria().andDeletedFlagEqualTo((byte) 0);
-        return outcomeMapper.selectByExample(example);
-    }
+    @Autowired
+    private DebtLedgerService debtLedgerService;
 
-    /**
-     * V49: 加载一般模式的 outcome（排除活动账单）
-     */
-    private List<Outcome> loadGeneralOutcomes() {
-        return loadAllOutcomes().stream()
-            .filter(o -> o.getActivityId() == null || o.getActivityId() == 0)
-            .collect(Collectors.toList());
-    }
+    @Autowired
+    private UserTimelineService userTimelineService;
+
+    @Autowired
+    private SettlementSolverManager settlementSolverManager;
+
+    @Autowired
+    private ActivityBalanceCache activityBalanceCache;
+
+    @Autowired
+    private ReferenceEnricher referenceEnricher;
+
+    /** V53: 批量加载参与者时每批的 outcome 数量 */
+    private static final int PARTICIPANT_BATCH_SIZE = 500;
 
     /**
-     * V49: 加载指定活动的 outcome
+     * V53: 分批加载一组 outcome 的参与者，按 outcomeId 分组
+     * 每 PARTICIPANT_BATCH_SIZE 个 outcome 一次查询，替代逐条 loadParticipants
      */
-    private List<Outcome> loadActivityOutcomes(Integer activityId) {
-        return loadAllOutcomes().stream()
-            .filter(o -> activityId.equals(o.getActivityId()))
+    private Map<Integer, List<OutcomeParticipant>> loadParticipantIndex(List<Outcome> outcomes) {
+        Map<Integer, List<OutcomeParticipant>> index = new HashMap<>();
+        List<Integer> ids = outcomes.stream()
+            .map(Outcome::getId)
+            .distinct()
             .collect(Collectors.toList());
+
+        for (int from = 0; from < ids.size(); from += PARTICIPANT_BATCH_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + PARTICIPANT_BATCH_SIZE, ids.size()));
+            for (OutcomeParticipant p : outcomeParticipantMapper.selectByOutcomeIds(chunk)) {
+                index.computeIfAbsent(p.getOutcomeId(), k -> new ArrayList<>()).add(p);
+            }
+        }
+        return index;
     }
 
     /**
-     * 查询某个 outcome 的所有参与者
+     * V59: 按 ID 分批加载账单（每 PARTICIPANT_BATCH_SIZE 个一次查询）
      */
-    private List<OutcomeParticipant> loadParticipants(Integer outcomeId) {
-        OutcomeParticipantExample example = new OutcomeParticipantExample();
-        example.createCriteria().andOutcomeIdEqualTo(outcomeId);
-        return outcomeParticipantMapper.selectByExample(example);
+    private Map<Integer, Outcome> loadOutcomesByIds(List<Integer> ids) {
+        Map<Integer, Outcome> outcomes = new LinkedHashMap<>();
+        List<Integer> distinct = ids.stream().distinct().collect(Collectors.toList());
+        for (int from = 0; from < distinct.size(); from += PARTICIPANT_BATCH_SIZE) {
+            OutcomeExample example = new OutcomeExample();
+            example.createCriteria().andIdIn(distinct.subList(from, Math.min(from + PARTICIPANT_BATCH_SIZE, distinct.size())));
+            for (Outcome o : outcomeMapper.selectByExample(example)) {
+                outcomes.put(o.getId(), o);
+            }
+        }
+        return outcomes;
     }
 
     /**
-     * 构建 debtor-creditor 的原始欠款表（不含净额计算）
-     * V49: 使用一般模式 outcomes（排除活动账单）
+     * V53: 从参与者索引中查找某个 outcome 下指定用户的参与记录
      */
-    private Map<String, Long> buildRawDebtMap() {
-        return buildRawDebtMapFrom(loadGeneralOutcomes());
+    private static OutcomeParticipant findParticipant(Map<Integer, List<OutcomeParticipant>> index,
+                                                      Integer outcomeId, Integer userId) {
+        for (OutcomeParticipant p : index.getOrDefault(outcomeId, Collections.emptyList())) {
+            if (p.getUserId().equals(userId)) {
+                return p;
+            }
+        }
+        return null;
     }
 
     /**
-     * V49: 从指定的 outcome 列表构建原始欠款表
+     * V52: 从欠款账本条目构建 debtor-creditor 的原始欠款表（不含净额计算）
+     * 账本按币种分行存储，这里与原全表计算口径一致地按金额直接汇总
+     * V55: 以 DebtPair 打包的 long 为键
      */
-    private Map<String, Long> buildRawDebtMapFrom(List<Outcome> list) {
-
-        Map<String, Long> map = new HashMap<>();
-
-        for (Outcome o : list) {
-
-            // repay_flag = 1 → 消费
-            if (o.getRepayFlag() == (byte) 1) {
-
-                List<OutcomeParticipant> ps = loadParticipants(o.getId());
-
-                for (OutcomeParticipant p : ps) {
-                    Integer uid = p.getUserId();
-
-                    // 自己不欠自己
-                    if (uid.equals(o.getPayerUserid())) {
-                        continue;
-                    }
-
-                    // V18: 使用份额计算欠款金额
-                    Integer shares = p.getShares() != null ? p.getShares() : 1;
-                    long debtAmount = o.getPerAmount() * shares;
-
-                    String key = uid + "-" + o.getPayerUserid();
-                    map.put(key, map.getOrDefault(key, 0L) + debtAmount);
-                }
-            }
-
-            // repay_flag = 2 → 还款
-            // V30: 只有已确认的还款才计入
-            if (o.getRepayFlag() == (byte) 2) {
-
-                // V35: 使用 onBehalfOf 确定真正的债务人（债务归属人）
-                // 如果是代还，onBehalfOf 是被代还的好友；否则是付款人自己
-                Integer debtor = o.getOnBehalfOf() != null ? o.getOnBehalfOf() : o.getPayerUserid();
-                Integer creditor = o.getTargetUserid();
-
-                // 检查还款是否已确认
-                OutcomeParticipant participant = outcomeParticipantMapper.selectByOutcomeAndUser(o.getId(), creditor);
-                boolean isConfirmed = participant != null && participant.getConfirmStatus() != null && participant.getConfirmStatus() == 1;
-
-                // 只有已确认的还款才计入
-                if (isConfirmed) {
-                    String key = debtor + "-" + creditor;
-                    map.put(key, map.getOrDefault(key, 0L) - o.getAmount());
-                }
-            }
+    private LongLongHashMap toRawDebtMap(List<DebtLedgerEntry> entries) {
+        LongLongHashMap map = new LongLongHashMap(entries.size());
+        for (DebtLedgerEntry e : entries) {
+            map.addTo(DebtPair.of(e.getDebtorId(), e.getCreditorId()), e.getAmount());
         }
-
         return map;
     }
 
     /**
-     * V49: 从指定 outcome 列表构建净额欠款表
+     * V52: 某用户在一般模式下涉及的原始欠款表（一次账本索引查询）
      */
-    private Map<String, Long> buildDebtMapFrom(List<Outcome> outcomes) {
-        Map<String, Long> rawMap = buildRawDebtMapFrom(outcomes);
-        return netFromRaw(rawMap);
+    private LongLongHashMap buildRawDebtMap(Integer userId) {
+        return toRawDebtMap(debtLedgerService.getUserEntries(userId, 0));
     }
 
     /**
      * V49: 从原始欠款表计算净额
+     * V55: 每个无序对只处理一次——债务人 ID 较大的一侧在反向键存在时跳过
      */
-    private Map<String, Long> netFromRaw(Map<String, Long> rawMap) {
-        Map<String, Long> netMap = new HashMap<>();
-        Set<String> processed = new HashSet<>();
-
-        for (Map.Entry<String, Long> e : rawMap.entrySet()) {
-            String[] parts = e.getKey().split("-");
-            Integer userA = Integer.valueOf(parts[0]);
-            Integer userB = Integer.valueOf(parts[1]);
+    private LongLongHashMap netFromRaw(LongLongHashMap rawMap) {
+        LongLongHashMap netMap = new LongLongHashMap(rawMap.size());
 
-            String pairKey = userA < userB ? userA + ":" + userB : userB + ":" + userA;
-            if (processed.contains(pairKey)) continue;
-            processed.add(pairKey);
-
-            String keyAB = userA + "-" + userB;
-            Long amountAB = rawMap.getOrDefault(keyAB, 0L);
-            String keyBA = userB + "-" + userA;
-            Long amountBA = rawMap.getOrDefault(keyBA, 0L);
+        for (LongLongHashMap.Cursor c = rawMap.cursor(); c.advance(); ) {
+            long keyAB = c.key();
+            long keyBA = DebtPair.reverse(keyAB);
+            if (DebtPair.debtor(keyAB) > DebtPair.creditor(keyAB) && rawMap.containsKey(keyBA)) {
+                continue;
+            }
 
-            long net = amountAB - amountBA;
+            long net = c.value() - rawMap.getOrDefault(keyBA, 0L);
             if (net > 0) {
                 netMap.put(keyAB, net);
             } else if (net < 0) {
@@ -195,34 +174,138 @@ public class DebtServiceImpl implements DebtService {
     /**
      * V19: 构建净额欠款表（一般模式，排除活动账单）
      * 当A欠B 300元，B欠A 200元时，计算净额：A欠B 100元
+     * V52: 只包含与 userId 直接相关的债务对
      */
-    private Map<String, Long> buildDebtMap() {
+    private LongLongHashMap buildDebtMap(Integer userId) {
 
-        Map<String, Long> rawMap = buildRawDebtMap();
+        LongLongHashMap rawMap = buildRawDebtMap(userId);
         return netFromRaw(rawMap);
     }
 
+    /**
+     * V58: 按对方用户分组流水（保持组内的时间顺序）
+     */
+    private static Map<Integer, List<DebtFlowRow>> groupByCounterparty(List<DebtFlowRow> flows, Integer userId) {
+        Map<Integer, List<DebtFlowRow>> grouped = new HashMap<>();
+        for (DebtFlowRow f : flows) {
+            Integer other = f.getDebtorId().equals(userId) ? f.getCreditorId() : f.getDebtorId();
+            grouped.computeIfAbsent(other, k -> new ArrayList<>()).add(f);
+        }
+        return grouped;
+    }
+
+    /**
+     * V58: 归并两条按 (pay_datetime, id) 升序的流水，用于按时间展示明细
+     */
+    private static List<DebtFlowRow> mergeByTime(List<DebtFlowRow> a, List<DebtFlowRow> b) {
+        Comparator<DebtFlowRow> order = Comparator
+                .comparing(DebtFlowRow::getPayDatetime, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(DebtFlowRow::getOutcomeId);
+        List<DebtFlowRow> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0, j = 0;
+        while (i < a.size() && j < b.size()) {
+            merged.add(order.compare(a.get(i), b.get(j)) <= 0 ? a.get(i++) : b.get(j++));
+        }
+        while (i < a.size()) merged.add(a.get(i++));
+        while (j < b.size()) merged.add(b.get(j++));
+        return merged;
+    }
+
+    /**
+     * V58: debtorId 方向上各笔消费按 FIFO 被已确认还款冲销的金额
+     */
+    private static Map<Integer, Long> fifoRepaid(List<DebtFlowRow> expenses, List<DebtFlowRow> repayments, Integer debtorId) {
+        List<DebtFlowRow> owed = new ArrayList<>();
+        for (DebtFlowRow f : expenses) {
+            if (f.getDebtorId().equals(debtorId)) owed.add(f);
+        }
+        List<DebtFlowRow> repaid = new ArrayList<>();
+        for (DebtFlowRow f : repayments) {
+            if (f.getDebtorId().equals(debtorId) && f.isConfirmed()) repaid.add(f);
+        }
+        return FifoAllocator.allocate(owed, repaid).getRepaidByOutcome();
+    }
+
+    /**
+     * V59: 预取流水引用的分类与实际付款人（代还显示用）
+     */
+    private ReferenceMemo prefetchFlows(Collection<Integer> userIds, List<DebtFlowRow> expenses, List<DebtFlowRow> repayments) {
+        ReferenceMemo memo = referenceEnricher.memo();
+        Set<Integer> users = new HashSet<>(userIds);
+        Set<Integer> styles = new HashSet<>();
+        for (DebtFlowRow f : expenses) {
+            if (f.getStyleId() != null && f.getStyleId() > 0) styles.add(f.getStyleId());
+        }
+        for (DebtFlowRow f : repayments) {
+            users.add(f.getPayerUserid());
+        }
+        memo.loadUsers(users);
+        memo.loadStyles(styles);
+        return memo;
+    }
+
+    /**
+     * V58: 流水 → 债权人视角明细（我欠对方）
+     * @param offset 是否为抵消明细（反方向）
+     */
+    private CreditorDebtDetailItem toCreditorDetail(DebtFlowRow f, long amount, boolean offset, ReferenceMemo memo) {
+        CreditorDebtDetailItem item = new CreditorDebtDetailItem();
+        item.setOutcomeId(f.getOutcomeId());
+        item.setAmount(amount);
+        item.setComment(f.getComment());
+        item.setPayDatetime(f.getPayDatetime());
+        item.setCategoryName(f.isExpense() ? memo.styleName(f.getStyleId()) : "还款");
+        item.setLocationText(f.isExpense() && !offset ? "位置信息" : "无");
+        if (offset) {
+            item.setIsOffset(true);
+        }
+        item.setCurrency(f.getCurrency());
+        item.setOriginalAmount(f.getOriginalAmount());
+        item.setOriginalCurrency(f.getOriginalCurrency());
+        return item;
+    }
+
+    /**
+     * V58: 流水 → 债务人视角明细（对方欠我）
+     * @param offset 是否为抵消明细（反方向）
+     */
+    private DebtorDebtDetailItem toDebtorDetail(DebtFlowRow f, long amount, boolean offset, ReferenceMemo memo) {
+        DebtorDebtDetailItem item = new DebtorDebtDetailItem();
+        item.setOutcomeId(f.getOutcomeId());
+        item.setAmount(amount);
+        item.setComment(f.getComment());
+        item.setPayDatetime(f.getPayDatetime());
+        item.setCategoryName(f.isExpense() ? memo.styleName(f.getStyleId()) : "还款");
+        item.setLocationText(f.isExpense() && !offset ? "位置信息" : "无");
+        if (offset) {
+            item.setIsOffset(true);
+        }
+        item.setCurrency(f.getCurrency());
+        item.setOriginalAmount(f.getOriginalAmount());
+        item.setOriginalCurrency(f.getOriginalCurrency());
+        return item;
+    }
+
     @Override
     public MyDebtSummaryResponse getMyDebtSummary(Integer userId) {
 
-        Map<String, Long> map = buildDebtMap();
+        LongLongHashMap map = buildDebtMap(userId);
 
         int shouldReceive = 0;
         int shouldPay = 0;
 
-        for (Map.Entry<String, Long> e : map.entrySet()) {
+        for (LongLongHashMap.Cursor c = map.cursor(); c.advance(); ) {
 
-            String[] parts = e.getKey().split("-");
-            Integer debtor = Integer.valueOf(parts[0]);
-            Integer creditor = Integer.valueOf(parts[1]);
-            Long amount = e.getValue();
+            int debtor = DebtPair.debtor(c.key());
+            int creditor = DebtPair.creditor(c.key());
+            long amount = c.value();
 
             if (amount <= 0) continue;
 
-            if (creditor.equals(userId)) {
+            if (creditor == userId) {
                 shouldReceive += amount;
             }
-            if (debtor.equals(userId)) {
+            if (debtor == userId) {
                 shouldPay += amount;
             }
         }
@@ -236,144 +319,43 @@ public class DebtServiceImpl implements DebtService {
     @Override
     public CreditorDebtOverviewResponse getDebtByCreditor(Integer userId, Integer creditorId) {
 
-        Map<String, Long> netMap = buildDebtMap();
-        Map<String, Long> rawMap = buildRawDebtMap();
+        LongLongHashMap rawMap = buildRawDebtMap(userId);
+        LongLongHashMap netMap = netFromRaw(rawMap);
 
-        String key = userId + "-" + creditorId;
-        Long total = netMap.getOrDefault(key, 0L);
+        Long total = netMap.getOrDefault(DebtPair.of(userId, creditorId), 0L);
 
         CreditorDebtOverviewResponse resp = new CreditorDebtOverviewResponse();
         resp.setCreditorId(creditorId);
 
-        User creditor = userMapper.selectByPrimaryKey(creditorId);
+        // V58: 两人之间的消费分摊与还款流水（SQL 侧按时间排序并关联确认状态）
+        List<DebtFlowRow> expenses = outcomeMapper.selectExpenseFlows(userId, creditorId);
+        List<DebtFlowRow> repayments = outcomeMapper.selectRepaymentFlows(userId, creditorId, false);
+        Map<Integer, Long> repaidByOutcome = fifoRepaid(expenses, repayments, userId);
+        ReferenceMemo memo = prefetchFlows(Collections.singletonList(creditorId), expenses, Collections.emptyList());
+
+        User creditor = memo.user(creditorId);
         resp.setCreditorName(creditor.getNickname());
         resp.setTotalAmount(total);
 
-        List<Outcome> all = loadGeneralOutcomes();
         List<CreditorDebtDetailItem> details = new ArrayList<>();
         List<CreditorDebtDetailItem> offsetDetails = new ArrayList<>();
 
-        for (Outcome o : all) {
-
-            // 消费明细
-            if (o.getRepayFlag() == (byte) 1) {
-
-                List<OutcomeParticipant> ps = loadParticipants(o.getId());
-
-                // 我参与、对方付款 → 我欠对方
-                Optional<OutcomeParticipant> participantOpt = ps.stream()
-                    .filter(p -> p.getUserId().equals(userId))
-                    .findFirst();
-
-                if (participantOpt.isPresent() && o.getPayerUserid().equals(creditorId)) {
-
-                    // V18: 使用份额计算金额
-                    OutcomeParticipant participant = participantOpt.get();
-                    Integer shares = participant.getShares() != null ? participant.getShares() : 1;
-                    long debtAmount = o.getPerAmount() * shares;
-
-                    CreditorDebtDetailItem item = new CreditorDebtDetailItem();
-                    item.setOutcomeId(o.getId());
-                    item.setAmount(debtAmount);
-                    item.setComment(o.getComment());
-                    item.setPayDatetime(o.getPayDatetime());
-
-                    if (o.getStyleId() != null) {
-                        PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                        item.setCategoryName(style != null ? style.getStyleName() : "未分类");
-                    } else {
-                        item.setCategoryName("未分类");
-                    }
-                    item.setLocationText("位置信息");
-                    item.setCurrency(o.getTargetCurrencySnapshot());
-                    item.setOriginalAmount(o.getOriginalAmount());
-                    item.setOriginalCurrency(o.getOriginalCurrency());
-
-                    details.add(item);
-                }
-
-                // 对方参与、我付款 → 对方欠我（抵消明细）
-                if (o.getPayerUserid().equals(userId)) {
-                    Optional<OutcomeParticipant> offsetOpt = ps.stream()
-                        .filter(p -> p.getUserId().equals(creditorId))
-                        .findFirst();
-                    if (offsetOpt.isPresent()) {
-                        OutcomeParticipant participant = offsetOpt.get();
-                        Integer shares = participant.getShares() != null ? participant.getShares() : 1;
-                        long debtAmount = o.getPerAmount() * shares;
-
-                        CreditorDebtDetailItem item = new CreditorDebtDetailItem();
-                        item.setOutcomeId(o.getId());
-                        item.setAmount(-debtAmount);
-                        item.setComment(o.getComment());
-                        item.setPayDatetime(o.getPayDatetime());
-                        item.setIsOffset(true);
-
-                        if (o.getStyleId() != null) {
-                            PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                            item.setCategoryName(style != null ? style.getStyleName() : "未分类");
-                        } else {
-                            item.setCategoryName("未分类");
-                        }
-                        item.setLocationText("无");
-                        item.setCurrency(o.getTargetCurrencySnapshot());
-                        item.setOriginalAmount(o.getOriginalAmount());
-                        item.setOriginalCurrency(o.getOriginalCurrency());
-
-                        offsetDetails.add(item);
-                    }
-                }
-            }
-
-            // 还款明细
-            if (o.getRepayFlag() == (byte) 2) {
-
-                // V35: 使用 onBehalfOf 确定真正的债务人
-                Integer actualDebtor = o.getOnBehalfOf() != null ? o.getOnBehalfOf() : o.getPayerUserid();
-
-                // 我还给对方
-                if (actualDebtor.equals(userId) && o.getTargetUserid().equals(creditorId)) {
-
-                    CreditorDebtDetailItem item = new CreditorDebtDetailItem();
-                    item.setOutcomeId(o.getId());
-                    item.setAmount(-o.getAmount());
-                    item.setComment(o.getComment());
-                    item.setPayDatetime(o.getPayDatetime());
-                    item.setCategoryName("还款");
-                    item.setLocationText("无");
-                    item.setCurrency(o.getTargetCurrencySnapshot());
-                    item.setOriginalAmount(o.getOriginalAmount());
-                    item.setOriginalCurrency(o.getOriginalCurrency());
-
-                    details.add(item);
-                }
-
-                // 对方还给我（减少抵消）
-                if (actualDebtor.equals(creditorId) && o.getTargetUserid().equals(userId)) {
-                    OutcomeParticipant rp = outcomeParticipantMapper.selectByOutcomeAndUser(o.getId(), userId);
-                    boolean isConfirmed = rp != null && rp.getConfirmStatus() != null && rp.getConfirmStatus() == 1;
-                    if (isConfirmed) {
-                        CreditorDebtDetailItem item = new CreditorDebtDetailItem();
-                        item.setOutcomeId(o.getId());
-                        item.setAmount(o.getAmount());
-                        item.setComment(o.getComment());
-                        item.setPayDatetime(o.getPayDatetime());
-                        item.setCategoryName("还款");
-                        item.setIsOffset(true);
-                        item.setLocationText("无");
-                        item.setCurrency(o.getTargetCurrencySnapshot());
-                        item.setOriginalAmount(o.getOriginalAmount());
-                        item.setOriginalCurrency(o.getOriginalCurrency());
-
-                        offsetDetails.add(item);
-                    }
+        for (DebtFlowRow f : mergeByTime(expenses, repayments)) {
+            if (f.getDebtorId().equals(userId)) {
+                // 我欠对方：我参与的消费为正，我的还款为负
+                CreditorDebtDetailItem item = toCreditorDetail(f, f.isExpense() ? f.getAmount() : -f.getAmount(), false, memo);
+                if (f.isExpense()) {
+                    item.setRepaidAmount(repaidByOutcome.getOrDefault(f.getOutcomeId(), 0L));
                 }
+                details.add(item);
+            } else if (f.isExpense() || f.isConfirmed()) {
+                // 对方欠我（抵消明细）：对方参与的消费为负，对方已确认的还款为正
+                offsetDetails.add(toCreditorDetail(f, f.isExpense() ? -f.getAmount() : f.getAmount(), true, memo));
             }
         }
 
         // V19: 如果有互相欠款，添加抵消明细记录
-        String reverseKey = creditorId + "-" + userId;
-        Long theyOweMeRaw = rawMap.getOrDefault(reverseKey, 0L);
+        long theyOweMeRaw = rawMap.getOrDefault(DebtPair.of(creditorId, userId), 0L);
         if (theyOweMeRaw > 0) {
             details.addAll(offsetDetails);
         }
@@ -427,80 +409,61 @@ public class DebtServiceImpl implements DebtService {
         }
         outcomeParticipantMapper.insertSelective(participant);
 
-        User creator = userMapper.selectByPrimaryKey(currentUserId);
-        User debtor = isCreditorEntry ? userMapper.selectByPrimaryKey(actualDebtor) : creator;
-        User creditor = isCreditorEntry ? creator : userMapper.selectByPrimaryKey(actualCreditor);
+        // V52: 债权人录入的还款已确认，同一事务内冲减欠款账本
+        debtLedgerService.applyOutcome(o, Collections.singletonList(participant));
+        userTimelineService.applyOutcome(o, Collections.singletonList(participant));
+
+        // V67: 债权人录入的还款直接是已确认状态
+        changeEventPublisher.outcomeChanged(
+            isCreditorEntry ? ChangeEventPublisher.REPAYMENT_CONFIRMED : ChangeEventPublisher.REPAYMENT_SUBMITTED,
+            o, Collections.singletonList(participant), currentUserId);
 
+        // V65: 通知在事务提交后批量写入 / 异步发送，收件人由分发器统一解析，这里只需要录入人的昵称
+        User creator = userMapper.selectByPrimaryKey(currentUserId);
+        if (creator == null) {
+            return;
+        }
+        String amountText = "金额: ¥" + String.format("%.2f", req.getAmount() / 100.0)
+            + (req.getComment() != null ? " - " + req.getComment() : "");
         if (isCreditorEntry) {
             // 债权人录入 → 通知债务人
-            try {
-                Notification notification = new Notification();
-                notification.setUserId(actualDebtor);
-                notification.setType("repayment_confirmed");
-                notification.setTitle(creditor.getNickname() + " 已记录收款");
-                notification.setContent("金额: ¥" + String.format("%.2f", req.getAmount() / 100.0) + (req.getComment() != null ? " - " + req.getComment() : "") + "。已自动确认。");
-                notification.setRelatedId(Long.valueOf(o.getId()));
-                notification.setRelatedType("repayment");
-                notification.setIsRead((byte) 0);
-                notification.setCreatedAt(LocalDateTime.now());
-                notificationMapper.insertSelective(notification);
-            } catch (Exception e) {
-                // 站内信发送失败不影响业务
-            }
+            notificationDispatcher.addNotification(actualDebtor, "repayment_confirmed",
+                creator.getNickname() + " 已记录收款", amountText + "。已自动确认。",
+                Long.valueOf(o.getId()), "repayment");
         } else {
             // 债务人录入 → 通知债权人（现有逻辑）
-            try {
-                Notification notification = new Notification();
-                notification.setUserId(actualCreditor);
-                notification.setType("repayment_received");
-                notification.setTitle(debtor.getNickname() + " 向你还款");
-                notification.setContent("金额: ¥" + String.format("%.2f", req.getAmount() / 100.0) + (req.getComment() != null ? " - " + req.getComment() : "") + "。请确认收款。");
-                notification.setRelatedId(Long.valueOf(o.getId()));
-                notification.setRelatedType("repayment");
-                notification.setIsRead((byte) 0);
-                notification.setCreatedAt(LocalDateTime.now());
-                notificationMapper.insertSelective(notification);
-            } catch (Exception e) {
-                // 站内信发送失败不影响业务
-            }
-
-            // V32: 发送邮件通知给债权人（异步，失败不影响业务）- 提醒确认收款
-            try {
-                if (creditor != null && creditor.getEmail() != null) {
-                    String language = creditor.getPreferredLanguage() != null ? creditor.getPreferredLanguage() : "zh-CN";
-                    emailService.sendBillNotificationAsync(
-                        creditor.getEmail(),
-                        creditor.getNickname(),
-                        language,
-                        debtor.getNickname(),
-                        req.getAmount(),
-                        req.getAmount(), // perAmount 等于 amount
-                        "收到还款，请确认: " + (req.getComment() != null ? req.getComment() : ""),
-                        "待确认还款",
-                        null,
-                        false
-                    );
-                }
-            } catch (Exception e) {
-                // 邮件发送失败不影响业务
-            }
+            notificationDispatcher.addNotification(actualCreditor, "repayment_received",
+                creator.getNickname() + " 向你还款", amountText + "。请确认收款。",
+                Long.valueOf(o.getId()), "repayment");
+
+            // V32: 发送邮件通知给债权人 - 提醒确认收款
+            notificationDispatcher.addBillEmail(
+                actualCreditor,
+                null,
+                creator.getNickname(),
+                req.getAmount(),
+                req.getAmount(), // perAmount 等于 amount
+                "收到还款，请确认: " + (req.getComment() != null ? req.getComment() : ""),
+                "待确认还款",
+                null,
+                false
+            );
         }
     }
 
     @Override
     public List<MyCreditOverviewItem> getMyCreditOverview(Integer userId) {
 
-        Map<String, Long> netMap = buildDebtMap();
-        Map<String, Long> rawMap = buildRawDebtMap();
+        LongLongHashMap rawMap = buildRawDebtMap(userId);
+        LongLongHashMap netMap = netFromRaw(rawMap);
 
         Map<Integer, Long> debtorMap = new HashMap<>();
 
-        for (Map.Entry<String, Long> e : netMap.entrySet()) {
+        for (LongLongHashMap.Cursor c = netMap.cursor(); c.advance(); ) {
 
-            String[] parts = e.getKey().split("-");
-            Integer debtor = Integer.valueOf(parts[0]);
-            Integer creditor = Integer.valueOf(parts[1]);
-            Long amount = e.getValue();
+            Integer debtor = DebtPair.debtor(c.key());
+            Integer creditor = DebtPair.creditor(c.key());
+            long amount = c.value();
 
             if (amount > 0 && creditor.equals(userId)) {
                 debtorMap.put(debtor, debtorMap.getOrDefault(debtor, 0L) + amount);
@@ -509,14 +472,20 @@ public class DebtServiceImpl implements DebtService {
 
         List<MyCreditOverviewItem> list = new ArrayList<>();
 
-        List<Outcome> all = loadGeneralOutcomes();
+        // V58: 一次取出与当前用户相关的全部流水，按对方用户分组
+        List<DebtFlowRow> allExpenses = outcomeMapper.selectExpenseFlows(userId, null);
+        Map<Integer, List<DebtFlowRow>> expensesByUser = groupByCounterparty(allExpenses, userId);
+        Map<Integer, List<DebtFlowRow>> repaymentsByUser = groupByCounterparty(outcomeMapper.selectRepaymentFlows(userId, null, false), userId);
+
+        // V59: 债务人与分类一次预取
+        ReferenceMemo memo = prefetchFlows(debtorMap.keySet(), allExpenses, Collections.emptyList());
 
         for (Map.Entry<Integer, Long> e : debtorMap.entrySet()) {
 
             Integer debtorId = e.getKey();
             Long totalAmount = e.getValue();
 
-            User debtor = userMapper.selectByPrimaryKey(debtorId);
+            User debtor = memo.user(debtorId);
 
             MyCreditOverviewItem item = new MyCreditOverviewItem();
             item.setDebtorId(debtorId);
@@ -524,130 +493,29 @@ public class DebtServiceImpl implements DebtService {
             item.setDebtorAvatarUrl(debtor.getAvatarUrl());
             item.setTotalAmount(totalAmount);
 
+            List<DebtFlowRow> expenses = expensesByUser.getOrDefault(debtorId, Collections.emptyList());
+            List<DebtFlowRow> repayments = repaymentsByUser.getOrDefault(debtorId, Collections.emptyList());
+            Map<Integer, Long> repaidByOutcome = fifoRepaid(expenses, repayments, debtorId);
+
             List<DebtorDebtDetailItem> details = new ArrayList<>();
             List<DebtorDebtDetailItem> offsetDetails = new ArrayList<>();
 
-            for (Outcome o : all) {
-
-                // 消费明细
-                if (o.getRepayFlag() == (byte) 1) {
-
-                    List<OutcomeParticipant> ps = loadParticipants(o.getId());
-
-                    // 我付款，对方参与 → 对方欠我
-                    Optional<OutcomeParticipant> participantOpt = ps.stream()
-                        .filter(p -> p.getUserId().equals(debtorId))
-                        .findFirst();
-
-                    if (participantOpt.isPresent() && o.getPayerUserid().equals(userId)) {
-
-                        // V18: 使用份额计算金额
-                        OutcomeParticipant participant = participantOpt.get();
-                        Integer shares = participant.getShares() != null ? participant.getShares() : 1;
-                        long debtAmount = o.getPerAmount() * shares;
-
-                        DebtorDebtDetailItem d = new DebtorDebtDetailItem();
-                        d.setOutcomeId(o.getId());
-                        d.setAmount(debtAmount);
-                        d.setComment(o.getComment());
-                        d.setPayDatetime(o.getPayDatetime());
-
-                        if (o.getStyleId() != null) {
-                            PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                            d.setCategoryName(style != null ? style.getStyleName() : "未分类");
-                        } else {
-                            d.setCategoryName("未分类");
-                        }
-                        d.setLocationText("位置信息");
-                        d.setCurrency(o.getTargetCurrencySnapshot());
-                        d.setOriginalAmount(o.getOriginalAmount());
-                        d.setOriginalCurrency(o.getOriginalCurrency());
-
-                        details.add(d);
-                    }
-
-                    // 对方付款，我参与 → 我欠对方（抵消明细）
-                    if (o.getPayerUserid().equals(debtorId)) {
-                        Optional<OutcomeParticipant> offsetOpt = ps.stream()
-                            .filter(p -> p.getUserId().equals(userId))
-                            .findFirst();
-                        if (offsetOpt.isPresent()) {
-                            OutcomeParticipant participant = offsetOpt.get();
-                            Integer shares = participant.getShares() != null ? participant.getShares() : 1;
-                            long debtAmount = o.getPerAmount() * shares;
-
-                            DebtorDebtDetailItem d = new DebtorDebtDetailItem();
-                            d.setOutcomeId(o.getId());
-                            d.setAmount(-debtAmount);
-                            d.setComment(o.getComment());
-                            d.setPayDatetime(o.getPayDatetime());
-                            d.setIsOffset(true);
-
-                            if (o.getStyleId() != null) {
-                                PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                                d.setCategoryName(style != null ? style.getStyleName() : "未分类");
-                            } else {
-                                d.setCategoryName("未分类");
-                            }
-                            d.setLocationText("无");
-                            d.setCurrency(o.getTargetCurrencySnapshot());
-                            d.setOriginalAmount(o.getOriginalAmount());
-                            d.setOriginalCurrency(o.getOriginalCurrency());
-
-                            offsetDetails.add(d);
-                        }
-                    }
-                }
-
-                // 还款明细 - 对方还给我
-                if (o.getRepayFlag() == (byte) 2) {
-
-                    // V35: 使用 onBehalfOf 确定真正的债务人
-                    Integer actualDebtor = o.getOnBehalfOf() != null ? o.getOnBehalfOf() : o.getPayerUserid();
-
-                    // 对方还给我
-                    if (actualDebtor.equals(debtorId) && o.getTargetUserid().equals(userId)) {
-
-                        DebtorDebtDetailItem d = new DebtorDebtDetailItem();
-                        d.setOutcomeId(o.getId());
-                        d.setAmount(-o.getAmount());
-                        d.setComment(o.getComment());
-                        d.setPayDatetime(o.getPayDatetime());
-                        d.setCategoryName("还款");
-                        d.setLocationText("无");
-                        d.setCurrency(o.getTargetCurrencySnapshot());
-                        d.setOriginalAmount(o.getOriginalAmount());
-                        d.setOriginalCurrency(o.getOriginalCurrency());
-
-                        details.add(d);
-                    }
-
-                    // 我还给对方（减少抵消）
-                    if (actualDebtor.equals(userId) && o.getTargetUserid().equals(debtorId)) {
-                        OutcomeParticipant rp = outcomeParticipantMapper.selectByOutcomeAndUser(o.getId(), debtorId);
-                        boolean isConfirmed = rp != null && rp.getConfirmStatus() != null && rp.getConfirmStatus() == 1;
-                        if (isConfirmed) {
-                            DebtorDebtDetailItem d = new DebtorDebtDetailItem();
-                            d.setOutcomeId(o.getId());
-                            d.setAmount(o.getAmount());
-                            d.setComment(o.getComment());
-                            d.setPayDatetime(o.getPayDatetime());
-                            d.setCategoryName("还款");
-                            d.setIsOffset(true);
-                            d.setLocationText("无");
-                            d.setCurrency(o.getTargetCurrencySnapshot());
-                            d.setOriginalAmount(o.getOriginalAmount());
-                            d.setOriginalCurrency(o.getOriginalCurrency());
-
-                            offsetDetails.add(d);
-                        }
+            for (DebtFlowRow f : mergeByTime(expenses, repayments)) {
+                if (f.getDebtorId().equals(debtorId)) {
+                    // 对方欠我：对方参与的消费为正，对方的还款为负
+                    DebtorDebtDetailItem d = toDebtorDetail(f, f.isExpense() ? f.getAmount() : -f.getAmount(), false, memo);
+                    if (f.isExpense()) {
+                        d.setRepaidAmount(repaidByOutcome.getOrDefault(f.getOutcomeId(), 0L));
                     }
+                    details.add(d);
+                } else if (f.isExpense() || f.isConfirmed()) {
+                    // 我欠对方（抵消明细）：我参与的消费为负，我已确认的还款为正
+                    offsetDetails.add(toDebtorDetail(f, f.isExpense() ? -f.getAmount() : f.getAmount(), true, memo));
                 }
             }
 
             // V19: 如果有互相欠款，添加抵消明细记录
-            String reverseKey = userId + "-" + debtorId;
-            Long iOweThemRaw = rawMap.getOrDefault(reverseKey, 0L);
+            long iOweThemRaw = rawMap.getOrDefault(DebtPair.of(userId, debtorId), 0L);
             if (iOweThemRaw > 0) {
                 details.addAll(offsetDetails);
             }
@@ -662,18 +530,17 @@ public class DebtServiceImpl implements DebtService {
     @Override
     public List<MyDebtOverviewItem> getMyDebtOverview(Integer userId) {
 
-        Map<String, Long> netMap = buildDebtMap();
-        Map<String, Long> rawMap = buildRawDebtMap();
+        LongLongHashMap rawMap = buildRawDebtMap(userId);
+        LongLongHashMap netMap = netFromRaw(rawMap);
 
         // 找出我欠钱的所有债权人（使用净额）
         Map<Integer, Long> creditorMap = new HashMap<>();
 
-        for (Map.Entry<String, Long> e : netMap.entrySet()) {
+        for (LongLongHashMap.Cursor c = netMap.cursor(); c.advance(); ) {
 
-            String[] parts = e.getKey().split("-");
-            Integer debtor = Integer.valueOf(parts[0]);
-            Integer creditor = Integer.valueOf(parts[1]);
-            Long amount = e.getValue();
+            Integer debtor = DebtPair.debtor(c.key());
+            Integer creditor = DebtPair.creditor(c.key());
+            long amount = c.value();
 
             // 我是欠款人，且金额大于0
             if (amount > 0 && debtor.equals(userId)) {
@@ -683,14 +550,21 @@ public class DebtServiceImpl implements DebtService {
 
         List<MyDebtOverviewItem> list = new ArrayList<>();
 
-        List<Outcome> all = loadGeneralOutcomes();
+        // V58: 一次取出与当前用户相关的全部流水，按对方用户分组
+        List<DebtFlowRow> allExpenses = outcomeMapper.selectExpenseFlows(userId, null);
+        List<DebtFlowRow> allRepayments = outcomeMapper.selectRepaymentFlows(userId, null, false);
+        Map<Integer, List<DebtFlowRow>> expensesByUser = groupByCounterparty(allExpenses, userId);
+        Map<Integer, List<DebtFlowRow>> repaymentsByUser = groupByCounterparty(allRepayments, userId);
+
+        // V59: 债权人、代还付款人与分类一次预取
+        ReferenceMemo memo = prefetchFlows(creditorMap.keySet(), allExpenses, allRepayments);
 
         for (Map.Entry<Integer, Long> e : creditorMap.entrySet()) {
 
             Integer creditorId = e.getKey();
             Long totalAmount = e.getValue();
 
-            User creditor = userMapper.selectByPrimaryKey(creditorId);
+            User creditor = memo.user(creditorId);
 
             MyDebtOverviewItem item = new MyDebtOverviewItem();
             item.setCreditorId(creditorId);
@@ -710,149 +584,43 @@ public class DebtServiceImpl implements DebtService {
                     .collect(Collectors.toList());
             item.setPaymentMethods(methodCodes);
 
+            List<DebtFlowRow> expenses = expensesByUser.getOrDefault(creditorId, Collections.emptyList());
+            List<DebtFlowRow> repayments = repaymentsByUser.getOrDefault(creditorId, Collections.emptyList());
+            Map<Integer, Long> repaidByOutcome = fifoRepaid(expenses, repayments, userId);
+
             List<CreditorDebtDetailItem> details = new ArrayList<>();
             List<CreditorDebtDetailItem> offsetDetails = new ArrayList<>();
             long pendingAmount = 0L; // V32: 累计待确认金额
 
-            for (Outcome o : all) {
-
-                // 消费明细
-                if (o.getRepayFlag() == (byte) 1) {
-
-                    List<OutcomeParticipant> ps = loadParticipants(o.getId());
-
+            for (DebtFlowRow f : mergeByTime(expenses, repayments)) {
+                if (f.getDebtorId().equals(userId) && f.isExpense()) {
                     // 债权人付款，我是参与者 → 我欠债权人
-                    Optional<OutcomeParticipant> participantOpt = ps.stream()
-                        .filter(p -> p.getUserId().equals(userId))
-                        .findFirst();
-
-                    if (participantOpt.isPresent() && o.getPayerUserid().equals(creditorId)) {
-
-                        // V18: 使用份额计算金额
-                        OutcomeParticipant participant = participantOpt.get();
-                        Integer shares = participant.getShares() != null ? participant.getShares() : 1;
-                        long debtAmount = o.getPerAmount() * shares;
-
-                        CreditorDebtDetailItem d = new CreditorDebtDetailItem();
-                        d.setOutcomeId(o.getId());
-                        d.setAmount(debtAmount);
-                        d.setComment(o.getComment());
-                        d.setPayDatetime(o.getPayDatetime());
-
-                        if (o.getStyleId() != null) {
-                            PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                            d.setCategoryName(style != null ? style.getStyleName() : "未分类");
-                        } else {
-                            d.setCategoryName("未分类");
-                        }
-                        d.setLocationText("位置信息");
-                        d.setCurrency(o.getTargetCurrencySnapshot());
-                        d.setOriginalAmount(o.getOriginalAmount());
-                        d.setOriginalCurrency(o.getOriginalCurrency());
-
-                        details.add(d);
+                    CreditorDebtDetailItem d = toCreditorDetail(f, f.getAmount(), false, memo);
+                    d.setRepaidAmount(repaidByOutcome.getOrDefault(f.getOutcomeId(), 0L));
+                    details.add(d);
+                } else if (f.getDebtorId().equals(userId)) {
+                    // 我的债务被还款（可能是我自己还，也可能是别人代我还）
+                    CreditorDebtDetailItem d = toCreditorDetail(f, -f.getAmount(), false, memo);
+
+                    // V35: 显示是否为代还
+                    boolean isOnBehalf = !f.getPayerUserid().equals(userId);
+                    if (isOnBehalf) {
+                        User payer = memo.user(f.getPayerUserid());
+                        d.setCategoryName("还款 (由" + (payer != null ? payer.getNickname() : "他人") + "代付)");
                     }
+                    d.setIsRepayment(true);
 
-                    // 我付款，债权人参与 → 债权人欠我（抵消明细）
-                    if (o.getPayerUserid().equals(userId)) {
-                        Optional<OutcomeParticipant> offsetOpt = ps.stream()
-                            .filter(p -> p.getUserId().equals(creditorId))
-                            .findFirst();
-                        if (offsetOpt.isPresent()) {
-                            OutcomeParticipant participant = offsetOpt.get();
-                            Integer shares = participant.getShares() != null ? participant.getShares() : 1;
-                            long debtAmount = o.getPerAmount() * shares;
-
-                            CreditorDebtDetailItem d = new CreditorDebtDetailItem();
-                            d.setOutcomeId(o.getId());
-                            d.setAmount(-debtAmount);
-                            d.setComment(o.getComment());
-                            d.setPayDatetime(o.getPayDatetime());
-                            d.setIsOffset(true);
-
-                            if (o.getStyleId() != null) {
-                                PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                                d.setCategoryName(style != null ? style.getStyleName() : "未分类");
-                            } else {
-                                d.setCategoryName("未分类");
-                            }
-                            d.setLocationText("无");
-                            d.setCurrency(o.getTargetCurrencySnapshot());
-                            d.setOriginalAmount(o.getOriginalAmount());
-                            d.setOriginalCurrency(o.getOriginalCurrency());
-
-                            offsetDetails.add(d);
-                        }
-                    }
-                }
-
-                // 还款明细 - 我的债务被还款（可能是我自己还，也可能是别人代我还）
-                if (o.getRepayFlag() == (byte) 2) {
-
-                    // V35: 使用 onBehalfOf 确定真正的债务人
-                    Integer actualDebtor = o.getOnBehalfOf() != null ? o.getOnBehalfOf() : o.getPayerUserid();
-
-                    // 我还给债权人
-                    if (actualDebtor.equals(userId) && o.getTargetUserid().equals(creditorId)) {
-
-                        CreditorDebtDetailItem d = new CreditorDebtDetailItem();
-                        d.setOutcomeId(o.getId());
-                        d.setAmount(-o.getAmount());
-                        d.setComment(o.getComment());
-                        d.setPayDatetime(o.getPayDatetime());
-
-                        // V35: 显示是否为代还
-                        boolean isOnBehalf = o.getOnBehalfOf() != null && !o.getOnBehalfOf().equals(o.getPayerUserid());
-                        if (isOnBehalf) {
-                            User payer = userMapper.selectByPrimaryKey(o.getPayerUserid());
-                            d.setCategoryName("还款 (由" + (payer != null ? payer.getNickname() : "他人") + "代付)");
-                        } else {
-                            d.setCategoryName("还款");
-                        }
-                        d.setLocationText("无");
-                        d.setIsRepayment(true);
-
-                        // V32: 获取还款确认状态
-                        OutcomeParticipant repayParticipant = outcomeParticipantMapper.selectByOutcomeAndUser(o.getId(), creditorId);
-                        if (repayParticipant != null) {
-                            int status = repayParticipant.getConfirmStatus() != null ? repayParticipant.getConfirmStatus().intValue() : 0;
-                            d.setConfirmStatus(status);
-                            // V32: 累计待确认金额
-                            if (status == 0) {
-                                pendingAmount += o.getAmount();
-                            }
-                        } else {
-                            d.setConfirmStatus(0); // 默认待确认
-                            pendingAmount += o.getAmount();
-                        }
-
-                        d.setCurrency(o.getTargetCurrencySnapshot());
-                        d.setOriginalAmount(o.getOriginalAmount());
-                        d.setOriginalCurrency(o.getOriginalCurrency());
-
-                        details.add(d);
+                    // V32: 还款确认状态（V58: SQL 侧关联，无参与记录视为待确认）
+                    int status = f.getConfirmStatus() != null ? f.getConfirmStatus().intValue() : 0;
+                    d.setConfirmStatus(status);
+                    if (status == 0) {
+                        pendingAmount += f.getAmount();
                     }
 
-                    // 债权人还给我（减少抵消）
-                    if (actualDebtor.equals(creditorId) && o.getTargetUserid().equals(userId)) {
-                        OutcomeParticipant rp = outcomeParticipantMapper.selectByOutcomeAndUser(o.getId(), userId);
-                        boolean isConfirmed = rp != null && rp.getConfirmStatus() != null && rp.getConfirmStatus() == 1;
-                        if (isConfirmed) {
-                            CreditorDebtDetailItem d = new CreditorDebtDetailItem();
-                            d.setOutcomeId(o.getId());
-                            d.setAmount(o.getAmount());
-                            d.setComment(o.getComment());
-                            d.setPayDatetime(o.getPayDatetime());
-                            d.setCategoryName("还款");
-                            d.setIsOffset(true);
-                            d.setLocationText("无");
-                            d.setCurrency(o.getTargetCurrencySnapshot());
-                            d.setOriginalAmount(o.getOriginalAmount());
-                            d.setOriginalCurrency(o.getOriginalCurrency());
-
-                            offsetDetails.add(d);
-                        }
-                    }
+                    details.add(d);
+                } else if (f.isExpense() || f.isConfirmed()) {
+                    // 债权人欠我（抵消明细）：债权人参与的消费为负，债权人已确认的还款为正
+                    offsetDetails.add(toCreditorDetail(f, f.isExpense() ? -f.getAmount() : f.getAmount(), true, memo));
                 }
             }
 
@@ -860,8 +628,7 @@ public class DebtServiceImpl implements DebtService {
             item.setPendingAmount(pendingAmount);
 
             // V19: 如果有互相欠款，添加抵消明细记录
-            String reverseKey = creditorId + "-" + userId;
-            Long theyOweMeRaw = rawMap.getOrDefault(reverseKey, 0L);
+            long theyOweMeRaw = rawMap.getOrDefault(DebtPair.of(creditorId, userId), 0L);
             if (theyOweMeRaw > 0) {
                 details.addAll(offsetDetails);
             }
@@ -880,8 +647,14 @@ public class DebtServiceImpl implements DebtService {
         // 查询所有待确认的还款记录
         List<OutcomeParticipant> pendingParticipants = outcomeParticipantMapper.selectPendingConfirmations(creditorId);
 
+        // V59: 还款记录与付款人 / 被代还人按批加载，不再逐条查询
+        Map<Integer, Outcome> repaymentsById = loadOutcomesByIds(pendingParticipants.stream()
+            .map(OutcomeParticipant::getOutcomeId)
+            .collect(Collectors.toList()));
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(new ArrayList<>(repaymentsById.values()), false);
+
         for (OutcomeParticipant p : pendingParticipants) {
-            Outcome repayment = outcomeMapper.selectByPrimaryKey(p.getOutcomeId());
+            Outcome repayment = repaymentsById.get(p.getOutcomeId());
             if (repayment == null || repayment.getDeletedFlag() == 1) {
                 continue;
             }
@@ -889,7 +662,7 @@ public class DebtServiceImpl implements DebtService {
             // V35: 使用 repaidBy 获取实际付款人
             Integer repaidById = repayment.getRepaidBy() != null ?
                 repayment.getRepaidBy() : repayment.getPayerUserid();
-            User payer = userMapper.selectByPrimaryKey(repaidById);
+            User payer = memo.user(repaidById);
             if (payer == null) {
                 continue;
             }
@@ -916,7 +689,7 @@ public class DebtServiceImpl implements DebtService {
             item.setIsOnBehalf(isOnBehalf);
 
             if (isOnBehalf) {
-                User beneficiary = userMapper.selectByPrimaryKey(onBehalfOfId);
+                User beneficiary = memo.user(onBehalfOfId);
                 if (beneficiary != null) {
                     item.setOnBehalfOfName(beneficiary.getNickname());
                 }
@@ -933,8 +706,8 @@ public class DebtServiceImpl implements DebtService {
     @Override
     @Transactional
     public void confirmRepayment(Integer repaymentId, Integer creditorId) {
-        // 查询还款记录
-        Outcome repayment = outcomeMapper.selectByPrimaryKey(repaymentId);
+        // 查询还款记录（V52: 加行锁，与并发的删除串行；确认语句另外要求还款未删除）
+        Outcome repayment = outcomeMapper.selectByPrimaryKeyForUpdate(repaymentId);
         if (repayment == null || repayment.getDeletedFlag() == 1) {
             throw new IllegalArgumentException("还款记录不存在");
         }
@@ -954,105 +727,80 @@ public class DebtServiceImpl implements DebtService {
             throw new IllegalArgumentException("该还款已确认");
         }
 
-        // 更新确认状态
+        // 更新确认状态（V52: 条件更新，并发或重试的请求只有一个能确认并冲减账本）
         participant.setConfirmStatus((byte) 1);
         participant.setConfirmedAt(LocalDateTime.now());
         participant.setConfirmedBy(creditorId);
-        outcomeParticipantMapper.updateByPrimaryKeySelective(participant);
+        if (outcomeParticipantMapper.confirmIfPending(participant.getId(), creditorId, participant.getConfirmedAt()) == 0) {
+            throw new IllegalArgumentException("该还款已确认");
+        }
 
-        // V35: 获取付款人和被代还人信息
-        User creditor = userMapper.selectByPrimaryKey(creditorId);
+        // V52: 确认后还款生效，同一事务内冲减欠款账本
+        debtLedgerService.applyOutcome(repayment, Collections.singletonList(participant));
+        changeEventPublisher.outcomeChanged(ChangeEventPublisher.REPAYMENT_CONFIRMED,
+            repayment, Collections.singletonList(participant), creditorId);
+
+        // V35: 获取付款人和被代还人信息（V65: 一次查询）
         Integer repaidById = repayment.getRepaidBy() != null ?
             repayment.getRepaidBy() : repayment.getPayerUserid();
         Integer onBehalfOfId = repayment.getOnBehalfOf() != null ?
             repayment.getOnBehalfOf() : repayment.getPayerUserid();
-
-        User payer = userMapper.selectByPrimaryKey(repaidById);
         boolean isOnBehalf = !repaidById.equals(onBehalfOfId);
-        User beneficiary = isOnBehalf ? userMapper.selectByPrimaryKey(onBehalfOfId) : null;
-
-        // V31/V35: 发送确认通知给付款人（站内信）
-        try {
-            Notification notification = new Notification();
-            notification.setUserId(repaidById);
-            notification.setType("repayment_confirmed");
-            notification.setTitle(creditor.getNickname() + " 确认收到还款");
-            String content = "金额: ¥" + String.format("%.2f", repayment.getAmount() / 100.0);
-            if (isOnBehalf && beneficiary != null) {
-                content += " (代 " + beneficiary.getNickname() + " 还款)";
-            }
-            notification.setContent(content);
-            notification.setRelatedId(Long.valueOf(repaymentId));
-            notification.setRelatedType("repayment");
-            notification.setIsRead((byte) 0);
-            notification.setCreatedAt(LocalDateTime.now());
-            notificationMapper.insertSelective(notification);
-        } catch (Exception e) {
-            // 站内信发送失败不影响业务
+
+        Map<Integer, User> users = loadUsersByIds(Arrays.asList(creditorId, repaidById, onBehalfOfId));
+        User creditor = users.get(creditorId);
+        User payer = users.get(repaidById);
+        User beneficiary = isOnBehalf ? users.get(onBehalfOfId) : null;
+        if (creditor == null || payer == null) {
+            return;
+        }
+
+        // V31/V35: 发送确认通知给付款人（站内信，V65: 提交后批量写入）
+        String content = "金额: ¥" + String.format("%.2f", repayment.getAmount() / 100.0);
+        if (isOnBehalf && beneficiary != null) {
+            content += " (代 " + beneficiary.getNickname() + " 还款)";
         }
+        notificationDispatcher.addNotification(repaidById, "repayment_confirmed",
+            creditor.getNickname() + " 确认收到还款", content, Long.valueOf(repaymentId), "repayment");
 
         // V35: 如果是代还，还要通知被代还人
         if (isOnBehalf && beneficiary != null) {
-            try {
-                Notification notification = new Notification();
-                notification.setUserId(onBehalfOfId);
-                notification.setType("repayment_confirmed");
-                notification.setTitle(payer.getNickname() + " 代您向 " + creditor.getNickname() + " 还款已确认");
-                notification.setContent("金额: ¥" + String.format("%.2f", repayment.getAmount() / 100.0));
-                notification.setRelatedId(Long.valueOf(repaymentId));
-                notification.setRelatedType("repayment");
-                notification.setIsRead((byte) 0);
-                notification.setCreatedAt(LocalDateTime.now());
-                notificationMapper.insertSelective(notification);
-            } catch (Exception e) {
-                // 站内信发送失败不影响业务
-            }
+            notificationDispatcher.addNotification(onBehalfOfId, "repayment_confirmed",
+                payer.getNickname() + " 代您向 " + creditor.getNickname() + " 还款已确认",
+                "金额: ¥" + String.format("%.2f", repayment.getAmount() / 100.0),
+                Long.valueOf(repaymentId), "repayment");
         }
 
-        // V32/V35: 发送确认邮件给付款人（异步，失败不影响业务）
-        try {
-            if (payer != null && payer.getEmail() != null) {
-                String language = payer.getPreferredLanguage() != null ? payer.getPreferredLanguage() : "zh-CN";
-                String emailContent = "还款确认通知: " + (repayment.getComment() != null ? repayment.getComment() : "还款已确认");
-                if (isOnBehalf && beneficiary != null) {
-                    emailContent += " (代 " + beneficiary.getNickname() + " 还款)";
-                }
-                emailService.sendBillNotificationAsync(
-                    payer.getEmail(),
-                    payer.getNickname(),
-                    language,
-                    creditor.getNickname(),
-                    repayment.getAmount(),
-                    repayment.getAmount(),
-                    emailContent,
-                    "还款确认",
-                    null,
-                    false
-                );
-            }
-        } catch (Exception e) {
-            // 邮件发送失败不影响业务
+        // V32/V35: 发送确认邮件给付款人（异步）
+        String emailContent = "还款确认通知: " + (repayment.getComment() != null ? repayment.getComment() : "还款已确认");
+        if (isOnBehalf && beneficiary != null) {
+            emailContent += " (代 " + beneficiary.getNickname() + " 还款)";
         }
+        notificationDispatcher.addBillEmail(
+            repaidById,
+            null,
+            creditor.getNickname(),
+            repayment.getAmount(),
+            repayment.getAmount(),
+            emailContent,
+            "还款确认",
+            null,
+            false
+        );
 
         // V35: 发送确认邮件给被代还人（异步）
-        if (isOnBehalf && beneficiary != null && beneficiary.getEmail() != null) {
-            try {
-                String language = beneficiary.getPreferredLanguage() != null ? beneficiary.getPreferredLanguage() : "zh-CN";
-                emailService.sendBillNotificationAsync(
-                    beneficiary.getEmail(),
-                    beneficiary.getNickname(),
-                    language,
-                    payer.getNickname() + " 代您",
-                    repayment.getAmount(),
-                    repayment.getAmount(),
-                    "代还款已确认: " + creditor.getNickname() + " 已确认收款",
-                    "代还款确认",
-                    null,
-                    false
-                );
-            } catch (Exception e) {
-                // 邮件发送失败不影响业务
-            }
+        if (isOnBehalf && beneficiary != null) {
+            notificationDispatcher.addBillEmail(
+                onBehalfOfId,
+                null,
+                payer.getNickname() + " 代您",
+                repayment.getAmount(),
+                repayment.getAmount(),
+                "代还款已确认: " + creditor.getNickname() + " 已确认收款",
+                "代还款确认",
+                null,
+                false
+            );
         }
     }
 
@@ -1081,10 +829,12 @@ public class DebtServiceImpl implements DebtService {
         example.setOrderByClause("pay_datetime DESC");
 
         List<Outcome> repayments = outcomeMapper.selectByExample(example);
+        Map<Integer, List<OutcomeParticipant>> participantIndex = loadParticipantIndex(repayments);
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(repayments, false);
 
         for (Outcome repayment : repayments) {
             // 检查确认状态
-            OutcomeParticipant participant = outcomeParticipantMapper.selectByOutcomeAndUser(
+            OutcomeParticipant participant = findParticipant(participantIndex,
                 repayment.getId(), repayment.getTargetUserid());
 
             // 只返回待确认的
@@ -1092,7 +842,7 @@ public class DebtServiceImpl implements DebtService {
                 continue; // 已确认，跳过
             }
 
-            User creditor = userMapper.selectByPrimaryKey(repayment.getTargetUserid());
+            User creditor = memo.user(repayment.getTargetUserid());
             if (creditor == null) {
                 continue;
             }
@@ -1119,8 +869,16 @@ public class DebtServiceImpl implements DebtService {
             throw new IllegalArgumentException("还款明细不能为空");
         }
 
-        User payer = userMapper.selectByPrimaryKey(currentUserId);
-        User creditor = userMapper.selectByPrimaryKey(req.getCreditorId());
+        // V65: 付款人、债权人和全部债务人一次查询
+        List<Integer> ids = new ArrayList<>();
+        ids.add(currentUserId);
+        ids.add(req.getCreditorId());
+        for (BatchRepayRequest.RepaymentItem item : req.getItems()) {
+            ids.add(item.getDebtorId());
+        }
+        Map<Integer, User> users = loadUsersByIds(ids);
+        User payer = users.get(currentUserId);
+        User creditor = users.get(req.getCreditorId());
 
         if (creditor == null) {
             throw new IllegalArgumentException("债权人不存在");
@@ -1140,7 +898,7 @@ public class DebtServiceImpl implements DebtService {
                 continue;
             }
 
-            User debtor = userMapper.selectByPrimaryKey(debtorId);
+            User debtor = users.get(debtorId);
             if (debtor == null) {
                 continue;
             }
@@ -1180,6 +938,12 @@ public class DebtServiceImpl implements DebtService {
             participant.setConfirmStatus((byte) 0);
             outcomeParticipantMapper.insertSelective(participant);
 
+            // V52: 待确认还款不影响账本，确认时再计入
+            debtLedgerService.applyOutcome(o, Collections.singletonList(participant));
+            userTimelineService.applyOutcome(o, Collections.singletonList(participant));
+            changeEventPublisher.outcomeChanged(ChangeEventPublisher.REPAYMENT_SUBMITTED,
+                o, Collections.singletonList(participant), currentUserId);
+
             totalAmount += amount;
 
             // 构建明细字符串
@@ -1198,148 +962,88 @@ public class DebtServiceImpl implements DebtService {
             throw new IllegalArgumentException("没有有效的还款记录");
         }
 
-        // V35: 发送合并通知给债权人（站内信）
-        try {
-            String notificationTitle;
-            String notificationContent;
+        // V35: 发送合并通知给债权人（站内信，V65: 提交后批量写入）
+        String payerName = payer != null ? payer.getNickname() : "某用户";
+        String notificationTitle;
+        String notificationContent;
 
-            if (req.getItems().size() == 1 && req.getItems().get(0).getDebtorId().equals(currentUserId)) {
-                // 单人自己还款
-                notificationTitle = payer.getNickname() + " 向你还款";
-                notificationContent = "金额: ¥" + String.format("%.2f", totalAmount / 100.0);
-            } else {
-                // 批量或代还
-                notificationTitle = payer.getNickname() + " 替多位成员还款";
-                notificationContent = "总金额: ¥" + String.format("%.2f", totalAmount / 100.0) +
-                    " (明细: " + detailsBuilder.toString() + ")";
-            }
+        if (req.getItems().size() == 1 && req.getItems().get(0).getDebtorId().equals(currentUserId)) {
+            // 单人自己还款
+            notificationTitle = payerName + " 向你还款";
+            notificationContent = "金额: ¥" + String.format("%.2f", totalAmount / 100.0);
+        } else {
+            // 批量或代还
+            notificationTitle = payerName + " 替多位成员还款";
+            notificationContent = "总金额: ¥" + String.format("%.2f", totalAmount / 100.0) +
+                " (明细: " + detailsBuilder.toString() + ")";
+        }
 
-            if (req.getComment() != null && !req.getComment().isEmpty()) {
-                notificationContent += " - " + req.getComment();
-            }
-            notificationContent += "。请确认收款。";
-
-            Notification notification = new Notification();
-            notification.setUserId(req.getCreditorId());
-            notification.setType("repayment_received");
-            notification.setTitle(notificationTitle);
-            notification.setContent(notificationContent);
-            notification.setRelatedId(Long.valueOf(repaymentIds.get(0))); // 关联第一条记录
-            notification.setRelatedType("repayment");
-            notification.setIsRead((byte) 0);
-            notification.setCreatedAt(LocalDateTime.now());
-            notificationMapper.insertSelective(notification);
-        } catch (Exception e) {
-            // 站内信发送失败不影响业务
+        if (req.getComment() != null && !req.getComment().isEmpty()) {
+            notificationContent += " - " + req.getComment();
         }
+        notificationContent += "。请确认收款。";
+
+        notificationDispatcher.addNotification(req.getCreditorId(), "repayment_received",
+            notificationTitle, notificationContent,
+            Long.valueOf(repaymentIds.get(0)), "repayment"); // 关联第一条记录
 
         // V35: 发送邮件通知给债权人（异步）
-        try {
-            if (creditor.getEmail() != null) {
-                String language = creditor.getPreferredLanguage() != null ? creditor.getPreferredLanguage() : "zh-CN";
-                String emailContent = "收到还款，请确认。明细: " + detailsBuilder.toString();
-                if (req.getComment() != null) {
-                    emailContent += " - " + req.getComment();
-                }
-                emailService.sendBillNotificationAsync(
-                    creditor.getEmail(),
-                    creditor.getNickname(),
-                    language,
-                    payer.getNickname(),
-                    totalAmount,
-                    totalAmount,
-                    emailContent,
-                    "待确认还款",
-                    null,
-                    false
-                );
-            }
-        } catch (Exception e) {
-            // 邮件发送失败不影响业务
+        String emailContent = "收到还款，请确认。明细: " + detailsBuilder.toString();
+        if (req.getComment() != null) {
+            emailContent += " - " + req.getComment();
         }
+        notificationDispatcher.addBillEmail(
+            req.getCreditorId(),
+            null,
+            payerName,
+            totalAmount,
+            totalAmount,
+            emailContent,
+            "待确认还款",
+            null,
+            false
+        );
     }
 
     @Override
     public SettlementResponse getMinimizedSettlements(Integer userId) {
-        Map<String, Long> netMap = buildDebtMap();
+        return getMinimizedSettlements(userId, null);
+    }
+
+    @Override
+    public SettlementResponse getMinimizedSettlements(Integer userId, String mode) {
+        // V52: 全局结算读取一般模式下的全部账本条目（规模为债务对数，而非账单数）
+        LongLongHashMap netMap = netFromRaw(toRawDebtMap(debtLedgerService.getScopeEntries(0)));
 
         // 原始转账笔数
         int originalCount = 0;
-        for (Long v : netMap.values()) {
-            if (v > 0) originalCount++;
-        }
-
-        // 计算每个用户的净余额: 正值=应收, 负值=应付
-        Map<Integer, Long> balanceMap = new HashMap<>();
-        for (Map.Entry<String, Long> e : netMap.entrySet()) {
-            if (e.getValue() <= 0) continue;
-            String[] parts = e.getKey().split("-");
-            Integer debtor = Integer.valueOf(parts[0]);
-            Integer creditor = Integer.valueOf(parts[1]);
-            balanceMap.put(creditor, balanceMap.getOrDefault(creditor, 0L) + e.getValue());
-            balanceMap.put(debtor, balanceMap.getOrDefault(debtor, 0L) - e.getValue());
+        for (LongLongHashMap.Cursor c = netMap.cursor(); c.advance(); ) {
+            if (c.value() > 0) originalCount++;
         }
 
-        // 分离债权人和债务人
-        List<int[]> creditors = new ArrayList<>(); // [userId, balance]
-        List<int[]> debtors = new ArrayList<>();
-        for (Map.Entry<Integer, Long> e : balanceMap.entrySet()) {
-            long bal = e.getValue();
-            if (bal > 0) {
-                creditors.add(new int[]{e.getKey(), (int) bal});
-            } else if (bal < 0) {
-                debtors.add(new int[]{e.getKey(), (int) (-bal)});
-            }
+        // 计算每个用户的净余额: 正值=应收, 负值=应付（V55: 以 userId 为键的基本类型表）
+        LongLongHashMap balanceMap = new LongLongHashMap(netMap.size());
+        for (LongLongHashMap.Cursor c = netMap.cursor(); c.advance(); ) {
+            if (c.value() <= 0) continue;
+            balanceMap.addTo(DebtPair.creditor(c.key()), c.value());
+            balanceMap.addTo(DebtPair.debtor(c.key()), -c.value());
         }
 
-        // 按金额降序
-        creditors.sort((a, b) -> Integer.compare(b[1], a[1]));
-        debtors.sort((a, b) -> Integer.compare(b[1], a[1]));
-
-        // 贪心匹配
-        List<SettlementItem> settlements = new ArrayList<>();
-        int ci = 0, di = 0;
-        while (ci < creditors.size() && di < debtors.size()) {
-            int[] cr = creditors.get(ci);
-            int[] dr = debtors.get(di);
-            int transfer = Math.min(cr[1], dr[1]);
-
-            SettlementItem item = new SettlementItem();
-            item.setFromId(dr[0]);
-            item.setToId(cr[0]);
-            item.setAmount((long) transfer);
-            settlements.add(item);
-
-            cr[1] -= transfer;
-            dr[1] -= transfer;
-            if (cr[1] == 0) ci++;
-            if (dr[1] == 0) di++;
-        }
+        // V56: 由求解器生成转账方案（按债务图连通分量逐个求解，auto：分量在上限内精确求最少笔数，超出回退贪心）
+        SettlementPlan plan = settlementSolverManager.solve(balanceMap, netMap, mode);
+        List<SettlementItem> settlements = plan.getTransfers();
 
-        // 填充用户信息
-        Map<Integer, User> userCache = new HashMap<>();
-        for (SettlementItem s : settlements) {
-            User from = userCache.computeIfAbsent(s.getFromId(), userMapper::selectByPrimaryKey);
-            User to = userCache.computeIfAbsent(s.getToId(), userMapper::selectByPrimaryKey);
-            if (from != null) {
-                s.setFromName(from.getNickname());
-                s.setFromAvatarUrl(from.getAvatarUrl());
-            }
-            if (to != null) {
-                s.setToName(to.getNickname());
-                s.setToAvatarUrl(to.getAvatarUrl());
-            }
-        }
+        // 填充用户信息（V59: 一次 IN 查询）
+        referenceEnricher.fillSettlements(settlements);
 
         // 构建与当前用户有直接债务关系的用户集合
         Set<Integer> relatedUsers = new HashSet<>();
         relatedUsers.add(userId);
-        for (Map.Entry<String, Long> e : netMap.entrySet()) {
-            if (e.getValue() <= 0) continue;
-            String[] parts = e.getKey().split("-");
-            Integer debtor = Integer.valueOf(parts[0]);
-            Integer creditor = Integer.valueOf(parts[1]);
-            if (debtor.equals(userId) || creditor.equals(userId)) {
+        for (LongLongHashMap.Cursor c = netMap.cursor(); c.advance(); ) {
+            if (c.value() <= 0) continue;
+            int debtor = DebtPair.debtor(c.key());
+            int creditor = DebtPair.creditor(c.key());
+            if (debtor == userId || creditor == userId) {
                 relatedUsers.add(debtor);
                 relatedUsers.add(creditor);
             }
@@ -1355,9 +1059,29 @@ public class DebtServiceImpl implements DebtService {
         resp.setMySettlements(mySettlements);
         resp.setOriginalTransferCount(originalCount);
         resp.setMinimizedTransferCount(settlements.size());
+        resp.setAlgorithm(plan.getAlgorithm());
+        resp.setSolveMicros(plan.getCostMicros());
         return resp;
     }
 
+    /**
+     * V65: 按ID批量查询用户（一次 IN 查询），ID → 用户
+     */
+    private Map<Integer, User> loadUsersByIds(Collection<Integer> ids) {
+        Set<Integer> distinct = new HashSet<>(ids);
+        distinct.remove(null);
+        Map<Integer, User> users = new HashMap<>();
+        if (distinct.isEmpty()) {
+            return users;
+        }
+        UserExample example = new UserExample();
+        example.createCriteria().andIdIn(new ArrayList<>(distinct));
+        for (User u : userMapper.selectByExample(example)) {
+            users.put(u.getId(), u);
+        }
+        return users;
+    }
+
     /**
      * 获取当前用户的好友ID列表
      */
@@ -1376,46 +1100,32 @@ public class DebtServiceImpl implements DebtService {
         Set<Integer> friendIds = getFriendIds(currentUserId);
 
         // 获取所有欠这个债权人钱的人
-        Map<String, Long> netMap = buildDebtMap();
+        LongLongHashMap netMap = buildDebtMap(creditorId);
         Map<Integer, Long> debtorMap = new HashMap<>();
         Map<Integer, Long> pendingMap = new HashMap<>();
 
         // 计算每个人对债权人的净欠款
-        for (Map.Entry<String, Long> e : netMap.entrySet()) {
-            String[] parts = e.getKey().split("-");
-            Integer debtorId = Integer.valueOf(parts[0]);
-            Integer cId = Integer.valueOf(parts[1]);
-            Long amount = e.getValue();
+        for (LongLongHashMap.Cursor c = netMap.cursor(); c.advance(); ) {
+            Integer debtorId = DebtPair.debtor(c.key());
+            Integer cId = DebtPair.creditor(c.key());
+            long amount = c.value();
 
             if (amount > 0 && cId.equals(creditorId)) {
                 debtorMap.put(debtorId, debtorMap.getOrDefault(debtorId, 0L) + amount);
             }
         }
 
-        // 计算每个人的待确认金额
-        OutcomeExample example = new OutcomeExample();
-        example.createCriteria()
-            .andTargetUseridEqualTo(creditorId)
-            .andRepayFlagEqualTo((byte) 2)
-            .andDeletedFlagEqualTo((byte) 0);
-
-        List<Outcome> repayments = outcomeMapper.selectByExample(example);
-
-        for (Outcome repayment : repayments) {
-            OutcomeParticipant participant = outcomeParticipantMapper.selectByOutcomeAndUser(
-                repayment.getId(), creditorId);
-
-            // 只统计待确认的
-            if (participant == null || participant.getConfirmStatus() == null || participant.getConfirmStatus() == 0) {
-                // V35: 使用 onBehalfOf 字段确定真正的债务人
-                Integer actualDebtor = repayment.getOnBehalfOf() != null ?
-                    repayment.getOnBehalfOf() : repayment.getPayerUserid();
-                pendingMap.put(actualDebtor, pendingMap.getOrDefault(actualDebtor, 0L) + repayment.getAmount());
-            }
+        // 计算每个人的待确认金额（V54: SQL 侧按真正债务人 GROUP BY，V35: onBehalfOf 优先）
+        for (Map<String, Object> row : outcomeMapper.sumPendingRepaymentsByDebtor(creditorId)) {
+            Integer actualDebtor = ((Number) row.get("debtor_id")).intValue();
+            long pending = ((Number) row.get("pending_amount")).longValue();
+            pendingMap.put(actualDebtor, pending);
         }
 
-        // 构建结果列表 - V35: 只返回好友
+        // 构建结果列表 - V35: 只返回好友（V59: 昵称 / 头像一次查询）
         List<DebtorDebtInfo> result = new ArrayList<>();
+        ReferenceMemo memo = referenceEnricher.memo();
+        memo.loadUsers(debtorMap.keySet());
 
         for (Map.Entry<Integer, Long> e : debtorMap.entrySet()) {
             Integer debtorId = e.getKey();
@@ -1434,7 +1144,7 @@ public class DebtServiceImpl implements DebtService {
                 continue;
             }
 
-            User debtor = userMapper.selectByPrimaryKey(debtorId);
+            User debtor = memo.user(debtorId);
             if (debtor == null) {
                 continue;
             }
@@ -1465,18 +1175,17 @@ public class DebtServiceImpl implements DebtService {
             return new ArrayList<>();
         }
 
-        // 获取所有净欠款
-        Map<String, Long> netMap = buildDebtMap();
+        // 获取好友涉及的所有净欠款
+        LongLongHashMap netMap = netFromRaw(toRawDebtMap(debtLedgerService.getUsersEntries(friendIds, 0)));
 
         // 统计每个债权人有多少好友欠钱，以及总欠款
         Map<Integer, Set<Integer>> creditorFriends = new HashMap<>();
         Map<Integer, Long> creditorTotalDebt = new HashMap<>();
 
-        for (Map.Entry<String, Long> e : netMap.entrySet()) {
-            String[] parts = e.getKey().split("-");
-            Integer debtorId = Integer.valueOf(parts[0]);
-            Integer creditorId = Integer.valueOf(parts[1]);
-            Long amount = e.getValue();
+        for (LongLongHashMap.Cursor c = netMap.cursor(); c.advance(); ) {
+            Integer debtorId = DebtPair.debtor(c.key());
+            Integer creditorId = DebtPair.creditor(c.key());
+            long amount = c.value();
 
             // 只统计好友的正向欠款（好友欠别人钱）
             if (amount > 0 && friendIds.contains(debtorId) && !debtorId.equals(currentUserId)) {
@@ -1485,8 +1194,10 @@ public class DebtServiceImpl implements DebtService {
             }
         }
 
-        // 构建结果列表
+        // 构建结果列表（V59: 债权人昵称 / 头像一次查询）
         List<CreditorForOnBehalfItem> result = new ArrayList<>();
+        ReferenceMemo memo = referenceEnricher.memo();
+        memo.loadUsers(creditorFriends.keySet());
 
         for (Map.Entry<Integer, Set<Integer>> e : creditorFriends.entrySet()) {
             Integer creditorId = e.getKey();
@@ -1497,7 +1208,7 @@ public class DebtServiceImpl implements DebtService {
                 continue;
             }
 
-            User creditor = userMapper.selectByPrimaryKey(creditorId);
+            User creditor = memo.user(creditorId);
             if (creditor == null) {
                 continue;
             }
@@ -1538,6 +1249,8 @@ public class DebtServiceImpl implements DebtService {
             .andPayDatetimeGreaterThan(LocalDateTime.now().minusHours(24));
 
         List<Outcome> recent = outcomeMapper.selectByExample(example);
+        Map<Integer, List<OutcomeParticipant>> participantIndex = loadParticipantIndex(recent);
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(recent, false);
         List<ConflictItem> conflicts = new ArrayList<>();
 
         for (Outcome o : recent) {
@@ -1546,7 +1259,7 @@ public class DebtServiceImpl implements DebtService {
             if (!actualDebtor.equals(debtorId)) continue;
 
             // 检查confirm_status是否为PENDING
-            OutcomeParticipant p = outcomeParticipantMapper.selectByOutcomeAndUser(o.getId(), creditorId);
+            OutcomeParticipant p = findParticipant(participantIndex, o.getId(), creditorId);
             if (p != null && p.getConfirmStatus() != null && p.getConfirmStatus() == 1) continue;
 
             // 金额±1%检查
@@ -1557,8 +1270,8 @@ public class DebtServiceImpl implements DebtService {
                 item.setAmount(o.getAmount());
                 item.setPayDatetime(o.getPayDatetime());
                 item.setCreatorId(o.getCreatorId());
-                User creator = userMapper.selectByPrimaryKey(o.getCreatorId());
-                item.setCreatorName(creator != null ? creator.getNickname() : "");
+                String creatorName = memo.nickname(o.getCreatorId());
+                item.setCreatorName(creatorName != null ? creatorName : "");
                 conflicts.add(item);
             }
         }
@@ -1583,111 +1296,33 @@ public class DebtServiceImpl implements DebtService {
             }
         }
 
-        // 1. 加载所有未删除的 outcomes
-        List<Outcome> allOutcomes = loadGeneralOutcomes();
-
-        // 2. 筛选：creditor 付款、debtor 参与的消费 (repayFlag=1)，按 pay_datetime ASC
-        List<long[]> expenses = new ArrayList<>(); // [outcomeId, shareAmount]
-        List<Outcome> expenseOutcomes = new ArrayList<>();
-        for (Outcome o : allOutcomes) {
-            if (o.getRepayFlag() != (byte) 1) continue;
-            if (!o.getPayerUserid().equals(creditorId)) continue;
-            List<OutcomeParticipant> ps = loadParticipants(o.getId());
-            for (OutcomeParticipant p : ps) {
-                if (p.getUserId().equals(debtorId)) {
-                    Integer shares = p.getShares() != null ? p.getShares() : 1;
-                    long shareAmount = o.getPerAmount() * shares;
-                    expenses.add(new long[]{o.getId(), shareAmount});
-                    expenseOutcomes.add(o);
-                    break;
-                }
-            }
-        }
-        // 按 pay_datetime ASC 排序
-        List<Integer> sortedIndices = new ArrayList<>();
-        for (int i = 0; i < expenseOutcomes.size(); i++) sortedIndices.add(i);
-        sortedIndices.sort((a, b) -> {
-            LocalDateTime dtA = expenseOutcomes.get(a).getPayDatetime();
-            LocalDateTime dtB = expenseOutcomes.get(b).getPayDatetime();
-            if (dtA == null && dtB == null) return 0;
-            if (dtA == null) return -1;
-            if (dtB == null) return 1;
-            return dtA.compareTo(dtB);
-        });
-        List<long[]> sortedExpenses = new ArrayList<>();
-        List<Outcome> sortedExpenseOutcomes = new ArrayList<>();
-        for (int idx : sortedIndices) {
-            sortedExpenses.add(expenses.get(idx));
-            sortedExpenseOutcomes.add(expenseOutcomes.get(idx));
-        }
+        // 1. V58: 债务人 → 债权人方向的消费分摊与已确认还款，SQL 侧按 pay_datetime 升序
+        List<DebtFlowRow> expenses = outcomeMapper.selectExpenseFlows(debtorId, creditorId).stream()
+                .filter(f -> f.getDebtorId().equals(debtorId))
+                .collect(Collectors.toList());
+        List<DebtFlowRow> repayments = outcomeMapper.selectRepaymentFlows(debtorId, creditorId, true).stream()
+                .filter(f -> f.getDebtorId().equals(debtorId))
+                .collect(Collectors.toList());
 
-        // 3. 筛选：debtor→creditor 的已确认还款 (repayFlag=2)，按 pay_datetime ASC
-        List<long[]> repayments = new ArrayList<>(); // [outcomeId, amount]
-        for (Outcome o : allOutcomes) {
-            if (o.getRepayFlag() != (byte) 2) continue;
-            Integer actualDebtor = o.getOnBehalfOf() != null ? o.getOnBehalfOf() : o.getPayerUserid();
-            if (!actualDebtor.equals(debtorId) || !o.getTargetUserid().equals(creditorId)) continue;
-            // 只计已确认
-            OutcomeParticipant participant = outcomeParticipantMapper.selectByOutcomeAndUser(o.getId(), creditorId);
-            boolean confirmed = participant != null && participant.getConfirmStatus() != null && participant.getConfirmStatus() == 1;
-            if (confirmed) {
-                repayments.add(new long[]{o.getId(), o.getAmount()});
-            }
-        }
-        // 按 pay_datetime ASC 排序
-        repayments.sort((a, b) -> {
-            Outcome oA = outcomeMapper.selectByPrimaryKey((int) a[0]);
-            Outcome oB = outcomeMapper.selectByPrimaryKey((int) b[0]);
-            LocalDateTime dtA = oA != null ? oA.getPayDatetime() : null;
-            LocalDateTime dtB = oB != null ? oB.getPayDatetime() : null;
-            if (dtA == null && dtB == null) return 0;
-            if (dtA == null) return -1;
-            if (dtB == null) return 1;
-            return dtA.compareTo(dtB);
-        });
-
-        // 4. FIFO 分配已还金额到各 expense
-        long[] previouslyRepaidArr = new long[sortedExpenses.size()];
-        long repaidPool = 0;
-        for (long[] rep : repayments) {
-            repaidPool += rep[1];
-        }
-        long remaining = repaidPool;
-        for (int i = 0; i < sortedExpenses.size(); i++) {
-            long shareAmount = sortedExpenses.get(i)[1];
-            long alloc = Math.min(shareAmount, remaining);
-            previouslyRepaidArr[i] = alloc;
-            remaining -= alloc;
-            if (remaining <= 0) break;
-        }
+        // 2. FIFO 分配已还金额到各 expense（单次归并）
+        FifoAllocator.Allocation allocation = FifoAllocator.allocate(expenses, repayments);
 
-        // 5. 执行实际还款（调用现有 repay 方法）
+        // 3. 执行实际还款（调用现有 repay 方法）
         repay(req, userId);
 
-        // 6. FIFO 分配本次新还款金额
+        // 4. FIFO 分配本次新还款金额
         long newAmount = req.getAmount();
-        long newAmountLeft = newAmount;
-        long[] newlyRepaidArr = new long[sortedExpenses.size()];
-
-        for (int i = 0; i < sortedExpenses.size(); i++) {
-            if (newAmountLeft <= 0) break;
-            long shareAmount = sortedExpenses.get(i)[1];
-            long alreadyPaid = previouslyRepaidArr[i];
-            long gap = shareAmount - alreadyPaid;
-            if (gap <= 0) continue;
-            long alloc = Math.min(gap, newAmountLeft);
-            newlyRepaidArr[i] = alloc;
-            newAmountLeft -= alloc;
-        }
+        long[] newlyRepaidArr = allocation.allocateNew(newAmount);
+        ReferenceMemo memo = prefetchFlows(Collections.emptyList(), expenses, Collections.emptyList());
 
-        // 7. 构建 FifoItem 列表
+        // 5. 构建 FifoItem 列表
         List<FifoItem> settledBills = new ArrayList<>();
         boolean allSettled = true;
         long totalDebt = 0;
 
-        for (int i = 0; i < sortedExpenses.size(); i++) {
-            long shareAmount = sortedExpenses.get(i)[1];
-            long prevRepaid = previouslyRepaidArr[i];
+        for (int i = 0; i < expenses.size(); i++) {
+            long shareAmount = allocation.getShare(i);
+            long prevRepaid = allocation.getRepaid(i);
             long newRepaid = newlyRepaidArr[i];
             long totalRepaid = prevRepaid + newRepaid;
             double progress = shareAmount > 0 ? (double) totalRepaid / shareAmount : 1.0;
@@ -1705,30 +1340,23 @@ public class DebtServiceImpl implements DebtService {
             }
             totalDebt += shareAmount;
 
-            Outcome o = sortedExpenseOutcomes.get(i);
+            DebtFlowRow f = expenses.get(i);
             FifoItem item = new FifoItem();
-            item.setOutcomeId(o.getId());
+            item.setOutcomeId(f.getOutcomeId());
             item.setOriginalAmount(shareAmount);
             item.setPreviouslyRepaid(prevRepaid);
             item.setNewlyRepaid(newRepaid);
             item.setStatus(status);
             item.setProgress(progress);
-            item.setComment(o.getComment());
-            item.setPayDatetime(o.getPayDatetime() != null ? o.getPayDatetime().toString() : null);
-
-            if (o.getStyleId() != null) {
-                PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                item.setCategoryName(style != null ? style.getStyleName() : "未分类");
-            } else {
-                item.setCategoryName("未分类");
-            }
+            item.setComment(f.getComment());
+            item.setPayDatetime(f.getPayDatetime() != null ? f.getPayDatetime().toString() : null);
+            item.setCategoryName(memo.styleName(f.getStyleId()));
 
             settledBills.add(item);
         }
 
-        // 8. 构建响应
-        long totalPreviouslyRepaid = 0;
-        for (long v : previouslyRepaidArr) totalPreviouslyRepaid += v;
+        // 6. 构建响应
+        long totalPreviouslyRepaid = allocation.getTotalRepaid();
         long remainingDebt = totalDebt - totalPreviouslyRepaid - newAmount;
         if (remainingDebt < 0) remainingDebt = 0;
 
@@ -1748,49 +1376,47 @@ public class DebtServiceImpl implements DebtService {
         // Get all activities user belongs to
         List<Activity> activities = activityMapper.selectByUserId(userId);
         List<Map<String, Object>> result = new ArrayList<>();
+        Set<Integer> counterparts = new HashSet<>();
 
         for (Activity activity : activities) {
             if (activity.getStatus() != null && activity.getStatus() == 2) {
                 // Skip settled activities (unless they have remaining debts)
             }
 
-            List<Outcome> activityOutcomes = loadActivityOutcomes(activity.getId());
-            if (activityOutcomes.isEmpty()) continue;
-
-            Map<String, Long> debtMap = buildDebtMapFrom(activityOutcomes);
+            // V57: 活动净欠款表走缓存，账本写入该活动后按版本失效
+            LongLongHashMap debtMap = activityBalanceCache.get(activity.getId(),
+                    id -> netFromRaw(toRawDebtMap(debtLedgerService.getScopeEntries(id))));
+            if (debtMap.isEmpty()) continue;
 
             // Calculate this user's debts/credits within this activity
             long shouldReceive = 0;
             long shouldPay = 0;
             List<Map<String, Object>> members = new ArrayList<>();
 
-            for (Map.Entry<String, Long> e : debtMap.entrySet()) {
-                String[] parts = e.getKey().split("-");
-                Integer debtor = Integer.valueOf(parts[0]);
-                Integer creditor = Integer.valueOf(parts[1]);
-                Long amount = e.getValue();
+            for (LongLongHashMap.Cursor c = debtMap.cursor(); c.advance(); ) {
+                Integer debtor = DebtPair.debtor(c.key());
+                Integer creditor = DebtPair.creditor(c.key());
+                long amount = c.value();
 
                 if (amount <= 0) continue;
 
                 if (creditor.equals(userId)) {
                     shouldReceive += amount;
-                    User debtorUser = userMapper.selectByPrimaryKey(debtor);
                     Map<String, Object> memberDebt = new HashMap<>();
                     memberDebt.put("userId", debtor);
-                    memberDebt.put("nickname", debtorUser != null ? debtorUser.getNickname() : "");
                     memberDebt.put("amount", amount);
                     memberDebt.put("type", "owesMe");
                     members.add(memberDebt);
+                    counterparts.add(debtor);
                 }
                 if (debtor.equals(userId)) {
                     shouldPay += amount;
-                    User creditorUser = userMapper.selectByPrimaryKey(creditor);
                     Map<String, Object> memberDebt = new HashMap<>();
                     memberDebt.put("userId", creditor);
-                    memberDebt.put("nickname", creditorUser != null ? creditorUser.getNickname() : "");
                     memberDebt.put("amount", amount);
                     memberDebt.put("type", "iOwe");
                     members.add(memberDebt);
+                    counterparts.add(creditor);
                 }
             }
 
@@ -1809,6 +1435,18 @@ public class DebtServiceImpl implements DebtService {
             result.add(activityDebt);
         }
 
+        // V57: 所有活动涉及的对方用户一次查询补全昵称
+        ReferenceMemo memo = referenceEnricher.memo();
+        memo.loadUsers(counterparts);
+        for (Map<String, Object> activityDebt : result) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> members = (List<Map<String, Object>>) activityDebt.get("members");
+            for (Map<String, Object> memberDebt : members) {
+                String nickname = memo.nickname((Integer) memberDebt.get("userId"));
+                memberDebt.put("nickname", nickname != null ? nickname : "");
+            }
+        }
+
         return result;
     }
 }
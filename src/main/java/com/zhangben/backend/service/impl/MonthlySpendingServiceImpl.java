@@ -0,0 +1,200 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.mapper.PredictionMapper;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.model.PayStyle;
+import com.zhangben.backend.model.UserMonthlySpending;
+import com.zhangben.backend.service.MonthlySpendingService;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * V61: 用户月度支出物化服务实现
+ * 写入方法加入调用方事务，保证账单与物化行同时提交或回滚。
+ * 分类的固定 / 变动属性取自 ReferenceDataCache；分类属性被修改后的偏差由夜间对账修正。
+ */
+@Service
+public class MonthlySpendingServiceImpl implements MonthlySpendingService {
+
+    private static final Logger log = LoggerFactory.getLogger(MonthlySpendingServiceImpl.class);
+
+    private static final DateTimeFormatter MONTH_FMT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    /** 对账报告中最多返回的差异条数 */
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    @Autowired
+    private PredictionMapper predictionMapper;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Override
+    @Transactional
+    public void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        writeDeltas(collectDeltas(outcome, participants, 1));
+    }
+
+    @Override
+    @Transactional
+    public void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        writeDeltas(collectDeltas(outcome, participants, -1));
+    }
+
+    @Override
+    @Transactional
+    public Map<String, Object> reconcile(boolean repair) {
+        long start = System.currentTimeMillis();
+
+        Map<String, UserMonthlySpending> expected = new HashMap<>();
+        for (UserMonthlySpending r : predictionMapper.selectExpectedMonthlySpending()) {
+            expected.put(keyOf(r), r);
+        }
+        Map<String, UserMonthlySpending> actual = new HashMap<>();
+        for (UserMonthlySpending r : predictionMapper.selectAllMonthlySpending()) {
+            actual.put(keyOf(r), r);
+        }
+
+        Set<String> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+
+        List<UserMonthlySpending> corrections = new ArrayList<>();
+        List<Map<String, Object>> drifts = new ArrayList<>();
+        for (String key : keys) {
+            UserMonthlySpending exp = expected.get(key);
+            UserMonthlySpending act = actual.get(key);
+            UserMonthlySpending base = exp != null ? exp : act;
+
+            UserMonthlySpending diff = newDelta(base.getUserId(), base.getMonth());
+            diff.setTotalSpending(longOf(exp, UserMonthlySpending::getTotalSpending) - longOf(act, UserMonthlySpending::getTotalSpending));
+            diff.setTransactionCount(intOf(exp, UserMonthlySpending::getTransactionCount) - intOf(act, UserMonthlySpending::getTransactionCount));
+            diff.setFixedSpending(longOf(exp, UserMonthlySpending::getFixedSpending) - longOf(act, UserMonthlySpending::getFixedSpending));
+            diff.setFixedCount(intOf(exp, UserMonthlySpending::getFixedCount) - intOf(act, UserMonthlySpending::getFixedCount));
+            diff.setVariableSpending(longOf(exp, UserMonthlySpending::getVariableSpending) - longOf(act, UserMonthlySpending::getVariableSpending));
+            diff.setVariableCount(intOf(exp, UserMonthlySpending::getVariableCount) - intOf(act, UserMonthlySpending::getVariableCount));
+            if (isZero(diff)) continue;
+
+            corrections.add(diff);
+            if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                Map<String, Object> drift = new HashMap<>();
+                drift.put("userId", base.getUserId());
+                drift.put("month", base.getMonth());
+                drift.put("expectedTotal", longOf(exp, UserMonthlySpending::getTotalSpending));
+                drift.put("actualTotal", longOf(act, UserMonthlySpending::getTotalSpending));
+                drift.put("expectedFixed", longOf(exp, UserMonthlySpending::getFixedSpending));
+                drift.put("actualFixed", longOf(act, UserMonthlySpending::getFixedSpending));
+                drifts.add(drift);
+            }
+        }
+
+        if (repair && !corrections.isEmpty()) {
+            // 以差额方式写回，避免覆盖对账期间并发写入的增量
+            writeDeltas(corrections);
+        }
+        if (repair) {
+            predictionMapper.deleteEmptyMonthlySpending();
+        }
+
+        long cost = System.currentTimeMillis() - start;
+        if (corrections.isEmpty()) {
+            log.info("【月度支出】对账完成，{} 条无差异，耗时 {}ms", keys.size(), cost);
+        } else {
+            log.warn("【月度支出】对账发现 {} 条差异（repair={}），耗时 {}ms", corrections.size(), repair, cost);
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("checked", keys.size());
+        report.put("driftCount", corrections.size());
+        report.put("drifts", drifts);
+        report.put("repaired", repair && !corrections.isEmpty());
+        report.put("costMs", cost);
+        return report;
+    }
+
+    /**
+     * 计算一条账单对月度支出的增量，同一 (用户, 月份) 合并
+     */
+    private List<UserMonthlySpending> collectDeltas(Outcome o, List<OutcomeParticipant> participants, int sign) {
+        if (o == null || participants == null || participants.isEmpty()
+                || o.getRepayFlag() == null || o.getRepayFlag() != (byte) 1
+                || o.getPayDatetime() == null || o.getPerAmount() == null) {
+            return Collections.emptyList();
+        }
+
+        String month = o.getPayDatetime().format(MONTH_FMT);
+        PayStyle style = referenceDataCache.getStyle(o.getStyleId());
+        boolean fixed = style != null && Boolean.TRUE.equals(style.getIsFixed());
+        long amount = sign * o.getPerAmount();
+
+        Map<Integer, UserMonthlySpending> byUser = new TreeMap<>();
+        for (OutcomeParticipant p : participants) {
+            if (p.getUserId() == null) continue;
+            UserMonthlySpending d = byUser.computeIfAbsent(p.getUserId(), uid -> newDelta(uid, month));
+            d.setTotalSpending(d.getTotalSpending() + amount);
+            d.setTransactionCount(d.getTransactionCount() + sign);
+            if (fixed) {
+                d.setFixedSpending(d.getFixedSpending() + amount);
+                d.setFixedCount(d.getFixedCount() + sign);
+            } else {
+                d.setVariableSpending(d.getVariableSpending() + amount);
+                d.setVariableCount(d.getVariableCount() + sign);
+            }
+        }
+        return new ArrayList<>(byUser.values());
+    }
+
+    private void writeDeltas(List<UserMonthlySpending> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // 按主键顺序写入，降低并发事务间的死锁概率
+        List<UserMonthlySpending> sorted = new ArrayList<>(deltas);
+        sorted.sort(Comparator.comparing(UserMonthlySpending::getUserId)
+            .thenComparing(UserMonthlySpending::getMonth));
+        predictionMapper.batchAddSpendingDelta(sorted);
+    }
+
+    private static UserMonthlySpending newDelta(Integer userId, String month) {
+        UserMonthlySpending d = new UserMonthlySpending();
+        d.setUserId(userId);
+        d.setMonth(month);
+        d.setTotalSpending(0L);
+        d.setTransactionCount(0);
+        d.setFixedSpending(0L);
+        d.setFixedCount(0);
+        d.setVariableSpending(0L);
+        d.setVariableCount(0);
+        return d;
+    }
+
+    private static boolean isZero(UserMonthlySpending d) {
+        return d.getTotalSpending() == 0 && d.getTransactionCount() == 0
+            && d.getFixedSpending() == 0 && d.getFixedCount() == 0
+            && d.getVariableSpending() == 0 && d.getVariableCount() == 0;
+    }
+
+    private static long longOf(UserMonthlySpending r, Function<UserMonthlySpending, Long> getter) {
+        if (r == null) return 0L;
+        Long v = getter.apply(r);
+        return v != null ? v : 0L;
+    }
+
+    private static int intOf(UserMonthlySpending r, Function<UserMonthlySpending, Integer> getter) {
+        if (r == null) return 0;
+        Integer v = getter.apply(r);
+        return v != null ? v : 0;
+    }
+
+    private static String keyOf(UserMonthlySpending r) {
+        return r.getUserId() + "|" + r.getMonth();
+    }
+}
@@ -3,18 +3,36 @@ package com.zhangben.backend.service.impl;
 import com.zhangben.backend.mapper.NotificationMapper;
 import com.zhangben.backend.model.Notification;
 import com.zhangben.backend.service.NotificationService;
+import com.zhangben.backend.service.cache.UnreadCountCache;
+import com.zhangben.backend.service.notify.UserEventHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class NotificationServiceImpl implements NotificationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(NotificationServiceImpl.class);
+
     @Autowired
     private NotificationMapper notificationMapper;
 
+    @Autowired
+    private UnreadCountCache unreadCountCache;
+
+    @Autowired
+    private UserEventHub userEventHub;
+
     @Override
     public void createNotification(Integer userId, String type, String title, String content, Long relatedId, String relatedType) {
         Notification notification = new Notification();
@@ -27,6 +45,59 @@ public class NotificationServiceImpl implements NotificationService {
         notification.setIsRead((byte) 0);
         notification.setCreatedAt(LocalDateTime.now());
         notificationMapper.insertSelective(notification);
+        afterCommit(Collections.singletonList(notification));
+    }
+
+    @Override
+    public void createNotifications(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        notificationMapper.batchInsert(notifications);
+        afterCommit(notifications);
+    }
+
+    /**
+     * V66: 处于事务中时提交后再计数 / 推送，回滚则不影响计数
+     */
+    private void afterCommit(List<Notification> inserted) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    onInserted(inserted);
+                }
+            });
+        } else {
+            onInserted(inserted);
+        }
+    }
+
+    @Override
+    public void onInserted(List<Notification> inserted) {
+        Map<Integer, Integer> perUser = new LinkedHashMap<>();
+        for (Notification n : inserted) {
+            perUser.merge(n.getUserId(), 1, Integer::sum);
+        }
+        try {
+            for (Map.Entry<Integer, Integer> e : perUser.entrySet()) {
+                long count = unreadCountCache.add(e.getKey(), e.getValue());
+                if (count >= 0) {
+                    userEventHub.publishUnread(e.getKey(), count);
+                }
+            }
+            for (Notification n : inserted) {
+                // 没有 ID 的通知前端无法标记已读，不推送，等客户端拉取列表时获得
+                if (n.getId() == null) {
+                    logger.warn("【通知】通知缺少 ID，跳过推送: userId={}, type={}", n.getUserId(), n.getType());
+                    continue;
+                }
+                userEventHub.publishNotification(n.getUserId(), summaryOf(n));
+            }
+        } catch (Exception e) {
+            // 计数由定时对账兜底，推送失败不影响业务
+            logger.warn("【通知】未读计数 / 推送失败: {}", e.getMessage());
+        }
     }
 
     @Override
@@ -36,7 +107,8 @@ public class NotificationServiceImpl implements NotificationService {
 
     @Override
     public int getUnreadCount(Integer userId) {
-        return notificationMapper.countUnreadByUserId(userId);
+        // V66: 读 Redis 计数器，不再每次 COUNT(*)
+        return (int) unreadCountCache.get(userId);
     }
 
     @Override
@@ -46,16 +118,40 @@ public class NotificationServiceImpl implements NotificationService {
         if (notification == null || !notification.getUserId().equals(userId)) {
             throw new IllegalArgumentException("通知不存在或无权操作");
         }
-        notificationMapper.markAsRead(notificationId);
+        if (notificationMapper.markAsRead(notificationId) > 0) {
+            long count = unreadCountCache.add(userId, -1);
+            if (count >= 0) {
+                userEventHub.publishUnread(userId, count);
+            }
+        }
     }
 
     @Override
     public void markAllAsRead(Integer userId) {
         notificationMapper.markAllAsRead(userId);
+        unreadCountCache.set(userId, 0);
+        userEventHub.publishUnread(userId, 0);
     }
 
     @Override
     public void deleteAllNotifications(Integer userId) {
         notificationMapper.deleteByUserId(userId);
+        unreadCountCache.set(userId, 0);
+        userEventHub.publishUnread(userId, 0);
+    }
+
+    /**
+     * 推送给客户端的新通知摘要
+     */
+    private static Map<String, Object> summaryOf(Notification n) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", n.getId());
+        summary.put("type", n.getType());
+        summary.put("title", n.getTitle());
+        summary.put("content", n.getContent());
+        summary.put("relatedId", n.getRelatedId());
+        summary.put("relatedType", n.getRelatedType());
+        summary.put("createdAt", n.getCreatedAt() != null ? n.getCreatedAt().toString() : null);
+        return summary;
     }
 }
@@ -1,14 +1,14 @@
 package com.zhangben.backend.service.impl;
 
-import com.zhangben.backend.mapper.NotificationMapper;
 import com.zhangben.backend.mapper.PaymentNudgeMapper;
 import com.zhangben.backend.mapper.UserMapper;
-import com.zhangben.backend.model.Notification;
 import com.zhangben.backend.model.PaymentNudge;
 import com.zhangben.backend.model.User;
 import com.zhangben.backend.service.EmailService;
 import com.zhangben.backend.service.EmailTemplateService;
+import com.zhangben.backend.service.NotificationService;
 import com.zhangben.backend.service.NudgeService;
+import com.zhangben.backend.service.email.EmailOutbox;
 import com.zhangben.backend.service.email.EmailProviderManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +44,7 @@ public class NudgeServiceImpl implements NudgeService {
     private PaymentNudgeMapper nudgeMapper;
 
     @Autowired
-    private NotificationMapper notificationMapper;
+    private NotificationService notificationService;
 
     @Autowired
     private UserMapper userMapper;
@@ -55,6 +55,9 @@ public class NudgeServiceImpl implements NudgeService {
     @Autowired
     private EmailProviderManager providerManager;
 
+    @Autowired
+    private EmailOutbox emailOutbox;
+
     @Value("${app.base-url:https://www.aabillpay.com}")
     private String baseUrl;
 
@@ -129,10 +132,6 @@ public class NudgeServiceImpl implements NudgeService {
      * 创建系统通知
      */
     private void createNudgeNotification(User creditor, User debtor, boolean anonymous) {
-        Notification notification = new Notification();
-        notification.setUserId(debtor.getId());
-        notification.setType(NOTIFICATION_TYPE_NUDGE);
-
         // 根据债务人语言设置通知内容
         String lang = debtor.getPreferredLanguage() != null ? debtor.getPreferredLanguage() : "zh-CN";
         String title;
@@ -145,13 +144,8 @@ public class NudgeServiceImpl implements NudgeService {
             content = getNudgeContent(lang, creditor.getNickname());
         }
 
-        notification.setTitle(title);
-        notification.setContent(content);
-        notification.setRelatedType("debt");
-        notification.setIsRead((byte) 0);
-        notification.setCreatedAt(LocalDateTime.now());
-
-        notificationMapper.insertSelective(notification);
+        // V66: 经 NotificationService 写入，同时维护未读计数并推送
+        notificationService.createNotification(debtor.getId(), NOTIFICATION_TYPE_NUDGE, title, content, null, "debt");
         logger.debug("创建催促通知: userId={}, title={}, anonymous={}", debtor.getId(), title, anonymous);
     }
 
@@ -226,8 +220,8 @@ public class NudgeServiceImpl implements NudgeService {
             subject = getNudgeEmailSubject(lang, creditorName);
         }
 
-        // 异步发送
-        providerManager.sendEmailFireAndForget(debtor.getEmail(), debtor.getNickname(), subject, htmlContent);
+        // V68: 写入发件箱，随催促记录一起提交，由投递线程发送并重试
+        emailOutbox.enqueue(debtor.getEmail(), debtor.getNickname(), subject, htmlContent);
         logger.debug("发送催促邮件: to={}", debtor.getEmail());
     }
 
@@ -4,22 +4,28 @@ import cn.dev33.satoken.stp.StpUtil;
 import com.zhangben.backend.dto.OutcomeCreateRequest;
 import com.zhangben.backend.dto.RecentOutcomeItem;
 import com.zhangben.backend.mapper.ActivityMapper;
-import com.zhangben.backend.mapper.NotificationMapper;
 import com.zhangben.backend.mapper.OutcomeMapper;
 import com.zhangben.backend.mapper.OutcomeParticipantMapper;
-import com.zhangben.backend.mapper.PayStyleMapper;
 import com.zhangben.backend.mapper.UserMapper;
-import com.zhangben.backend.service.EmailService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.zhangben.backend.model.*;
-import com.zhangben.backend.mapper.ExchangeRateMapper;
 import com.zhangben.backend.service.CurrencyConverterService;
+import com.zhangben.backend.service.DailySpendService;
+import com.zhangben.backend.service.DebtLedgerService;
+import com.zhangben.backend.service.MonthlySpendingService;
 import com.zhangben.backend.service.OutcomeService;
+import com.zhangben.backend.service.UserTimelineService;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import com.zhangben.backend.service.enrich.ReferenceEnricher;
+import com.zhangben.backend.service.enrich.ReferenceMemo;
+import com.zhangben.backend.service.notify.ChangeEventPublisher;
+import com.zhangben.backend.service.notify.NotificationDispatcher;
 import com.zhangben.backend.util.CurrencyUtils;
 import com.zhangben.backend.util.GeoUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -33,15 +39,18 @@ public class OutcomeServiceImpl implements OutcomeService {
 
     private static final Logger logger = LoggerFactory.getLogger(OutcomeServiceImpl.class);
 
+    /** V72: MySQL ngram_token_size 默认值，短于它的关键词无法走 FULLTEXT */
+    private static final int NGRAM_TOKEN_SIZE = 2;
+
+    /** V72: 搜索单页最大条数 */
+    private static final int SEARCH_MAX_LIMIT = 100;
+
     @Autowired
     private OutcomeMapper outcomeMapper;
 
     @Autowired
     private OutcomeParticipantMapper outcomeParticipantMapper;
 
-    @Autowired
-    private PayStyleMapper payStyleMapper;
-
     @Autowired
     private UserMapper userMapper;
 
@@ -49,18 +58,34 @@ public class OutcomeServiceImpl implements OutcomeService {
     private ActivityMapper activityMapper;
 
     @Autowired
-    private EmailService emailService;
+    private NotificationDispatcher notificationDispatcher;
 
     @Autowired
-    private NotificationMapper notificationMapper;
+    private ChangeEventPublisher changeEventPublisher;
 
     @Autowired
     private CurrencyConverterService currencyConverterService;
 
     @Autowired
-    private ExchangeRateMapper exchangeRateMapper;
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private DebtLedgerService debtLedgerService;
+
+    @Autowired
+    private MonthlySpendingService monthlySpendingService;
+
+    @Autowired
+    private DailySpendService dailySpendService;
+
+    @Autowired
+    private UserTimelineService userTimelineService;
+
+    @Autowired
+    private ReferenceEnricher referenceEnricher;
 
     @Override
+    @Transactional
     public void createOutcome(OutcomeCreateRequest req) {
 
         if (req.getAmount() == null || req.getAmount() <= 0) {
@@ -175,9 +200,9 @@ public class OutcomeServiceImpl implements OutcomeService {
         try {
             String settleCurrency = outcome.getTargetCurrencySnapshot() != null
                 ? outcome.getTargetCurrencySnapshot() : payerCurrency;
-            ExchangeRate rate = exchangeRateMapper.selectByCode(settleCurrency);
-            if (rate != null && rate.getRateToUsd() != null && rate.getRateToUsd().doubleValue() > 0) {
-                long usdSnapshot = Math.round(outcome.getPerAmount() / rate.getRateToUsd().doubleValue());
+            BigDecimal rateToUsd = referenceDataCache.getRatesToUsd().get(settleCurrency.toUpperCase());
+            if (rateToUsd != null && rateToUsd.doubleValue() > 0) {
+                long usdSnapshot = Math.round(outcome.getPerAmount() / rateToUsd.doubleValue());
                 outcome.setUsdAmountSnapshot(usdSnapshot);
             }
         } catch (Exception e) {
@@ -187,6 +212,7 @@ public class OutcomeServiceImpl implements OutcomeService {
         outcomeMapper.insertSelective(outcome);
 
         // 写入参与者 outcome_participant（仅注册用户，包含份额）
+        List<OutcomeParticipant> insertedParticipants = new ArrayList<>();
         if (req.getTargetUserIds() != null) {
             for (Integer uid : req.getTargetUserIds()) {
                 int shares = (sharesMap != null && sharesMap.containsKey(uid)) ? sharesMap.get(uid) : 1;
@@ -195,6 +221,7 @@ public class OutcomeServiceImpl implements OutcomeService {
                 ep.setUserId(uid);
                 ep.setShares(shares); // V18: 保存份额
                 outcomeParticipantMapper.insertSelective(ep);
+                insertedParticipants.add(ep);
             }
         }
 
@@ -205,16 +232,27 @@ public class OutcomeServiceImpl implements OutcomeService {
             ep.setUserId(payerId);
             ep.setShares(selfShares); // V18: 保存自己的份额
             outcomeParticipantMapper.insertSelective(ep);
+            insertedParticipants.add(ep);
         }
 
-        // 发送邮件通知给其他参与者（异步，失败不影响业务）
+        // V52: 同一事务内更新欠款账本
+        debtLedgerService.applyOutcome(outcome, insertedParticipants);
+        // V61: 同一事务内累加月度支出物化行（V62: 以及每日消费汇总）
+        monthlySpendingService.applyOutcome(outcome, insertedParticipants);
+        dailySpendService.applyOutcome(outcome, insertedParticipants);
+        userTimelineService.applyOutcome(outcome, insertedParticipants);
+        // V67: 提交后向相关用户推送变更事件
+        changeEventPublisher.outcomeChanged(ChangeEventPublisher.OUTCOME_CREATED, outcome, insertedParticipants,
+                outcome.getCreatorId());
+
+        // 通知其他参与者（V65: 事务提交后批量写入站内通知、异步发送邮件，失败不影响业务）
         if (req.getTargetUserIds() != null && !req.getTargetUserIds().isEmpty()) {
             try {
                 User payer = userMapper.selectByPrimaryKey(payerId);
                 String payerName = payer != null ? payer.getNickname() : "某用户";
                 String styleName = "未分类";
                 if (req.getStyleId() != null && req.getStyleId() > 0) {
-                    PayStyle style = payStyleMapper.selectByPrimaryKey(req.getStyleId());
+                    PayStyle style = referenceDataCache.getStyle(req.getStyleId());
                     if (style != null) {
                         styleName = style.getStyleName();
                     }
@@ -229,50 +267,23 @@ public class OutcomeServiceImpl implements OutcomeService {
                     }
                 }
 
+                String title = payerName + " 创建了新账单";
+                String content = "金额: ¥" + String.format("%.2f", outcome.getAmount() / 100.0);
+                if (activityName != null) {
+                    content += " (活动: " + activityName + ")";
+                }
+
                 for (Integer uid : req.getTargetUserIds()) {
-                    User participant = userMapper.selectByPrimaryKey(uid);
-                    if (participant != null) {
-                        // V31: 发送站内通知
-                        try {
-                            Notification notification = new Notification();
-                            notification.setUserId(uid);
-                            notification.setType("bill_created");
-                            notification.setTitle(payerName + " 创建了新账单");
-                            String content = "金额: ¥" + String.format("%.2f", outcome.getAmount() / 100.0);
-                            if (activityName != null) {
-                                content += " (活动: " + activityName + ")";
-                            }
-                            notification.setContent(content);
-                            notification.setRelatedId(Long.valueOf(outcome.getId()));
-                            notification.setRelatedType("outcome");
-                            notification.setIsRead((byte) 0);
-                            notification.setCreatedAt(LocalDateTime.now());
-                            notificationMapper.insertSelective(notification);
-                        } catch (Exception ex) {
-                            logger.warn("发送站内通知失败: {}", ex.getMessage());
-                        }
-
-                        // 发送邮件通知
-                        if (participant.getEmail() != null) {
-                            // 使用用户首选语言发送邮件（默认中文）
-                            emailService.sendBillNotificationAsync(
-                                participant.getEmail(),
-                                participant.getNickname(),
-                                "zh-CN", // 可以从用户配置中获取首选语言
-                                payerName,
-                                outcome.getAmount(),
-                                perAmount,
-                                req.getComment(),
-                                styleName,
-                                activityName,
-                                false // isUpdate = false for new bill
-                            );
-                        }
-                    }
+                    // V31: 站内通知
+                    notificationDispatcher.addNotification(uid, "bill_created", title, content,
+                        Long.valueOf(outcome.getId()), "outcome");
+                    // 邮件通知（默认中文）
+                    notificationDispatcher.addBillEmail(uid, "zh-CN", payerName, outcome.getAmount(), perAmount,
+                        req.getComment(), styleName, activityName, false);
                 }
             } catch (Exception e) {
-                // 邮件发送失败不影响业务
-                logger.warn("发送账单通知邮件失败: {}", e.getMessage());
+                // 通知失败不影响业务
+                logger.warn("发送账单通知失败: {}", e.getMessage());
             }
         }
     }
@@ -289,11 +300,6 @@ public class OutcomeServiceImpl implements OutcomeService {
                 .andDeletedFlagEqualTo((byte) 0);
         List<Outcome> payerOutcomes = outcomeMapper.selectByExample(payerExample);
 
-        for (Outcome o : payerOutcomes) {
-            RecentOutcomeItem item = buildRecentOutcomeItem(o, userId, false);
-            result.add(item);
-        }
-
         // 2. V35: 查询用户作为还款接收者的记录（收入）
         OutcomeExample targetExample = new OutcomeExample();
         targetExample.createCriteria()
@@ -302,17 +308,21 @@ public class OutcomeServiceImpl implements OutcomeService {
                 .andDeletedFlagEqualTo((byte) 0);
         List<Outcome> incomeOutcomes = outcomeMapper.selectByExample(targetExample);
 
-        for (Outcome o : incomeOutcomes) {
-            RecentOutcomeItem item = buildRecentOutcomeItem(o, userId, true);
-            result.add(item);
-        }
-
-        // 3. 按时间倒序排序并限制数量
-        result.sort((a, b) -> b.getPayDatetime().compareTo(a.getPayDatetime()));
-
-        return result.stream()
+        // 3. 按时间倒序排序并限制数量（V59: 先截取再构建，只为保留的记录补全引用数据）
+        List<Outcome> candidates = new ArrayList<>(payerOutcomes);
+        candidates.addAll(incomeOutcomes);
+        Set<Outcome> incomeSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        incomeSet.addAll(incomeOutcomes);
+        candidates.sort((a, b) -> b.getPayDatetime().compareTo(a.getPayDatetime()));
+        List<Outcome> page = candidates.stream()
                 .limit(limit)
                 .collect(Collectors.toList());
+
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(page, true);
+        for (Outcome o : page) {
+            result.add(buildRecentOutcomeItem(o, userId, incomeSet.contains(o), memo));
+        }
+        return result;
     }
 
     /**
@@ -320,8 +330,9 @@ public class OutcomeServiceImpl implements OutcomeService {
      * @param o 数据库记录
      * @param userId 当前用户ID
      * @param isIncome 是否是收入记录（别人还给我的）
+     * @param memo V59: 已预取引用数据的备忘录
      */
-    private RecentOutcomeItem buildRecentOutcomeItem(Outcome o, Integer userId, boolean isIncome) {
+    private RecentOutcomeItem buildRecentOutcomeItem(Outcome o, Integer userId, boolean isIncome, ReferenceMemo memo) {
         RecentOutcomeItem item = new RecentOutcomeItem();
         item.setId(o.getId());
         item.setAmount(o.getAmount());
@@ -337,13 +348,13 @@ public class OutcomeServiceImpl implements OutcomeService {
             item.setRecordType("income");
             item.setStyleName("收入");
             item.setPayerId(o.getPayerUserid());
-            User payer = userMapper.selectByPrimaryKey(o.getPayerUserid());
+            User payer = memo.user(o.getPayerUserid());
             if (payer != null) {
                 item.setPayerName(payer.getNickname());
             }
             // V35: 如果是代还，显示实际付款人和被代还人
             if (o.getOnBehalfOf() != null && !o.getOnBehalfOf().equals(o.getPayerUserid())) {
-                User beneficiary = userMapper.selectByPrimaryKey(o.getOnBehalfOf());
+                User beneficiary = memo.user(o.getOnBehalfOf());
                 if (beneficiary != null && payer != null) {
                     item.setPayerName(payer.getNickname() + " (代" + beneficiary.getNickname() + ")");
                 }
@@ -354,7 +365,7 @@ public class OutcomeServiceImpl implements OutcomeService {
             item.setStyleName("还款");
             if (o.getTargetUserid() != null && o.getTargetUserid() > 0) {
                 item.setTargetUserId(o.getTargetUserid());
-                User targetUser = userMapper.selectByPrimaryKey(o.getTargetUserid());
+                User targetUser = memo.user(o.getTargetUserid());
                 if (targetUser != null) {
                     item.setTargetUserName(targetUser.getNickname());
                 }
@@ -362,24 +373,15 @@ public class OutcomeServiceImpl implements OutcomeService {
         } else {
             // 支出：普通消费记录
             item.setRecordType("expense");
-            if (o.getStyleId() != null && o.getStyleId() > 0) {
-                PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                item.setStyleName(style != null ? style.getStyleName() : "未分类");
-            } else {
-                item.setStyleName("未分类");
-            }
+            item.setStyleName(memo.styleName(o.getStyleId()));
         }
 
         // 获取参与者名称（非收入记录）
         if (!isIncome) {
-            OutcomeParticipantExample pExample = new OutcomeParticipantExample();
-            pExample.createCriteria().andOutcomeIdEqualTo(o.getId());
-            List<OutcomeParticipant> participants = outcomeParticipantMapper.selectByExample(pExample);
-
             List<String> names = new ArrayList<>();
             List<Integer> ids = new ArrayList<>();
-            for (OutcomeParticipant p : participants) {
-                User u = userMapper.selectByPrimaryKey(p.getUserId());
+            for (OutcomeParticipant p : memo.participants(o.getId())) {
+                User u = memo.user(p.getUserId());
                 if (u != null) {
                     names.add(u.getNickname());
                     ids.add(u.getId());
@@ -397,7 +399,7 @@ public class OutcomeServiceImpl implements OutcomeService {
         // 设置活动信息
         if (o.getActivityId() != null && o.getActivityId() > 0) {
             item.setActivityId(o.getActivityId());
-            Activity activity = activityMapper.selectById(o.getActivityId());
+            Activity activity = memo.activity(o.getActivityId());
             if (activity != null) {
                 item.setActivityName(activity.getName());
             }
@@ -409,7 +411,7 @@ public class OutcomeServiceImpl implements OutcomeService {
     /**
      * 构建 AA 分摊记录项（别人创建的 AA 账单，当前用户是参与者）
      */
-    private RecentOutcomeItem buildSharedOutcomeItem(Outcome o, Integer userId) {
+    private RecentOutcomeItem buildSharedOutcomeItem(Outcome o, Integer userId, ReferenceMemo memo) {
         RecentOutcomeItem item = new RecentOutcomeItem();
         item.setId(o.getId());
         item.setAmount(o.getAmount());
@@ -422,28 +424,19 @@ public class OutcomeServiceImpl implements OutcomeService {
 
         // 设置付款人信息
         item.setPayerId(o.getPayerUserid());
-        User payer = userMapper.selectByPrimaryKey(o.getPayerUserid());
+        User payer = memo.user(o.getPayerUserid());
         if (payer != null) {
             item.setPayerName(payer.getNickname());
         }
 
         // 获取分类
-        if (o.getStyleId() != null && o.getStyleId() > 0) {
-            PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-            item.setStyleName(style != null ? style.getStyleName() : "未分类");
-        } else {
-            item.setStyleName("未分类");
-        }
+        item.setStyleName(memo.styleName(o.getStyleId()));
 
         // 获取参与者
-        OutcomeParticipantExample pExample = new OutcomeParticipantExample();
-        pExample.createCriteria().andOutcomeIdEqualTo(o.getId());
-        List<OutcomeParticipant> participants = outcomeParticipantMapper.selectByExample(pExample);
-
         List<String> names = new ArrayList<>();
         List<Integer> ids = new ArrayList<>();
-        for (OutcomeParticipant p : participants) {
-            User u = userMapper.selectByPrimaryKey(p.getUserId());
+        for (OutcomeParticipant p : memo.participants(o.getId())) {
+            User u = memo.user(p.getUserId());
             if (u != null) {
                 names.add(u.getNickname());
                 ids.add(u.getId());
@@ -460,7 +453,7 @@ public class OutcomeServiceImpl implements OutcomeService {
         // 活动信息
         if (o.getActivityId() != null && o.getActivityId() > 0) {
             item.setActivityId(o.getActivityId());
-            Activity activity = activityMapper.selectById(o.getActivityId());
+            Activity activity = memo.activity(o.getActivityId());
             if (activity != null) {
                 item.setActivityName(activity.getName());
             }
@@ -470,9 +463,10 @@ public class OutcomeServiceImpl implements OutcomeService {
     }
 
     @Override
+    @Transactional
     public void deleteOutcome(Integer outcomeId, Integer userId) {
-        // 查询记录
-        Outcome outcome = outcomeMapper.selectByPrimaryKey(outcomeId);
+        // 查询记录（V52: 加行锁，与并发的修改 / 确认串行，冲减基于锁定后的最新值）
+        Outcome outcome = outcomeMapper.selectByPrimaryKeyForUpdate(outcomeId);
 
         if (outcome == null) {
             throw new IllegalArgumentException("记录不存在");
@@ -489,9 +483,47 @@ public class OutcomeServiceImpl implements OutcomeService {
             throw new IllegalArgumentException("记录已删除");
         }
 
-        // 软删除
+        // 软删除（V52: 条件更新，并发或重试的删除请求只有一个会冲减账本）
+        if (outcomeMapper.softDeleteById(outcomeId) == 0) {
+            throw new IllegalArgumentException("记录已删除");
+        }
         outcome.setDeletedFlag((byte) 1);
-        outcomeMapper.updateByPrimaryKeySelective(outcome);
+
+        // V52: 撤销该账单对欠款账本的影响（V61/V62: 以及月度支出、每日汇总）
+        List<OutcomeParticipant> participants = loadParticipants(outcomeId);
+        debtLedgerService.reverseOutcome(outcome, participants);
+        monthlySpendingService.reverseOutcome(outcome, participants);
+        dailySpendService.reverseOutcome(outcome, participants);
+        userTimelineService.reverseOutcome(outcome, participants);
+        changeEventPublisher.outcomeChanged(ChangeEventPublisher.OUTCOME_DELETED, outcome, participants, userId);
+    }
+
+    @Override
+    @Transactional
+    public void deleteActivityOutcome(Integer outcomeId) {
+        Outcome outcome = outcomeMapper.selectByPrimaryKeyForUpdate(outcomeId);
+        if (outcome == null || (outcome.getDeletedFlag() != null && outcome.getDeletedFlag() == 1)) {
+            return;
+        }
+
+        // 软删除账单，已被并发删除时不再重复冲减
+        if (outcomeMapper.softDeleteById(outcomeId) > 0) {
+            List<OutcomeParticipant> participants = loadParticipants(outcomeId);
+            debtLedgerService.reverseOutcome(outcome, participants);
+            monthlySpendingService.reverseOutcome(outcome, participants);
+            dailySpendService.reverseOutcome(outcome, participants);
+            userTimelineService.reverseOutcome(outcome, participants);
+            changeEventPublisher.outcomeChanged(ChangeEventPublisher.OUTCOME_DELETED, outcome, participants, null);
+        }
+    }
+
+    /**
+     * V52: 查询某个 outcome 的所有参与者
+     */
+    private List<OutcomeParticipant> loadParticipants(Integer outcomeId) {
+        OutcomeParticipantExample example = new OutcomeParticipantExample();
+        example.createCriteria().andOutcomeIdEqualTo(outcomeId);
+        return outcomeParticipantMapper.selectByExample(example);
     }
 
     @Override
@@ -507,6 +539,8 @@ public class OutcomeServiceImpl implements OutcomeService {
             throw new IllegalArgumentException("只能查看自己创建的记录");
         }
 
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(Collections.singletonList(outcome), true);
+
         RecentOutcomeItem item = new RecentOutcomeItem();
         item.setId(outcome.getId());
         item.setAmount(outcome.getAmount());
@@ -518,21 +552,14 @@ public class OutcomeServiceImpl implements OutcomeService {
         // 获取分类
         if (outcome.getStyleId() != null && outcome.getStyleId() > 0) {
             item.setStyleId(outcome.getStyleId());
-            PayStyle style = payStyleMapper.selectByPrimaryKey(outcome.getStyleId());
-            item.setStyleName(style != null ? style.getStyleName() : "未分类");
-        } else {
-            item.setStyleName("未分类");
         }
+        item.setStyleName(memo.styleName(outcome.getStyleId()));
 
         // 获取参与者
-        OutcomeParticipantExample pExample = new OutcomeParticipantExample();
-        pExample.createCriteria().andOutcomeIdEqualTo(outcome.getId());
-        List<OutcomeParticipant> participants = outcomeParticipantMapper.selectByExample(pExample);
-
         List<String> names = new ArrayList<>();
         List<Integer> participantIds = new ArrayList<>();
-        for (OutcomeParticipant p : participants) {
-            User u = userMapper.selectByPrimaryKey(p.getUserId());
+        for (OutcomeParticipant p : memo.participants(outcome.getId())) {
+            User u = memo.user(p.getUserId());
             if (u != null) {
                 names.add(u.getNickname());
                 participantIds.add(u.getId());
@@ -544,7 +571,7 @@ public class OutcomeServiceImpl implements OutcomeService {
         // 活动信息
         if (outcome.getActivityId() != null && outcome.getActivityId() > 0) {
             item.setActivityId(outcome.getActivityId());
-            Activity activity = activityMapper.selectById(outcome.getActivityId());
+            Activity activity = memo.activity(outcome.getActivityId());
             if (activity != null) {
                 item.setActivityName(activity.getName());
             }
@@ -559,8 +586,10 @@ public class OutcomeServiceImpl implements OutcomeService {
     }
 
     @Override
+    @Transactional
     public void updateOutcome(Integer outcomeId, Integer userId, OutcomeCreateRequest req) {
-        Outcome outcome = outcomeMapper.selectByPrimaryKey(outcomeId);
+        // V52: 加行锁读取，并发的修改 / 删除在此串行，旧值的撤销不会重复执行
+        Outcome outcome = outcomeMapper.selectByPrimaryKeyForUpdate(outcomeId);
 
         if (outcome == null || outcome.getDeletedFlag() == 1) {
             throw new IllegalArgumentException("记录不存在");
@@ -578,6 +607,14 @@ public class OutcomeServiceImpl implements OutcomeService {
             throw new IllegalArgumentException("只能修改1天内的记录");
         }
 
+        // 获取参与者，并在修改金额前撤销旧金额对欠款账本的影响（V52）
+        List<OutcomeParticipant> participants = loadParticipants(outcomeId);
+        debtLedgerService.reverseOutcome(outcome, participants);
+        // V61: 金额 / 分类变化同样影响月度支出和每日汇总，先撤销旧值
+        monthlySpendingService.reverseOutcome(outcome, participants);
+        dailySpendService.reverseOutcome(outcome, participants);
+        userTimelineService.reverseOutcome(outcome, participants);
+
         // 更新金额
         if (req.getAmount() != null && req.getAmount() > 0) {
             outcome.setAmount(req.getAmount());
@@ -592,64 +629,98 @@ public class OutcomeServiceImpl implements OutcomeService {
         outcome.setComment(req.getComment());
 
         // 重新计算人均金额
-        // 获取参与者数量
-        OutcomeParticipantExample pExample = new OutcomeParticipantExample();
-        pExample.createCriteria().andOutcomeIdEqualTo(outcomeId);
-        List<OutcomeParticipant> participants = outcomeParticipantMapper.selectByExample(pExample);
-
         int totalShares = outcome.getTotalShares() != null ? outcome.getTotalShares() : participants.size();
         if (totalShares > 0) {
             long perAmount = (long) Math.ceil((double) outcome.getAmount() / totalShares);
             outcome.setPerAmount(perAmount);
         }
 
-        outcomeMapper.updateByPrimaryKeySelective(outcome);
+        // 只写本次修改的列：不带 deleted_flag 等读取时的旧值，避免把已删除的账单写回
+        Outcome update = new Outcome();
+        update.setId(outcomeId);
+        update.setAmount(outcome.getAmount());
+        update.setStyleId(outcome.getStyleId());
+        update.setComment(outcome.getComment());
+        update.setPerAmount(outcome.getPerAmount());
+        outcomeMapper.updateByPrimaryKeySelective(update);
+
+        // V52: 按新金额重新计入欠款账本
+        debtLedgerService.applyOutcome(outcome, participants);
+        monthlySpendingService.applyOutcome(outcome, participants);
+        dailySpendService.applyOutcome(outcome, participants);
+        userTimelineService.applyOutcome(outcome, participants);
+        changeEventPublisher.outcomeChanged(ChangeEventPublisher.OUTCOME_UPDATED, outcome, participants, userId);
     }
 
     @Override
     public List<RecentOutcomeItem> searchOutcomes(Integer userId, String keyword,
             java.time.LocalDate startDate, java.time.LocalDate endDate,
             Integer styleId, Integer limit, Integer offset) {
+        // V72: 条件、排序与 LIMIT / OFFSET 都下推到 SQL，不再全量加载后内存切片
+        SearchQuery q = new SearchQuery(keyword, startDate, endDate, styleId);
+        List<Outcome> outcomes = outcomeMapper.searchByPayer(userId, q.phrase, q.likePattern,
+                q.rangeStart, q.rangeEnd, q.styleId, null, null, offset, searchLimit(limit));
+        return toSearchItems(outcomes);
+    }
 
-        OutcomeExample example = new OutcomeExample();
-        OutcomeExample.Criteria criteria = example.createCriteria()
-                .andPayerUseridEqualTo(userId)
-                .andDeletedFlagEqualTo((byte) 0);
-
-        // 关键词搜索（备注）
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            criteria.andCommentLike("%" + keyword.trim() + "%");
+    @Override
+    public Map<String, Object> searchOutcomesPage(Integer userId, String keyword,
+            java.time.LocalDate startDate, java.time.LocalDate endDate,
+            Integer styleId, Integer limit, String cursor) {
+        SearchQuery q = new SearchQuery(keyword, startDate, endDate, styleId);
+        LocalDateTime cursorTime = null;
+        Integer cursorId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), java.nio.charset.StandardCharsets.UTF_8);
+                int sep = decoded.lastIndexOf('_');
+                cursorTime = LocalDateTime.parse(decoded.substring(0, sep));
+                cursorId = Integer.valueOf(decoded.substring(sep + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
         }
 
-        // 日期范围
-        if (startDate != null) {
-            criteria.andPayDatetimeGreaterThanOrEqualTo(startDate.atStartOfDay());
-        }
-        if (endDate != null) {
-            criteria.andPayDatetimeLessThan(endDate.plusDays(1).atStartOfDay());
+        // 多查一条用于判断 hasMore
+        int pageSize = searchLimit(limit);
+        List<Outcome> outcomes = outcomeMapper.searchByPayer(userId, q.phrase, q.likePattern,
+                q.rangeStart, q.rangeEnd, q.styleId, cursorTime, cursorId, null, pageSize + 1);
+        boolean hasMore = outcomes.size() > pageSize;
+        if (hasMore) {
+            outcomes = outcomes.subList(0, pageSize);
         }
 
-        // 分类筛选
-        if (styleId != null && styleId > 0) {
-            criteria.andStyleIdEqualTo(styleId);
+        String nextCursor = null;
+        if (hasMore) {
+            Outcome last = outcomes.get(outcomes.size() - 1);
+            String raw = last.getPayDatetime() + "_" + last.getId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(raw.getBytes(java.nio.charset.StandardCharsets.UTF_8));
         }
 
-        example.setOrderByClause("pay_datetime DESC");
-
-        List<Outcome> outcomes = outcomeMapper.selectByExample(example);
+        Map<String, Object> result = new HashMap<>();
+        result.put("items", toSearchItems(outcomes));
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", nextCursor);
+        return result;
+    }
 
-        // 手动分页（如果mapper不支持limit/offset）
-        int start = offset != null ? offset : 0;
-        int end = Math.min(start + (limit != null ? limit : 20), outcomes.size());
+    @Override
+    public Integer countSearchOutcomes(Integer userId, String keyword,
+            java.time.LocalDate startDate, java.time.LocalDate endDate, Integer styleId) {
+        SearchQuery q = new SearchQuery(keyword, startDate, endDate, styleId);
+        return outcomeMapper.countSearchByPayer(userId, q.phrase, q.likePattern, q.rangeStart, q.rangeEnd, q.styleId);
+    }
 
-        if (start >= outcomes.size()) {
-            return new ArrayList<>();
-        }
+    private static int searchLimit(Integer limit) {
+        return limit == null || limit <= 0 ? 20 : Math.min(limit, SEARCH_MAX_LIMIT);
+    }
 
-        List<Outcome> limited = outcomes.subList(start, end);
+    private List<RecentOutcomeItem> toSearchItems(List<Outcome> outcomes) {
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(outcomes, true);
 
         List<RecentOutcomeItem> result = new ArrayList<>();
-        for (Outcome o : limited) {
+        for (Outcome o : outcomes) {
             RecentOutcomeItem item = new RecentOutcomeItem();
             item.setId(o.getId());
             item.setAmount(o.getAmount());
@@ -663,7 +734,7 @@ public class OutcomeServiceImpl implements OutcomeService {
                 item.setStyleName("还款");
                 if (o.getTargetUserid() != null && o.getTargetUserid() > 0) {
                     item.setTargetUserId(o.getTargetUserid());
-                    User targetUser = userMapper.selectByPrimaryKey(o.getTargetUserid());
+                    User targetUser = memo.user(o.getTargetUserid());
                     if (targetUser != null) {
                         item.setTargetUserName(targetUser.getNickname());
                     }
@@ -671,21 +742,14 @@ public class OutcomeServiceImpl implements OutcomeService {
             } else {
                 if (o.getStyleId() != null && o.getStyleId() > 0) {
                     item.setStyleId(o.getStyleId());
-                    PayStyle style = payStyleMapper.selectByPrimaryKey(o.getStyleId());
-                    item.setStyleName(style != null ? style.getStyleName() : "未分类");
-                } else {
-                    item.setStyleName("未分类");
                 }
+                item.setStyleName(memo.styleName(o.getStyleId()));
             }
 
             // 获取参与者名称
-            OutcomeParticipantExample pExample = new OutcomeParticipantExample();
-            pExample.createCriteria().andOutcomeIdEqualTo(o.getId());
-            List<OutcomeParticipant> participants = outcomeParticipantMapper.selectByExample(pExample);
-
             List<String> names = new ArrayList<>();
-            for (OutcomeParticipant p : participants) {
-                User u = userMapper.selectByPrimaryKey(p.getUserId());
+            for (OutcomeParticipant p : memo.participants(o.getId())) {
+                User u = memo.user(p.getUserId());
                 if (u != null) {
                     names.add(u.getNickname());
                 }
@@ -695,7 +759,7 @@ public class OutcomeServiceImpl implements OutcomeService {
             // 活动信息
             if (o.getActivityId() != null && o.getActivityId() > 0) {
                 item.setActivityId(o.getActivityId());
-                Activity activity = activityMapper.selectById(o.getActivityId());
+                Activity activity = memo.activity(o.getActivityId());
                 if (activity != null) {
                     item.setActivityName(activity.getName());
                 }
@@ -712,31 +776,35 @@ public class OutcomeServiceImpl implements OutcomeService {
         return result;
     }
 
-    @Override
-    public Integer countSearchOutcomes(Integer userId, String keyword,
-            java.time.LocalDate startDate, java.time.LocalDate endDate, Integer styleId) {
-
-        OutcomeExample example = new OutcomeExample();
-        OutcomeExample.Criteria criteria = example.createCriteria()
-                .andPayerUseridEqualTo(userId)
-                .andDeletedFlagEqualTo((byte) 0);
-
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            criteria.andCommentLike("%" + keyword.trim() + "%");
-        }
-
-        if (startDate != null) {
-            criteria.andPayDatetimeGreaterThanOrEqualTo(startDate.atStartOfDay());
-        }
-        if (endDate != null) {
-            criteria.andPayDatetimeLessThan(endDate.plusDays(1).atStartOfDay());
-        }
-
-        if (styleId != null && styleId > 0) {
-            criteria.andStyleIdEqualTo(styleId);
+    /**
+     * V72: 搜索条件
+     * 关键词不短于 ngram 分词长度时走备注 FULLTEXT 索引（短语匹配，各 ngram 需相邻，等价于子串匹配），
+     * 否则回退为 LIKE（只在该用户的账单范围内过滤）
+     */
+    private static final class SearchQuery {
+        private final String phrase;
+        private final String likePattern;
+        private final LocalDateTime rangeStart;
+        private final LocalDateTime rangeEnd;
+        private final Integer styleId;
+
+        private SearchQuery(String keyword, java.time.LocalDate startDate,
+                            java.time.LocalDate endDate, Integer styleId) {
+            String kw = keyword != null ? keyword.trim().replace("\"", " ").trim() : "";
+            if (kw.isEmpty()) {
+                this.phrase = null;
+                this.likePattern = null;
+            } else if (kw.codePointCount(0, kw.length()) >= NGRAM_TOKEN_SIZE) {
+                this.phrase = "\"" + kw + "\"";
+                this.likePattern = null;
+            } else {
+                this.phrase = null;
+                this.likePattern = "%" + kw.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            }
+            this.rangeStart = startDate != null ? startDate.atStartOfDay() : null;
+            this.rangeEnd = endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
+            this.styleId = styleId != null && styleId > 0 ? styleId : null;
         }
-
-        return (int) outcomeMapper.countByExample(example);
     }
 
     @Override
@@ -770,34 +838,30 @@ public class OutcomeServiceImpl implements OutcomeService {
             outcomes = outcomes.subList(0, limit);
         }
 
-        // 转换为 DTO
+        // 转换为 DTO（V59: 整页引用数据一次预取）
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(outcomes, true);
         List<RecentOutcomeItem> items = new ArrayList<>();
         for (Outcome o : outcomes) {
             boolean isIncome = o.getRepayFlag() == (byte) 2 && o.getTargetUserid() != null && o.getTargetUserid().equals(userId);
             boolean isShared = !isIncome && o.getRepayFlag() == (byte) 1 && o.getPayerUserid() != null && !o.getPayerUserid().equals(userId);
             if (isShared) {
-                RecentOutcomeItem item = buildSharedOutcomeItem(o, userId);
+                RecentOutcomeItem item = buildSharedOutcomeItem(o, userId, memo);
                 items.add(item);
             } else {
-                RecentOutcomeItem item = buildRecentOutcomeItem(o, userId, isIncome);
+                RecentOutcomeItem item = buildRecentOutcomeItem(o, userId, isIncome, memo);
                 items.add(item);
             }
         }
 
-        // 月度总支出（按月计算，即使在按天筛选时也用月范围）
+        // 月度总支出（按月计算，即使在按天筛选时也用月范围；V73: 按 (用户, 月) 缓存，该月账单写入后失效）
         Long monthlyTotal = 0L;
         if (month != null && !month.isEmpty()) {
             YearMonth ym = YearMonth.parse(month, DateTimeFormatter.ofPattern("yyyy-MM"));
-            LocalDateTime monthStart = ym.atDay(1).atStartOfDay();
-            LocalDateTime monthEnd = ym.plusMonths(1).atDay(1).atStartOfDay();
-            monthlyTotal = outcomeMapper.sumMonthlyExpense(userId, monthStart, monthEnd);
+            monthlyTotal = userTimelineService.getMonthlyExpense(userId, ym);
         } else if (day != null && !day.isEmpty()) {
             // 按天筛选时，也计算该月的月度总支出
             java.time.LocalDate dayDate = java.time.LocalDate.parse(day);
-            YearMonth ym = YearMonth.from(dayDate);
-            LocalDateTime monthStart = ym.atDay(1).atStartOfDay();
-            LocalDateTime monthEnd = ym.plusMonths(1).atDay(1).atStartOfDay();
-            monthlyTotal = outcomeMapper.sumMonthlyExpense(userId, monthStart, monthEnd);
+            monthlyTotal = userTimelineService.getMonthlyExpense(userId, YearMonth.from(dayDate));
         }
 
         Map<String, Object> result = new HashMap<>();
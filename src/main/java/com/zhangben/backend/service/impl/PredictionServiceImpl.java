@@ -8,25 +8,55 @@ import com.zhangben.backend.model.UserMonthlySpending;
 import com.zhangben.backend.service.PredictionEngine;
 import com.zhangben.backend.service.PredictionEngine.PredictionResult;
 import com.zhangben.backend.service.PredictionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class PredictionServiceImpl implements PredictionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PredictionServiceImpl.class);
+
     @Autowired
     private PredictionMapper predictionMapper;
 
     @Autowired
     private PredictionEngine predictionEngine;
 
+    /** V75: 批量重训每块用户数（一块一次读、一次批量写） */
+    @Value("${prediction.retrain.chunk-size:500}")
+    private int retrainChunkSize;
+
+    /** V75: 批量重训同时访问数据库的分块数，应明显小于 downstream.limit.db.permits，给在线请求留出许可 */
+    @Value("${prediction.retrain.db-concurrency:3}")
+    private int retrainDbConcurrency;
+
     private static final DateTimeFormatter MONTH_FMT = DateTimeFormatter.ofPattern("yyyy-MM");
 
+    /** 连续记账满 3 个月解锁预测 */
+    private static final int UNLOCK_MONTHS = 3;
+
+    private final AtomicBoolean retraining = new AtomicBoolean();
+
+    /** V75: 本节点上一次批量重训的统计 */
+    private volatile Map<String, Object> lastRetrain = Collections.emptyMap();
+
     // Emotional messages by stage and language
     private static final Map<String, Map<Integer, String>> EMOTIONAL_MESSAGES = new HashMap<>();
     static {
@@ -61,14 +91,7 @@ public class PredictionServiceImpl implements PredictionService {
 
     @Override
     public PredictionResponse getPrediction(Integer userId, String language) {
-        // 1. Refresh materialized data
-        List<UserMonthlySpending> aggregated = predictionMapper.aggregateMonthlySpending(userId);
-        for (UserMonthlySpending record : aggregated) {
-            record.setUserId(userId);
-            predictionMapper.upsertMonthlySpending(record);
-        }
-
-        // 2. Load all monthly spending records
+        // 1~2. Load precomputed monthly spending (V61: maintained incrementally by MonthlySpendingService)
         List<UserMonthlySpending> monthlyRecords = predictionMapper.selectMonthlySpending(userId);
 
         // 3. Calculate consecutive months from current month backwards
@@ -77,13 +100,13 @@ public class PredictionServiceImpl implements PredictionService {
         // 4. Determine stage
         int stage = Math.min(consecutiveMonths, 4);
         if (stage < 1) stage = 1;
-        boolean unlocked = consecutiveMonths >= 3;
+        boolean unlocked = consecutiveMonths >= UNLOCK_MONTHS;
 
         // 5. Build response
         PredictionResponse response = new PredictionResponse();
         response.setConsecutiveMonths(consecutiveMonths);
         response.setUnlocked(unlocked);
-        response.setUnlockProgress(Math.min(consecutiveMonths / 3.0, 1.0));
+        response.setUnlockProgress(Math.min(consecutiveMonths / (double) UNLOCK_MONTHS, 1.0));
 
         // Emotional message
         Map<Integer, String> langMessages = EMOTIONAL_MESSAGES.getOrDefault(language,
@@ -100,40 +123,32 @@ public class PredictionServiceImpl implements PredictionService {
 
         if (unlocked && !monthlyRecords.isEmpty()) {
             // 6. Category-aware prediction: Sum(Fixed) + Kalman_Predict(Variable)
-            List<UserMonthlySpending> fixedRecords = predictionMapper.aggregateFixedSpending(userId);
-            List<UserMonthlySpending> variableRecords = predictionMapper.aggregateVariableSpending(userId);
-
-            // Variable spending: use Kalman filter
-            List<Long> variableValues = variableRecords.stream()
-                    .map(UserMonthlySpending::getTotalSpending)
-                    .collect(Collectors.toList());
             String lastMonth = monthlyRecords.get(monthlyRecords.size() - 1).getMonth();
 
-            KalmanFilterState existingState = predictionMapper.selectByUserId(userId);
-
-            KalmanFilterState updatedState;
-            // Train Kalman on variable spending only (if any), otherwise total
-            List<Long> kalmanInput = variableValues.isEmpty()
-                    ? monthlyRecords.stream().map(UserMonthlySpending::getTotalSpending).collect(Collectors.toList())
-                    : variableValues;
-
-            if (existingState == null) {
-                updatedState = predictionEngine.initializeAndTrain(
-                        userId, kalmanInput, lastMonth, consecutiveMonths);
-                predictionMapper.insertKalmanState(updatedState);
-            } else {
-                updatedState = predictionEngine.initializeAndTrain(
-                        userId, kalmanInput, lastMonth, consecutiveMonths);
-                updatedState.setUserId(userId);
-                predictionMapper.updateByUserId(updatedState);
+            // V61: Kalman is trained on closed months only and retrained once per newly closed month
+            List<UserMonthlySpending> closedRecords = closedRecords(monthlyRecords);
+            String lastClosedMonth = closedRecords.get(closedRecords.size() - 1).getMonth();
+
+            // V75: 夜间批量重训后这里只读已存状态；批次尚未覆盖的用户（如当天新解锁）仍按需训练，
+            // 按 user_id upsert，与批量重训同时写同一用户时不会唯一键冲突
+            KalmanFilterState updatedState = predictionMapper.selectByUserId(userId);
+            KalmanFilterState retrained = trainIfStale(userId, closedRecords, updatedState, consecutiveMonths);
+            if (retrained != null) {
+                predictionMapper.batchUpsertKalmanState(List.of(retrained));
+                updatedState = retrained;
             }
 
-            // Predict variable portion 1~3 months ahead
-            List<PredictionResult> variablePredictions = predictionEngine.predict(updatedState, 3);
+            // Predict variable portion 1~3 months after lastMonth; the state ends at lastClosedMonth,
+            // so skip the steps in between (the in-progress month when it already has data)
+            int skip = (int) Math.max(0, ChronoUnit.MONTHS.between(
+                    YearMonth.parse(lastClosedMonth, MONTH_FMT), YearMonth.parse(lastMonth, MONTH_FMT)));
+            List<PredictionResult> variablePredictions = predictionEngine.predict(updatedState, 3 + skip)
+                    .subList(skip, 3 + skip);
 
             // Fixed portion: use median-based prediction (near-zero noise)
-            List<Long> fixedValues = fixedRecords.stream()
-                    .map(UserMonthlySpending::getTotalSpending)
+            List<Long> fixedValues = monthlyRecords.stream()
+                    .filter(r -> r.getFixedCount() != null && r.getFixedCount() > 0)
+                    .map(UserMonthlySpending::getFixedSpending)
                     .collect(Collectors.toList());
             PredictionResult fixedPrediction = predictionEngine.predictFixed(fixedValues);
 
@@ -168,6 +183,229 @@ public class PredictionServiceImpl implements PredictionService {
         return response;
     }
 
+    /**
+     * V75: 批量重训
+     * 按 user_id 游标分块读取近两个月有支出的用户，每块在一个虚拟线程上：一次读出该块全部月度支出与现有状态，
+     * 内存中逐个训练（纯计算），再一次批量 upsert。数据库访问由 db-concurrency 个许可限制，
+     * 在途分块不超过许可数的两倍，游标不会远远跑在写入前面。
+     * 已训练到最近一个已结束月份的用户直接跳过，因此中断后重跑只需重新读取、不会重复训练。
+     */
+    @Override
+    public Map<String, Object> retrainAll(BiConsumer<Integer, Integer> onChunk) {
+        if (!retraining.compareAndSet(false, true)) {
+            throw new IllegalStateException("prediction retrain is already running");
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long start = System.nanoTime();
+            // 连续月数从本月或上月起算，两个月都没有支出的用户不会解锁
+            String sinceMonth = YearMonth.now().minusMonths(1).format(MONTH_FMT);
+            int dbConcurrency = Math.max(1, retrainDbConcurrency);
+            Semaphore dbPermits = new Semaphore(dbConcurrency);
+            Semaphore inFlight = new Semaphore(dbConcurrency * 2);
+            RetrainCounters counters = new RetrainCounters();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                int cursor = 0;
+                while (true) {
+                    int afterId = cursor;
+                    List<Integer> userIds = withPermit(dbPermits,
+                            () -> predictionMapper.selectActiveUserIds(sinceMonth, afterId, retrainChunkSize));
+                    if (userIds.isEmpty()) {
+                        break;
+                    }
+                    cursor = userIds.get(userIds.size() - 1);
+                    counters.scanned.add(userIds.size());
+                    onChunk.accept(cursor, userIds.size());
+
+                    inFlight.acquireUninterruptibly();
+                    executor.submit(() -> {
+                        try {
+                            retrainChunk(userIds, dbPermits, counters);
+                        } catch (Exception e) {
+                            counters.failed.add(userIds.size());
+                            logger.warn("【预测重训】用户 {}~{} 分块失败: {}",
+                                    userIds.get(0), userIds.get(userIds.size() - 1), e.getMessage());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    if (userIds.size() < retrainChunkSize) {
+                        break;
+                    }
+                }
+            }
+
+            // V76: 批次没有覆盖到的旧 JSON 行（不活跃用户）一并改写为二进制编码
+            int reencoded = upgradeLegacyEncodings(dbPermits);
+
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            long scanned = counters.scanned.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("startedAt", startedAt);
+            stats.put("finishedAt", LocalDateTime.now());
+            stats.put("durationMs", durationMs);
+            stats.put("scanned", scanned);
+            stats.put("trained", counters.trained.sum());
+            stats.put("upToDate", counters.upToDate.sum());
+            stats.put("locked", counters.locked.sum());
+            stats.put("failed", counters.failed.sum());
+            stats.put("reencoded", reencoded);
+            stats.put("usersPerSec", durationMs > 0 ? Math.round(scanned * 10000.0 / durationMs) / 10.0 : scanned);
+            lastRetrain = stats;
+            return stats;
+        } finally {
+            retraining.set(false);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getRetrainStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", retraining.get());
+        result.put("lastRun", lastRetrain);
+        return result;
+    }
+
+    /**
+     * 重训一块用户；单个用户训练失败只计入 failed，读写失败时整块计入 failed（由调用方统计）
+     */
+    private void retrainChunk(List<Integer> userIds, Semaphore dbPermits, RetrainCounters counters) {
+        Map<Integer, List<UserMonthlySpending>> recordsByUser = new HashMap<>();
+        Map<Integer, KalmanFilterState> stateByUser = new HashMap<>();
+        withPermit(dbPermits, () -> {
+            for (UserMonthlySpending r : predictionMapper.selectMonthlySpendingByUsers(userIds)) {
+                recordsByUser.computeIfAbsent(r.getUserId(), k -> new ArrayList<>()).add(r);
+            }
+            for (KalmanFilterState s : predictionMapper.selectByUserIds(userIds)) {
+                stateByUser.put(s.getUserId(), s);
+            }
+            return null;
+        });
+
+        List<KalmanFilterState> updates = new ArrayList<>();
+        int upToDate = 0;
+        int locked = 0;
+        int failed = 0;
+        for (Integer userId : userIds) {
+            try {
+                List<UserMonthlySpending> records = recordsByUser.getOrDefault(userId, Collections.emptyList());
+                int consecutiveMonths = calculateConsecutiveMonths(records);
+                if (consecutiveMonths < UNLOCK_MONTHS) {
+                    locked++;
+                    continue;
+                }
+                KalmanFilterState trained = trainIfStale(
+                        userId, closedRecords(records), stateByUser.get(userId), consecutiveMonths);
+                if (trained == null) {
+                    upToDate++;
+                } else {
+                    updates.add(trained);
+                }
+            } catch (RuntimeException e) {
+                failed++;
+                logger.warn("【预测重训】用户 {} 训练失败: {}", userId, e.getMessage());
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            withPermit(dbPermits, () -> predictionMapper.batchUpsertKalmanState(updates));
+        }
+        counters.trained.add(updates.size());
+        counters.upToDate.add(upToDate);
+        counters.locked.add(locked);
+        counters.failed.add(failed);
+    }
+
+    /**
+     * V76: 把仍为 JSON 编码的卡尔曼状态逐批改写为二进制编码（数值不变），返回改写行数
+     */
+    private int upgradeLegacyEncodings(Semaphore dbPermits) {
+        int total = 0;
+        int cursor = 0;
+        while (true) {
+            int afterId = cursor;
+            List<KalmanFilterState> rows = withPermit(dbPermits,
+                    () -> predictionMapper.selectLegacyEncodedStates(afterId, retrainChunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            cursor = rows.get(rows.size() - 1).getId();
+
+            List<KalmanFilterState> upgraded = new ArrayList<>(rows.size());
+            for (KalmanFilterState row : rows) {
+                try {
+                    if (predictionEngine.upgradeEncoding(row)) {
+                        upgraded.add(row);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("【预测重训】用户 {} 的旧状态无法解析，跳过: {}", row.getUserId(), e.getMessage());
+                }
+            }
+            if (!upgraded.isEmpty()) {
+                withPermit(dbPermits, () -> predictionMapper.batchUpsertKalmanState(upgraded));
+                total += upgraded.size();
+            }
+            if (rows.size() < retrainChunkSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("【预测重训】{} 行卡尔曼状态已由 JSON 改写为二进制编码", total);
+        }
+        return total;
+    }
+
+    /**
+     * 训练用的已结束月份（不含本月）；没有已结束月份时退回全部月份
+     */
+    private List<UserMonthlySpending> closedRecords(List<UserMonthlySpending> monthlyRecords) {
+        String currentMonth = YearMonth.now().format(MONTH_FMT);
+        List<UserMonthlySpending> closedRecords = monthlyRecords.stream()
+                .filter(r -> r.getMonth().compareTo(currentMonth) < 0)
+                .collect(Collectors.toList());
+        return closedRecords.isEmpty() ? monthlyRecords : closedRecords;
+    }
+
+    /**
+     * 现有状态未覆盖最近一个已结束月份时重新训练并返回新状态（未写库），已是最新时返回 null
+     */
+    private KalmanFilterState trainIfStale(Integer userId, List<UserMonthlySpending> closedRecords,
+                                           KalmanFilterState existing, int consecutiveMonths) {
+        String lastClosedMonth = closedRecords.get(closedRecords.size() - 1).getMonth();
+        if (existing != null && lastClosedMonth.equals(existing.getLastObservationMonth())) {
+            return null;
+        }
+
+        // Train Kalman on variable spending only (if any), otherwise total
+        List<Long> variableValues = closedRecords.stream()
+                .filter(r -> r.getVariableCount() != null && r.getVariableCount() > 0)
+                .map(UserMonthlySpending::getVariableSpending)
+                .collect(Collectors.toList());
+        List<Long> kalmanInput = variableValues.isEmpty()
+                ? closedRecords.stream().map(UserMonthlySpending::getTotalSpending).collect(Collectors.toList())
+                : variableValues;
+
+        return predictionEngine.initializeAndTrain(userId, kalmanInput, lastClosedMonth, consecutiveMonths);
+    }
+
+    private static <T> T withPermit(Semaphore permits, Supplier<T> action) {
+        permits.acquireUninterruptibly();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static final class RetrainCounters {
+        private final LongAdder scanned = new LongAdder();
+        private final LongAdder trained = new LongAdder();
+        private final LongAdder upToDate = new LongAdder();
+        private final LongAdder locked = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+
     /**
      * Calculate consecutive months with data, counting backwards from the current or most recent month
      */
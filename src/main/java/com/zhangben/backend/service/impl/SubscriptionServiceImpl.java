@@ -2,10 +2,12 @@ package com.zhangben.backend.service.impl;
 
 import com.zhangben.backend.dto.SubscriptionInfoResponse;
 import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.model.EmailOutboxMessage;
+import com.zhangben.backend.model.Notification;
 import com.zhangben.backend.model.User;
 import com.zhangben.backend.service.NotificationService;
 import com.zhangben.backend.service.SubscriptionService;
-import com.zhangben.backend.service.email.EmailProviderManager;
+import com.zhangben.backend.service.email.EmailOutbox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +15,12 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * V42: 订阅服务实现
@@ -33,7 +38,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     private NotificationService notificationService;
 
     @Autowired
-    private EmailProviderManager emailProviderManager;
+    private EmailOutbox emailOutbox;
 
     @Override
     public SubscriptionInfoResponse getSubscriptionInfo(Integer userId) {
@@ -109,44 +114,117 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         return userMapper.selectExpiringSubscriptions(now, expiryThreshold);
     }
 
+    @Override
+    public List<User> findExpiringSubscriptions(int daysBeforeExpiry, Integer afterId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return userMapper.selectExpiringSubscriptionsAfter(now, now.plusDays(daysBeforeExpiry), afterId, limit);
+    }
+
+    @Override
+    public int sendRenewalReminders(List<User> users, Executor executor) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 通知 / 邮件内容并发生成（不访问数据库），单个用户失败只跳过该用户
+        List<CompletableFuture<RenewalReminder>> futures = new ArrayList<>(users.size());
+        for (User user : users) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    int days = (int) ChronoUnit.DAYS.between(now, user.getSubscriptionExpiryDate());
+                    return new RenewalReminder(user.getId(), buildRenewalNotification(user, days),
+                        user.getEmail() != null ? buildRenewalEmail(user, days) : null);
+                } catch (Exception e) {
+                    logger.error("Failed to prepare renewal reminder for user {}: {}", user.getId(), e.getMessage());
+                    return null;
+                }
+            }, executor));
+        }
+
+        List<Integer> userIds = new ArrayList<>(users.size());
+        List<Notification> notifications = new ArrayList<>(users.size());
+        List<EmailOutboxMessage> emails = new ArrayList<>(users.size());
+        for (CompletableFuture<RenewalReminder> future : futures) {
+            RenewalReminder reminder = future.join();
+            if (reminder == null) {
+                continue;
+            }
+            userIds.add(reminder.userId);
+            notifications.add(reminder.notification);
+            if (reminder.email != null) {
+                emails.add(reminder.email);
+            }
+        }
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+
+        notificationService.createNotifications(notifications);
+        emailOutbox.enqueueAll(emails);
+        userMapper.markSubscriptionReminderSent(userIds);
+        return userIds.size();
+    }
+
     @Override
     public void sendRenewalReminder(User user, int daysBeforeExpiry) {
         // 发送站内通知
-        String title = String.format("您的 %s 会员即将到期", getTierDisplayName(user.getSubscriptionTier()));
-        String content = String.format("您的会员将在 %d 天后到期，请及时续费以继续享受服务。", daysBeforeExpiry);
-
+        Notification notification = buildRenewalNotification(user, daysBeforeExpiry);
         notificationService.createNotification(
-            user.getId(),
-            "SUBSCRIPTION_EXPIRY",
-            title,
-            content,
+            notification.getUserId(),
+            notification.getType(),
+            notification.getTitle(),
+            notification.getContent(),
             null,
             null
         );
 
-        // 异步发送邮件
-        sendRenewalEmailAsync(user, daysBeforeExpiry);
+        // V68: 邮件写入发件箱，由投递线程发送并重试
+        enqueueRenewalEmail(user, daysBeforeExpiry);
 
         logger.info("Sent renewal reminder to user {} ({} days before expiry)", user.getId(), daysBeforeExpiry);
     }
 
-    private void sendRenewalEmailAsync(User user, int daysBeforeExpiry) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                String language = user.getPreferredLanguage() != null ? user.getPreferredLanguage() : "zh-CN";
-                String subject = getEmailSubject(language, daysBeforeExpiry);
-                String htmlContent = buildRenewalEmailHtml(user, daysBeforeExpiry, language);
-
-                emailProviderManager.sendEmail(
-                    user.getEmail(),
-                    user.getNickname(),
-                    subject,
-                    htmlContent
-                );
-            } catch (Exception e) {
-                logger.error("Failed to send renewal email to user {}: {}", user.getId(), e.getMessage());
-            }
-        });
+    private void enqueueRenewalEmail(User user, int daysBeforeExpiry) {
+        try {
+            EmailOutboxMessage email = buildRenewalEmail(user, daysBeforeExpiry);
+            emailOutbox.enqueue(email.getToEmail(), email.getToName(), email.getSubject(), email.getHtmlContent());
+        } catch (Exception e) {
+            logger.error("Failed to enqueue renewal email for user {}: {}", user.getId(), e.getMessage());
+        }
+    }
+
+    private Notification buildRenewalNotification(User user, int daysBeforeExpiry) {
+        Notification notification = new Notification();
+        notification.setUserId(user.getId());
+        notification.setType("SUBSCRIPTION_EXPIRY");
+        notification.setTitle(String.format("您的 %s 会员即将到期", getTierDisplayName(user.getSubscriptionTier())));
+        notification.setContent(String.format("您的会员将在 %d 天后到期，请及时续费以继续享受服务。", daysBeforeExpiry));
+        notification.setIsRead((byte) 0);
+        notification.setCreatedAt(LocalDateTime.now());
+        return notification;
+    }
+
+    private EmailOutboxMessage buildRenewalEmail(User user, int daysBeforeExpiry) {
+        String language = user.getPreferredLanguage() != null ? user.getPreferredLanguage() : "zh-CN";
+        return EmailOutbox.message(
+            user.getEmail(),
+            user.getNickname(),
+            getEmailSubject(language, daysBeforeExpiry),
+            buildRenewalEmailHtml(user, daysBeforeExpiry, language)
+        );
+    }
+
+    /**
+     * V70: 单个用户已生成的提醒内容
+     */
+    private static final class RenewalReminder {
+        private final Integer userId;
+        private final Notification notification;
+        private final EmailOutboxMessage email;
+
+        private RenewalReminder(Integer userId, Notification notification, EmailOutboxMessage email) {
+            this.userId = userId;
+            this.notification = notification;
+            this.email = email;
+        }
     }
 
     private String getEmailSubject(String language, int daysBeforeExpiry) {
@@ -215,11 +293,8 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
     @Override
     public void markReminderSent(Integer userId) {
-        User user = userMapper.selectByPrimaryKey(userId);
-        if (user != null) {
-            user.setSubscriptionReminderSent((byte) 1);
-            userMapper.updateByPrimaryKeySelective(user);
-        }
+        // V70: 只更新标记列，不再先读整行再整行更新
+        userMapper.markSubscriptionReminderSent(Collections.singletonList(userId));
     }
 
     @Override
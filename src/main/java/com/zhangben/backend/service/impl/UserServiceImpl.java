@@ -6,10 +6,18 @@ import com.zhangben.backend.model.User;
 import com.zhangben.backend.model.UserExample;
 import com.zhangben.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -20,6 +28,23 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private BCryptPasswordEncoder encoder;
 
+    /** V71: MySQL ngram_token_size 默认值，短于它的关键词无法走 FULLTEXT */
+    private static final int NGRAM_TOKEN_SIZE = 2;
+
+    private static final int SEARCH_MAX_KEYWORD_LENGTH = 64;
+
+    /**
+     * 昵称前缀召回按索引顺序（字典序）截取，而非按长度排序；多取几倍作为候选片段，
+     * 再在内存中按匹配程度和昵称长度排序，避免短昵称排在字典序靠后时被截掉
+     */
+    private static final int PREFIX_SLICE_FACTOR = 4;
+
+    @Value("${user.search.default-limit:20}")
+    private int searchDefaultLimit;
+
+    @Value("${user.search.max-limit:50}")
+    private int searchMaxLimit;
+
     @Override
     public User findByEmail(String email) {
         UserExample example = new UserExample();
@@ -65,4 +90,76 @@ public class UserServiceImpl implements UserService {
     public boolean checkPassword(String raw, String encoded) {
         return encoder.matches(raw, encoded);
     }
+
+    /**
+     * V71: 各路召回都走索引并带 LIMIT（邮箱等值、昵称前缀范围扫描、FULLTEXT ngram、好友范围内 LIKE），
+     * 合并去重后在内存中排序截取，不再对 user 表做四个 LIKE '%kw%' 的全表扫描
+     */
+    @Override
+    public List<User> searchUsers(Integer currentUserId, String keyword, Integer limit, boolean friendsFirst) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        String kw = keyword.trim();
+        if (kw.length() > SEARCH_MAX_KEYWORD_LENGTH) {
+            kw = kw.substring(0, SEARCH_MAX_KEYWORD_LENGTH);
+        }
+        int topK = limit == null || limit <= 0 ? searchDefaultLimit : Math.min(limit, searchMaxLimit);
+        // 多取一个，结果中可能包含自己
+        int fetch = topK + 1;
+
+        Map<Integer, User> candidates = new LinkedHashMap<>();
+        Set<Integer> friendIds = new HashSet<>();
+
+        for (User u : userMapper.searchFavored(currentUserId, "%" + escapeLike(kw) + "%", fetch)) {
+            friendIds.add(u.getId());
+            candidates.putIfAbsent(u.getId(), u);
+        }
+        if (kw.indexOf('@') >= 0) {
+            for (User u : userMapper.searchByEmail(kw, fetch)) {
+                candidates.putIfAbsent(u.getId(), u);
+            }
+        }
+        for (User u : userMapper.searchByNicknamePrefix(escapeLike(kw), fetch * PREFIX_SLICE_FACTOR)) {
+            candidates.putIfAbsent(u.getId(), u);
+        }
+        // 短于 ngram 分词长度的关键词不会命中 FULLTEXT 索引，只做前缀和好友匹配
+        String phrase = kw.replace("\"", " ").trim();
+        if (phrase.codePointCount(0, phrase.length()) >= NGRAM_TOKEN_SIZE) {
+            for (User u : userMapper.searchByFulltext("\"" + phrase + "\"", fetch)) {
+                candidates.putIfAbsent(u.getId(), u);
+            }
+        }
+        candidates.remove(currentUserId);
+
+        String lower = kw.toLowerCase(Locale.ROOT);
+        List<User> ranked = new ArrayList<>(candidates.values());
+        ranked.sort(Comparator
+                .comparingInt((User u) -> friendsFirst && friendIds.contains(u.getId()) ? 0 : 1)
+                .thenComparingInt(u -> matchRank(u, lower))
+                .thenComparingInt(u -> u.getNickname() != null ? u.getNickname().length() : Integer.MAX_VALUE)
+                .thenComparingInt(User::getId));
+        return ranked.size() > topK ? new ArrayList<>(ranked.subList(0, topK)) : ranked;
+    }
+
+    /**
+     * 匹配程度，越小越靠前
+     */
+    private static int matchRank(User u, String lowerKeyword) {
+        if (u.getEmail() != null && u.getEmail().equalsIgnoreCase(lowerKeyword)) {
+            return 0;
+        }
+        String nickname = u.getNickname() != null ? u.getNickname().toLowerCase(Locale.ROOT) : "";
+        if (nickname.equals(lowerKeyword)) {
+            return 1;
+        }
+        if (nickname.startsWith(lowerKeyword)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
\ No newline at end of file
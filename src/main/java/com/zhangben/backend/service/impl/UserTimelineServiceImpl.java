@@ -0,0 +1,95 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.mapper.OutcomeMapper;
+import com.zhangben.backend.mapper.UserTimelineMapper;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.model.UserTimeline;
+import com.zhangben.backend.service.UserTimelineService;
+import com.zhangben.backend.service.cache.MonthlyExpenseCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * V73: 用户账单时间线服务实现
+ * 写入方法加入调用方事务，保证账单与时间线同时提交或回滚；
+ * 修改账单时先 reverse 再 apply，付款时间 / 参与者变化都会体现在时间线上。
+ */
+@Service
+public class UserTimelineServiceImpl implements UserTimelineService {
+
+    @Autowired
+    private UserTimelineMapper userTimelineMapper;
+
+    @Autowired
+    private OutcomeMapper outcomeMapper;
+
+    @Autowired
+    private MonthlyExpenseCache monthlyExpenseCache;
+
+    @Override
+    @Transactional
+    public void applyOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        if (outcome.getId() == null || outcome.getPayDatetime() == null
+                || (outcome.getDeletedFlag() != null && outcome.getDeletedFlag() == 1)) {
+            return;
+        }
+
+        // 同一用户取优先级最高（数值最小）的身份
+        Map<Integer, Byte> roles = new LinkedHashMap<>();
+        addRole(roles, outcome.getPayerUserid(), UserTimeline.ROLE_PAYER);
+        boolean repayment = outcome.getRepayFlag() != null && outcome.getRepayFlag() == 2;
+        if (repayment) {
+            addRole(roles, outcome.getTargetUserid(), UserTimeline.ROLE_REPAY_TARGET);
+        } else if (participants != null) {
+            for (OutcomeParticipant p : participants) {
+                addRole(roles, p.getUserId(), UserTimeline.ROLE_PARTICIPANT);
+            }
+        }
+        if (roles.isEmpty()) {
+            return;
+        }
+
+        List<UserTimeline> rows = new ArrayList<>(roles.size());
+        for (Map.Entry<Integer, Byte> e : roles.entrySet()) {
+            rows.add(new UserTimeline(e.getKey(), outcome.getId(), e.getValue(), outcome.getPayDatetime()));
+        }
+        userTimelineMapper.batchUpsert(rows);
+        invalidateMonthlyExpense(outcome);
+    }
+
+    @Override
+    @Transactional
+    public void reverseOutcome(Outcome outcome, List<OutcomeParticipant> participants) {
+        if (outcome.getId() == null) {
+            return;
+        }
+        userTimelineMapper.deleteByOutcome(outcome.getId());
+        invalidateMonthlyExpense(outcome);
+    }
+
+    @Override
+    public long getMonthlyExpense(Integer userId, YearMonth month) {
+        return monthlyExpenseCache.get(userId, month, () -> outcomeMapper.sumMonthlyExpense(userId,
+                month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay()));
+    }
+
+    private static void addRole(Map<Integer, Byte> roles, Integer userId, byte role) {
+        if (userId != null && userId > 0) {
+            roles.merge(userId, role, (a, b) -> a <= b ? a : b);
+        }
+    }
+
+    /**
+     * 月度总支出只统计本人付款的消费（repay_flag = 1）
+     */
+    private void invalidateMonthlyExpense(Outcome outcome) {
+        if (outcome.getRepayFlag() != null && outcome.getRepayFlag() == 1 && outcome.getPayDatetime() != null) {
+            monthlyExpenseCache.invalidate(outcome.getPayerUserid(), YearMonth.from(outcome.getPayDatetime()));
+        }
+    }
+}
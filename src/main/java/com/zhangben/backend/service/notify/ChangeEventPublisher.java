@@ -0,0 +1,123 @@
+package com.zhangben.backend.service.notify;
+
+import com.zhangben.backend.mapper.ActivityMemberMapper;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * V67: 数据变更事件
+ *
+ * 业务写入后调用，按变更计算受影响的用户并经 UserEventHub 推送；处于事务中时在提交后推送，回滚则不推送。
+ * 受影响用户:
+ * - 账单 / 还款: 付款人、创建人、债权人、代还双方、全部参与者；活动内的账单另加活动全部成员（活动详情随之变化）
+ * - 成员变动: 活动全部成员 + 变动的成员本人
+ * 事件只携带 ID，客户端据此刷新对应接口，不在事件里下发业务数据（避免越权）。
+ */
+@Component
+public class ChangeEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeEventPublisher.class);
+
+    public static final String OUTCOME_CREATED = "outcome.created";
+    public static final String OUTCOME_UPDATED = "outcome.updated";
+    public static final String OUTCOME_DELETED = "outcome.deleted";
+    public static final String REPAYMENT_SUBMITTED = "repayment.submitted";
+    public static final String REPAYMENT_CONFIRMED = "repayment.confirmed";
+    public static final String MEMBER_JOINED = "member.joined";
+    public static final String MEMBER_LEFT = "member.left";
+
+    private final UserEventHub userEventHub;
+    private final ActivityMemberMapper activityMemberMapper;
+
+    public ChangeEventPublisher(UserEventHub userEventHub, ActivityMemberMapper activityMemberMapper) {
+        this.userEventHub = userEventHub;
+        this.activityMemberMapper = activityMemberMapper;
+    }
+
+    /**
+     * 账单 / 还款变更；actorId 为触发变更的用户，客户端可据此忽略自己的操作
+     */
+    public void outcomeChanged(String event, Outcome outcome, Collection<OutcomeParticipant> participants,
+                               Integer actorId) {
+        if (outcome == null) {
+            return;
+        }
+        Set<Integer> recipients = new LinkedHashSet<>();
+        recipients.add(outcome.getPayerUserid());
+        recipients.add(outcome.getCreatorId());
+        recipients.add(outcome.getTargetUserid());
+        recipients.add(outcome.getRepaidBy());
+        recipients.add(outcome.getOnBehalfOf());
+        if (participants != null) {
+            for (OutcomeParticipant p : participants) {
+                recipients.add(p.getUserId());
+            }
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("outcomeId", outcome.getId());
+        data.put("activityId", outcome.getActivityId());
+        data.put("repayFlag", outcome.getRepayFlag());
+        data.put("actorId", actorId);
+
+        Integer activityId = outcome.getActivityId();
+        afterCommit(() -> {
+            if (activityId != null && activityId > 0) {
+                recipients.addAll(activityMemberMapper.selectUserIds(activityId));
+            }
+            publish(recipients, event, data);
+        });
+    }
+
+    /**
+     * 活动成员变动
+     */
+    public void memberChanged(String event, Integer activityId, Integer userId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("activityId", activityId);
+        data.put("userId", userId);
+
+        afterCommit(() -> {
+            Set<Integer> recipients = new LinkedHashSet<>(activityMemberMapper.selectUserIds(activityId));
+            recipients.add(userId);
+            publish(recipients, event, data);
+        });
+    }
+
+    private void publish(Set<Integer> recipients, String event, Map<String, Object> data) {
+        recipients.remove(null);
+        userEventHub.publish(recipients, event, data);
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                // 推送失败不影响业务，客户端重连后全量刷新
+                logger.warn("【变更事件】推送失败: {}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+}
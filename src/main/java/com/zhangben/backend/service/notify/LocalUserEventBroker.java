@@ -0,0 +1,30 @@
+package com.zhangben.backend.service.notify;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * V67: 进程内事件广播（单节点部署 / 测试环境，events.broker=local）
+ */
+@Component
+@ConditionalOnProperty(name = "events.broker", havingValue = "local")
+public class LocalUserEventBroker implements UserEventBroker {
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String message) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,267 @@
+package com.zhangben.backend.service.notify;
+
+import com.zhangben.backend.mapper.NotificationMapper;
+import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.model.EmailOutboxMessage;
+import com.zhangben.backend.model.Notification;
+import com.zhangben.backend.model.User;
+import com.zhangben.backend.model.UserExample;
+import com.zhangben.backend.service.EmailService;
+import com.zhangben.backend.service.NotificationService;
+import com.zhangben.backend.service.email.EmailOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * V65: 站内通知 / 账单邮件的批量分发
+ *
+ * 业务代码在事务中调用 addNotification / addBillEmail 只是登记，不访问数据库；批次在事务结束时统一处理：
+ * 1. 一次 IN 查询解析收件人（不存在的用户直接丢弃，与原逐个 selectByPrimaryKey 的行为一致）
+ * 2. 账单邮件在提交前（beforeCommit）渲染并批量写入发件箱，与业务数据同一事务提交，
+ *    进程在提交后崩溃也不会丢邮件；投递仍由 EmailOutboxWorker 异步完成
+ * 3. 站内通知在提交后一条多行 INSERT 写入（独立事务，原事务已提交）
+ * 事务回滚时什么都不发；不在事务中调用时立即分发。分发失败只记日志，不影响业务。
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private static final String DEFAULT_LANGUAGE = "zh-CN";
+
+    /** IN 查询单批最大 ID 数 */
+    private static final int USER_BATCH_SIZE = 500;
+
+    private final NotificationMapper notificationMapper;
+    private final NotificationService notificationService;
+    private final UserMapper userMapper;
+    private final EmailService emailService;
+    private final EmailOutbox emailOutbox;
+    private final TransactionTemplate requiresNew;
+
+    public NotificationDispatcher(NotificationMapper notificationMapper,
+                                  NotificationService notificationService,
+                                  UserMapper userMapper,
+                                  EmailService emailService,
+                                  EmailOutbox emailOutbox,
+                                  PlatformTransactionManager transactionManager) {
+        this.notificationMapper = notificationMapper;
+        this.notificationService = notificationService;
+        this.userMapper = userMapper;
+        this.emailService = emailService;
+        this.emailOutbox = emailOutbox;
+        // afterCommit 阶段原事务的连接仍绑定在线程上，写入必须开启新事务才会真正提交
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 登记一条站内通知
+     */
+    public void addNotification(Integer userId, String type, String title, String content,
+                                Long relatedId, String relatedType) {
+        if (userId == null) {
+            return;
+        }
+        Notification notification = new Notification();
+        notification.setUserId(userId);
+        notification.setType(type);
+        notification.setTitle(title);
+        notification.setContent(content);
+        notification.setRelatedId(relatedId);
+        notification.setRelatedType(relatedType);
+        notification.setIsRead((byte) 0);
+        notification.setCreatedAt(LocalDateTime.now());
+        Batch batch = currentBatch();
+        batch.notifications.add(notification);
+        if (batch.immediate) {
+            dispatchNotifications(batch);
+        }
+    }
+
+    /**
+     * 登记一封账单通知邮件；收件人无邮箱时忽略。language 为空时使用收件人首选语言
+     */
+    public void addBillEmail(Integer userId, String language, String creatorName, Long amount, Long perAmount,
+                             String comment, String styleName, String activityName, boolean isUpdate) {
+        if (userId == null) {
+            return;
+        }
+        Batch batch = currentBatch();
+        batch.emails.add(new BillEmail(userId, language, creatorName, amount, perAmount,
+                comment, styleName, activityName, isUpdate));
+        if (batch.immediate) {
+            enqueueEmails(batch);
+        }
+    }
+
+    /**
+     * 当前事务的待发批次；不在事务中时返回一个立即分发的批次
+     */
+    private Batch currentBatch() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Batch(true);
+        }
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            Batch created = new Batch(false);
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    enqueueEmails(created);
+                }
+
+                @Override
+                public void afterCommit() {
+                    dispatchNotifications(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(NotificationDispatcher.this);
+                }
+            });
+            batch = created;
+        }
+        return batch;
+    }
+
+    /**
+     * 渲染账单邮件并写入发件箱；在事务中调用时随业务数据一起提交
+     */
+    private void enqueueEmails(Batch batch) {
+        if (batch.emails.isEmpty()) {
+            return;
+        }
+        try {
+            Set<Integer> userIds = new LinkedHashSet<>();
+            for (BillEmail e : batch.emails) {
+                userIds.add(e.userId);
+            }
+            Map<Integer, User> users = loadUsers(userIds);
+
+            List<EmailOutboxMessage> messages = new ArrayList<>(batch.emails.size());
+            for (BillEmail e : batch.emails) {
+                User user = users.get(e.userId);
+                if (user == null || user.getEmail() == null) {
+                    continue;
+                }
+                EmailOutboxMessage message = renderBillEmail(user, e);
+                if (message != null) {
+                    messages.add(message);
+                }
+            }
+            batch.emails.clear();
+
+            int enqueued = messages.isEmpty() ? 0 : emailOutbox.enqueueAll(messages);
+            logger.debug("【通知分发】账单邮件入队 {} 封，收件人 {} 个", enqueued, users.size());
+        } catch (Exception e) {
+            logger.warn("【通知分发】账单邮件入队失败（不影响业务）: {}", e.getMessage());
+        }
+    }
+
+    private void dispatchNotifications(Batch batch) {
+        if (batch.notifications.isEmpty()) {
+            return;
+        }
+        try {
+            Set<Integer> userIds = new LinkedHashSet<>();
+            for (Notification n : batch.notifications) {
+                userIds.add(n.getUserId());
+            }
+            Map<Integer, User> users = loadUsers(userIds);
+
+            List<Notification> rows = new ArrayList<>(batch.notifications.size());
+            for (Notification n : batch.notifications) {
+                if (users.containsKey(n.getUserId())) {
+                    rows.add(n);
+                }
+            }
+            batch.notifications.clear();
+            if (!rows.isEmpty()) {
+                requiresNew.executeWithoutResult(status -> notificationMapper.batchInsert(rows));
+                // V66: 未读计数与 SSE 推送
+                notificationService.onInserted(rows);
+            }
+
+            logger.debug("【通知分发】站内通知 {} 条，收件人 {} 个", rows.size(), users.size());
+        } catch (Exception e) {
+            logger.warn("【通知分发】分发失败（不影响业务）: {}", e.getMessage());
+        }
+    }
+
+    private EmailOutboxMessage renderBillEmail(User user, BillEmail e) {
+        try {
+            String language = e.language != null ? e.language
+                    : user.getPreferredLanguage() != null ? user.getPreferredLanguage() : DEFAULT_LANGUAGE;
+            return emailService.renderBillNotification(user.getEmail(), user.getNickname(), language,
+                    e.creatorName, e.amount, e.perAmount, e.comment, e.styleName, e.activityName, e.isUpdate);
+        } catch (Exception ex) {
+            logger.warn("【通知分发】账单邮件渲染失败: {} -> {}", user.getEmail(), ex.getMessage());
+            return null;
+        }
+    }
+
+    private Map<Integer, User> loadUsers(Set<Integer> ids) {
+        Map<Integer, User> users = new HashMap<>();
+        List<Integer> all = new ArrayList<>(ids);
+        for (int i = 0; i < all.size(); i += USER_BATCH_SIZE) {
+            UserExample example = new UserExample();
+            example.createCriteria().andIdIn(all.subList(i, Math.min(i + USER_BATCH_SIZE, all.size())));
+            for (User u : userMapper.selectByExample(example)) {
+                users.put(u.getId(), u);
+            }
+        }
+        return users;
+    }
+
+    private static final class Batch {
+        private final List<Notification> notifications = new ArrayList<>();
+        private final List<BillEmail> emails = new ArrayList<>();
+        private final boolean immediate;
+
+        private Batch(boolean immediate) {
+            this.immediate = immediate;
+        }
+    }
+
+    private static final class BillEmail {
+        private final Integer userId;
+        private final String language;
+        private final String creatorName;
+        private final Long amount;
+        private final Long perAmount;
+        private final String comment;
+        private final String styleName;
+        private final String activityName;
+        private final boolean isUpdate;
+
+        private BillEmail(Integer userId, String language, String creatorName, Long amount, Long perAmount,
+                          String comment, String styleName, String activityName, boolean isUpdate) {
+            this.userId = userId;
+            this.language = language;
+            this.creatorName = creatorName;
+            this.amount = amount;
+            this.perAmount = perAmount;
+            this.comment = comment;
+            this.styleName = styleName;
+            this.activityName = activityName;
+            this.isUpdate = isUpdate;
+        }
+    }
+}
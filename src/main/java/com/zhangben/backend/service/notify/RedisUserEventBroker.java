@@ -0,0 +1,68 @@
+package com.zhangben.backend.service.notify;
+
+import com.zhangben.backend.config.RedisHealthMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * V67: 基于 Redis 频道的事件广播（多节点部署，默认）
+ * 本节点也通过频道回环收到自己的消息，因此不单独做本地投递；
+ * Redis 不可用或发送失败时退化为只投递本节点，连到其他节点的客户端会错过这条事件（客户端重连后全量刷新）。
+ */
+@Component
+@ConditionalOnProperty(name = "events.broker", havingValue = "redis", matchIfMissing = true)
+public class RedisUserEventBroker implements UserEventBroker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisUserEventBroker.class);
+
+    private static final String CHANNEL = "zhangben:user-events";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisHealthMonitor redisHealthMonitor;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisUserEventBroker(StringRedisTemplate stringRedisTemplate,
+                                RedisHealthMonitor redisHealthMonitor,
+                                RedisMessageListenerContainer listenerContainer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisHealthMonitor = redisHealthMonitor;
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> deliver(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    @Override
+    public void publish(String message) {
+        if (redisHealthMonitor.isRedisAvailable()) {
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, message);
+                return;
+            } catch (Exception e) {
+                logger.warn("【用户事件】Redis 广播失败，仅投递本节点: {}", e.getMessage());
+            }
+        }
+        deliver(message);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private void deliver(String message) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+}
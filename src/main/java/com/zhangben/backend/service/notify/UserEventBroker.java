@@ -0,0 +1,15 @@
+package com.zhangben.backend.service.notify;
+
+import java.util.function.Consumer;
+
+/**
+ * V67: 用户事件跨节点广播
+ * 实现: RedisUserEventBroker（多节点，默认）/ LocalUserEventBroker（单节点、测试），由 events.broker 选择。
+ * 消息为 JSON 字符串，发布后所有节点（含本节点）的订阅者各收到一次。
+ */
+public interface UserEventBroker {
+
+    void publish(String message);
+
+    void subscribe(Consumer<String> listener);
+}
@@ -0,0 +1,190 @@
+package com.zhangben.backend.service.notify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * V66: 用户 SSE 推送（V67: 由通知推送扩展为通用的按用户事件流）
+ *
+ * 每个节点只持有连到自己的 SseEmitter；事件经 UserEventBroker 广播到所有节点（含本节点），
+ * 各节点只投递给本地连接中的目标用户，因此用户连在哪个节点都能收到，其他用户收不到。
+ * 事件: unread / notification（通知），outcome.* / repayment.* / member.*（数据变更，见 ChangeEventPublisher）。
+ * 每 25 秒发一次注释心跳，顺带清理已断开的连接。
+ */
+@Component
+public class UserEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserEventHub.class);
+
+    /** 每个用户在单节点上最多保留的连接数，超出时关闭最早的 */
+    private static final int MAX_EMITTERS_PER_USER = 5;
+
+    private final UserEventBroker broker;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Integer, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    @Value("${notification.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    public UserEventHub(UserEventBroker broker) {
+        this.broker = broker;
+        broker.subscribe(this::onMessage);
+    }
+
+    /**
+     * 建立 SSE 连接，立即推送一次初始事件（如当前未读数）
+     */
+    public SseEmitter subscribe(Integer userId, String initialEvent, Map<String, Object> initialData) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        // compute 保证与 remove 之间不会把连接加进已被移除的列表
+        List<SseEmitter> list = emitters.compute(userId, (k, existing) -> {
+            List<SseEmitter> l = existing != null ? existing : new CopyOnWriteArrayList<>();
+            l.add(emitter);
+            return l;
+        });
+        while (list.size() > MAX_EMITTERS_PER_USER) {
+            SseEmitter oldest = list.remove(0);
+            oldest.complete();
+        }
+
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+
+        if (initialEvent != null) {
+            send(userId, emitter, initialEvent, initialData);
+        }
+        return emitter;
+    }
+
+    /**
+     * 推送未读数变化
+     */
+    public void publishUnread(Integer userId, long count) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("count", count);
+        publish(Collections.singletonList(userId), "unread", data);
+    }
+
+    /**
+     * 推送新通知摘要
+     */
+    public void publishNotification(Integer userId, Map<String, Object> summary) {
+        publish(Collections.singletonList(userId), "notification", summary);
+    }
+
+    /**
+     * V67: 向一组用户推送同一事件（一条广播消息）
+     */
+    public void publish(Collection<Integer> userIds, String event, Map<String, Object> data) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        published.increment();
+        Map<String, Object> message = new HashMap<>();
+        message.put("u", userIds);
+        message.put("e", event);
+        message.put("d", data);
+        try {
+            broker.publish(objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            logger.warn("【用户事件】推送失败: {} -> {}", event, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int connections = 0;
+        for (List<SseEmitter> list : emitters.values()) {
+            connections += list.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", emitters.size());
+        stats.put("connections", connections);
+        stats.put("published", published.sum());
+        stats.put("delivered", delivered.sum());
+        return stats;
+    }
+
+    /**
+     * 心跳：代理 / 负载均衡通常会关闭长时间无数据的连接
+     */
+    @Scheduled(fixedRate = 25000)
+    public void heartbeat() {
+        for (Map.Entry<Integer, List<SseEmitter>> e : emitters.entrySet()) {
+            for (SseEmitter emitter : e.getValue()) {
+                try {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (Exception ex) {
+                    remove(e.getKey(), emitter);
+                }
+            }
+        }
+    }
+
+    private void onMessage(String body) {
+        try {
+            JsonNode node = objectMapper.readTree(body);
+            List<Integer> targets = new ArrayList<>();
+            for (JsonNode u : node.get("u")) {
+                if (emitters.containsKey(u.asInt())) {
+                    targets.add(u.asInt());
+                }
+            }
+            if (targets.isEmpty()) {
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = objectMapper.convertValue(node.get("d"), Map.class);
+            String event = node.get("e").asText();
+            for (Integer userId : targets) {
+                List<SseEmitter> list = emitters.get(userId);
+                if (list == null) {
+                    continue;
+                }
+                for (SseEmitter emitter : list) {
+                    send(userId, emitter, event, data);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("【用户事件】无法解析推送消息: {}", e.getMessage());
+        }
+    }
+
+    private void send(Integer userId, SseEmitter emitter, String event, Map<String, Object> data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+            delivered.increment();
+        } catch (Exception e) {
+            // 客户端已断开
+            remove(userId, emitter);
+        }
+    }
+
+    private void remove(Integer userId, SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (k, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * V56: 最少转账笔数结算求解器
+ * 最少转账数 = 非零余额人数 - 可划分出的最多"和为 0 子集"个数。
+ * 以位掩码 DP 求最多子集数：dp[mask] = max(dp[mask 去掉任一成员]) + (sum[mask] == 0 ? 1 : 0)，
+ * 沿最优路径回溯得到各个和为 0 的子集，再在子集内部用贪心结清（k 人子集不超过 k - 1 笔）。
+ * 时间 O(n·2^n)、内存 O(2^n)，只适用于小规模（默认 20 人以内），超出由调用方回退到贪心。
+ */
+@Component
+public class ExactSettlementSolver implements SettlementSolver {
+
+    public static final String NAME = "exact";
+
+    /** 硬上限：2^24 个状态约 150MB，无论配置如何都不允许超过 */
+    private static final int HARD_LIMIT = 24;
+
+    @Value("${settlement.exact.max-members:20}")
+    private int maxMembers;
+
+    @Autowired
+    private GreedySettlementSolver greedySolver;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(int memberCount) {
+        return memberCount <= Math.min(maxMembers, HARD_LIMIT);
+    }
+
+    @Override
+    public List<SettlementItem> solve(int[] userIds, long[] balances) {
+        int n = userIds.length;
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+        if (n > HARD_LIMIT) {
+            throw new IllegalArgumentException("精确结算最多支持 " + HARD_LIMIT + " 人，当前 " + n + " 人");
+        }
+
+        int full = (1 << n) - 1;
+        long[] sum = new long[full + 1];
+        byte[] dp = new byte[full + 1];
+
+        for (int mask = 1; mask <= full; mask++) {
+            int low = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + balances[low];
+
+            int best = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (dp[mask ^ bit] > best) {
+                    best = dp[mask ^ bit];
+                }
+            }
+            dp[mask] = (byte) (best + (sum[mask] == 0 ? 1 : 0));
+        }
+
+        if (sum[full] != 0) {
+            throw new IllegalArgumentException("余额总和不为 0，无法结算: " + sum[full]);
+        }
+
+        // 回溯最优路径，相邻两个和为 0 的掩码之差即一个和为 0 的子集
+        List<SettlementItem> settlements = new ArrayList<>();
+        int mask = full;
+        int groupEnd = full;
+        while (mask != 0) {
+            int target = dp[mask] - (sum[mask] == 0 ? 1 : 0);
+            int next = -1;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (dp[mask ^ bit] == target) {
+                    next = mask ^ bit;
+                    break;
+                }
+            }
+            mask = next;
+            if (mask == 0 || sum[mask] == 0) {
+                settleGroup(groupEnd ^ mask, userIds, balances, settlements);
+                groupEnd = mask;
+            }
+        }
+        return settlements;
+    }
+
+    /**
+     * 子集内部用贪心结清：每笔至少结清一人、最后一笔结清两人，k 人子集不超过 k - 1 笔
+     */
+    private void settleGroup(int group, int[] userIds, long[] balances, List<SettlementItem> out) {
+        int k = Integer.bitCount(group);
+        int[] ids = new int[k];
+        long[] bals = new long[k];
+        int j = 0;
+        for (int rest = group; rest != 0; rest &= rest - 1) {
+            int i = Integer.numberOfTrailingZeros(rest);
+            ids[j] = userIds[i];
+            bals[j] = balances[i];
+            j++;
+        }
+        out.addAll(greedySolver.solve(ids, bals));
+    }
+}
@@ -0,0 +1,129 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.model.DebtFlowRow;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * V58: FIFO 销账分配器
+ * 输入同一债务方向（debtor 欠 creditor）上按 pay_datetime 升序的两条流水：
+ * 消费分摊与已确认还款，单次归并把还款依次冲抵最早的未结清账单。
+ * 两条流均由 OutcomeMapper 在 SQL 侧排序，这里不再排序也不访问数据库。
+ */
+public final class FifoAllocator {
+
+    private FifoAllocator() {
+    }
+
+    /**
+     * @param expenses 消费分摊流水（按时间升序）
+     * @param repayments 已确认还款流水（按时间升序）
+     */
+    public static Allocation allocate(List<DebtFlowRow> expenses, List<DebtFlowRow> repayments) {
+        int n = expenses.size();
+        long[] shares = new long[n];
+        for (int i = 0; i < n; i++) {
+            shares[i] = amountOf(expenses.get(i));
+        }
+
+        long[] repaid = new long[n];
+        int cursor = 0;
+        long unallocated = 0;
+        for (DebtFlowRow r : repayments) {
+            long left = amountOf(r);
+            while (left > 0 && cursor < n) {
+                long gap = shares[cursor] - repaid[cursor];
+                long alloc = Math.min(gap, left);
+                repaid[cursor] += alloc;
+                left -= alloc;
+                if (repaid[cursor] >= shares[cursor]) cursor++;
+            }
+            unallocated += left;
+        }
+        return new Allocation(expenses, shares, repaid, cursor, unallocated);
+    }
+
+    private static long amountOf(DebtFlowRow row) {
+        return row.getAmount() != null ? row.getAmount() : 0L;
+    }
+
+    /**
+     * 分配结果：每笔消费的应付金额与已冲销金额（与输入的 expenses 下标一一对应）
+     */
+    public static final class Allocation {
+
+        private final List<DebtFlowRow> expenses;
+        private final long[] shares;
+        private final long[] repaid;
+        /** 第一笔未结清账单的下标 */
+        private final int firstOpen;
+        /** 冲抵全部账单后剩余的还款（多还） */
+        private final long unallocated;
+
+        private Allocation(List<DebtFlowRow> expenses, long[] shares, long[] repaid, int firstOpen, long unallocated) {
+            this.expenses = expenses;
+            this.shares = shares;
+            this.repaid = repaid;
+            this.firstOpen = firstOpen;
+            this.unallocated = unallocated;
+        }
+
+        public List<DebtFlowRow> getExpenses() {
+            return expenses;
+        }
+
+        public long getShare(int index) {
+            return shares[index];
+        }
+
+        public long getRepaid(int index) {
+            return repaid[index];
+        }
+
+        public long getUnallocated() {
+            return unallocated;
+        }
+
+        public long getTotalDebt() {
+            long total = 0;
+            for (long s : shares) total += s;
+            return total;
+        }
+
+        public long getTotalRepaid() {
+            long total = 0;
+            for (long r : repaid) total += r;
+            return total;
+        }
+
+        /**
+         * 账单ID → 已冲销金额
+         */
+        public Map<Integer, Long> getRepaidByOutcome() {
+            Map<Integer, Long> map = new HashMap<>(expenses.size() * 2);
+            for (int i = 0; i < expenses.size(); i++) {
+                map.put(expenses.get(i).getOutcomeId(), repaid[i]);
+            }
+            return map;
+        }
+
+        /**
+         * 模拟再还一笔 amount：从第一笔未结清账单开始依次填补缺口，不修改当前结果
+         * @return 每笔账单本次冲销的金额
+         */
+        public long[] allocateNew(long amount) {
+            long[] newly = new long[shares.length];
+            long left = amount;
+            for (int i = firstOpen; i < shares.length && left > 0; i++) {
+                long gap = shares[i] - repaid[i];
+                if (gap <= 0) continue;
+                long alloc = Math.min(gap, left);
+                newly[i] = alloc;
+                left -= alloc;
+            }
+            return newly;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * V56: 贪心结算求解器
+ * 债权人、债务人各自按金额降序，每次用最大的一对相互抵消。
+ * 转账笔数不超过 n - 1，但不保证最少；余额全程使用 long，不会溢出。
+ */
+@Component
+public class GreedySettlementSolver implements SettlementSolver {
+
+    public static final String NAME = "greedy";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<SettlementItem> solve(int[] userIds, long[] balances) {
+        int n = userIds.length;
+        long[] remaining = Arrays.copyOf(balances, n);
+
+        // 分离债权人和债务人（存下标）
+        Integer[] creditors = new Integer[n];
+        Integer[] debtors = new Integer[n];
+        int cn = 0, dn = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] > 0) {
+                creditors[cn++] = i;
+            } else if (remaining[i] < 0) {
+                debtors[dn++] = i;
+            }
+        }
+
+        // 按金额降序
+        Arrays.sort(creditors, 0, cn, (a, b) -> Long.compare(remaining[b], remaining[a]));
+        Arrays.sort(debtors, 0, dn, (a, b) -> Long.compare(remaining[a], remaining[b]));
+
+        // 贪心匹配
+        List<SettlementItem> settlements = new ArrayList<>();
+        int ci = 0, di = 0;
+        while (ci < cn && di < dn) {
+            int cr = creditors[ci];
+            int dr = debtors[di];
+            long transfer = Math.min(remaining[cr], -remaining[dr]);
+
+            SettlementItem item = new SettlementItem();
+            item.setFromId(userIds[dr]);
+            item.setToId(userIds[cr]);
+            item.setAmount(transfer);
+            settlements.add(item);
+
+            remaining[cr] -= transfer;
+            remaining[dr] += transfer;
+            if (remaining[cr] == 0) ci++;
+            if (remaining[dr] == 0) di++;
+        }
+        return settlements;
+    }
+}
@@ -0,0 +1,36 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+
+import java.util.List;
+
+/**
+ * V56: 一次结算求解的结果
+ */
+public class SettlementPlan {
+
+    private final List<SettlementItem> transfers;
+    private final String algorithm;
+    private final long costMicros;
+
+    public SettlementPlan(List<SettlementItem> transfers, String algorithm, long costMicros) {
+        this.transfers = transfers;
+        this.algorithm = algorithm;
+        this.costMicros = costMicros;
+    }
+
+    public List<SettlementItem> getTransfers() {
+        return transfers;
+    }
+
+    /**
+     * 实际使用的求解器名称（exact 超出人数上限回退时为 greedy）
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getCostMicros() {
+        return costMicros;
+    }
+}
@@ -0,0 +1,33 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+
+import java.util.List;
+
+/**
+ * V56: 结算求解器接口
+ * 输入每个用户的净余额（正值=应收，负值=应付，总和为 0），输出转账方案。
+ * 求解器只负责生成 fromId / toId / amount，不填充用户信息。
+ */
+public interface SettlementSolver {
+
+    /**
+     * 获取求解器名称（greedy / exact）
+     */
+    String getName();
+
+    /**
+     * 是否能处理指定人数的余额（非零余额的用户数）
+     */
+    default boolean supports(int memberCount) {
+        return true;
+    }
+
+    /**
+     * 生成结算转账方案
+     * @param userIds 用户ID，与 balances 一一对应
+     * @param balances 净余额（分），不含 0，总和必须为 0
+     * @return 转账列表
+     */
+    List<SettlementItem> solve(int[] userIds, long[] balances);
+}
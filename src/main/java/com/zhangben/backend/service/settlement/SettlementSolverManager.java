@@ -0,0 +1,224 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+import com.zhangben.backend.util.DebtPair;
+import com.zhangben.backend.util.LongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * V56: 结算求解器管理器
+ * 负责：
+ * 1. 按调用方指定的模式（auto / greedy / exact）选择求解器
+ * 2. 按债务图连通分量拆分，逐个分量选择求解器；exact 超出人数上限时该分量回退到 greedy
+ * 3. 统计各求解器的调用次数与耗时
+ */
+@Service
+public class SettlementSolverManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SettlementSolverManager.class);
+
+    public static final String MODE_AUTO = "auto";
+
+    // 未指定模式时使用的默认模式
+    @Value("${settlement.default-mode:auto}")
+    private String defaultMode;
+
+    // 超过该耗时记录慢日志（毫秒）
+    @Value("${settlement.slow-threshold-ms:200}")
+    private long slowThresholdMs;
+
+    @Autowired
+    private GreedySettlementSolver greedySolver;
+
+    @Autowired
+    private ExactSettlementSolver exactSolver;
+
+    private final Map<String, SolverStats> stats = Map.of(
+        GreedySettlementSolver.NAME, new SolverStats(),
+        ExactSettlementSolver.NAME, new SolverStats()
+    );
+
+    private final LongAdder fallbackCount = new LongAdder();
+
+    /**
+     * 求解结算方案（全部余额视为一个整体）
+     * @param balances 用户净余额（userId → 余额，正值=应收，负值=应付）
+     * @param mode auto / greedy / exact，为空时使用配置的默认模式
+     */
+    public SettlementPlan solve(LongLongHashMap balances, String mode) {
+        return solve(balances, null, mode);
+    }
+
+    /**
+     * 求解结算方案，按债务图的连通分量拆开分别求解
+     * 不同分量之间没有任何债务，单独结清即可，且各分量余额和均为 0；
+     * 全站余额人数远超精确求解上限，但单个分量通常很小，拆开后 auto 模式仍能逐个精确求解。
+     * @param balances 用户净余额（userId → 余额，正值=应收，负值=应付）
+     * @param debts 债务对（DebtPair → 金额，> 0 表示存在该边），为 null 时不拆分
+     * @param mode auto / greedy / exact，为空时使用配置的默认模式
+     */
+    public SettlementPlan solve(LongLongHashMap balances, LongLongHashMap debts, String mode) {
+        String resolved = mode == null || mode.isBlank() ? defaultMode : mode.trim().toLowerCase();
+        if (!MODE_AUTO.equals(resolved) && !GreedySettlementSolver.NAME.equals(resolved)
+                && !ExactSettlementSolver.NAME.equals(resolved)) {
+            throw new IllegalArgumentException("不支持的结算模式: " + mode);
+        }
+
+        // 只保留非零余额，userId → 下标
+        int n = 0;
+        for (LongLongHashMap.Cursor c = balances.cursor(); c.advance(); ) {
+            if (c.value() != 0) n++;
+        }
+        int[] userIds = new int[n];
+        long[] values = new long[n];
+        LongLongHashMap indexOf = new LongLongHashMap(n);
+        int i = 0;
+        for (LongLongHashMap.Cursor c = balances.cursor(); c.advance(); ) {
+            if (c.value() == 0) continue;
+            userIds[i] = (int) c.key();
+            values[i] = c.value();
+            indexOf.put(c.key(), i);
+            i++;
+        }
+
+        // 并查集合并有债务往来的用户；余额为 0 的中转用户不参与结算，但仍连通两侧，编号追加在 n 之后
+        int nodes = n;
+        if (debts != null) {
+            for (LongLongHashMap.Cursor c = debts.cursor(); c.advance(); ) {
+                if (c.value() <= 0) continue;
+                for (long userId : new long[]{DebtPair.debtor(c.key()), DebtPair.creditor(c.key())}) {
+                    if (!indexOf.containsKey(userId)) {
+                        indexOf.put(userId, nodes++);
+                    }
+                }
+            }
+        }
+        int[] parent = new int[nodes];
+        for (int k = 0; k < nodes; k++) {
+            parent[k] = debts == null ? 0 : k;
+        }
+        if (debts != null) {
+            for (LongLongHashMap.Cursor c = debts.cursor(); c.advance(); ) {
+                if (c.value() <= 0) continue;
+                union(parent, (int) indexOf.getOrDefault(DebtPair.debtor(c.key()), -1),
+                    (int) indexOf.getOrDefault(DebtPair.creditor(c.key()), -1));
+            }
+        }
+
+        // 按根分组（保持原始顺序，结果稳定）
+        Map<Integer, List<Integer>> components = new LinkedHashMap<>();
+        for (int k = 0; k < n; k++) {
+            components.computeIfAbsent(find(parent, k), r -> new ArrayList<>()).add(k);
+        }
+
+        List<SettlementItem> transfers = new ArrayList<>();
+        boolean usedGreedy = GreedySettlementSolver.NAME.equals(resolved);
+        int largest = 0;
+        long start = System.nanoTime();
+        for (List<Integer> members : components.values()) {
+            int size = members.size();
+            int[] ids = new int[size];
+            long[] bals = new long[size];
+            for (int k = 0; k < size; k++) {
+                ids[k] = userIds[members.get(k)];
+                bals[k] = values[members.get(k)];
+            }
+            SettlementSolver solver = select(resolved, size);
+            long t0 = System.nanoTime();
+            transfers.addAll(solver.solve(ids, bals));
+            stats.get(solver.getName()).record(System.nanoTime() - t0);
+            usedGreedy |= solver == greedySolver;
+            largest = Math.max(largest, size);
+        }
+        long nanos = System.nanoTime() - start;
+
+        // 只要有一个分量回退到贪心，整体就不保证最少笔数，按 greedy 报告
+        String algorithm = usedGreedy ? GreedySettlementSolver.NAME : ExactSettlementSolver.NAME;
+        if (nanos / 1_000_000 >= slowThresholdMs) {
+            logger.warn("【结算】{} 求解 {} 人（{} 个分量，最大 {} 人）耗时 {}ms，生成 {} 笔转账",
+                algorithm, n, components.size(), largest, nanos / 1_000_000, transfers.size());
+        }
+        return new SettlementPlan(transfers, algorithm, nanos / 1_000);
+    }
+
+    /**
+     * 获取各求解器的调用统计
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : new String[]{GreedySettlementSolver.NAME, ExactSettlementSolver.NAME}) {
+            result.put(name, stats.get(name).snapshot());
+        }
+        result.put("fallbackCount", fallbackCount.sum());
+        result.put("defaultMode", defaultMode);
+        return result;
+    }
+
+    private SettlementSolver select(String mode, int memberCount) {
+        switch (mode) {
+            case GreedySettlementSolver.NAME:
+                return greedySolver;
+            case ExactSettlementSolver.NAME:
+            case MODE_AUTO:
+                if (exactSolver.supports(memberCount)) {
+                    return exactSolver;
+                }
+                fallbackCount.increment();
+                logger.debug("【结算】{} 人超出精确求解上限，回退到贪心", memberCount);
+                return greedySolver;
+            default:
+                throw new IllegalArgumentException("不支持的结算模式: " + mode);
+        }
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra != rb) {
+            parent[Math.max(ra, rb)] = Math.min(ra, rb);
+        }
+    }
+
+    /**
+     * 单个求解器的耗时统计
+     */
+    private static class SolverStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> snapshot() {
+            long count = calls.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("calls", count);
+            m.put("avgMicros", count == 0 ? 0 : totalNanos.sum() / count / 1_000);
+            m.put("maxMicros", maxNanos.get() / 1_000);
+            return m;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.service.DailySpendService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * V62: 每日消费汇总一致性检查定时任务
+ * 每天随机抽样用户，比对 user_daily_spend 与 outcome / outcome_participant 原始数据；
+ * 另按日合计全量核对最近若干天，抽样未覆盖的用户出现偏差时也能发现
+ */
+@Component
+public class DailySpendCheckTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailySpendCheckTask.class);
+
+    @Autowired
+    private DailySpendService dailySpendService;
+
+    @Value("${stats.daily-spend.check.sample-size:200}")
+    private int sampleSize;
+
+    @Value("${stats.daily-spend.check.auto-repair:true}")
+    private boolean autoRepair;
+
+    @Value("${stats.daily-spend.check.total-days:35}")
+    private int totalDays;
+
+    /**
+     * 每天凌晨 5:00 执行（低峰期）
+     */
+    @Scheduled(cron = "${stats.daily-spend.check.cron:0 0 5 * * ?}")
+    public void checkDailySpend() {
+        logger.info("Starting daily spend consistency check...");
+        try {
+            Map<String, Object> report = dailySpendService.check(sampleSize, autoRepair);
+            logger.info("Daily spend check completed: sampled={}, mismatchedUsers={}, repaired={}",
+                report.get("sampled"), report.get("mismatchedUsers"), report.get("repaired"));
+        } catch (Exception e) {
+            logger.error("Daily spend check task failed: {}", e.getMessage(), e);
+        }
+
+        try {
+            Map<String, Object> report = dailySpendService.checkTotals(totalDays, autoRepair);
+            logger.info("Daily spend totals check completed: from={}, mismatchedDays={}, mismatchedUsers={}, repaired={}",
+                report.get("fromDay"), report.get("mismatchedDays"), report.get("mismatchedUsers"), report.get("repaired"));
+        } catch (Exception e) {
+            logger.error("Daily spend totals check failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.service.DebtLedgerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * V52: 欠款账本对账定时任务
+ * 每天从 outcome / outcome_participant 重新计算 debt_ledger 并报告差异
+ */
+@Component
+public class DebtLedgerReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebtLedgerReconcileTask.class);
+
+    @Autowired
+    private DebtLedgerService debtLedgerService;
+
+    @Value("${debt.ledger.reconcile.auto-repair:true}")
+    private boolean autoRepair;
+
+    /**
+     * 每天凌晨 4:30 执行（低峰期）
+     */
+    @Scheduled(cron = "${debt.ledger.reconcile.cron:0 30 4 * * ?}")
+    public void reconcileLedger() {
+        logger.info("Starting debt ledger reconcile task...");
+        try {
+            Map<String, Object> report = debtLedgerService.reconcile(autoRepair);
+            logger.info("Debt ledger reconcile completed: checked={}, drift={}, repaired={}",
+                report.get("checked"), report.get("driftCount"), report.get("repaired"));
+        } catch (Exception e) {
+            logger.error("Debt ledger reconcile task failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.service.email.EmailOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * V68: 邮件发件箱清理定时任务
+ * 删除保留期之前的已发送消息；最终失败的消息保留，便于排查
+ */
+@Component
+public class EmailOutboxCleanupTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxCleanupTask.class);
+
+    @Autowired
+    private EmailOutbox emailOutbox;
+
+    @Value("${mail.outbox.retention-days:7}")
+    private int retentionDays;
+
+    /**
+     * 默认每天凌晨 3:30 执行
+     */
+    @Scheduled(cron = "${mail.outbox.cleanup.cron:0 30 3 * * ?}")
+    public void cleanupSentMessages() {
+        try {
+            int deleted = emailOutbox.cleanupSent(retentionDays);
+            logger.info("Email outbox cleanup completed: deleted={}, retentionDays={}", deleted, retentionDays);
+        } catch (Exception e) {
+            logger.error("Email outbox cleanup task failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.service.MonthlySpendingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * V61: 月度支出物化表对账定时任务
+ * 每天从 outcome / outcome_participant 重新聚合 user_monthly_spending 并修正差异
+ * （分类固定 / 变动属性被修改、直接改库等增量维护覆盖不到的情况）
+ */
+@Component
+public class MonthlySpendingReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonthlySpendingReconcileTask.class);
+
+    @Autowired
+    private MonthlySpendingService monthlySpendingService;
+
+    @Value("${prediction.spending.reconcile.auto-repair:true}")
+    private boolean autoRepair;
+
+    /**
+     * 每天凌晨 4:45 执行（欠款账本对账之后）
+     */
+    @Scheduled(cron = "${prediction.spending.reconcile.cron:0 45 4 * * ?}")
+    public void reconcileMonthlySpending() {
+        logger.info("Starting monthly spending reconcile task...");
+        try {
+            Map<String, Object> report = monthlySpendingService.reconcile(autoRepair);
+            logger.info("Monthly spending reconcile completed: checked={}, drift={}, repaired={}",
+                report.get("checked"), report.get("driftCount"), report.get("repaired"));
+        } catch (Exception e) {
+            logger.error("Monthly spending reconcile task failed: {}", e.getMessage(), e);
+        }
+    }
+}
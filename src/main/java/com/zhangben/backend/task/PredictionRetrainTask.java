@@ -0,0 +1,93 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.mapper.JobCheckpointMapper;
+import com.zhangben.backend.model.JobCheckpoint;
+import com.zhangben.backend.service.PredictionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * V75: 支出预测夜间批量重训
+ * 每天在月度支出对账之后重训全部活跃用户的卡尔曼状态，预测接口只需读取已存结果，
+ * 不再在每月 1 日的首次访问里集中训练、集中写库。
+ * job_checkpoint 租约保证多节点部署时只有一个节点在跑；每派发一块续租并记录进度。
+ * 中断后不从游标续跑：已训练到最新月份的用户会被跳过，重跑整批只多一次读取。
+ * V76: 重训结束后把仍为 JSON 编码的旧状态改写为二进制编码
+ */
+@Component
+public class PredictionRetrainTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(PredictionRetrainTask.class);
+
+    private static final String JOB_NAME = "prediction-retrain";
+
+    @Autowired
+    private PredictionService predictionService;
+
+    @Autowired
+    private JobCheckpointMapper jobCheckpointMapper;
+
+    @Value("${prediction.retrain.lease-minutes:10}")
+    private int leaseMinutes;
+
+    /** 本节点标识（租约持有者） */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 每天凌晨 5:15 执行（月度支出对账之后）
+     */
+    @Scheduled(cron = "${prediction.retrain.cron:0 15 5 * * ?}")
+    public void retrainPredictions() {
+        logger.info("Starting prediction retrain task...");
+        try {
+            run();
+        } catch (Exception e) {
+            logger.error("Prediction retrain task failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void run() {
+        jobCheckpointMapper.insertIfAbsent(JOB_NAME);
+        if (jobCheckpointMapper.tryAcquire(JOB_NAME, nodeId, leaseUntil()) == 0) {
+            logger.info("【预测重训】其他节点正在执行，跳过");
+            return;
+        }
+
+        try {
+            String runKey = LocalDate.now().toString();
+            JobCheckpoint checkpoint = jobCheckpointMapper.selectByJob(JOB_NAME);
+            if (runKey.equals(checkpoint.getRunKey()) && checkpoint.getStatus() == JobCheckpoint.STATUS_COMPLETED) {
+                logger.info("【预测重训】今日批次已完成，跳过");
+                return;
+            }
+            jobCheckpointMapper.startRun(JOB_NAME, nodeId, runKey);
+
+            Map<String, Object> stats = predictionService.retrainAll((lastUserId, size) -> {
+                if (jobCheckpointMapper.advance(JOB_NAME, nodeId, lastUserId.longValue(), size, leaseUntil()) == 0) {
+                    // 租约已被其他节点接管，停止派发新的分块
+                    throw new IllegalStateException("lease lost");
+                }
+            });
+
+            jobCheckpointMapper.complete(JOB_NAME, nodeId);
+            logger.info("Prediction retrain completed: scanned={}, trained={}, upToDate={}, failed={}, {}ms ({} users/s)",
+                stats.get("scanned"), stats.get("trained"), stats.get("upToDate"), stats.get("failed"),
+                stats.get("durationMs"), stats.get("usersPerSec"));
+        } finally {
+            jobCheckpointMapper.release(JOB_NAME, nodeId);
+        }
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plusMinutes(leaseMinutes);
+    }
+}
@@ -1,29 +1,81 @@
 package com.zhangben.backend.task;
 
+import com.zhangben.backend.mapper.JobCheckpointMapper;
+import com.zhangben.backend.model.JobCheckpoint;
 import com.zhangben.backend.model.User;
 import com.zhangben.backend.service.SubscriptionService;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * V42: 订阅续费提醒定时任务
  * 每天检查 90 天内到期的订阅，发送提醒
+ *
+ * V70: 分块 + 检查点
+ * - 按用户ID游标每次取 chunk-size 个用户，不再一次性加载全部到期用户
+ * - 每块内并发生成通知 / 邮件，随后在一个事务里批量写入通知、邮件发件箱、已发送标记并推进 job_checkpoint 游标，
+ *   进程中途退出时已提交的块不会重发，未提交的块整体回滚、下次从游标处继续
+ * - job_checkpoint 租约保证多节点部署时同一时刻只有一个节点在跑；当天未完成的批次在启动后自动续跑，
+ *   崩溃进程留下的租约未到期时等其到期再接手
  */
 @Component
 public class SubscriptionReminderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(SubscriptionReminderTask.class);
 
+    private static final String JOB_NAME = "subscription-renewal-reminder";
+
+    /** 提醒窗口（天） */
+    private static final int DAYS_BEFORE_EXPIRY = 90;
+
+    /** 续跑时在旧租约到期后再多等的时间，避开节点间时钟偏差 */
+    private static final long RESUME_GRACE_MS = 5_000;
+
     @Autowired
     private SubscriptionService subscriptionService;
 
+    @Autowired
+    private JobCheckpointMapper jobCheckpointMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${subscription.reminder.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${subscription.reminder.concurrency:8}")
+    private int concurrency;
+
+    @Value("${subscription.reminder.lease-minutes:10}")
+    private int leaseMinutes;
+
+    /** 本节点标识（租约持有者） */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * 每天早上 9:00 执行（东京时间）
      * 检查 90 天内到期的订阅并发送提醒
@@ -31,43 +83,134 @@ public class SubscriptionReminderTask {
     @Scheduled(cron = "0 0 9 * * ?")
     public void sendRenewalReminders() {
         logger.info("Starting subscription renewal reminder task...");
-
         try {
-            // 查找 90 天内到期的用户
-            List<User> expiringUsers = subscriptionService.findExpiringSubscriptions(90);
+            run();
+        } catch (Exception e) {
+            logger.error("Subscription renewal reminder task failed: {}", e.getMessage(), e);
+        }
+    }
 
-            logger.info("Found {} users with expiring subscriptions", expiringUsers.size());
+    /**
+     * V70: 启动时续跑当天被中断的批次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRun() {
+        try {
+            if (pendingToday(jobCheckpointMapper.selectByJob(JOB_NAME))) {
+                Thread.ofPlatform().name("subscription-reminder-resume").daemon().start(this::resumeUntilDone);
+            }
+        } catch (Exception e) {
+            logger.warn("【订阅提醒】检查未完成批次失败: {}", e.getMessage());
+        }
+    }
 
-            for (User user : expiringUsers) {
+    /**
+     * 崩溃前的进程仍持有租约（nodeId 每次启动都不同，无法直接续用），
+     * 等到 lease_until 过后再抢租约；期间其他节点接手并跑完则不再执行
+     */
+    private void resumeUntilDone() {
+        try {
+            while (true) {
+                JobCheckpoint checkpoint = jobCheckpointMapper.selectByJob(JOB_NAME);
+                if (!pendingToday(checkpoint)) {
+                    return;
+                }
+                LocalDateTime leaseUntil = checkpoint.getLeaseUntil();
+                if (checkpoint.getOwner() != null && leaseUntil != null && leaseUntil.isAfter(LocalDateTime.now())) {
+                    long waitMs = Duration.between(LocalDateTime.now(), leaseUntil).toMillis() + RESUME_GRACE_MS;
+                    logger.info("【订阅提醒】未完成批次的租约仍被 {} 持有，{}s 后重试", checkpoint.getOwner(), waitMs / 1000);
+                    Thread.sleep(waitMs);
+                    continue;
+                }
+                logger.info("Resuming interrupted subscription renewal reminder run...");
                 try {
-                    // 计算距到期天数
-                    int daysUntilExpiry = (int) ChronoUnit.DAYS.between(
-                        LocalDateTime.now(),
-                        user.getSubscriptionExpiryDate()
-                    );
+                    if (run()) {
+                        return;
+                    }
+                } catch (Exception e) {
+                    logger.error("Subscription renewal reminder resume failed: {}", e.getMessage(), e);
+                    return;
+                }
+                // 被其他节点抢先拿到租约：下一轮读取其租约到期时间后再判断
+                Thread.sleep(RESUME_GRACE_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("【订阅提醒】续跑未完成批次失败: {}", e.getMessage());
+        }
+    }
 
-                    // 发送提醒
-                    subscriptionService.sendRenewalReminder(user, daysUntilExpiry);
+    private static boolean pendingToday(JobCheckpoint checkpoint) {
+        return checkpoint != null && checkpoint.getStatus() != JobCheckpoint.STATUS_COMPLETED
+                && LocalDate.now().toString().equals(checkpoint.getRunKey());
+    }
 
-                    // 标记已发送
-                    subscriptionService.markReminderSent(user.getId());
+    /**
+     * @return 是否拿到租约（拿到后无论今日是否已完成都返回 true）
+     */
+    private boolean run() {
+        jobCheckpointMapper.insertIfAbsent(JOB_NAME);
+        if (jobCheckpointMapper.tryAcquire(JOB_NAME, nodeId, leaseUntil()) == 0) {
+            logger.info("【订阅提醒】其他节点正在执行，跳过");
+            return false;
+        }
 
-                    logger.info("Sent renewal reminder to user {} (expires in {} days)",
-                        user.getId(), daysUntilExpiry);
+        try {
+            String runKey = LocalDate.now().toString();
+            JobCheckpoint checkpoint = jobCheckpointMapper.selectByJob(JOB_NAME);
+            long cursor;
+            if (!runKey.equals(checkpoint.getRunKey())) {
+                jobCheckpointMapper.startRun(JOB_NAME, nodeId, runKey);
+                cursor = 0;
+            } else if (checkpoint.getStatus() == JobCheckpoint.STATUS_COMPLETED) {
+                logger.info("【订阅提醒】今日批次已完成，跳过");
+                return true;
+            } else {
+                cursor = checkpoint.getCursorId() != null ? checkpoint.getCursorId() : 0;
+                logger.info("【订阅提醒】从用户ID {} 之后继续（已处理 {}）", cursor, checkpoint.getProcessed());
+            }
 
-                } catch (Exception e) {
-                    logger.error("Failed to send reminder to user {}: {}",
-                        user.getId(), e.getMessage());
+            int total = 0;
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+            try {
+                while (true) {
+                    List<User> chunk = subscriptionService.findExpiringSubscriptions(
+                            DAYS_BEFORE_EXPIRY, (int) cursor, chunkSize);
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+                    long nextCursor = chunk.get(chunk.size() - 1).getId();
+                    Integer sent = transactionTemplate.execute(status -> {
+                        int n = subscriptionService.sendRenewalReminders(chunk, executor);
+                        if (jobCheckpointMapper.advance(JOB_NAME, nodeId, nextCursor, n, leaseUntil()) == 0) {
+                            // 租约已被其他节点接管，回滚本块
+                            throw new IllegalStateException("lease lost");
+                        }
+                        return n;
+                    });
+                    total += sent != null ? sent : 0;
+                    cursor = nextCursor;
+                    if (chunk.size() < chunkSize) {
+                        break;
+                    }
                 }
+            } finally {
+                executor.shutdown();
             }
 
-            logger.info("Subscription renewal reminder task completed");
-
-        } catch (Exception e) {
-            logger.error("Subscription renewal reminder task failed: {}", e.getMessage(), e);
+            jobCheckpointMapper.complete(JOB_NAME, nodeId);
+            logger.info("Subscription renewal reminder task completed, {} reminders sent", total);
+            return true;
+        } finally {
+            jobCheckpointMapper.release(JOB_NAME, nodeId);
         }
     }
 
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plusMinutes(leaseMinutes);
+    }
+
     /**
      * 每月 1 日凌晨 3:00 重置提醒状态
      * 允许下个月再次发送提醒
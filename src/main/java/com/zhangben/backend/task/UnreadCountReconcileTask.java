@@ -0,0 +1,41 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.service.cache.UnreadCountCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * V66: 未读通知计数对账定时任务
+ * 扫描 Redis 中的未读计数器，与 notification 表中的实际未读数比对并修正漂移
+ */
+@Component
+public class UnreadCountReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCountReconcileTask.class);
+
+    @Autowired
+    private UnreadCountCache unreadCountCache;
+
+    @Value("${notification.unread.reconcile.auto-repair:true}")
+    private boolean autoRepair;
+
+    /**
+     * 默认每 15 分钟执行一次
+     */
+    @Scheduled(cron = "${notification.unread.reconcile.cron:0 */15 * * * ?}")
+    public void reconcileUnreadCounts() {
+        try {
+            Map<String, Object> report = unreadCountCache.reconcile(autoRepair);
+            logger.debug("Unread count reconcile completed: checked={}, drift={}, repaired={}",
+                report.get("checked"), report.get("driftCount"), report.get("repaired"));
+        } catch (Exception e) {
+            logger.error("Unread count reconcile task failed: {}", e.getMessage(), e);
+        }
+    }
+}
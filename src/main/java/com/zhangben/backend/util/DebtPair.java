@@ -0,0 +1,34 @@
+package com.zhangben.backend.util;
+
+/**
+ * V55: 债务对编码工具
+ * 将 (debtor, creditor) 两个 int 打包为一个 long，替代 "debtor-creditor" 字符串键，
+ * 避免热点路径上的字符串拼接 / split / Integer.valueOf
+ */
+public final class DebtPair {
+
+    private DebtPair() {
+    }
+
+    /**
+     * 打包：高 32 位为债务人，低 32 位为债权人
+     */
+    public static long of(int debtor, int creditor) {
+        return ((long) debtor << 32) | (creditor & 0xFFFFFFFFL);
+    }
+
+    public static int debtor(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int creditor(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * 反向债务对（creditor 欠 debtor）
+     */
+    public static long reverse(long pair) {
+        return (pair << 32) | (pair >>> 32);
+    }
+}
@@ -0,0 +1,161 @@
+package com.zhangben.backend.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * V63: 请求内并行扇出
+ * 每个子任务一个虚拟线程，共享同一截止时间；join 最多等到截止时间，
+ * 超时 / 失败的子任务取默认值（部分结果），close 时中断仍未结束的子任务。
+ * 用法: try (FanOut f = FanOut.withTimeout(ms)) { Task a = f.fork(...); f.join(); a.getOrDefault(x); }
+ * 子任务运行在其他线程，不可依赖请求线程上下文（Sa-Token 登录态、RequestContextHolder）。
+ */
+public final class FanOut implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FanOut.class);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long deadlineNanos;
+    private final List<Task<?>> tasks = new ArrayList<>();
+
+    private FanOut(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    public static FanOut withTimeout(long timeoutMillis) {
+        return new FanOut(timeoutMillis);
+    }
+
+    public <T> Task<T> fork(String name, Callable<T> callable) {
+        Task<T> task = new Task<>(name);
+        task.future = executor.submit(() -> {
+            task.startNanos = System.nanoTime();
+            try {
+                return callable.call();
+            } finally {
+                task.endNanos = System.nanoTime();
+            }
+        });
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * 等待全部子任务完成或到达截止时间
+     */
+    public void join() {
+        for (Task<?> task : tasks) {
+            task.await(deadlineNanos);
+        }
+    }
+
+    /**
+     * 超时或失败的子任务名
+     */
+    public List<String> incomplete() {
+        List<String> names = new ArrayList<>();
+        for (Task<?> task : tasks) {
+            if (task.state != State.SUCCESS) names.add(task.name);
+        }
+        return names;
+    }
+
+    /**
+     * Server-Timing 头格式的各子任务耗时，如 "monthlyPaid;dur=3.1, settlement;dur=12.4;desc=timeout"
+     */
+    public String serverTiming() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Task<?> task : tasks) {
+            String entry = task.name + ";dur=" + String.format("%.1f", task.elapsedMicros() / 1000.0);
+            if (task.state != State.SUCCESS) {
+                entry += ";desc=" + task.state.name().toLowerCase();
+            }
+            joiner.add(entry);
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public void close() {
+        // 不等待超时的子任务，直接中断
+        executor.shutdownNow();
+    }
+
+    private enum State {
+        PENDING, SUCCESS, FAILED, TIMEOUT
+    }
+
+    public static final class Task<T> {
+        private final String name;
+        private final long forkNanos = System.nanoTime();
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private Future<T> future;
+        private State state = State.PENDING;
+        private T value;
+
+        private Task(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 子任务结果，超时或失败时返回默认值
+         */
+        public T getOrDefault(T defaultValue) {
+            return state == State.SUCCESS ? value : defaultValue;
+        }
+
+        public boolean isSuccess() {
+            return state == State.SUCCESS;
+        }
+
+        /**
+         * 子任务耗时（微秒）；未结束的按 fork 至今计算
+         */
+        public long elapsedMicros() {
+            long start = startNanos != 0 ? startNanos : forkNanos;
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMicros(end - start);
+        }
+
+        private void await(long deadlineNanos) {
+            if (state != State.PENDING) {
+                return;
+            }
+            try {
+                long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+                value = future.get(remaining, TimeUnit.NANOSECONDS);
+                state = State.SUCCESS;
+            } catch (TimeoutException e) {
+                state = State.TIMEOUT;
+                future.cancel(true);
+                logger.warn("【并行扇出】子任务超时: {} ({}ms)", name, elapsedMicros() / 1000);
+            } catch (ExecutionException e) {
+                state = State.FAILED;
+                logger.warn("【并行扇出】子任务失败: {}: {}", name, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (CancellationException e) {
+                state = State.FAILED;
+            } catch (InterruptedException e) {
+                state = State.TIMEOUT;
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
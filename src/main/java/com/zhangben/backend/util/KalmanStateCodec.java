@@ -0,0 +1,58 @@
+package com.zhangben.backend.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * V76: 卡尔曼状态的定长二进制编码（kalman_filter_state.state_blob）
+ *
+ * 布局（49 字节，大端）:
+ *   [0]      版本号，当前为 1
+ *   [1..16]  状态向量 level, trend
+ *   [17..48] 协方差 p00, p01, p10, p11（行优先）
+ * double 按 IEEE 754 原样存取，与 JSON 文本往返不同，不存在十进制转换误差。
+ * 解码直接写入 LinearTrendKalman 的字段，不分配中间数组。
+ */
+public final class KalmanStateCodec {
+
+    public static final byte VERSION = 1;
+
+    /** 编码后长度 */
+    public static final int LENGTH = 1 + 6 * Double.BYTES;
+
+    private static final VarHandle DOUBLE =
+            MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+    private KalmanStateCodec() {
+    }
+
+    /**
+     * 编码卡尔曼滤波器当前的状态与协方差
+     */
+    public static byte[] encode(LinearTrendKalman kf) {
+        byte[] blob = new byte[LENGTH];
+        blob[0] = VERSION;
+        DOUBLE.set(blob, 1, kf.level());
+        DOUBLE.set(blob, 9, kf.trend());
+        DOUBLE.set(blob, 17, kf.levelVariance());
+        DOUBLE.set(blob, 25, kf.covariance01());
+        DOUBLE.set(blob, 33, kf.covariance10());
+        DOUBLE.set(blob, 41, kf.trendVariance());
+        return blob;
+    }
+
+    /**
+     * 解码到 kf（状态、协方差与观测噪声 R 一并重置）；版本或长度不符时抛 IllegalArgumentException
+     */
+    public static void decodeInto(byte[] blob, LinearTrendKalman kf, double measurementNoise) {
+        if (blob == null || blob.length != LENGTH || blob[0] != VERSION) {
+            throw new IllegalArgumentException("unsupported kalman state encoding: "
+                    + (blob == null ? "null" : "version=" + (blob.length > 0 ? blob[0] : -1) + ", length=" + blob.length));
+        }
+        kf.reset((double) DOUBLE.get(blob, 1), (double) DOUBLE.get(blob, 9),
+                (double) DOUBLE.get(blob, 17), (double) DOUBLE.get(blob, 25),
+                (double) DOUBLE.get(blob, 33), (double) DOUBLE.get(blob, 41),
+                measurementNoise);
+    }
+}
@@ -0,0 +1,162 @@
+package com.zhangben.backend.util;
+
+/**
+ * V74: 二维状态（水平, 趋势）/ 一维观测的卡尔曼滤波内核，全部为 double 字段，predict / correct 不分配对象
+ *
+ * 模型固定为 A = [[1,1],[0,1]]，H = [1,0]，Q = diag(qLevel, qTrend)，R 为标量。
+ * 各步骤按 commons-math3 KalmanFilter（Array2DRowRealMatrix 乘法、1x1 Cholesky 求解增益）的运算顺序展开，
+ * 代入 A / H 中的 0 和 1 后逐项化简；乘 1、加 0 在浮点下精确，因此结果与原实现逐位一致。
+ * 实例非线程安全，每次训练使用一个实例。
+ */
+public class LinearTrendKalman {
+
+    /** CholeskyDecomposition 默认的正定阈值，创新协方差不大于它时原实现抛异常 */
+    private static final double POSITIVITY_THRESHOLD = 1.0e-10;
+
+    private final double qLevel;
+    private final double qTrend;
+    private double r;
+
+    // 状态估计 x = [level, trend]
+    private double x0;
+    private double x1;
+
+    // 误差协方差 P
+    private double p00;
+    private double p01;
+    private double p10;
+    private double p11;
+
+    public LinearTrendKalman(double qLevel, double qTrend) {
+        this.qLevel = qLevel;
+        this.qTrend = qTrend;
+    }
+
+    /**
+     * 设置初始状态、协方差（2x2）与观测噪声 R
+     */
+    public void reset(double[] state, double[][] covariance, double measurementNoise) {
+        x0 = state[0];
+        x1 = state[1];
+        p00 = covariance[0][0];
+        p01 = covariance[0][1];
+        p10 = covariance[1][0];
+        p11 = covariance[1][1];
+        r = measurementNoise;
+    }
+
+    /**
+     * V76: 按分量设置初始状态、协方差与观测噪声 R（KalmanStateCodec 解码用，不经过中间数组）
+     */
+    public void reset(double level, double trend,
+                      double cov00, double cov01, double cov10, double cov11,
+                      double measurementNoise) {
+        x0 = level;
+        x1 = trend;
+        p00 = cov00;
+        p01 = cov01;
+        p10 = cov10;
+        p11 = cov11;
+        r = measurementNoise;
+    }
+
+    public void setMeasurementNoise(double measurementNoise) {
+        r = measurementNoise;
+    }
+
+    /**
+     * V76: 货币换算时按比例缩放: x *= ratio，P *= ratio²
+     */
+    public void rescale(double ratio) {
+        x0 *= ratio;
+        x1 *= ratio;
+        double r2 = ratio * ratio;
+        p00 *= r2;
+        p01 *= r2;
+        p10 *= r2;
+        p11 *= r2;
+    }
+
+    /**
+     * 预测一步: x = A x，P = A P Aᵀ + Q
+     */
+    public void predict() {
+        x0 = x0 + x1;
+
+        // A P
+        double ap00 = p00 + p10;
+        double ap01 = p01 + p11;
+        // (A P) Aᵀ + Q
+        p00 = ap00 + ap01 + qLevel;
+        p01 = ap01;
+        p10 = p10 + p11;
+        p11 = p11 + qTrend;
+    }
+
+    /**
+     * 用观测值 z 校正: K = P Hᵀ S⁻¹，x = x + K (z - H x)，P = (I - K H) P
+     */
+    public void correct(double z) {
+        double s = p00 + r;
+        if (s <= POSITIVITY_THRESHOLD) {
+            throw new IllegalStateException("innovation covariance is not positive definite: " + s);
+        }
+        double innovation = z - x0;
+
+        // 与 Cholesky 求解一致：先除 L 再除 Lᵀ（L = √S）
+        double l = Math.sqrt(s);
+        double k0 = p00 / l / l;
+        double k1 = p10 / l / l;
+
+        x0 = x0 + k0 * innovation;
+        x1 = x1 + k1 * innovation;
+
+        double oneMinusK0 = 1 - k0;
+        double n00 = oneMinusK0 * p00;
+        double n01 = oneMinusK0 * p01;
+        double n10 = -k1 * p00 + p10;
+        double n11 = -k1 * p01 + p11;
+        p00 = n00;
+        p01 = n01;
+        p10 = n10;
+        p11 = n11;
+    }
+
+    public double level() {
+        return x0;
+    }
+
+    public double trend() {
+        return x1;
+    }
+
+    /**
+     * 水平分量的方差 P[0][0]
+     */
+    public double levelVariance() {
+        return p00;
+    }
+
+    public double covariance01() {
+        return p01;
+    }
+
+    public double covariance10() {
+        return p10;
+    }
+
+    /**
+     * 趋势分量的方差 P[1][1]
+     */
+    public double trendVariance() {
+        return p11;
+    }
+
+    public double[] stateVector() {
+        return new double[]{x0, x1};
+    }
+
+    public double[][] covarianceMatrix() {
+        return new double[][]{{p00, p01}, {p10, p11}};
+    }
+}
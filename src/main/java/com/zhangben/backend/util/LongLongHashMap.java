@@ -0,0 +1,231 @@
+package com.zhangben.backend.util;
+
+/**
+ * V55: long → long 开放寻址哈希表（线性探测）
+ * 用于欠款计算中以 DebtPair 为键的金额累计，键值均为基本类型，不产生装箱对象。
+ * 删除采用回移（backward shift）而非墓碑，删除后探测链仍然连续；遍历过程中不能删除。
+ */
+public class LongLongHashMap {
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 8;
+
+    /** 0 作为空槽标记，键 0 单独存放 */
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+    private int mask;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return slotOf(key) >= 0;
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public void put(long key, long value) {
+        if (key == 0) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = findOrInsert(key);
+        values[slot] = value;
+    }
+
+    /**
+     * 累加：不存在时视为 0
+     */
+    public void addTo(long key, long delta) {
+        if (key == 0) {
+            zeroValue = hasZeroKey ? zeroValue + delta : delta;
+            hasZeroKey = true;
+            return;
+        }
+        int slot = findOrInsert(key);
+        values[slot] += delta;
+    }
+
+    /**
+     * 删除键，返回删除前是否存在
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            boolean existed = hasZeroKey;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return existed;
+        }
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        shiftConflictingKeys(slot);
+        size--;
+        return true;
+    }
+
+    /**
+     * 遍历游标，用法：for (Cursor c = map.cursor(); c.advance(); ) { c.key(); c.value(); }
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public class Cursor {
+        private int index = -1;
+        private long key;
+        private long value;
+
+        public boolean advance() {
+            while (++index < keys.length) {
+                if (keys[index] != 0) {
+                    key = keys[index];
+                    value = values[index];
+                    return true;
+                }
+            }
+            if (index == keys.length && hasZeroKey) {
+                key = 0;
+                value = zeroValue;
+                return true;
+            }
+            return false;
+        }
+
+        public long key() {
+            return key;
+        }
+
+        public long value() {
+            return value;
+        }
+    }
+
+    private int slotOf(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findOrInsert(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= resizeAt) {
+            rehash(keys.length << 1);
+            return findOrInsert(key);
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    /**
+     * 回移删除：空槽之后的键若其探测链（理想槽位 → 当前槽位）经过空槽，则前移填补，
+     * 直到遇到真正的空槽，保证查找不会在链中间提前停下
+     */
+    private void shiftConflictingKeys(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long k = keys[slot];
+            if (k == 0) {
+                break;
+            }
+            int ideal = mix(k) & mask;
+            if (((slot - ideal) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k != 0) {
+                int slot = mix(k) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /** murmur3 fmix64，打散 DebtPair 高低位 */
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongHashMap{size=" + size() + ", capacity=" + keys.length + "}";
+    }
+}
@@ -0,0 +1,44 @@
+-- V52: 两两欠款账本（debt_ledger）
+-- 按 (作用域, 债务人, 债权人, 币种) 累计原始欠款，正向为消费分摊、负向为已确认还款。
+-- activity_id = 0 表示一般模式（outcome.activity_id 为 NULL 或 0），其余为活动作用域。
+-- 净额 = ledger(A,B) - ledger(B,A)，读取时按币种汇总后计算。
+
+CREATE TABLE IF NOT EXISTS debt_ledger (
+    activity_id  INT          NOT NULL DEFAULT 0  COMMENT '作用域：0=一般模式，其余=活动ID',
+    debtor_id    INT          NOT NULL            COMMENT '债务人',
+    creditor_id  INT          NOT NULL            COMMENT '债权人',
+    currency     VARCHAR(10)  NOT NULL DEFAULT '' COMMENT '结算币种（target_currency_snapshot），未知为空串',
+    amount       BIGINT       NOT NULL DEFAULT 0  COMMENT '原始欠款累计（分）',
+    updated_at   DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (activity_id, debtor_id, creditor_id, currency),
+    KEY idx_debt_ledger_creditor (activity_id, creditor_id, debtor_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='两两欠款账本';
+
+-- 初始回填：与 DebtLedgerMapper.selectExpectedEntries 口径一致
+INSERT INTO debt_ledger (activity_id, debtor_id, creditor_id, currency, amount)
+SELECT t.activity_id, t.debtor_id, t.creditor_id, t.currency, SUM(t.amount)
+FROM (
+    SELECT COALESCE(o.activity_id, 0) AS activity_id,
+           p.user_id AS debtor_id,
+           o.payer_userid AS creditor_id,
+           COALESCE(o.target_currency_snapshot, '') AS currency,
+           o.per_amount * COALESCE(p.shares, 1) AS amount
+    FROM outcome o
+    JOIN outcome_participant p ON p.outcome_id = o.id
+    WHERE o.deleted_flag = 0
+      AND o.repay_flag = 1
+      AND p.user_id <> o.payer_userid
+    UNION ALL
+    SELECT COALESCE(o.activity_id, 0),
+           COALESCE(o.on_behalf_of, o.payer_userid),
+           o.target_userid,
+           COALESCE(o.target_currency_snapshot, ''),
+           -o.amount
+    FROM outcome o
+    JOIN outcome_participant p ON p.outcome_id = o.id AND p.user_id = o.target_userid
+    WHERE o.deleted_flag = 0
+      AND o.repay_flag = 2
+      AND p.confirm_status = 1
+) t
+GROUP BY t.activity_id, t.debtor_id, t.creditor_id, t.currency
+ON DUPLICATE KEY UPDATE amount = VALUES(amount);
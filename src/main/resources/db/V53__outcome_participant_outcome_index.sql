@@ -0,0 +1,4 @@
+-- V53: 批量加载参与者（OutcomeParticipantMapper.selectByOutcomeIds）使用的索引
+-- 覆盖 outcome_id IN (...) 查询以及按 (outcome_id, user_id) 查找确认状态
+
+CREATE INDEX idx_op_outcome_user ON outcome_participant (outcome_id, user_id, confirm_status, shares);
@@ -0,0 +1,14 @@
+-- V54: 按用户范围查询账单（OutcomeMapper.selectGeneralByInvolvedUser / selectGeneralBetweenUsers /
+-- sumPendingRepaymentsByDebtor）使用的索引，替代全表扫描 outcome
+
+-- 付款人维度：消费明细、FIFO 还款
+CREATE INDEX idx_outcome_payer_flag ON outcome (payer_userid, repay_flag, deleted_flag, pay_datetime);
+
+-- 还款对象维度：待确认还款汇总（覆盖 GROUP BY 所需字段）
+CREATE INDEX idx_outcome_target_flag ON outcome (target_userid, repay_flag, deleted_flag, on_behalf_of, payer_userid, amount);
+
+-- 被代还人维度
+CREATE INDEX idx_outcome_on_behalf_of ON outcome (on_behalf_of);
+
+-- 参与者维度：某用户参与的全部账单
+CREATE INDEX idx_op_user_outcome ON outcome_participant (user_id, outcome_id);
@@ -0,0 +1,40 @@
+-- V61: 月度支出物化表（user_monthly_spending）拆分固定 / 变动支出，改为随账单写入增量维护
+-- 口径与原 PredictionMapper.aggregate*Spending 一致：每条参与记录计 per_amount、笔数 1，
+-- 分类 is_fixed = TRUE 计入固定，其余（含无分类）计入变动。
+
+ALTER TABLE user_monthly_spending
+    ADD COLUMN fixed_spending    BIGINT NOT NULL DEFAULT 0 COMMENT '固定支出（分）' AFTER transaction_count,
+    ADD COLUMN fixed_count       INT    NOT NULL DEFAULT 0 COMMENT '固定支出笔数' AFTER fixed_spending,
+    ADD COLUMN variable_spending BIGINT NOT NULL DEFAULT 0 COMMENT '变动支出（分）' AFTER fixed_count,
+    ADD COLUMN variable_count    INT    NOT NULL DEFAULT 0 COMMENT '变动支出笔数' AFTER variable_spending;
+
+-- 原表只在访问预测接口时刷新，先清零再整体回填，最后删除已无数据的月份
+UPDATE user_monthly_spending
+SET total_spending = 0, transaction_count = 0,
+    fixed_spending = 0, fixed_count = 0, variable_spending = 0, variable_count = 0;
+
+INSERT INTO user_monthly_spending (user_id, month, total_spending, transaction_count,
+                                   fixed_spending, fixed_count, variable_spending, variable_count)
+SELECT p.user_id,
+       DATE_FORMAT(o.pay_datetime, '%Y-%m'),
+       SUM(o.per_amount),
+       COUNT(*),
+       SUM(CASE WHEN ps.is_fixed = TRUE THEN o.per_amount ELSE 0 END),
+       SUM(CASE WHEN ps.is_fixed = TRUE THEN 1 ELSE 0 END),
+       SUM(CASE WHEN ps.is_fixed = TRUE THEN 0 ELSE o.per_amount END),
+       SUM(CASE WHEN ps.is_fixed = TRUE THEN 0 ELSE 1 END)
+FROM outcome o
+JOIN outcome_participant p ON p.outcome_id = o.id
+LEFT JOIN pay_style ps ON ps.id = o.style_id
+WHERE o.deleted_flag = 0
+  AND o.repay_flag = 1
+GROUP BY p.user_id, DATE_FORMAT(o.pay_datetime, '%Y-%m')
+ON DUPLICATE KEY UPDATE
+    total_spending    = VALUES(total_spending),
+    transaction_count = VALUES(transaction_count),
+    fixed_spending    = VALUES(fixed_spending),
+    fixed_count       = VALUES(fixed_count),
+    variable_spending = VALUES(variable_spending),
+    variable_count    = VALUES(variable_count);
+
+DELETE FROM user_monthly_spending WHERE transaction_count = 0;
@@ -0,0 +1,35 @@
+-- V62: 用户每日消费汇总（user_daily_spend），替代 StatsMapper 每次 outcome × outcome_participant 全量聚合
+-- 粒度 (用户, 日期, 分类, 付款人)：payer_id = user_id 为本人支付，否则为他人代付（应付）。
+-- 口径与原统计一致：每条参与记录计 per_amount、笔数 1；share_amount 为 per_amount * shares（应付统计用）。
+-- 无分类记为 style_id = 0。
+
+CREATE TABLE IF NOT EXISTS user_daily_spend (
+    user_id       INT     NOT NULL            COMMENT '参与者',
+    day           DATE    NOT NULL            COMMENT '消费日期（pay_datetime 的日期部分）',
+    style_id      INT     NOT NULL DEFAULT 0  COMMENT '分类，0=无分类',
+    payer_id      INT     NOT NULL            COMMENT '付款人',
+    amount        BIGINT  NOT NULL DEFAULT 0  COMMENT 'SUM(per_amount)（分）',
+    share_amount  BIGINT  NOT NULL DEFAULT 0  COMMENT 'SUM(per_amount * shares)（分）',
+    txn_count     INT     NOT NULL DEFAULT 0  COMMENT '参与记录数',
+    updated_at    DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, day, style_id, payer_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户每日消费汇总';
+
+-- 初始回填：与 DailySpendMapper.insertUsersFromOutcome 口径一致（大库可改用 POST /api/admin/daily-spend/rebuild 分段执行）
+INSERT INTO user_daily_spend (user_id, day, style_id, payer_id, amount, share_amount, txn_count)
+SELECT p.user_id,
+       DATE(o.pay_datetime),
+       COALESCE(o.style_id, 0),
+       o.payer_userid,
+       SUM(o.per_amount),
+       SUM(o.per_amount * COALESCE(p.shares, 1)),
+       COUNT(*)
+FROM outcome o
+JOIN outcome_participant p ON p.outcome_id = o.id
+WHERE o.deleted_flag = 0
+  AND o.repay_flag = 1
+GROUP BY p.user_id, DATE(o.pay_datetime), COALESCE(o.style_id, 0), o.payer_userid
+ON DUPLICATE KEY UPDATE
+    amount       = VALUES(amount),
+    share_amount = VALUES(share_amount),
+    txn_count    = VALUES(txn_count);
@@ -0,0 +1,23 @@
+-- V68: 邮件发件箱（email_outbox）
+-- 业务事务内写入，提交后由 EmailOutboxWorker 批量领取（SELECT ... FOR UPDATE SKIP LOCKED）并发送，
+-- 失败按指数退避重试，进程崩溃后领取租约到期自动重新投递。
+-- status: 0=待发送 1=发送中（next_attempt_at 为租约到期时间） 2=已发送 3=最终失败
+
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id               BIGINT        NOT NULL AUTO_INCREMENT,
+    to_email         VARCHAR(255)  NOT NULL               COMMENT '收件人邮箱',
+    to_name          VARCHAR(100)  NULL                   COMMENT '收件人名称',
+    subject          VARCHAR(500)  NOT NULL               COMMENT '邮件主题',
+    html_content     MEDIUMTEXT    NOT NULL               COMMENT 'HTML 正文（入队时已渲染）',
+    status           TINYINT       NOT NULL DEFAULT 0     COMMENT '0=待发送 1=发送中 2=已发送 3=最终失败',
+    attempts         INT           NOT NULL DEFAULT 0     COMMENT '已尝试次数',
+    next_attempt_at  DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可领取时间',
+    provider         VARCHAR(32)   NULL                   COMMENT '最后一次使用的供应商',
+    message_id       VARCHAR(255)  NULL                   COMMENT '供应商返回的消息ID',
+    last_result      VARCHAR(500)  NULL                   COMMENT '最后一次 EmailResult 信息',
+    created_at       DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at          DATETIME      NULL,
+    PRIMARY KEY (id),
+    KEY idx_email_outbox_claim (status, next_attempt_at),
+    KEY idx_email_outbox_created (status, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='邮件发件箱';
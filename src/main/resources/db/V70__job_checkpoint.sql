@@ -0,0 +1,18 @@
+-- V70: 批处理任务检查点（job_checkpoint）
+-- 每个任务一行：当前批次（run_key，如日期）、已处理到的游标、状态，以及执行节点的租约。
+-- 游标随每个分块的业务写入在同一事务内推进，进程崩溃后从最后提交的分块之后继续，不重复也不遗漏；
+-- 租约保证多节点部署时同一任务同一时刻只有一个节点在跑。
+-- status: 0=运行中（未完成） 1=已完成
+
+CREATE TABLE IF NOT EXISTS job_checkpoint (
+    job_name     VARCHAR(64)  NOT NULL               COMMENT '任务名',
+    run_key      VARCHAR(64)  NOT NULL DEFAULT ''    COMMENT '当前批次标识（如 2026-10-17）',
+    cursor_id    BIGINT       NOT NULL DEFAULT 0     COMMENT '已处理到的最大ID',
+    status       TINYINT      NOT NULL DEFAULT 1     COMMENT '0=运行中 1=已完成',
+    processed    INT          NOT NULL DEFAULT 0     COMMENT '本批次已处理数',
+    owner        VARCHAR(64)  NULL                   COMMENT '持有租约的节点',
+    lease_until  DATETIME     NULL                   COMMENT '租约到期时间',
+    started_at   DATETIME     NULL,
+    updated_at   DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (job_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='批处理任务检查点';
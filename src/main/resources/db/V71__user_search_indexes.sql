@@ -0,0 +1,15 @@
+-- V71: 用户搜索（UserMapper.searchByEmail / searchByNicknamePrefix / searchByFulltext）使用的索引，
+-- 替代 nickname / email / firstname / secondname 四个 LIKE '%kw%' 的全表扫描
+
+-- 邮箱精确匹配（已有 email 唯一索引时可跳过）
+CREATE INDEX idx_user_email ON user (email);
+
+-- 昵称前缀匹配
+CREATE INDEX idx_user_nickname ON user (nickname);
+
+-- 子串匹配：ngram 分词（默认 ngram_token_size=2），中日文昵称 / 姓名同样适用
+-- 建索引时关闭停用词：默认停用词表含 at / on / in / to / co 等，ngram 切出的这类双字母词不会入索引，
+-- 含这些片段的昵称 / 邮箱（如 "jonathan"、"@example.com"）短语匹配会漏掉。该设置在建索引时生效
+SET SESSION innodb_ft_enable_stopword = OFF;
+CREATE FULLTEXT INDEX ft_user_search ON user (nickname, email, firstname, secondname) WITH PARSER ngram;
+SET SESSION innodb_ft_enable_stopword = ON;
@@ -0,0 +1,9 @@
+-- V72: 账单搜索（OutcomeMapper.searchByPayer / countSearchByPayer）
+-- 备注全文检索：ngram 分词（默认 ngram_token_size=2），中日文备注同样适用
+-- 与 V71 相同，建索引时关闭停用词，否则 at / on / in / to 等双字母片段不入索引，含这些片段的短语永远搜不到
+SET SESSION innodb_ft_enable_stopword = OFF;
+CREATE FULLTEXT INDEX ft_outcome_comment ON outcome (comment) WITH PARSER ngram;
+SET SESSION innodb_ft_enable_stopword = ON;
+
+-- 按付款人倒序翻页：(pay_datetime, id) 游标直接定位，不再扫描后内存切片
+CREATE INDEX idx_outcome_payer_search ON outcome (payer_userid, deleted_flag, pay_datetime, id);
@@ -0,0 +1,33 @@
+-- V73: 用户账单时间线（user_timeline），替代 OutcomeMapper.selectPagedByUser 的三路 UNION ALL
+-- 每个 (用户, 账单) 一行，role 取优先级最高的身份：
+--   1 = 付款人（含还款的付款人）
+--   2 = 还款对象（repay_flag = 2 的 target_userid）
+--   3 = 他人付款的消费分摊参与者（repay_flag = 1）
+-- 只保存未删除的账单；删除账单时删除对应行。pay_datetime 冗余自 outcome，用于按月 / 按日筛选。
+
+CREATE TABLE IF NOT EXISTS user_timeline (
+    user_id       INT      NOT NULL  COMMENT '用户',
+    outcome_id    INT      NOT NULL  COMMENT '账单',
+    role          TINYINT  NOT NULL  COMMENT '1=付款人 2=还款对象 3=分摊参与者',
+    pay_datetime  DATETIME NOT NULL  COMMENT '账单时间（冗余）',
+    PRIMARY KEY (user_id, outcome_id),
+    KEY idx_timeline_user_time (user_id, pay_datetime, role),
+    KEY idx_timeline_outcome (outcome_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户账单时间线';
+
+-- 初始回填：按身份优先级依次写入，已存在的 (用户, 账单) 保留先写入的身份
+INSERT IGNORE INTO user_timeline (user_id, outcome_id, role, pay_datetime)
+SELECT payer_userid, id, 1, pay_datetime
+FROM outcome
+WHERE deleted_flag = 0 AND payer_userid IS NOT NULL;
+
+INSERT IGNORE INTO user_timeline (user_id, outcome_id, role, pay_datetime)
+SELECT target_userid, id, 2, pay_datetime
+FROM outcome
+WHERE deleted_flag = 0 AND repay_flag = 2 AND target_userid IS NOT NULL;
+
+INSERT IGNORE INTO user_timeline (user_id, outcome_id, role, pay_datetime)
+SELECT op.user_id, o.id, 3, o.pay_datetime
+FROM outcome o
+JOIN outcome_participant op ON op.outcome_id = o.id
+WHERE o.deleted_flag = 0 AND o.repay_flag = 1 AND op.user_id <> o.payer_userid;
@@ -0,0 +1,8 @@
+-- V75: 夜间批量重训（PredictionMapper.batchUpsertKalmanState）按 user_id 做 INSERT ... ON DUPLICATE KEY UPDATE，
+-- 需要 kalman_filter_state.user_id 唯一（已有 user_id 唯一索引时可跳过）。
+-- 懒加载路径曾是“先查再插”，并发首次访问可能插入重复行：只保留每个用户 id 最大的一行。
+
+DELETE k1 FROM kalman_filter_state k1
+JOIN kalman_filter_state k2 ON k2.user_id = k1.user_id AND k2.id > k1.id;
+
+CREATE UNIQUE INDEX uk_kalman_user ON kalman_filter_state (user_id);
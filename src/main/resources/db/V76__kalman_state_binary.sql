@@ -0,0 +1,8 @@
+-- V76: 卡尔曼状态改为定长二进制编码（KalmanStateCodec: 1 字节版本 + 6 个 double，共 49 字节）
+-- 新写入只填 state_blob，state_vector / covariance_matrix 置 NULL；
+-- 旧行读取时回退解析 JSON，由夜间批量重训（PredictionRetrainTask）逐批改写为二进制，之后 JSON 列可删除。
+
+ALTER TABLE kalman_filter_state
+    ADD COLUMN state_blob VARBINARY(64) NULL COMMENT '状态向量 + 协方差（二进制，见 KalmanStateCodec）' AFTER covariance_matrix,
+    MODIFY COLUMN state_vector TEXT NULL COMMENT 'V76 之前的 JSON 状态向量',
+    MODIFY COLUMN covariance_matrix TEXT NULL COMMENT 'V76 之前的 JSON 协方差';
@@ -0,0 +1,3 @@
+-- V77: 每日消费汇总按日期核对（DailySpendMapper.selectDayTotals / selectUserTotalsByDay）使用的索引
+-- 主键以 user_id 开头，按日期汇总全站合计时无法利用
+CREATE INDEX idx_uds_day ON user_daily_spend (day, user_id);
@@ -0,0 +1,107 @@
+package com.zhangben.backend.config;
+
+import com.zhangben.backend.config.DownstreamLimiter.BusyException;
+import com.zhangben.backend.config.DownstreamLimiter.Downstream;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * V64: 许可在调用异常时也会归还；排队超时 / 被中断时拒绝；并发占用不超过许可数
+ */
+class DownstreamLimiterTest {
+
+    @Test
+    void permitIsReleasedWhenActionThrows() {
+        DownstreamLimiter limiter = new DownstreamLimiter(1, 50, 1, 50);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> limiter.call(Downstream.DB, () -> {
+                throw new IllegalStateException("sql error");
+            }));
+        }
+
+        // 只有 1 个许可：如果异常时没有归还，这里会等待超时
+        assertEquals("ok", limiter.call(Downstream.DB, () -> "ok"));
+        assertEquals(0, stat(limiter, Downstream.DB, "inUse"));
+        assertEquals(6L, stat(limiter, Downstream.DB, "acquired"));
+        assertEquals(0L, stat(limiter, Downstream.DB, "rejected"));
+    }
+
+    @Test
+    void rejectsAfterAcquireTimeoutAndRecovers() {
+        DownstreamLimiter limiter = new DownstreamLimiter(1, 50, 1, 50);
+        limiter.acquire(Downstream.MAIL);
+
+        long start = System.nanoTime();
+        assertThrows(BusyException.class, () -> limiter.call(Downstream.MAIL, () -> "sent"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40, "排队到 acquire-timeout 才拒绝");
+        assertEquals(1L, stat(limiter, Downstream.MAIL, "rejected"));
+        // 两个下游互不影响
+        assertEquals("ok", limiter.call(Downstream.DB, () -> "ok"));
+
+        limiter.release(Downstream.MAIL);
+        assertEquals("sent", limiter.call(Downstream.MAIL, () -> "sent"));
+    }
+
+    @Test
+    void interruptedWaitIsRejectedAndKeepsInterruptFlag() {
+        DownstreamLimiter limiter = new DownstreamLimiter(1, 5000, 1, 5000);
+        limiter.acquire(Downstream.DB);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(BusyException.class, () -> limiter.call(Downstream.DB, () -> "ok"));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+            limiter.release(Downstream.DB);
+        }
+        assertEquals(0, stat(limiter, Downstream.DB, "inUse"));
+    }
+
+    @Test
+    void concurrentCallersNeverExceedPermits() throws InterruptedException {
+        DownstreamLimiter limiter = new DownstreamLimiter(3, 10000, 1, 50);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(30);
+
+        for (int i = 0; i < 30; i++) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    limiter.call(Downstream.DB, () -> {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(10);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        inFlight.decrementAndGet();
+                        return null;
+                    });
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+        assertTrue((int) stat(limiter, Downstream.DB, "peakInUse") <= 3);
+        assertEquals(30L, stat(limiter, Downstream.DB, "acquired"));
+        assertEquals(0, stat(limiter, Downstream.DB, "inUse"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object stat(DownstreamLimiter limiter, Downstream downstream, String key) {
+        return ((Map<String, Object>) limiter.getStats().get(downstream.name())).get(key);
+    }
+}
@@ -0,0 +1,93 @@
+package com.zhangben.backend.mapper;
+
+import org.apache.ibatis.session.Configuration;
+import org.h2.jdbcx.JdbcDataSource;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+/**
+ * 测试用内存库：H2（MySQL 模式）+ 真实的 XML Mapper，与应用相同的 MyBatis 配置
+ * 建表直接执行 db/ 下的迁移脚本；每个实例一个独立的库，用完 close()
+ */
+public final class H2Mappers implements AutoCloseable {
+
+    private final JdbcTemplate jdbc;
+    private final DataSourceTransactionManager transactionManager;
+    private final SqlSessionTemplate sqlSession;
+
+    private H2Mappers(DataSource raw, DataSource dataSource, String[] scripts, String[] mappers) throws Exception {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        for (String script : scripts) {
+            populator.addScript(new ClassPathResource(script));
+        }
+        populator.execute(raw);
+
+        Configuration configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setConfiguration(configuration);
+        factory.setTypeAliasesPackage("com.zhangben.backend.model");
+        Resource[] locations = new Resource[mappers.length];
+        for (int i = 0; i < mappers.length; i++) {
+            locations[i] = new ClassPathResource(mappers[i]);
+        }
+        factory.setMapperLocations(locations);
+
+        this.jdbc = new JdbcTemplate(raw);
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+        this.sqlSession = new SqlSessionTemplate(factory.getObject());
+    }
+
+    /**
+     * @param scripts 建表脚本（classpath，如 db/V68__email_outbox.sql）
+     * @param mappers Mapper XML（classpath，如 mapper/EmailOutboxMapper.xml）
+     */
+    public static H2Mappers create(String[] scripts, String... mappers) {
+        return create(UnaryOperator.identity(), scripts, mappers);
+    }
+
+    /**
+     * @param wrap 包装 Mapper 使用的数据源（如统计语句数的代理）；建表与 jdbc() 不经过包装
+     */
+    public static H2Mappers create(UnaryOperator<DataSource> wrap, String[] scripts, String... mappers) {
+        JdbcDataSource raw = new JdbcDataSource();
+        // user 在 H2 中是关键字，MySQL 中不是
+        raw.setURL("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1");
+        try {
+            return new H2Mappers(raw, wrap.apply(raw), scripts, mappers);
+        } catch (Exception e) {
+            throw new IllegalStateException("H2 初始化失败", e);
+        }
+    }
+
+    public <T> T mapper(Class<T> type) {
+        return sqlSession.getMapper(type);
+    }
+
+    public DataSourceTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * 直接访问库（造数据 / 断言），不经过 Mapper 的数据源包装
+     */
+    public JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    @Override
+    public void close() {
+        jdbc.execute("SHUTDOWN");
+    }
+}
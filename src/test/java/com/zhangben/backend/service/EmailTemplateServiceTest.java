@@ -0,0 +1,112 @@
+package com.zhangben.backend.service;
+
+import com.zhangben.backend.model.EmailTemplate;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V69: 已编译模板缓存的失效、过期与容量淘汰都会释放模板内容，不随淘汰次数无限增长
+ */
+@ExtendWith(MockitoExtension.class)
+class EmailTemplateServiceTest {
+
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
+    @InjectMocks
+    private EmailTemplateService emailTemplateService;
+
+    @Test
+    void invalidationReleasesSourcesAndReloadsNewVersion() {
+        Consumer<String> listener = init(500, 30);
+        when(referenceDataCache.getTemplate("bill", "zh-CN"))
+                .thenReturn(template(1, "bill", "<p th:text=\"${name}\">x</p>", 1000L),
+                        template(1, "bill", "<b th:text=\"${name}\">x</b>", 2000L));
+
+        assertEquals("<p>张三</p>", render("bill"));
+        assertEquals("<p>张三</p>", render("bill"));
+        assertEquals(2, stats().get("parsedVersions"));
+
+        listener.accept("bill|zh-CN");
+        assertEquals(0, stats().get("parsedVersions"));
+
+        assertEquals("<b>张三</b>", render("bill"));
+        assertEquals(2L, stats().get("loads"));
+        assertEquals(1L, stats().get("evictions"));
+    }
+
+    @Test
+    void expiredEntriesAreReloadedAndReleased() {
+        init(500, 0);
+        when(referenceDataCache.getTemplate("bill", "zh-CN"))
+                .thenReturn(template(1, "bill", "<p th:text=\"${name}\">x</p>", 1000L));
+
+        // TTL 为 0 时每次都重新加载，过期条目的模板内容随即释放，渲染退回原始内容
+        assertEquals("<p>张三</p>", render("bill"));
+        assertEquals("<p>张三</p>", render("bill"));
+
+        verify(referenceDataCache, times(2)).getTemplate("bill", "zh-CN");
+        assertEquals(0, stats().get("parsedVersions"));
+    }
+
+    @Test
+    void sizeEvictionReleasesSources() {
+        init(1, 30);
+        for (int i = 1; i <= 20; i++) {
+            String code = "t" + i;
+            when(referenceDataCache.getTemplate(code, "zh-CN"))
+                    .thenReturn(template(i, code, "<i th:text=\"${name}\">x</i>", 1000L));
+            assertEquals("<i>张三</i>", render(code));
+        }
+
+        // 容量为 1：最多保留一个模板的 html + subject
+        assertEquals(2, stats().get("parsedVersions"));
+    }
+
+    private Consumer<String> init(long maxSize, long ttlMinutes) {
+        ReflectionTestUtils.setField(emailTemplateService, "compiledCacheEnabled", true);
+        ReflectionTestUtils.setField(emailTemplateService, "compiledCacheMaxSize", maxSize);
+        ReflectionTestUtils.setField(emailTemplateService, "compiledCacheTtlMinutes", ttlMinutes);
+        emailTemplateService.init();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(referenceDataCache).addInvalidationListener(eq(ReferenceDataCache.Region.EMAIL_TEMPLATE), listener.capture());
+        return listener.getValue();
+    }
+
+    private String render(String code) {
+        return emailTemplateService.renderTemplate(code, "zh-CN", Map.of("name", "张三"));
+    }
+
+    private Map<String, Object> stats() {
+        return emailTemplateService.getCompiledCacheStats();
+    }
+
+    private static EmailTemplate template(int id, String code, String html, long updatedAt) {
+        EmailTemplate t = new EmailTemplate();
+        t.setId(id);
+        t.setTemplateCode(code);
+        t.setLanguage("zh-CN");
+        t.setSubject("通知");
+        t.setHtmlContent(html);
+        t.setUpdatedAt(new Date(updatedAt));
+        return t;
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhangben.backend.service;
+
+import com.zhangben.backend.model.KalmanFilterState;
+import com.zhangben.backend.util.KalmanStateCodec;
+import com.zhangben.backend.util.LinearTrendKalman;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * V76: 旧 JSON 行升级为二进制编码，数值不变；新写入只带二进制编码
+ */
+class PredictionEngineEncodingTest {
+
+    private final PredictionEngine engine = new PredictionEngine();
+
+    @Test
+    void upgradesLegacyJsonRowWithoutChangingValues() {
+        KalmanFilterState state = new KalmanFilterState();
+        state.setStateVector("[254321.125,-1375.5]");
+        state.setCovarianceMatrix("[[4123456.75,98765.5],[98765.25,2000001.0]]");
+
+        assertTrue(engine.upgradeEncoding(state));
+
+        assertNull(state.getStateVector());
+        assertNull(state.getCovarianceMatrix());
+        assertNotNull(state.getStateBlob());
+        assertEquals(KalmanStateCodec.LENGTH, state.getStateBlob().length);
+
+        LinearTrendKalman kf = new LinearTrendKalman(1, 1);
+        KalmanStateCodec.decodeInto(state.getStateBlob(), kf, 0);
+        assertArrayEquals(new double[]{254321.125, -1375.5}, kf.stateVector());
+        assertArrayEquals(new double[]{4123456.75, 98765.5}, kf.covarianceMatrix()[0]);
+        assertArrayEquals(new double[]{98765.25, 2000001.0}, kf.covarianceMatrix()[1]);
+    }
+
+    @Test
+    void upgradeIsNoOpForBinaryRows() {
+        KalmanFilterState state = engine.initializeAndTrain(1, List.of(100000L, 120000L, 110000L), "2026-09", 3);
+        byte[] blob = state.getStateBlob();
+
+        assertFalse(engine.upgradeEncoding(state));
+        assertArrayEquals(blob, state.getStateBlob());
+    }
+
+    @Test
+    void legacyAndUpgradedRowsRescaleIdentically() {
+        KalmanFilterState legacy = new KalmanFilterState();
+        legacy.setStateVector("[150000.0,2500.0]");
+        legacy.setCovarianceMatrix("[[3000000.0,10000.0],[10000.0,1500000.0]]");
+        KalmanFilterState upgraded = new KalmanFilterState();
+        upgraded.setStateVector(legacy.getStateVector());
+        upgraded.setCovarianceMatrix(legacy.getCovarianceMatrix());
+        engine.upgradeEncoding(upgraded);
+
+        engine.rescaleModel(legacy, 1.5);
+        engine.rescaleModel(upgraded, 1.5);
+
+        assertArrayEquals(upgraded.getStateBlob(), legacy.getStateBlob());
+    }
+}
@@ -0,0 +1,141 @@
+package com.zhangben.backend.service.cache;
+
+import com.zhangben.backend.config.RedisHealthMonitor;
+import com.zhangben.backend.util.LongLongHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V57: 其他节点的失效消息一律剔除，只忽略自身广播的回环；加载期间发生失效时不回填
+ */
+@ExtendWith(MockitoExtension.class)
+class ActivityBalanceCacheTest {
+
+    private static final int ACTIVITY = 7;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private RedisHealthMonitor redisHealthMonitor;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private ActivityBalanceCache cache;
+    private MessageListener listener;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new ActivityBalanceCache(stringRedisTemplate, redisHealthMonitor, listenerContainer, 100, 10);
+        ArgumentCaptor<MessageListener> captor = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(captor.capture(), any(Topic.class));
+        listener = captor.getValue();
+    }
+
+    @Test
+    void otherNodesMessagesAlwaysEvict() {
+        load();
+        load();
+        assertEquals(1, loads.get());
+
+        // 无论对方的消息先后，收到即剔除
+        receive("other-node|" + ACTIVITY);
+        load();
+        receive("other-node|" + ACTIVITY);
+        load();
+        receive("third-node|" + ACTIVITY);
+        load();
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void ownEchoIsIgnored() {
+        when(redisHealthMonitor.isRedisAvailable()).thenReturn(true);
+        load();
+
+        cache.invalidate(List.of(ACTIVITY));
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).convertAndSend(eq("zhangben:activity-balance:invalidate"), body.capture());
+        assertTrue(body.getValue().endsWith("|" + ACTIVITY));
+
+        load();
+        receive(body.getValue());
+        load();
+
+        // 本地失效后重新加载一次，自身广播的回环不再剔除
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotCached() {
+        cache.get(ACTIVITY, id -> {
+            loads.incrementAndGet();
+            receive("other-node|" + ACTIVITY);
+            return new LongLongHashMap();
+        });
+        load();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void malformedMessagesAreIgnored() {
+        load();
+
+        receive("garbage");
+        receive("other-node|not-a-number");
+        load();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void redisUnavailableStillEvictsLocally() {
+        when(redisHealthMonitor.isRedisAvailable()).thenReturn(false);
+        load();
+
+        cache.invalidate(List.of(ACTIVITY));
+        load();
+
+        assertEquals(2, loads.get());
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    private LongLongHashMap load() {
+        return cache.get(ACTIVITY, id -> {
+            loads.incrementAndGet();
+            return new LongLongHashMap();
+        });
+    }
+
+    private void receive(String body) {
+        listener.onMessage(new DefaultMessage("zhangben:activity-balance:invalidate".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+}
@@ -0,0 +1,194 @@
+package com.zhangben.backend.service.email;
+
+import com.zhangben.backend.mapper.EmailOutboxMapper;
+import com.zhangben.backend.mapper.H2Mappers;
+import com.zhangben.backend.model.EmailOutboxMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V68: 发件箱领取 / 租约在真实 SQL 上的行为 —— 租约过期后被重新领取，原领取者不再发送，
+ * 过期领取者的状态回写被 (status, attempts) 围栏挡住；发送前逐条续租
+ */
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxWorkerTest {
+
+    private static final long LEASE_SECONDS = 300;
+
+    @Mock
+    private EmailProviderManager providerManager;
+
+    private H2Mappers db;
+    private EmailOutboxMapper outboxMapper;
+
+    @BeforeEach
+    void setUp() {
+        db = H2Mappers.create(new String[]{"db/V68__email_outbox.sql"}, "mapper/EmailOutboxMapper.xml");
+        outboxMapper = db.mapper(EmailOutboxMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedAndStaleWorkerDoesNotResend() {
+        long id = enqueue("a@example.com");
+        EmailOutboxWorker first = worker(8);
+        EmailOutboxWorker second = worker(8);
+
+        EmailOutboxMessage stale = claim(first).get(0);
+        assertEquals(1, (int) stale.getAttempts());
+        assertTrue(claim(second).isEmpty(), "租约内不会被重复领取");
+
+        // 第一个 worker 卡在前面的消息上，租约到期后被另一个 worker 接管
+        expireLease(id);
+        EmailOutboxMessage current = claim(second).get(0);
+        assertEquals(2, (int) current.getAttempts());
+
+        when(providerManager.deliver(anyString(), any(), anyString(), anyString()))
+                .thenReturn(EmailResult.success("resend", "msg-1"));
+        process(first, stale);
+        process(second, current);
+
+        verify(providerManager, times(1)).deliver(anyString(), any(), anyString(), anyString());
+        assertEquals(EmailOutboxMessage.STATUS_SENT, status(id));
+    }
+
+    @Test
+    void staleMarksAreFenced() {
+        long id = enqueue("a@example.com");
+        EmailOutboxWorker worker = worker(8);
+        claim(worker);
+        expireLease(id);
+        claim(worker);
+
+        LocalDateTime next = LocalDateTime.now().plusMinutes(1);
+        assertEquals(0, outboxMapper.renewLease(id, 1, next));
+        assertEquals(0, outboxMapper.markSent(id, 1, "resend", "msg-1", "ok"));
+        assertEquals(0, outboxMapper.markRetry(id, 1, next, "resend", "timeout"));
+        assertEquals(0, outboxMapper.markFailed(id, 1, "resend", "timeout"));
+        assertEquals(EmailOutboxMessage.STATUS_SENDING, status(id));
+
+        assertEquals(1, outboxMapper.markSent(id, 2, "resend", "msg-1", "ok"));
+        // 已发送后同一次领取的重复回写也不生效
+        assertEquals(0, outboxMapper.markRetry(id, 2, next, "resend", "timeout"));
+        assertEquals(EmailOutboxMessage.STATUS_SENT, status(id));
+    }
+
+    @Test
+    void leaseIsRenewedBeforeEachSend() {
+        long firstId = enqueue("a@example.com");
+        long secondId = enqueue("b@example.com");
+        EmailOutboxWorker worker = worker(8);
+        EmailOutboxWorker other = worker(8);
+        List<EmailOutboxMessage> batch = claim(worker);
+        assertEquals(2, batch.size());
+
+        // 整批的租约在处理第一条时已经用完，但第二条尚未被其他 worker 领取
+        expireLease(firstId);
+        expireLease(secondId);
+        when(providerManager.deliver(anyString(), any(), anyString(), anyString())).thenAnswer(inv -> {
+            // 正在发送的这一条已续租，其他 worker 只能领走尚未开始的第二条
+            List<EmailOutboxMessage> taken = claim(other);
+            assertEquals(1, taken.size());
+            assertEquals(secondId, (long) taken.get(0).getId());
+            assertTrue(leaseUntil(firstId).isAfter(LocalDateTime.now().plusSeconds(LEASE_SECONDS - 60)));
+            return EmailResult.success("resend", "msg");
+        });
+
+        process(worker, batch.get(0));
+
+        assertEquals(EmailOutboxMessage.STATUS_SENT, status(firstId));
+        // 第二条在第一条发送期间被 other 接管，原 worker 续租失败并跳过
+        process(worker, batch.get(1));
+        verify(providerManager, times(1)).deliver(anyString(), any(), anyString(), anyString());
+        assertEquals(EmailOutboxMessage.STATUS_SENDING, status(secondId));
+        assertEquals(2, attempts(secondId));
+    }
+
+    @Test
+    void failuresBackOffThenGiveUp() {
+        long id = enqueue("a@example.com");
+        EmailOutboxWorker worker = worker(2);
+        when(providerManager.deliver(anyString(), any(), anyString(), anyString()))
+                .thenReturn(EmailResult.failure("resend", "timeout"));
+
+        process(worker, claim(worker).get(0));
+        assertEquals(EmailOutboxMessage.STATUS_PENDING, status(id));
+        assertTrue(leaseUntil(id).isAfter(LocalDateTime.now()), "退避期间不可领取");
+        assertTrue(claim(worker).isEmpty());
+
+        expireLease(id);
+        process(worker, claim(worker).get(0));
+        assertEquals(EmailOutboxMessage.STATUS_FAILED, status(id));
+        assertEquals(2, attempts(id));
+    }
+
+    @Test
+    void nothingIsDeliveredWhenQueueIsEmpty() {
+        assertTrue(claim(worker(8)).isEmpty());
+        verify(providerManager, never()).deliver(anyString(), any(), anyString(), anyString());
+    }
+
+    private EmailOutboxWorker worker(int maxAttempts) {
+        return new EmailOutboxWorker(outboxMapper, providerManager, db.transactionManager(),
+                false, 1, 20, 2000, LEASE_SECONDS, maxAttempts, 30, 3600);
+    }
+
+    private static List<EmailOutboxMessage> claim(EmailOutboxWorker worker) {
+        return ReflectionTestUtils.invokeMethod(worker, "claim");
+    }
+
+    private static void process(EmailOutboxWorker worker, EmailOutboxMessage message) {
+        ReflectionTestUtils.invokeMethod(worker, "process", message);
+    }
+
+    private long enqueue(String to) {
+        EmailOutboxMessage m = new EmailOutboxMessage();
+        m.setToEmail(to);
+        m.setSubject("通知");
+        m.setHtmlContent("<p>hi</p>");
+        outboxMapper.insert(m);
+        // DATETIME 把入队时的 NOW() 四舍五入到秒，可能略晚于此刻，回拨使其立即可领取
+        expireLease(m.getId());
+        return m.getId();
+    }
+
+    private void expireLease(long id) {
+        db.jdbc().update("UPDATE email_outbox SET next_attempt_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), id);
+    }
+
+    private byte status(long id) {
+        return db.jdbc().queryForObject("SELECT status FROM email_outbox WHERE id = ?", Byte.class, id);
+    }
+
+    private int attempts(long id) {
+        return db.jdbc().queryForObject("SELECT attempts FROM email_outbox WHERE id = ?", Integer.class, id);
+    }
+
+    private LocalDateTime leaseUntil(long id) {
+        return db.jdbc().queryForObject("SELECT next_attempt_at FROM email_outbox WHERE id = ?",
+                Timestamp.class, id).toLocalDateTime();
+    }
+}
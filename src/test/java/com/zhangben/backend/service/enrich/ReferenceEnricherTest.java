@@ -0,0 +1,178 @@
+package com.zhangben.backend.service.enrich;
+
+import com.zhangben.backend.mapper.ActivityMapper;
+import com.zhangben.backend.mapper.OutcomeParticipantMapper;
+import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.model.Activity;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.model.PayStyle;
+import com.zhangben.backend.model.User;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V59: 一页结果的引用数据补全，每类实体一次 IN 查询，与页大小无关
+ */
+@ExtendWith(MockitoExtension.class)
+class ReferenceEnricherTest {
+
+    private static final int USER_COUNT = 50;
+    private static final int STYLE_COUNT = 5;
+    private static final int ACTIVITY_COUNT = 10;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private ActivityMapper activityMapper;
+
+    @Mock
+    private OutcomeParticipantMapper outcomeParticipantMapper;
+
+    @InjectMocks
+    private ReferenceEnricher referenceEnricher;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 400})
+    void pageQueryCountDoesNotDependOnPageSize(int pageSize) {
+        when(userMapper.selectByExample(any())).thenReturn(users());
+        when(referenceDataCache.getStylesById()).thenReturn(styles());
+        when(activityMapper.selectByIds(anyCollection())).thenReturn(activities());
+        when(outcomeParticipantMapper.selectByOutcomeIds(anyList())).thenAnswer(inv -> participants(inv.getArgument(0)));
+
+        List<Outcome> page = page(pageSize);
+        ReferenceMemo memo = referenceEnricher.prefetchOutcomes(page, true);
+
+        // 逐行读取 DTO 需要的全部引用，不应再触发查询
+        for (Outcome o : page) {
+            assertNotNull(memo.user(o.getPayerUserid()));
+            assertNotNull(memo.activity(o.getActivityId()));
+            assertEquals("style" + o.getStyleId(), memo.styleName(o.getStyleId()));
+            for (OutcomeParticipant p : memo.participants(o.getId())) {
+                assertNotNull(memo.nickname(p.getUserId()));
+            }
+        }
+
+        // 用户 / 活动 / 参与者各一次，分类来自常驻缓存
+        assertEquals(3, memo.getQueryCount());
+        verify(userMapper, times(1)).selectByExample(any());
+        verify(userMapper, never()).selectByPrimaryKey(any());
+        verify(activityMapper, times(1)).selectByIds(anyCollection());
+        verify(activityMapper, never()).selectById(any());
+        verify(outcomeParticipantMapper, times(1)).selectByOutcomeIds(anyList());
+        verify(outcomeParticipantMapper, never()).selectByOutcomeAndUser(any(), any());
+    }
+
+    @Test
+    void loadsMoreThanOneBatchInChunksOf500() {
+        when(userMapper.selectByExample(any())).thenReturn(new ArrayList<>());
+
+        ReferenceMemo memo = referenceEnricher.memo();
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= 1200; id++) {
+            ids.add(id);
+        }
+        memo.loadUsers(ids);
+
+        assertEquals(3, memo.getQueryCount());
+        verify(userMapper, times(3)).selectByExample(any());
+    }
+
+    @Test
+    void missingIdsAreMemoised() {
+        when(userMapper.selectByExample(any())).thenReturn(new ArrayList<>());
+
+        ReferenceMemo memo = referenceEnricher.memo();
+        assertNull(memo.user(7));
+        assertNull(memo.user(7));
+        memo.loadUsers(List.of(7));
+
+        assertEquals(1, memo.getQueryCount());
+        verify(userMapper, times(1)).selectByExample(any());
+    }
+
+    private static List<Outcome> page(int size) {
+        List<Outcome> page = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            Outcome o = new Outcome();
+            o.setId(id);
+            o.setPayerUserid(1 + id % USER_COUNT);
+            o.setStyleId(1 + id % STYLE_COUNT);
+            o.setActivityId(1 + id % ACTIVITY_COUNT);
+            page.add(o);
+        }
+        return page;
+    }
+
+    private static List<OutcomeParticipant> participants(List<Integer> outcomeIds) {
+        List<OutcomeParticipant> list = new ArrayList<>();
+        for (Integer outcomeId : outcomeIds) {
+            for (int k = 0; k < 3; k++) {
+                OutcomeParticipant p = new OutcomeParticipant();
+                p.setOutcomeId(outcomeId);
+                p.setUserId(1 + (outcomeId + k) % USER_COUNT);
+                list.add(p);
+            }
+        }
+        return list;
+    }
+
+    private static List<User> users() {
+        List<User> list = new ArrayList<>();
+        for (int id = 1; id <= USER_COUNT; id++) {
+            User u = new User();
+            u.setId(id);
+            u.setNickname("user" + id);
+            list.add(u);
+        }
+        return list;
+    }
+
+    private static Map<Integer, PayStyle> styles() {
+        Map<Integer, PayStyle> map = new HashMap<>();
+        for (int id = 1; id <= STYLE_COUNT; id++) {
+            PayStyle s = new PayStyle();
+            s.setId(id);
+            s.setStyleName("style" + id);
+            map.put(id, s);
+        }
+        return map;
+    }
+
+    private static List<Activity> activities() {
+        List<Activity> list = new ArrayList<>();
+        for (int id = 1; id <= ACTIVITY_COUNT; id++) {
+            Activity a = new Activity();
+            a.setId(id);
+            a.setName("activity" + id);
+            list.add(a);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,152 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.mapper.DebtLedgerMapper;
+import com.zhangben.backend.model.DebtLedgerEntry;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.service.cache.ActivityBalanceCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * V52: 账单对账本的增量（消费按份额、还款仅已确认时计入、撤销取反）以及对账按差额修复
+ */
+@ExtendWith(MockitoExtension.class)
+class DebtLedgerServiceImplTest {
+
+    @Mock
+    private DebtLedgerMapper debtLedgerMapper;
+
+    @Mock
+    private ActivityBalanceCache activityBalanceCache;
+
+    @InjectMocks
+    private DebtLedgerServiceImpl debtLedgerService;
+
+    @Test
+    void expenseChargesNonPayerParticipantsByShares() {
+        Outcome o = outcome((byte) 1, 1, null, 4000L, 1000L);
+
+        debtLedgerService.applyOutcome(o, List.of(participant(3, 1, null), participant(1, 1, null),
+                participant(2, 2, null)));
+
+        // 付款人自己的份额不计入，结果按主键排序
+        assertEquals(List.of("0|2|1|CNY|2000", "0|3|1|CNY|1000"), writtenDeltas());
+        verify(activityBalanceCache).invalidate(Set.of(0));
+    }
+
+    @Test
+    void reverseNegatesTheAppliedDeltas() {
+        Outcome o = outcome((byte) 1, 1, 9, 3000L, 1000L);
+
+        debtLedgerService.reverseOutcome(o, List.of(participant(1, 1, null), participant(2, 2, null)));
+
+        assertEquals(List.of("9|2|1|CNY|-2000"), writtenDeltas());
+        verify(activityBalanceCache).invalidate(Set.of(9));
+    }
+
+    @Test
+    void pendingRepaymentDoesNotTouchLedger() {
+        Outcome repayment = outcome((byte) 2, 5, null, 3000L, 3000L);
+        repayment.setTargetUserid(7);
+
+        debtLedgerService.applyOutcome(repayment, List.of(participant(7, 1, (byte) 0)));
+        debtLedgerService.reverseOutcome(repayment, List.of(participant(7, 1, null)));
+
+        verifyNoInteractions(debtLedgerMapper, activityBalanceCache);
+    }
+
+    @Test
+    void confirmedRepaymentReducesTheActualDebtorsDebt() {
+        Outcome repayment = outcome((byte) 2, 5, 9, 3000L, 3000L);
+        repayment.setTargetUserid(7);
+        repayment.setOnBehalfOf(6);
+
+        debtLedgerService.applyOutcome(repayment, List.of(participant(7, 1, (byte) 1)));
+
+        // 代还时冲减被代还人（onBehalfOf）对债权人的欠款，而不是实际付款人
+        assertEquals(List.of("9|6|7|CNY|-3000"), writtenDeltas());
+    }
+
+    @Test
+    void reconcileReportsDriftsAndRepairsByDifference() {
+        when(debtLedgerMapper.selectExpectedEntries()).thenReturn(List.of(
+                entry(0, 1, 2, 500L), entry(0, 3, 4, 100L)));
+        when(debtLedgerMapper.selectAll()).thenReturn(List.of(
+                entry(0, 1, 2, 300L), entry(0, 3, 4, 100L), entry(0, 5, 6, 50L)));
+
+        Map<String, Object> report = debtLedgerService.reconcile(true);
+
+        assertEquals(3, report.get("checked"));
+        assertEquals(2, report.get("driftCount"));
+        assertEquals(true, report.get("repaired"));
+        // 以差额写回：缺少的补上，多出的（预期中不存在）冲减为 0
+        assertEquals(List.of("0|1|2|CNY|200", "0|5|6|CNY|-50"), writtenDeltas());
+        verify(debtLedgerMapper).deleteZeroEntries();
+    }
+
+    @Test
+    void reconcileWithoutRepairOnlyReports() {
+        when(debtLedgerMapper.selectExpectedEntries()).thenReturn(List.of(entry(0, 1, 2, 500L)));
+        when(debtLedgerMapper.selectAll()).thenReturn(List.of());
+
+        Map<String, Object> report = debtLedgerService.reconcile(false);
+
+        assertEquals(1, report.get("driftCount"));
+        assertEquals(false, report.get("repaired"));
+        verify(debtLedgerMapper, never()).batchAddDelta(anyList());
+        verify(debtLedgerMapper, never()).deleteZeroEntries();
+        verify(activityBalanceCache, never()).invalidate(any());
+    }
+
+    private List<String> writtenDeltas() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DebtLedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(debtLedgerMapper).batchAddDelta(captor.capture());
+        return captor.getValue().stream()
+                .map(e -> e.getActivityId() + "|" + e.getDebtorId() + "|" + e.getCreditorId() + "|"
+                        + e.getCurrency() + "|" + e.getAmount())
+                .collect(Collectors.toList());
+    }
+
+    private static Outcome outcome(byte repayFlag, int payerId, Integer activityId, long amount, long perAmount) {
+        Outcome o = new Outcome();
+        o.setId(100);
+        o.setRepayFlag(repayFlag);
+        o.setPayerUserid(payerId);
+        o.setActivityId(activityId);
+        o.setAmount(amount);
+        o.setPerAmount(perAmount);
+        o.setTargetCurrencySnapshot("CNY");
+        return o;
+    }
+
+    private static OutcomeParticipant participant(int userId, int shares, Byte confirmStatus) {
+        OutcomeParticipant p = new OutcomeParticipant();
+        p.setUserId(userId);
+        p.setShares(shares);
+        p.setConfirmStatus(confirmStatus);
+        return p;
+    }
+
+    private static DebtLedgerEntry entry(int activityId, int debtorId, int creditorId, long amount) {
+        return new DebtLedgerEntry(activityId, debtorId, creditorId, "CNY", amount);
+    }
+}
@@ -0,0 +1,190 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.dto.MyPendingRepaymentItem;
+import com.zhangben.backend.dto.PendingRepaymentItem;
+import com.zhangben.backend.mapper.ActivityMapper;
+import com.zhangben.backend.mapper.H2Mappers;
+import com.zhangben.backend.mapper.OutcomeMapper;
+import com.zhangben.backend.mapper.OutcomeParticipantMapper;
+import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.service.cache.ReferenceDataCache;
+import com.zhangben.backend.service.enrich.ReferenceEnricher;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * V53: 债务明细按批加载参与者，查询次数与账单数无关（每 500 个账单一次）
+ * V59: 用户昵称 / 头像经请求级备忘录一次 IN 查询，不再逐行 selectByPrimaryKey
+ *
+ * 在 H2（MySQL 模式）上运行真实的 XML Mapper，经 datasource-proxy 统计实际执行的语句数
+ */
+@ExtendWith(MockitoExtension.class)
+class DebtServiceImplQueryCountTest {
+
+    private static final int DEBTOR_ID = 1;
+    private static final int CREDITOR_ID = 2;
+    private static final int OTHER_ID = 3;
+
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private ActivityMapper activityMapper;
+
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+    private H2Mappers db;
+    private DebtServiceImpl debtService;
+    private int nextOutcomeId = 1;
+
+    @BeforeEach
+    void setUp() {
+        db = H2Mappers.create(
+                raw -> ProxyDataSourceBuilder.create(raw)
+                        .afterQuery((exec, queries) -> queries.forEach(q -> statements.add(normalize(q.getQuery()))))
+                        .build(),
+                new String[]{"h2/base_tables.sql",
+                        "db/V53__outcome_participant_outcome_index.sql",
+                        "db/V54__outcome_user_scope_indexes.sql"},
+                "mapper/OutcomeMapper.xml", "mapper/OutcomeParticipantMapper.xml", "mapper/UserMapper.xml");
+
+        UserMapper userMapper = db.mapper(UserMapper.class);
+        OutcomeParticipantMapper outcomeParticipantMapper = db.mapper(OutcomeParticipantMapper.class);
+
+        ReferenceEnricher referenceEnricher = new ReferenceEnricher();
+        ReflectionTestUtils.setField(referenceEnricher, "userMapper", userMapper);
+        ReflectionTestUtils.setField(referenceEnricher, "outcomeParticipantMapper", outcomeParticipantMapper);
+        ReflectionTestUtils.setField(referenceEnricher, "referenceDataCache", referenceDataCache);
+        ReflectionTestUtils.setField(referenceEnricher, "activityMapper", activityMapper);
+
+        debtService = new DebtServiceImpl();
+        ReflectionTestUtils.setField(debtService, "outcomeMapper", db.mapper(OutcomeMapper.class));
+        ReflectionTestUtils.setField(debtService, "outcomeParticipantMapper", outcomeParticipantMapper);
+        ReflectionTestUtils.setField(debtService, "userMapper", userMapper);
+        ReflectionTestUtils.setField(debtService, "referenceEnricher", referenceEnricher);
+
+        for (int id : new int[]{DEBTOR_ID, CREDITOR_ID, OTHER_ID}) {
+            db.jdbc().update("INSERT INTO user (ID, email, nickname) VALUES (?, ?, ?)",
+                    id, "user" + id + "@example.com", "user" + id);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void pendingRepaymentsLoadParticipantsInBatches() {
+        seedRepayments(DEBTOR_ID, CREDITOR_ID, 3000);
+        seedExpenses(OTHER_ID, DEBTOR_ID, 2000);
+        statements.clear();
+
+        List<MyPendingRepaymentItem> result = debtService.getMyPendingRepayments(DEBTOR_ID);
+
+        // 偶数 ID 的还款已确认，只返回奇数 ID 的一半
+        assertEquals(1500, result.size());
+        assertEquals("user" + CREDITOR_ID, result.get(0).getCreditorName());
+        // 1 次还款列表 + 3000 / 500 次参与者 + 1 次用户
+        assertEquals(1, count(" from outcome "));
+        assertEquals(6, count(" from outcome_participant "));
+        assertEquals(1, count(" from user "));
+        assertEquals(8, statements.size());
+        verifyNoInteractions(activityMapper);
+    }
+
+    @Test
+    void pendingRepaymentsQueryCountDoesNotGrowWithinABatch() {
+        seedRepayments(DEBTOR_ID, CREDITOR_ID, 1);
+        statements.clear();
+        assertEquals(1, debtService.getMyPendingRepayments(DEBTOR_ID).size());
+        int single = statements.size();
+
+        seedRepayments(OTHER_ID, CREDITOR_ID, 500);
+        statements.clear();
+        assertEquals(250, debtService.getMyPendingRepayments(OTHER_ID).size());
+
+        assertEquals(3, single);
+        assertEquals(single, statements.size());
+    }
+
+    @Test
+    void creditorPendingConfirmationsLoadRepaymentsAndUsersInBatches() {
+        seedRepayments(DEBTOR_ID, CREDITOR_ID, 3000);
+        seedRepayments(OTHER_ID, CREDITOR_ID, 1000);
+        statements.clear();
+
+        List<PendingRepaymentItem> result = debtService.getPendingRepayments(CREDITOR_ID);
+
+        assertEquals(2000, result.size());
+        assertTrue(result.stream().allMatch(item -> item.getDebtorName().equals("user" + item.getDebtorId())));
+        // 1 次待确认参与者 + 2000 / 500 次还款 + 1 次用户
+        assertEquals(1, count(" from outcome_participant "));
+        assertEquals(4, count(" from outcome "));
+        assertEquals(1, count(" from user "));
+        assertEquals(6, statements.size());
+    }
+
+    /**
+     * 还款：debtor 付给 creditor，偶数 ID 已确认、奇数 ID 待确认
+     */
+    private void seedRepayments(int debtorId, int creditorId, int count) {
+        List<Object[]> outcomes = new ArrayList<>(count);
+        List<Object[]> participants = new ArrayList<>(count);
+        Timestamp base = Timestamp.valueOf(LocalDateTime.now().minusDays(30));
+        for (int i = 0; i < count; i++) {
+            int id = nextOutcomeId++;
+            outcomes.add(new Object[]{id, 1000L, debtorId, debtorId, creditorId, 1000L, 2,
+                    new Timestamp(base.getTime() + id * 1000L)});
+            participants.add(new Object[]{id, creditorId, id % 2 == 0 ? 1 : 0});
+        }
+        db.jdbc().batchUpdate("INSERT INTO outcome (id, amount, payer_userid, creator_id, target_userid, per_amount,"
+                + " repay_flag, pay_datetime, deleted_flag) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)", outcomes);
+        db.jdbc().batchUpdate("INSERT INTO outcome_participant (outcome_id, user_id, shares, confirm_status)"
+                + " VALUES (?, ?, 1, ?)", participants);
+    }
+
+    /**
+     * 普通消费：payer 付款，payer 与 participant 各一份
+     */
+    private void seedExpenses(int payerId, int participantId, int count) {
+        List<Object[]> outcomes = new ArrayList<>(count);
+        List<Object[]> participants = new ArrayList<>(count * 2);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < count; i++) {
+            int id = nextOutcomeId++;
+            outcomes.add(new Object[]{id, 2000L, payerId, payerId, 1000L, 1, now});
+            participants.add(new Object[]{id, payerId});
+            participants.add(new Object[]{id, participantId});
+        }
+        db.jdbc().batchUpdate("INSERT INTO outcome (id, amount, payer_userid, creator_id, per_amount,"
+                + " repay_flag, pay_datetime, deleted_flag, total_shares) VALUES (?, ?, ?, ?, ?, ?, ?, 0, 2)", outcomes);
+        db.jdbc().batchUpdate("INSERT INTO outcome_participant (outcome_id, user_id, shares) VALUES (?, ?, 1)",
+                participants);
+    }
+
+    private long count(String fragment) {
+        synchronized (statements) {
+            return statements.stream().filter(s -> s.contains(fragment)).count();
+        }
+    }
+
+    private static String normalize(String sql) {
+        return " " + sql.replaceAll("\\s+", " ").toLowerCase() + " ";
+    }
+}
@@ -0,0 +1,159 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.dto.OutcomeCreateRequest;
+import com.zhangben.backend.mapper.OutcomeMapper;
+import com.zhangben.backend.mapper.OutcomeParticipantMapper;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import com.zhangben.backend.service.DailySpendService;
+import com.zhangben.backend.service.DebtLedgerService;
+import com.zhangben.backend.service.MonthlySpendingService;
+import com.zhangben.backend.service.UserTimelineService;
+import com.zhangben.backend.service.notify.ChangeEventPublisher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * V52: 修改 / 删除账单先加行锁读取，冲减基于锁定后的值；修改只写变化的列，不会把已删除的账单写回
+ */
+@ExtendWith(MockitoExtension.class)
+class OutcomeServiceImplLockingTest {
+
+    private static final int OUTCOME_ID = 100;
+    private static final int PAYER = 1;
+
+    @Mock
+    private OutcomeMapper outcomeMapper;
+
+    @Mock
+    private OutcomeParticipantMapper outcomeParticipantMapper;
+
+    @Mock
+    private DebtLedgerService debtLedgerService;
+
+    @Mock
+    private MonthlySpendingService monthlySpendingService;
+
+    @Mock
+    private DailySpendService dailySpendService;
+
+    @Mock
+    private UserTimelineService userTimelineService;
+
+    @Mock
+    private ChangeEventPublisher changeEventPublisher;
+
+    @InjectMocks
+    private OutcomeServiceImpl outcomeService;
+
+    @Test
+    void updateLocksRowAndWritesOnlyChangedColumns() {
+        Outcome locked = outcome((byte) 0);
+        List<OutcomeParticipant> participants = participants();
+        when(outcomeMapper.selectByPrimaryKeyForUpdate(OUTCOME_ID)).thenReturn(locked);
+        when(outcomeParticipantMapper.selectByExample(any())).thenReturn(participants);
+
+        OutcomeCreateRequest req = new OutcomeCreateRequest();
+        req.setAmount(6000L);
+        req.setStyleId(2);
+        req.setComment("晚饭");
+        outcomeService.updateOutcome(OUTCOME_ID, PAYER, req);
+
+        ArgumentCaptor<Outcome> update = ArgumentCaptor.forClass(Outcome.class);
+        verify(outcomeMapper).updateByPrimaryKeySelective(update.capture());
+        assertEquals(OUTCOME_ID, (int) update.getValue().getId());
+        assertEquals(6000L, (long) update.getValue().getAmount());
+        assertEquals(2000L, (long) update.getValue().getPerAmount());
+        assertEquals(2, (int) update.getValue().getStyleId());
+        assertEquals("晚饭", update.getValue().getComment());
+        // 读取时的 deleted_flag 等列不写回
+        assertNull(update.getValue().getDeletedFlag());
+        assertNull(update.getValue().getPayerUserid());
+
+        verify(outcomeMapper, never()).selectByPrimaryKey(any());
+        verify(debtLedgerService).reverseOutcome(locked, participants);
+        verify(debtLedgerService).applyOutcome(locked, participants);
+    }
+
+    @Test
+    void updateOfDeletedOutcomeReversesNothing() {
+        when(outcomeMapper.selectByPrimaryKeyForUpdate(OUTCOME_ID)).thenReturn(outcome((byte) 1));
+
+        OutcomeCreateRequest req = new OutcomeCreateRequest();
+        req.setAmount(6000L);
+        assertThrows(IllegalArgumentException.class, () -> outcomeService.updateOutcome(OUTCOME_ID, PAYER, req));
+
+        verify(outcomeMapper, never()).updateByPrimaryKeySelective(any());
+        verifyNoInteractions(debtLedgerService, monthlySpendingService, dailySpendService, userTimelineService);
+    }
+
+    @Test
+    void deleteThatLosesTheRaceReversesNothing() {
+        when(outcomeMapper.selectByPrimaryKeyForUpdate(OUTCOME_ID)).thenReturn(outcome((byte) 0));
+        when(outcomeMapper.softDeleteById(OUTCOME_ID)).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> outcomeService.deleteOutcome(OUTCOME_ID, PAYER));
+
+        verifyNoInteractions(debtLedgerService, monthlySpendingService, dailySpendService, userTimelineService);
+    }
+
+    @Test
+    void deleteLocksRowAndReversesOnce() {
+        Outcome locked = outcome((byte) 0);
+        List<OutcomeParticipant> participants = participants();
+        when(outcomeMapper.selectByPrimaryKeyForUpdate(OUTCOME_ID)).thenReturn(locked);
+        when(outcomeMapper.softDeleteById(OUTCOME_ID)).thenReturn(1);
+        when(outcomeParticipantMapper.selectByExample(any())).thenReturn(participants);
+
+        outcomeService.deleteOutcome(OUTCOME_ID, PAYER);
+
+        verify(outcomeMapper, never()).selectByPrimaryKey(any());
+        verify(debtLedgerService).reverseOutcome(locked, participants);
+        verify(monthlySpendingService).reverseOutcome(locked, participants);
+        verify(dailySpendService).reverseOutcome(locked, participants);
+        verify(userTimelineService).reverseOutcome(locked, participants);
+    }
+
+    private static Outcome outcome(byte deletedFlag) {
+        Outcome o = new Outcome();
+        o.setId(OUTCOME_ID);
+        o.setPayerUserid(PAYER);
+        o.setCreatorId(PAYER);
+        o.setRepayFlag((byte) 1);
+        o.setAmount(3000L);
+        o.setPerAmount(1000L);
+        o.setTotalShares(3);
+        o.setStyleId(1);
+        o.setDeletedFlag(deletedFlag);
+        o.setPayDatetime(LocalDateTime.now().minusHours(1));
+        return o;
+    }
+
+    private static List<OutcomeParticipant> participants() {
+        OutcomeParticipant a = new OutcomeParticipant();
+        a.setOutcomeId(OUTCOME_ID);
+        a.setUserId(PAYER);
+        a.setShares(1);
+        OutcomeParticipant b = new OutcomeParticipant();
+        b.setOutcomeId(OUTCOME_ID);
+        b.setUserId(2);
+        b.setShares(2);
+        return List.of(a, b);
+    }
+}
@@ -0,0 +1,252 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.mapper.PredictionMapper;
+import com.zhangben.backend.model.KalmanFilterState;
+import com.zhangben.backend.model.UserMonthlySpending;
+import com.zhangben.backend.service.PredictionEngine;
+import com.zhangben.backend.util.KalmanStateCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V75: 批量重训按游标分块派发、逐块回调续租，并按用户统计 trained / upToDate / locked / failed
+ * 用户 1、3、4 连续 4 个月有支出且无已存状态；用户 2 已训练到上月；用户 5 只有上月支出（未解锁）
+ */
+@ExtendWith(MockitoExtension.class)
+class PredictionServiceImplRetrainTest {
+
+    private static final List<Integer> ACTIVE_USERS = List.of(1, 2, 3, 4, 5);
+    private static final String LAST_MONTH = YearMonth.now().minusMonths(1).toString();
+
+    @Mock
+    private PredictionMapper predictionMapper;
+
+    @InjectMocks
+    private PredictionServiceImpl predictionService;
+
+    /** 分块在虚拟线程里写库，记录需线程安全 */
+    private final List<KalmanFilterState> upserts = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(predictionService, "predictionEngine", new PredictionEngine());
+        ReflectionTestUtils.setField(predictionService, "retrainChunkSize", 2);
+        ReflectionTestUtils.setField(predictionService, "retrainDbConcurrency", 2);
+
+        when(predictionMapper.selectActiveUserIds(anyString(), anyInt(), anyInt())).thenAnswer(inv -> {
+            int afterId = inv.getArgument(1);
+            int limit = inv.getArgument(2);
+            return ACTIVE_USERS.stream().filter(id -> id > afterId).limit(limit).collect(Collectors.toList());
+        });
+        when(predictionMapper.batchUpsertKalmanState(anyList())).thenAnswer(inv -> {
+            List<KalmanFilterState> states = inv.getArgument(0);
+            upserts.addAll(states);
+            return states.size();
+        });
+    }
+
+    @Test
+    void retrainsChunksAndUpgradesLegacyRows() {
+        stubChunkReads(Set.of());
+        KalmanFilterState legacy = new KalmanFilterState();
+        legacy.setId(900);
+        legacy.setUserId(9);
+        legacy.setStateVector("[150000.0,2500.0]");
+        legacy.setCovarianceMatrix("[[3000000.0,10000.0],[10000.0,1500000.0]]");
+        when(predictionMapper.selectLegacyEncodedStates(anyInt(), anyInt())).thenAnswer(inv ->
+                (int) inv.getArgument(0) == 0 ? List.of(legacy) : List.of());
+
+        List<List<Integer>> chunks = new ArrayList<>();
+        Map<String, Object> stats = predictionService.retrainAll((lastUserId, size) -> chunks.add(List.of(lastUserId, size)));
+
+        // 游标为每块最后一个用户，最后一块不足 chunk-size 时结束
+        assertEquals(List.of(List.of(2, 2), List.of(4, 2), List.of(5, 1)), chunks);
+        verify(predictionMapper, atLeastOnce()).selectActiveUserIds(eq(LAST_MONTH), anyInt(), eq(2));
+        assertEquals(5L, stats.get("scanned"));
+        assertEquals(3L, stats.get("trained"));
+        assertEquals(1L, stats.get("upToDate"));
+        assertEquals(1L, stats.get("locked"));
+        assertEquals(0L, stats.get("failed"));
+        assertEquals(1, stats.get("reencoded"));
+
+        Map<Integer, KalmanFilterState> byUser = upserts.stream()
+                .collect(Collectors.toMap(KalmanFilterState::getUserId, s -> s));
+        assertEquals(Set.of(1, 3, 4, 9), byUser.keySet());
+        for (int userId : List.of(1, 3, 4)) {
+            KalmanFilterState state = byUser.get(userId);
+            assertEquals(LAST_MONTH, state.getLastObservationMonth());
+            assertEquals(4, (int) state.getTotalObservations());
+            assertEquals(KalmanStateCodec.LENGTH, state.getStateBlob().length);
+        }
+        assertNull(byUser.get(9).getStateVector());
+        assertEquals(KalmanStateCodec.LENGTH, byUser.get(9).getStateBlob().length);
+        assertFalse((boolean) predictionService.getRetrainStats().get("running"));
+    }
+
+    @Test
+    void failedChunkCountsAllItsUsersAsFailed() {
+        stubChunkReads(Set.of(3));
+        when(predictionMapper.selectLegacyEncodedStates(anyInt(), anyInt())).thenReturn(List.of());
+
+        Map<String, Object> stats = predictionService.retrainAll((lastUserId, size) -> { });
+
+        // 读取失败的分块 [3, 4] 整块计入 failed，其余分块照常写入
+        assertEquals(5L, stats.get("scanned"));
+        assertEquals(1L, stats.get("trained"));
+        assertEquals(1L, stats.get("upToDate"));
+        assertEquals(1L, stats.get("locked"));
+        assertEquals(2L, stats.get("failed"));
+        assertEquals(List.of(1), upserts.stream().map(KalmanFilterState::getUserId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void callbackFailureStopsDispatchAndAllowsNextRun() {
+        stubChunkReads(Set.of());
+        when(predictionMapper.selectLegacyEncodedStates(anyInt(), anyInt())).thenReturn(List.of());
+
+        List<Integer> cursors = new ArrayList<>();
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> predictionService.retrainAll((lastUserId, size) -> {
+                    if (lastUserId > 2) {
+                        throw new IllegalStateException("lease lost");
+                    }
+                    cursors.add(lastUserId);
+                }));
+        assertEquals("lease lost", e.getMessage());
+        // 第二块回调失败后不再派发，已派发的第一块仍会完成
+        assertEquals(List.of(2), cursors);
+        assertEquals(List.of(1), upserts.stream().map(KalmanFilterState::getUserId).collect(Collectors.toList()));
+        assertFalse((boolean) predictionService.getRetrainStats().get("running"));
+
+        Map<String, Object> stats = predictionService.retrainAll((lastUserId, size) -> { });
+        assertEquals(5L, stats.get("scanned"));
+    }
+
+    @Test
+    void databaseAccessNeverExceedsDbConcurrency() {
+        List<Integer> users = IntStream.rangeClosed(1, 40).boxed().collect(Collectors.toList());
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(predictionMapper.selectActiveUserIds(anyString(), anyInt(), anyInt())).thenAnswer(inv -> tracked(active, peak, () -> {
+            int afterId = inv.getArgument(1);
+            int limit = inv.getArgument(2);
+            return users.stream().filter(id -> id > afterId).limit(limit).collect(Collectors.toList());
+        }));
+        when(predictionMapper.selectMonthlySpendingByUsers(anyList())).thenAnswer(inv -> tracked(active, peak, () -> {
+            sleep(20);
+            List<Integer> userIds = inv.getArgument(0);
+            List<UserMonthlySpending> records = new ArrayList<>();
+            for (Integer userId : userIds) {
+                for (int i = 4; i >= 1; i--) {
+                    records.add(spending(userId, YearMonth.now().minusMonths(i).toString(), 100000L + i * 500L));
+                }
+            }
+            return records;
+        }));
+        when(predictionMapper.selectByUserIds(anyList())).thenAnswer(inv -> tracked(active, peak, List::of));
+        when(predictionMapper.batchUpsertKalmanState(anyList())).thenAnswer(inv -> tracked(active, peak, () -> {
+            List<KalmanFilterState> states = inv.getArgument(0);
+            upserts.addAll(states);
+            return states.size();
+        }));
+
+        Map<String, Object> stats = predictionService.retrainAll((lastUserId, size) -> { });
+
+        // 20 个分块最多 4 个在途，但同时访问数据库的不超过 db-concurrency（含主线程的游标查询）
+        assertEquals(40L, stats.get("trained"));
+        assertEquals(40, upserts.size());
+        assertTrue(peak.get() <= 2, "peak db access " + peak.get());
+        assertEquals(2, peak.get(), "分块应当并行读取");
+    }
+
+    /**
+     * 记录同时在 Mapper 中的调用数峰值
+     */
+    private static <T> T tracked(AtomicInteger active, AtomicInteger peak, Supplier<T> call) {
+        peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            return call.get();
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 按请求的用户返回月度支出和已存状态；分块包含 failingUsers 中的用户时读取抛异常
+     */
+    private void stubChunkReads(Set<Integer> failingUsers) {
+        when(predictionMapper.selectMonthlySpendingByUsers(anyList())).thenAnswer(inv -> {
+            List<Integer> userIds = inv.getArgument(0);
+            if (userIds.stream().anyMatch(failingUsers::contains)) {
+                throw new IllegalStateException("connection reset");
+            }
+            List<UserMonthlySpending> records = new ArrayList<>();
+            for (Integer userId : userIds) {
+                int months = userId == 5 ? 1 : 4;
+                for (int i = months; i >= 1; i--) {
+                    records.add(spending(userId, YearMonth.now().minusMonths(i).toString(), 100000L + userId * 1000L + i * 500L));
+                }
+            }
+            return records;
+        });
+        when(predictionMapper.selectByUserIds(anyList())).thenAnswer(inv -> {
+            List<Integer> userIds = inv.getArgument(0);
+            if (!userIds.contains(2)) {
+                return List.of();
+            }
+            KalmanFilterState existing = new KalmanFilterState();
+            existing.setUserId(2);
+            existing.setLastObservationMonth(LAST_MONTH);
+            return List.of(existing);
+        });
+    }
+
+    private static UserMonthlySpending spending(int userId, String month, long variable) {
+        UserMonthlySpending r = new UserMonthlySpending();
+        r.setUserId(userId);
+        r.setMonth(month);
+        r.setTotalSpending(variable);
+        r.setVariableSpending(variable);
+        r.setVariableCount(3);
+        r.setFixedSpending(0L);
+        r.setFixedCount(0);
+        return r;
+    }
+}
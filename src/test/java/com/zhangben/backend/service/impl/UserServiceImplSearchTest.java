@@ -0,0 +1,122 @@
+package com.zhangben.backend.service.impl;
+
+import com.zhangben.backend.mapper.UserMapper;
+import com.zhangben.backend.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V71: 用户搜索多路召回合并后的排序（好友优先 / 匹配程度 / 昵称长度 / ID）与截取
+ */
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplSearchTest {
+
+    private static final int ME = 1;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @InjectMocks
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userService, "searchDefaultLimit", 20);
+        ReflectionTestUtils.setField(userService, "searchMaxLimit", 50);
+    }
+
+    @Test
+    void friendsFirstBoostsFriendAboveExactMatch() {
+        User friend = user(10, "bobby_tables", "bt@example.com");
+        User exact = user(11, "bob", "bob@example.com");
+        when(userMapper.searchFavored(eq(ME), eq("%bob%"), anyInt())).thenReturn(List.of(friend));
+        when(userMapper.searchByNicknamePrefix(eq("bob"), anyInt())).thenReturn(List.of(exact, friend));
+        when(userMapper.searchByFulltext(eq("\"bob\""), anyInt())).thenReturn(List.of(exact, friend));
+
+        assertEquals(List.of(10, 11), ids(userService.searchUsers(ME, "bob", null, true)));
+        // 不启用好友优先时按匹配程度：昵称完全一致排在前缀匹配之前
+        assertEquals(List.of(11, 10), ids(userService.searchUsers(ME, "bob", null, false)));
+    }
+
+    @Test
+    void ranksEmailThenNicknameExactThenPrefixThenSubstring() {
+        User substring = user(20, "xbobx", "x@example.com");
+        User prefixLong = user(21, "bobcat", "c@example.com");
+        User prefixShort = user(22, "bobs", "s@example.com");
+        User nicknameExact = user(23, "BOB", "other@example.com");
+        User emailExact = user(24, "zed", "bob@ex.com");
+        when(userMapper.searchByEmail(eq("bob@ex.com"), anyInt())).thenReturn(List.of(emailExact));
+        when(userMapper.searchByNicknamePrefix(eq("bob@ex.com"), anyInt())).thenReturn(List.of());
+        when(userMapper.searchByFulltext(eq("\"bob@ex.com\""), anyInt())).thenReturn(List.of(emailExact));
+        assertEquals(List.of(24), ids(userService.searchUsers(ME, "bob@ex.com", null, false)));
+
+        when(userMapper.searchByNicknamePrefix(eq("bob"), anyInt()))
+                .thenReturn(List.of(nicknameExact, prefixLong, prefixShort));
+        when(userMapper.searchByFulltext(eq("\"bob\""), anyInt()))
+                .thenReturn(List.of(substring, prefixLong, nicknameExact, prefixShort));
+
+        // 同为前缀匹配时短昵称优先（索引按字典序返回 bobcat 在 bobs 之前）
+        assertEquals(List.of(23, 22, 21, 20), ids(userService.searchUsers(ME, "bob", null, false)));
+    }
+
+    @Test
+    void excludesSelfDeduplicatesAndTruncatesToLimit() {
+        User self = user(ME, "anna", "me@example.com");
+        User a = user(30, "anna1", "a1@example.com");
+        User b = user(31, "anna2", "a2@example.com");
+        User c = user(32, "anna3", "a3@example.com");
+        when(userMapper.searchByNicknamePrefix(eq("anna"), anyInt())).thenReturn(List.of(self, a, b, c));
+        when(userMapper.searchByFulltext(eq("\"anna\""), anyInt())).thenReturn(List.of(c, b, a, self));
+
+        List<User> result = userService.searchUsers(ME, "anna", 2, false);
+
+        assertEquals(List.of(30, 31), ids(result));
+        // 多取一个（可能包含自己），前缀召回再放大为候选片段
+        verify(userMapper).searchByNicknamePrefix("anna", 3 * 4);
+        verify(userMapper).searchByFulltext("\"anna\"", 3);
+    }
+
+    @Test
+    void shortKeywordSkipsFulltextAndEscapesLikeWildcards() {
+        when(userMapper.searchByNicknamePrefix(eq("\\%"), anyInt())).thenReturn(List.of(user(40, "%pct", "p@example.com")));
+
+        assertEquals(List.of(40), ids(userService.searchUsers(ME, "%", null, false)));
+        verify(userMapper).searchFavored(ME, "%\\%%", 21);
+        verify(userMapper, never()).searchByFulltext(anyString(), anyInt());
+        verify(userMapper, never()).searchByEmail(anyString(), anyInt());
+    }
+
+    @Test
+    void blankKeywordQueriesNothing() {
+        assertTrue(userService.searchUsers(ME, "   ", null, true).isEmpty());
+        verify(userMapper, never()).searchByNicknamePrefix(anyString(), anyInt());
+    }
+
+    private static User user(int id, String nickname, String email) {
+        User u = new User();
+        u.setId(id);
+        u.setNickname(nickname);
+        u.setEmail(email);
+        return u;
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}
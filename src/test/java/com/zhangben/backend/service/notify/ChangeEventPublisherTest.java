@@ -0,0 +1,151 @@
+package com.zhangben.backend.service.notify;
+
+import com.zhangben.backend.mapper.ActivityMemberMapper;
+import com.zhangben.backend.model.Outcome;
+import com.zhangben.backend.model.OutcomeParticipant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * V67: 受影响用户的计算、提交后才推送（回滚不推送）、事件只携带 ID、推送失败不影响业务
+ */
+@ExtendWith(MockitoExtension.class)
+class ChangeEventPublisherTest {
+
+    @Mock
+    private UserEventHub userEventHub;
+
+    @Mock
+    private ActivityMemberMapper activityMemberMapper;
+
+    @InjectMocks
+    private ChangeEventPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void outcomeRecipientsCoverAllPartiesAndActivityMembers() {
+        Outcome repayment = outcome(9);
+        repayment.setRepaidBy(4);
+        repayment.setOnBehalfOf(5);
+        when(activityMemberMapper.selectUserIds(9)).thenReturn(List.of(1, 6, 7));
+
+        publisher.outcomeChanged(ChangeEventPublisher.REPAYMENT_SUBMITTED, repayment,
+                List.of(participant(2), participant(3)), 4);
+
+        assertEquals(Set.of(1, 2, 3, 4, 5, 6, 7), Set.copyOf(published(ChangeEventPublisher.REPAYMENT_SUBMITTED)));
+        ArgumentCaptor<Map<String, Object>> data = dataCaptor();
+        verify(userEventHub).publish(anyCollection(), anyString(), data.capture());
+        assertEquals(Map.of("outcomeId", 100, "activityId", 9, "repayFlag", (byte) 2, "actorId", 4),
+                data.getValue());
+    }
+
+    @Test
+    void nullPartiesAreDroppedAndGeneralBillsSkipMemberLookup() {
+        Outcome bill = outcome(null);
+
+        publisher.outcomeChanged(ChangeEventPublisher.OUTCOME_CREATED, bill, List.of(participant(1)), 1);
+
+        // targetUserid / repaidBy / onBehalfOf 为 null，不会出现在收件人里
+        assertEquals(Set.of(1, 2), Set.copyOf(published(ChangeEventPublisher.OUTCOME_CREATED)));
+        verifyNoInteractions(activityMemberMapper);
+    }
+
+    @Test
+    void publishesOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        publisher.outcomeChanged(ChangeEventPublisher.OUTCOME_DELETED, outcome(null), List.of(), 1);
+        verifyNoInteractions(userEventHub);
+
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCommit();
+        }
+        assertEquals(Set.of(1, 2), Set.copyOf(published(ChangeEventPublisher.OUTCOME_DELETED)));
+    }
+
+    @Test
+    void rollbackPublishesNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        publisher.memberChanged(ChangeEventPublisher.MEMBER_JOINED, 9, 8);
+
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        verifyNoInteractions(userEventHub, activityMemberMapper);
+    }
+
+    @Test
+    void memberWhoLeftIsStillNotified() {
+        when(activityMemberMapper.selectUserIds(9)).thenReturn(List.of(1, 2));
+
+        publisher.memberChanged(ChangeEventPublisher.MEMBER_LEFT, 9, 8);
+
+        assertEquals(Set.of(1, 2, 8), Set.copyOf(published(ChangeEventPublisher.MEMBER_LEFT)));
+    }
+
+    @Test
+    void publishFailureDoesNotPropagate() {
+        doThrow(new IllegalStateException("redis down"))
+                .when(userEventHub).publish(anyCollection(), anyString(), anyMap());
+
+        publisher.outcomeChanged(ChangeEventPublisher.OUTCOME_UPDATED, outcome(null), List.of(), 1);
+
+        verify(userEventHub).publish(anyCollection(), eq(ChangeEventPublisher.OUTCOME_UPDATED), any());
+    }
+
+    private Collection<Integer> published(String event) {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Integer>> recipients = ArgumentCaptor.forClass(Collection.class);
+        verify(userEventHub).publish(recipients.capture(), eq(event), anyMap());
+        return recipients.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Map<String, Object>> dataCaptor() {
+        return ArgumentCaptor.forClass(Map.class);
+    }
+
+    private static Outcome outcome(Integer activityId) {
+        Outcome o = new Outcome();
+        o.setId(100);
+        o.setPayerUserid(1);
+        o.setCreatorId(2);
+        o.setActivityId(activityId);
+        o.setRepayFlag((byte) 2);
+        return o;
+    }
+
+    private static OutcomeParticipant participant(int userId) {
+        OutcomeParticipant p = new OutcomeParticipant();
+        p.setUserId(userId);
+        return p;
+    }
+}
@@ -0,0 +1,171 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExactSettlementSolverTest {
+
+    private ExactSettlementSolver solver;
+    private GreedySettlementSolver greedy;
+
+    @BeforeEach
+    void setUp() {
+        greedy = new GreedySettlementSolver();
+        solver = new ExactSettlementSolver();
+        ReflectionTestUtils.setField(solver, "greedySolver", greedy);
+        ReflectionTestUtils.setField(solver, "maxMembers", 20);
+    }
+
+    @Test
+    void beatsGreedyWhenZeroSumSubsetsExist() {
+        // {+4, -4} 与 {+6, -3, -3} 各自结清只需 1 + 2 笔；贪心先用 6 抵 -4 会拆散子集，需要 4 笔
+        int[] ids = {1, 2, 3, 4, 5};
+        long[] balances = {600, 400, -400, -300, -300};
+
+        List<SettlementItem> exact = solver.solve(ids, balances);
+        assertEquals(3, exact.size());
+        assertSettles(ids, balances, exact);
+
+        List<SettlementItem> byGreedy = greedy.solve(ids, balances);
+        assertEquals(4, byGreedy.size());
+    }
+
+    @Test
+    void knownSmallCases() {
+        assertEquals(0, solver.solve(new int[0], new long[0]).size());
+        assertEquals(1, solveAndCheck(new long[]{100, -100}));
+        assertEquals(2, solveAndCheck(new long[]{100, -50, -50}));
+        assertEquals(2, solveAndCheck(new long[]{500, -500, 300, -300}));
+        // 没有真子集和为 0 时需要 n - 1 笔
+        assertEquals(3, solveAndCheck(new long[]{700, 300, -500, -500}));
+    }
+
+    @Test
+    void matchesBruteForceMinimumOnRandomCases() {
+        Random random = new Random(56);
+        for (int round = 0; round < 300; round++) {
+            int n = 2 + random.nextInt(7);
+            long[] balances = randomBalances(random, n);
+            assertEquals(bruteForceMin(balances.clone(), 0), solveAndCheck(balances), "round " + round);
+        }
+    }
+
+    @Test
+    void preservesZeroSumOnLargerInputs() {
+        Random random = new Random(57);
+        for (int round = 0; round < 20; round++) {
+            long[] balances = randomBalances(random, 12 + random.nextInt(9));
+            int transfers = solveAndCheck(balances);
+            assertTrue(transfers <= nonZero(balances) - 1);
+            assertTrue(transfers <= greedy.solve(idsFor(balances.length), balances).size());
+        }
+    }
+
+    @Test
+    void supportsRespectsConfiguredAndHardLimit() {
+        assertTrue(solver.supports(20));
+        assertFalse(solver.supports(21));
+
+        ReflectionTestUtils.setField(solver, "maxMembers", 40);
+        assertTrue(solver.supports(24));
+        assertFalse(solver.supports(25));
+    }
+
+    @Test
+    void rejectsUnbalancedInput() {
+        assertThrows(IllegalArgumentException.class,
+            () -> solver.solve(new int[]{1, 2}, new long[]{100, -99}));
+    }
+
+    private int solveAndCheck(long[] balances) {
+        int[] ids = idsFor(balances.length);
+        List<SettlementItem> transfers = solver.solve(ids, balances);
+        assertSettles(ids, balances, transfers);
+        return transfers.size();
+    }
+
+    /**
+     * 按方案转账后每个人的余额都应归零，且每笔金额为正
+     */
+    static void assertSettles(int[] ids, long[] balances, List<SettlementItem> transfers) {
+        Map<Integer, Long> remaining = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            remaining.merge(ids[i], balances[i], Long::sum);
+        }
+        for (SettlementItem t : transfers) {
+            assertTrue(t.getAmount() > 0);
+            assertTrue(remaining.containsKey(t.getFromId()));
+            assertTrue(remaining.containsKey(t.getToId()));
+            remaining.merge(t.getFromId(), t.getAmount(), Long::sum);
+            remaining.merge(t.getToId(), -t.getAmount(), Long::sum);
+        }
+        remaining.forEach((id, left) -> assertEquals(0L, (long) left, "user " + id));
+    }
+
+    /**
+     * 经典回溯：把 start 的余额整体转给一个符号相反的人，枚举所有选择
+     */
+    private static int bruteForceMin(long[] balances, int start) {
+        while (start < balances.length && balances[start] == 0) {
+            start++;
+        }
+        if (start == balances.length) {
+            return 0;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int j = start + 1; j < balances.length; j++) {
+            if (balances[j] * balances[start] < 0) {
+                balances[j] += balances[start];
+                best = Math.min(best, 1 + bruteForceMin(balances, start + 1));
+                balances[j] -= balances[start];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 随机生成非零、总和为 0 的余额；金额取小范围以制造和为 0 的子集
+     */
+    private static long[] randomBalances(Random random, int n) {
+        long[] balances = new long[n];
+        do {
+            long sum = 0;
+            for (int i = 0; i < n - 1; i++) {
+                do {
+                    balances[i] = (random.nextInt(11) - 5) * 100L;
+                } while (balances[i] == 0);
+                sum += balances[i];
+            }
+            balances[n - 1] = -sum;
+        } while (balances[n - 1] == 0);
+        return balances;
+    }
+
+    private static int[] idsFor(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = 1000 + i;
+        }
+        return ids;
+    }
+
+    private static int nonZero(long[] balances) {
+        int count = 0;
+        for (long b : balances) {
+            if (b != 0) count++;
+        }
+        return count;
+    }
+}
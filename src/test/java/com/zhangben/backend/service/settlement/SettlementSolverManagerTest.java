@@ -0,0 +1,146 @@
+package com.zhangben.backend.service.settlement;
+
+import com.zhangben.backend.dto.SettlementItem;
+import com.zhangben.backend.util.DebtPair;
+import com.zhangben.backend.util.LongLongHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SettlementSolverManagerTest {
+
+    private SettlementSolverManager manager;
+
+    @BeforeEach
+    void setUp() {
+        GreedySettlementSolver greedy = new GreedySettlementSolver();
+        ExactSettlementSolver exact = new ExactSettlementSolver();
+        ReflectionTestUtils.setField(exact, "greedySolver", greedy);
+        ReflectionTestUtils.setField(exact, "maxMembers", 20);
+
+        manager = new SettlementSolverManager();
+        ReflectionTestUtils.setField(manager, "greedySolver", greedy);
+        ReflectionTestUtils.setField(manager, "exactSolver", exact);
+        ReflectionTestUtils.setField(manager, "defaultMode", SettlementSolverManager.MODE_AUTO);
+        ReflectionTestUtils.setField(manager, "slowThresholdMs", 200L);
+    }
+
+    @Test
+    void autoSolvesEachComponentExactly() {
+        // 三个互不往来的 15 人圈子，合计 45 人远超上限，但每个分量都能精确求解
+        LongLongHashMap debts = new LongLongHashMap();
+        Random random = new Random(5);
+        for (int group = 0; group < 3; group++) {
+            addRandomDebts(debts, random, group * 100 + 1, 15);
+        }
+        LongLongHashMap balances = balancesOf(debts);
+
+        SettlementPlan plan = manager.solve(balances, debts, null);
+
+        assertEquals(ExactSettlementSolver.NAME, plan.getAlgorithm());
+        assertEquals(0L, fallbackCount());
+        assertSettles(balances, plan);
+    }
+
+    @Test
+    void withoutDebtGraphLargeInputFallsBackToGreedy() {
+        LongLongHashMap debts = new LongLongHashMap();
+        Random random = new Random(6);
+        for (int group = 0; group < 3; group++) {
+            addRandomDebts(debts, random, group * 100 + 1, 15);
+        }
+        LongLongHashMap balances = balancesOf(debts);
+
+        SettlementPlan plan = manager.solve(balances, null);
+
+        assertEquals(GreedySettlementSolver.NAME, plan.getAlgorithm());
+        assertEquals(1L, fallbackCount());
+        assertSettles(balances, plan);
+    }
+
+    @Test
+    void zeroBalanceUserStillConnectsComponent() {
+        // 1 欠 2、2 欠 3 同样金额：2 余额为 0，但 1 和 3 仍属同一分量，合并为一笔
+        LongLongHashMap debts = new LongLongHashMap();
+        debts.put(DebtPair.of(1, 2), 500);
+        debts.put(DebtPair.of(2, 3), 500);
+        LongLongHashMap balances = balancesOf(debts);
+
+        SettlementPlan plan = manager.solve(balances, debts, SettlementSolverManager.MODE_AUTO);
+
+        assertEquals(1, plan.getTransfers().size());
+        SettlementItem item = plan.getTransfers().get(0);
+        assertEquals(1, (int) item.getFromId());
+        assertEquals(3, (int) item.getToId());
+        assertEquals(500L, (long) item.getAmount());
+    }
+
+    @Test
+    void oversizedComponentFallsBackAlone() {
+        LongLongHashMap debts = new LongLongHashMap();
+        Random random = new Random(7);
+        addRandomDebts(debts, random, 1, 30);
+        addRandomDebts(debts, random, 101, 5);
+        LongLongHashMap balances = balancesOf(debts);
+
+        SettlementPlan plan = manager.solve(balances, debts, ExactSettlementSolver.NAME);
+
+        assertEquals(GreedySettlementSolver.NAME, plan.getAlgorithm());
+        assertEquals(1L, fallbackCount());
+        assertSettles(balances, plan);
+    }
+
+    @Test
+    void rejectsUnknownModeEvenWhenNothingToSettle() {
+        assertThrows(IllegalArgumentException.class,
+            () -> manager.solve(new LongLongHashMap(), new LongLongHashMap(), "magic"));
+    }
+
+    /**
+     * 在 [first, first + size) 的用户之间生成一条链和若干随机债务，保证整个圈子连通
+     */
+    private static void addRandomDebts(LongLongHashMap debts, Random random, int first, int size) {
+        for (int i = 0; i < size - 1; i++) {
+            debts.addTo(DebtPair.of(first + i, first + i + 1), 100L * (1 + random.nextInt(20)));
+        }
+        for (int k = 0; k < size; k++) {
+            int a = first + random.nextInt(size);
+            int b = first + random.nextInt(size);
+            if (a != b) {
+                debts.addTo(DebtPair.of(a, b), 100L * (1 + random.nextInt(20)));
+            }
+        }
+    }
+
+    private static LongLongHashMap balancesOf(LongLongHashMap debts) {
+        LongLongHashMap balances = new LongLongHashMap();
+        for (LongLongHashMap.Cursor c = debts.cursor(); c.advance(); ) {
+            balances.addTo(DebtPair.creditor(c.key()), c.value());
+            balances.addTo(DebtPair.debtor(c.key()), -c.value());
+        }
+        return balances;
+    }
+
+    private static void assertSettles(LongLongHashMap balances, SettlementPlan plan) {
+        LongLongHashMap remaining = new LongLongHashMap();
+        for (LongLongHashMap.Cursor c = balances.cursor(); c.advance(); ) {
+            remaining.put(c.key(), c.value());
+        }
+        for (SettlementItem t : plan.getTransfers()) {
+            remaining.addTo(t.getFromId(), t.getAmount());
+            remaining.addTo(t.getToId(), -t.getAmount());
+        }
+        for (LongLongHashMap.Cursor c = remaining.cursor(); c.advance(); ) {
+            assertEquals(0L, c.value(), "user " + c.key());
+        }
+    }
+
+    private long fallbackCount() {
+        return (long) manager.getMetrics().get("fallbackCount");
+    }
+}
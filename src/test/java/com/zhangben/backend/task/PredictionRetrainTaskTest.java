@@ -0,0 +1,148 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.mapper.JobCheckpointMapper;
+import com.zhangben.backend.model.JobCheckpoint;
+import com.zhangben.backend.service.PredictionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V75: 预测重训的租约与检查点流程——未抢到租约不执行、今日已完成跳过、
+ * 中断的今日批次整批重跑、续租失败停止且不标记完成，任何情况下都释放租约
+ */
+@ExtendWith(MockitoExtension.class)
+class PredictionRetrainTaskTest {
+
+    private static final String JOB = "prediction-retrain";
+
+    @Mock
+    private PredictionService predictionService;
+
+    @Mock
+    private JobCheckpointMapper jobCheckpointMapper;
+
+    @InjectMocks
+    private PredictionRetrainTask task;
+
+    private String nodeId;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(task, "leaseMinutes", 10);
+        nodeId = (String) ReflectionTestUtils.getField(task, "nodeId");
+    }
+
+    @Test
+    void skipsWhenAnotherNodeHoldsLease() {
+        when(jobCheckpointMapper.tryAcquire(eq(JOB), anyString(), any(LocalDateTime.class))).thenReturn(0);
+
+        task.retrainPredictions();
+
+        verify(jobCheckpointMapper).insertIfAbsent(JOB);
+        verify(predictionService, never()).retrainAll(any());
+        verify(jobCheckpointMapper, never()).release(anyString(), anyString());
+    }
+
+    @Test
+    void skipsWhenTodaysRunCompleted() {
+        acquireLease(checkpoint(LocalDate.now().toString(), JobCheckpoint.STATUS_COMPLETED));
+
+        task.retrainPredictions();
+
+        verify(jobCheckpointMapper, never()).startRun(anyString(), anyString(), anyString());
+        verify(predictionService, never()).retrainAll(any());
+        verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    @Test
+    void startsNewRunOnNewDay() {
+        acquireLease(checkpoint(LocalDate.now().minusDays(1).toString(), JobCheckpoint.STATUS_COMPLETED));
+        when(predictionService.retrainAll(any())).thenReturn(Map.of());
+
+        task.retrainPredictions();
+
+        verify(jobCheckpointMapper).startRun(JOB, nodeId, LocalDate.now().toString());
+        verify(jobCheckpointMapper).complete(JOB, nodeId);
+        verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    @Test
+    void rerunsInterruptedRunAndAdvancesPerChunk() {
+        JobCheckpoint interrupted = checkpoint(LocalDate.now().toString(), JobCheckpoint.STATUS_RUNNING);
+        interrupted.setCursorId(1000L);
+        acquireLease(interrupted);
+        when(jobCheckpointMapper.advance(eq(JOB), anyString(), anyLong(), anyInt(), any(LocalDateTime.class)))
+                .thenReturn(1);
+        when(predictionService.retrainAll(any())).thenAnswer(inv -> {
+            BiConsumer<Integer, Integer> onChunk = inv.getArgument(0);
+            onChunk.accept(500, 500);
+            onChunk.accept(730, 230);
+            return Map.of();
+        });
+
+        LocalDateTime before = LocalDateTime.now();
+        task.retrainPredictions();
+
+        // 不从 cursor_id 续跑：重新 startRun，游标从头推进
+        verify(jobCheckpointMapper).startRun(JOB, nodeId, LocalDate.now().toString());
+        ArgumentCaptor<LocalDateTime> leaseUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(jobCheckpointMapper).advance(eq(JOB), eq(nodeId), eq(500L), eq(500), leaseUntil.capture());
+        verify(jobCheckpointMapper).advance(eq(JOB), eq(nodeId), eq(730L), eq(230), any(LocalDateTime.class));
+        assertFalse(leaseUntil.getValue().isBefore(before.plusMinutes(10)));
+        verify(jobCheckpointMapper).complete(JOB, nodeId);
+        verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    @Test
+    void stopsWithoutCompletingWhenLeaseLost() {
+        acquireLease(checkpoint(LocalDate.now().toString(), JobCheckpoint.STATUS_RUNNING));
+        when(jobCheckpointMapper.advance(eq(JOB), anyString(), anyLong(), anyInt(), any(LocalDateTime.class)))
+                .thenReturn(1, 0);
+        when(predictionService.retrainAll(any())).thenAnswer(inv -> {
+            BiConsumer<Integer, Integer> onChunk = inv.getArgument(0);
+            onChunk.accept(500, 500);
+            onChunk.accept(1000, 500);
+            onChunk.accept(1500, 500);
+            return Map.of();
+        });
+
+        task.retrainPredictions();
+
+        verify(jobCheckpointMapper, never()).advance(eq(JOB), anyString(), eq(1500L), anyInt(), any(LocalDateTime.class));
+        verify(jobCheckpointMapper, never()).complete(anyString(), anyString());
+        verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    private void acquireLease(JobCheckpoint checkpoint) {
+        when(jobCheckpointMapper.tryAcquire(eq(JOB), eq(nodeId), any(LocalDateTime.class))).thenReturn(1);
+        when(jobCheckpointMapper.selectByJob(JOB)).thenReturn(checkpoint);
+    }
+
+    private static JobCheckpoint checkpoint(String runKey, byte status) {
+        JobCheckpoint checkpoint = new JobCheckpoint();
+        checkpoint.setRunKey(runKey);
+        checkpoint.setStatus(status);
+        return checkpoint;
+    }
+}
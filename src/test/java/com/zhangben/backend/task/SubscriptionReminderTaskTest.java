@@ -0,0 +1,164 @@
+package com.zhangben.backend.task;
+
+import com.zhangben.backend.mapper.JobCheckpointMapper;
+import com.zhangben.backend.model.JobCheckpoint;
+import com.zhangben.backend.model.User;
+import com.zhangben.backend.service.SubscriptionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * V70: 订阅提醒的分块与检查点——每块与游标推进同一事务提交、中断后从游标续跑、
+ * 续租失败回滚本块且不标记完成、崩溃进程的租约过期后启动续跑接手，任何情况下都释放租约
+ */
+@ExtendWith(MockitoExtension.class)
+class SubscriptionReminderTaskTest {
+
+    private static final String JOB = "subscription-renewal-reminder";
+
+    @Mock
+    private SubscriptionService subscriptionService;
+
+    @Mock
+    private JobCheckpointMapper jobCheckpointMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private SubscriptionReminderTask task;
+
+    private String nodeId;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(task, "chunkSize", 2);
+        ReflectionTestUtils.setField(task, "concurrency", 2);
+        ReflectionTestUtils.setField(task, "leaseMinutes", 10);
+        task.init();
+        nodeId = (String) ReflectionTestUtils.getField(task, "nodeId");
+    }
+
+    @Test
+    void skipsWhenAnotherNodeHoldsLease() {
+        when(jobCheckpointMapper.tryAcquire(eq(JOB), anyString(), any(LocalDateTime.class))).thenReturn(0);
+
+        task.sendRenewalReminders();
+
+        verify(subscriptionService, never()).findExpiringSubscriptions(anyInt(), any(), anyInt());
+        verify(jobCheckpointMapper, never()).release(anyString(), anyString());
+    }
+
+    @Test
+    void newDayStartsFromZeroAndAdvancesPerChunk() {
+        acquireLease(checkpoint(LocalDate.now().minusDays(1).toString(), JobCheckpoint.STATUS_COMPLETED, 0L));
+        when(subscriptionService.findExpiringSubscriptions(90, 0, 2)).thenReturn(users(1, 2));
+        when(subscriptionService.findExpiringSubscriptions(90, 2, 2)).thenReturn(users(3));
+        when(subscriptionService.sendRenewalReminders(anyList(), any())).thenReturn(2, 1);
+        when(jobCheckpointMapper.advance(eq(JOB), eq(nodeId), anyLong(), anyInt(), any(LocalDateTime.class)))
+                .thenReturn(1);
+
+        task.sendRenewalReminders();
+
+        InOrder order = inOrder(jobCheckpointMapper);
+        order.verify(jobCheckpointMapper).startRun(JOB, nodeId, LocalDate.now().toString());
+        order.verify(jobCheckpointMapper).advance(eq(JOB), eq(nodeId), eq(2L), eq(2), any(LocalDateTime.class));
+        order.verify(jobCheckpointMapper).advance(eq(JOB), eq(nodeId), eq(3L), eq(1), any(LocalDateTime.class));
+        order.verify(jobCheckpointMapper).complete(JOB, nodeId);
+        order.verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    @Test
+    void interruptedRunResumesAfterCursor() {
+        acquireLease(checkpoint(LocalDate.now().toString(), JobCheckpoint.STATUS_RUNNING, 40L));
+        when(subscriptionService.findExpiringSubscriptions(90, 40, 2)).thenReturn(List.of());
+
+        task.sendRenewalReminders();
+
+        verify(jobCheckpointMapper, never()).startRun(anyString(), anyString(), anyString());
+        verify(subscriptionService, never()).sendRenewalReminders(anyList(), any());
+        verify(jobCheckpointMapper).complete(JOB, nodeId);
+        verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    @Test
+    void lostLeaseRollsBackChunkAndDoesNotComplete() {
+        acquireLease(checkpoint(LocalDate.now().toString(), JobCheckpoint.STATUS_RUNNING, 0L));
+        when(subscriptionService.findExpiringSubscriptions(90, 0, 2)).thenReturn(users(1, 2));
+        when(subscriptionService.sendRenewalReminders(anyList(), any())).thenReturn(2);
+        when(jobCheckpointMapper.advance(eq(JOB), eq(nodeId), anyLong(), anyInt(), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        task.sendRenewalReminders();
+
+        verify(transactionManager).rollback(any());
+        verify(subscriptionService, never()).findExpiringSubscriptions(90, 2, 2);
+        verify(jobCheckpointMapper, never()).complete(anyString(), anyString());
+        verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    @Test
+    void resumeTakesOverOnceCrashedNodesLeaseExpired() {
+        JobCheckpoint stale = checkpoint(LocalDate.now().toString(), JobCheckpoint.STATUS_RUNNING, 10L);
+        stale.setOwner("crashed-node");
+        stale.setLeaseUntil(LocalDateTime.now().minusSeconds(1));
+        JobCheckpoint completed = checkpoint(LocalDate.now().toString(), JobCheckpoint.STATUS_COMPLETED, 10L);
+        // 续跑前检查、run 内读取、run 完成后的下一轮检查
+        when(jobCheckpointMapper.selectByJob(JOB)).thenReturn(stale, stale, completed);
+        when(jobCheckpointMapper.tryAcquire(eq(JOB), eq(nodeId), any(LocalDateTime.class))).thenReturn(1);
+        when(subscriptionService.findExpiringSubscriptions(90, 10, 2)).thenReturn(List.of());
+
+        ReflectionTestUtils.invokeMethod(task, "resumeUntilDone");
+
+        verify(jobCheckpointMapper).complete(JOB, nodeId);
+        verify(jobCheckpointMapper).release(JOB, nodeId);
+    }
+
+    private void acquireLease(JobCheckpoint checkpoint) {
+        when(jobCheckpointMapper.tryAcquire(eq(JOB), eq(nodeId), any(LocalDateTime.class))).thenReturn(1);
+        when(jobCheckpointMapper.selectByJob(JOB)).thenReturn(checkpoint);
+    }
+
+    private static JobCheckpoint checkpoint(String runKey, byte status, Long cursor) {
+        JobCheckpoint c = new JobCheckpoint();
+        c.setJobName(JOB);
+        c.setRunKey(runKey);
+        c.setStatus(status);
+        c.setCursorId(cursor);
+        c.setProcessed(0);
+        return c;
+    }
+
+    private static List<User> users(int... ids) {
+        List<User> list = new ArrayList<>();
+        for (int id : ids) {
+            User u = new User();
+            u.setId(id);
+            list.add(u);
+        }
+        return list;
+    }
+}
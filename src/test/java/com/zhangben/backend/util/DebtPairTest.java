@@ -0,0 +1,41 @@
+package com.zhangben.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class DebtPairTest {
+
+    private static final int[] IDS = {0, 1, 2, 12345, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+
+    @Test
+    void packAndUnpackRoundTrip() {
+        for (int debtor : IDS) {
+            for (int creditor : IDS) {
+                long pair = DebtPair.of(debtor, creditor);
+                assertEquals(debtor, DebtPair.debtor(pair));
+                assertEquals(creditor, DebtPair.creditor(pair));
+            }
+        }
+    }
+
+    @Test
+    void reverseSwapsDebtorAndCreditor() {
+        for (int debtor : IDS) {
+            for (int creditor : IDS) {
+                long pair = DebtPair.of(debtor, creditor);
+                long reversed = DebtPair.reverse(pair);
+                assertEquals(DebtPair.of(creditor, debtor), reversed);
+                assertEquals(pair, DebtPair.reverse(reversed));
+            }
+        }
+    }
+
+    @Test
+    void directionMatters() {
+        assertNotEquals(DebtPair.of(1, 2), DebtPair.of(2, 1));
+        // 低位为负数时不能把符号扩展进高 32 位
+        assertEquals(1, DebtPair.debtor(DebtPair.of(1, -1)));
+    }
+}
@@ -0,0 +1,117 @@
+package com.zhangben.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * V63: 子任务在虚拟线程上并行、共享截止时间；超时 / 失败取默认值，超时和 close 时中断仍在运行的子任务
+ */
+class FanOutTest {
+
+    @Test
+    void tasksRunConcurrentlyOnVirtualThreads() {
+        long start = System.nanoTime();
+        try (FanOut fanOut = FanOut.withTimeout(5000)) {
+            FanOut.Task<Boolean> a = fanOut.fork("a", () -> sleepThenVirtual(300));
+            FanOut.Task<Boolean> b = fanOut.fork("b", () -> sleepThenVirtual(300));
+            FanOut.Task<Boolean> c = fanOut.fork("c", () -> sleepThenVirtual(300));
+            fanOut.join();
+
+            assertTrue(a.getOrDefault(false));
+            assertTrue(b.getOrDefault(false));
+            assertTrue(c.getOrDefault(false));
+            assertEquals(List.of(), fanOut.incomplete());
+        }
+        // 三个 300ms 的子任务并行执行，总耗时远小于串行的 900ms
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 800);
+    }
+
+    @Test
+    void timedOutTaskIsCancelledAndDefaulted() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long start = System.nanoTime();
+        try (FanOut fanOut = FanOut.withTimeout(100)) {
+            FanOut.Task<String> fast = fanOut.fork("fast", () -> "ok");
+            FanOut.Task<String> slow = fanOut.fork("slow", () -> blockUntilInterrupted(interrupted));
+            fanOut.join();
+
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000, "join 不超过截止时间太多");
+            assertEquals("ok", fast.getOrDefault("default"));
+            assertFalse(slow.isSuccess());
+            assertEquals("default", slow.getOrDefault("default"));
+            assertEquals(List.of("slow"), fanOut.incomplete());
+            assertTrue(fanOut.serverTiming().contains("slow;dur="));
+            assertTrue(fanOut.serverTiming().contains("desc=timeout"));
+            // 超时即取消，不等到 close
+            assertTrue(interrupted.await(2, TimeUnit.SECONDS), "超时的子任务被中断");
+        }
+    }
+
+    @Test
+    void deadlineIsSharedAcrossTasks() {
+        try (FanOut fanOut = FanOut.withTimeout(400)) {
+            FanOut.Task<Boolean> first = fanOut.fork("first", () -> sleepThenVirtual(250));
+            FanOut.Task<Boolean> second = fanOut.fork("second", () -> sleepThenVirtual(1500));
+            long start = System.nanoTime();
+            fanOut.join();
+
+            // 第二个子任务只剩第一个用完后的余量，整体仍在截止时间附近返回
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1200);
+            assertTrue(first.isSuccess());
+            assertFalse(second.isSuccess());
+        }
+    }
+
+    @Test
+    void failedTaskIsDefaultedAndReported() {
+        try (FanOut fanOut = FanOut.withTimeout(1000)) {
+            FanOut.Task<Integer> ok = fanOut.fork("ok", () -> 1);
+            FanOut.Task<Integer> broken = fanOut.fork("broken", () -> {
+                throw new IllegalStateException("db down");
+            });
+            fanOut.join();
+
+            assertEquals(1, (int) ok.getOrDefault(0));
+            assertEquals(0, (int) broken.getOrDefault(0));
+            assertEquals(List.of("broken"), fanOut.incomplete());
+            assertTrue(fanOut.serverTiming().contains("broken;dur="));
+            assertTrue(fanOut.serverTiming().contains("desc=failed"));
+        }
+    }
+
+    @Test
+    void closeInterruptsTasksThatWereNeverJoined() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try (FanOut fanOut = FanOut.withTimeout(60000)) {
+            fanOut.fork("orphan", () -> {
+                started.countDown();
+                return blockUntilInterrupted(interrupted);
+            });
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+        }
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS), "close 中断未结束的子任务");
+    }
+
+    private static boolean sleepThenVirtual(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return Thread.currentThread().isVirtual();
+    }
+
+    private static String blockUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(60000);
+            return "late";
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            return "interrupted";
+        }
+    }
+}
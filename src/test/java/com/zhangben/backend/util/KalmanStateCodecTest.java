@@ -0,0 +1,97 @@
+package com.zhangben.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * V76: 卡尔曼状态二进制编码的往返、字节布局与格式校验
+ */
+class KalmanStateCodecTest {
+
+    @Test
+    void roundTripPreservesEveryBit() {
+        Random random = new Random(76);
+        double[][] fixed = {
+            {0.0, -0.0, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, 1e-300},
+            {0.1, 1.0 / 3, -123456.789, 9.87654321e12, Math.PI, -Math.E},
+        };
+        for (double[] v : fixed) {
+            assertRoundTrip(v);
+        }
+        for (int i = 0; i < 1000; i++) {
+            double[] v = new double[6];
+            for (int j = 0; j < v.length; j++) {
+                v[j] = Double.longBitsToDouble(random.nextLong());
+                if (Double.isNaN(v[j])) {
+                    v[j] = random.nextGaussian() * 1e6;
+                }
+            }
+            assertRoundTrip(v);
+        }
+    }
+
+    @Test
+    void layoutIsVersionByteThenBigEndianDoubles() {
+        double[] v = {250000.5, -1200.25, 4e6, 1e5, 1.5e5, 2e6};
+        byte[] blob = KalmanStateCodec.encode(kernel(v, 0));
+
+        assertEquals(49, KalmanStateCodec.LENGTH);
+        assertEquals(KalmanStateCodec.LENGTH, blob.length);
+        assertEquals(1, blob[0]);
+        for (int i = 0; i < v.length; i++) {
+            byte[] expected = ByteBuffer.allocate(Double.BYTES).putDouble(v[i]).array();
+            int offset = 1 + i * Double.BYTES;
+            assertArrayEquals(expected, Arrays.copyOfRange(blob, offset, offset + Double.BYTES), "field " + i);
+        }
+    }
+
+    @Test
+    void decodeSetsMeasurementNoise() {
+        double[] v = {1000, 10, 4e6, 0, 0, 2e6};
+        LinearTrendKalman decoded = new LinearTrendKalman(1, 1);
+        KalmanStateCodec.decodeInto(KalmanStateCodec.encode(kernel(v, 0)), decoded, 5e5);
+
+        // S = p00 + R，增益 k0 = p00 / S
+        decoded.correct(2000);
+        assertEquals(1000 + 4e6 / (4e6 + 5e5) * 1000, decoded.level(), 1e-6);
+    }
+
+    @Test
+    void rejectsUnknownVersionOrLength() {
+        byte[] blob = KalmanStateCodec.encode(kernel(new double[6], 0));
+        LinearTrendKalman kf = new LinearTrendKalman(1, 1);
+
+        byte[] wrongVersion = blob.clone();
+        wrongVersion[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> KalmanStateCodec.decodeInto(wrongVersion, kf, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> KalmanStateCodec.decodeInto(Arrays.copyOf(blob, blob.length - 1), kf, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> KalmanStateCodec.decodeInto(Arrays.copyOf(blob, blob.length + 1), kf, 0));
+        assertThrows(IllegalArgumentException.class, () -> KalmanStateCodec.decodeInto(new byte[0], kf, 0));
+        assertThrows(IllegalArgumentException.class, () -> KalmanStateCodec.decodeInto(null, kf, 0));
+    }
+
+    private static void assertRoundTrip(double[] v) {
+        LinearTrendKalman decoded = new LinearTrendKalman(1, 1);
+        KalmanStateCodec.decodeInto(KalmanStateCodec.encode(kernel(v, 0)), decoded, 0);
+        double[] actual = {decoded.level(), decoded.trend(), decoded.levelVariance(),
+            decoded.covariance01(), decoded.covariance10(), decoded.trendVariance()};
+        for (int i = 0; i < v.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(v[i]), Double.doubleToRawLongBits(actual[i]), "field " + i);
+        }
+    }
+
+    private static LinearTrendKalman kernel(double[] v, double r) {
+        LinearTrendKalman kf = new LinearTrendKalman(1, 1);
+        kf.reset(v[0], v[1], v[2], v[3], v[4], v[5], r);
+        return kf;
+    }
+}
@@ -0,0 +1,129 @@
+package com.zhangben.backend.util;
+
+import org.apache.commons.math3.filter.DefaultProcessModel;
+import org.apache.commons.math3.filter.KalmanFilter;
+import org.apache.commons.math3.filter.MeasurementModel;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * V74: LinearTrendKalman 与 commons-math3 KalmanFilter 在随机序列上逐步对照，状态与协方差一致
+ */
+class LinearTrendKalmanTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    // 与 PredictionEngine 相同的过程噪声
+    private static final double Q_LEVEL = 1000000;
+    private static final double Q_TREND = 250000;
+
+    @Test
+    void matchesCommonsMathOnRandomSequences() {
+        Random random = new Random(74);
+        for (int round = 0; round < 500; round++) {
+            double variance = 1e4 + random.nextDouble() * 1e8;
+            double level = random.nextDouble() * 5e5;
+            double r = Math.max(variance * 0.5, 100000);
+
+            LinearTrendKalman kernel = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+            kernel.reset(new double[]{level, 0}, new double[][]{{variance, 0}, {0, variance}}, r);
+            Reference reference = new Reference(new double[]{level, 0}, new double[][]{{variance, 0}, {0, variance}}, r);
+
+            int steps = 1 + random.nextInt(36);
+            for (int i = 0; i < steps; i++) {
+                double z = Math.max(0, level + random.nextGaussian() * Math.sqrt(variance));
+                kernel.predict();
+                reference.filter.predict();
+                assertAgrees(reference, kernel, round, i);
+
+                kernel.correct(z);
+                reference.filter.correct(new double[]{z});
+                assertAgrees(reference, kernel, round, i);
+            }
+        }
+    }
+
+    @Test
+    void measurementNoiseChangesAreApplied() {
+        Random random = new Random(75);
+        LinearTrendKalman kernel = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        kernel.reset(new double[]{200000, 1000}, new double[][]{{4e6, 1e5}, {1e5, 2e6}}, 5e5);
+        Reference reference = new Reference(new double[]{200000, 1000}, new double[][]{{4e6, 1e5}, {1e5, 2e6}}, 5e5);
+
+        for (int i = 0; i < 24; i++) {
+            // 与 PredictionEngine.updateWithObservation 相同：每次观测前按当前水平方差调整 R
+            double r = Math.max(kernel.levelVariance() * 0.5, 100000);
+            kernel.setMeasurementNoise(r);
+            reference.r = r;
+
+            double z = 200000 + random.nextGaussian() * 50000;
+            kernel.predict();
+            reference.filter.predict();
+            kernel.correct(z);
+            reference.filter.correct(new double[]{z});
+            assertAgrees(reference, kernel, 0, i);
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveInnovationCovariance() {
+        LinearTrendKalman kernel = new LinearTrendKalman(Q_LEVEL, Q_TREND);
+        kernel.reset(new double[]{0, 0}, new double[][]{{0, 0}, {0, 0}}, 0);
+        assertThrows(IllegalStateException.class, () -> kernel.correct(1));
+    }
+
+    private static void assertAgrees(Reference reference, LinearTrendKalman kernel, int round, int step) {
+        double[] x = reference.filter.getStateEstimation();
+        double[][] p = reference.filter.getErrorCovariance();
+        String where = "round " + round + ", step " + step;
+        assertClose(x[0], kernel.level(), where + ", level");
+        assertClose(x[1], kernel.trend(), where + ", trend");
+        assertClose(p[0][0], kernel.levelVariance(), where + ", p00");
+        assertClose(p[0][1], kernel.covariance01(), where + ", p01");
+        assertClose(p[1][0], kernel.covariance10(), where + ", p10");
+        assertClose(p[1][1], kernel.trendVariance(), where + ", p11");
+    }
+
+    /**
+     * 相对误差 1e-9（量级小于 1 时按绝对误差）
+     */
+    private static void assertClose(double expected, double actual, String message) {
+        assertEquals(expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)), message);
+    }
+
+    /**
+     * 原实现：A = [[1,1],[0,1]]，H = [1,0]，Q = diag(qLevel, qTrend)；R 可变，每次 correct 时读取
+     */
+    private static final class Reference {
+        private final KalmanFilter filter;
+        private double r;
+
+        private Reference(double[] state, double[][] covariance, double measurementNoise) {
+            this.r = measurementNoise;
+            RealMatrix a = new Array2DRowRealMatrix(new double[][]{{1, 1}, {0, 1}});
+            RealMatrix q = new Array2DRowRealMatrix(new double[][]{{Q_LEVEL, 0}, {0, Q_TREND}});
+            RealMatrix h = new Array2DRowRealMatrix(new double[][]{{1, 0}});
+            DefaultProcessModel process = new DefaultProcessModel(a, null, q,
+                    new ArrayRealVector(state), new Array2DRowRealMatrix(covariance));
+            MeasurementModel measurement = new MeasurementModel() {
+                @Override
+                public RealMatrix getMeasurementMatrix() {
+                    return h;
+                }
+
+                @Override
+                public RealMatrix getMeasurementNoise() {
+                    return new Array2DRowRealMatrix(new double[][]{{r}});
+                }
+            };
+            this.filter = new KalmanFilter(process, measurement);
+        }
+    }
+}
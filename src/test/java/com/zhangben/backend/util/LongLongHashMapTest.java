@@ -0,0 +1,137 @@
+package com.zhangben.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongLongHashMapTest {
+
+    @Test
+    void putGetAndOverwrite() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(42, 1);
+        map.put(42, 2);
+        map.put(-7, 3);
+
+        assertEquals(2, map.size());
+        assertEquals(2, map.getOrDefault(42, -1));
+        assertEquals(3, map.getOrDefault(-7, -1));
+        assertEquals(-1, map.getOrDefault(43, -1));
+        assertTrue(map.containsKey(42));
+        assertFalse(map.containsKey(43));
+    }
+
+    @Test
+    void addToTreatsMissingAsZero() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.addTo(5, 10);
+        map.addTo(5, -3);
+        map.addTo(6, -4);
+
+        assertEquals(7, map.getOrDefault(5, 0));
+        assertEquals(-4, map.getOrDefault(6, 0));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void zeroKeyIsStoredOutsideTheTable() {
+        LongLongHashMap map = new LongLongHashMap();
+        assertFalse(map.containsKey(0));
+        assertEquals(-1, map.getOrDefault(0, -1));
+
+        map.addTo(0, 5);
+        map.addTo(0, 5);
+        map.put(1, 1);
+        assertTrue(map.containsKey(0));
+        assertEquals(10, map.getOrDefault(0, -1));
+        assertEquals(2, map.size());
+
+        int seen = 0;
+        long zeroValue = -1;
+        for (LongLongHashMap.Cursor c = map.cursor(); c.advance(); ) {
+            seen++;
+            if (c.key() == 0) {
+                zeroValue = c.value();
+            }
+        }
+        assertEquals(2, seen);
+        assertEquals(10, zeroValue);
+
+        assertTrue(map.remove(0));
+        assertFalse(map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void growsPastManyResizesWithoutLosingEntries() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long key = DebtPair.of(random.nextInt(5000), random.nextInt(5000));
+            map.addTo(key, i);
+            expected.merge(key, (long) i, Long::sum);
+        }
+
+        assertMatches(expected, map);
+    }
+
+    @Test
+    void removeKeepsCollidingProbeChainsReachable() {
+        // 小键域 + 初始容量 8：大量碰撞与长探测链，随机插入 / 删除与 HashMap 逐步比对
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(64) - 32;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key), "remove " + key);
+            } else {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            }
+            if (i % 1000 == 0) {
+                assertMatches(expected, map);
+            }
+        }
+        assertMatches(expected, map);
+    }
+
+    @Test
+    void removeEverythingLeavesAnEmptyReusableMap() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long k = 1; k <= 1000; k++) {
+            map.put(k, k);
+        }
+        for (long k = 1; k <= 1000; k++) {
+            assertTrue(map.remove(k));
+        }
+        assertTrue(map.isEmpty());
+        assertFalse(map.cursor().advance());
+
+        map.put(500, 1);
+        assertEquals(1, map.getOrDefault(500, 0));
+        assertEquals(1, map.size());
+    }
+
+    private static void assertMatches(Map<Long, Long> expected, LongLongHashMap map) {
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> e : expected.entrySet()) {
+            assertTrue(map.containsKey(e.getKey()), "missing " + e.getKey());
+            assertEquals(e.getValue().longValue(), map.getOrDefault(e.getKey(), Long.MIN_VALUE));
+        }
+        int iterated = 0;
+        for (LongLongHashMap.Cursor c = map.cursor(); c.advance(); ) {
+            iterated++;
+            assertEquals(expected.get(c.key()), (Long) c.value());
+        }
+        assertEquals(expected.size(), iterated);
+    }
+}
@@ -0,0 +1,76 @@
+-- 测试用：db/ 迁移脚本之前就已存在的基础表（user / outcome / outcome_participant），
+-- 列与 UserMapper.xml / OutcomeMapper.xml / OutcomeParticipantMapper.xml 的 BaseResultMap 一致；
+-- 索引由 db/V53、db/V54 迁移脚本在其上创建
+
+CREATE TABLE user (
+    ID                         INT           NOT NULL AUTO_INCREMENT,
+    email                      VARCHAR(255)  NULL,
+    google_id                  VARCHAR(255)  NULL,
+    microsoft_id               VARCHAR(255)  NULL,
+    password                   VARCHAR(255)  NULL,
+    secondname                 VARCHAR(50)   NULL,
+    firstname                  VARCHAR(50)   NULL,
+    nickname                   VARCHAR(50)   NULL,
+    avatar_url                 VARCHAR(500)  NULL,
+    preferred_language         VARCHAR(10)   NULL,
+    primary_currency           VARCHAR(10)   NULL,
+    paypay_flag                TINYINT       NULL,
+    paypay_account             VARCHAR(100)  NULL,
+    bank_flag                  TINYINT       NULL,
+    bank_name                  VARCHAR(100)  NULL,
+    bank_branch                VARCHAR(100)  NULL,
+    bank_account               VARCHAR(100)  NULL,
+    role                       VARCHAR(20)   NULL,
+    profile_completed          BIT           NULL,
+    created_at                 DATETIME      NULL,
+    updated_at                 DATETIME      NULL,
+    is_deleted                 TINYINT       NOT NULL DEFAULT 0,
+    deleted_at                 DATETIME      NULL,
+    subscription_tier          VARCHAR(20)   NULL,
+    subscription_type          VARCHAR(20)   NULL,
+    subscription_start_date    DATETIME      NULL,
+    subscription_expiry_date   DATETIME      NULL,
+    subscription_auto_renew    TINYINT       NULL,
+    subscription_reminder_sent TINYINT       NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE outcome (
+    id                         INT           NOT NULL AUTO_INCREMENT,
+    amount                     BIGINT        NOT NULL,
+    payer_userid               INT           NOT NULL,
+    creator_id                 INT           NULL,
+    target_userid              INT           NULL,
+    per_amount                 BIGINT        NULL,
+    extra_participants         INT           NULL,
+    repay_flag                 TINYINT       NOT NULL,
+    pay_datetime               DATETIME      NOT NULL,
+    style_id                   INT           NULL,
+    comment                    VARCHAR(255)  NULL,
+    deleted_flag               TINYINT       NOT NULL DEFAULT 0,
+    created_at                 DATETIME      NULL,
+    updated_at                 DATETIME      NULL,
+    total_shares               INT           NULL,
+    activity_id                INT           NULL,
+    repaid_by                  INT           NULL,
+    on_behalf_of               INT           NULL,
+    original_amount            BIGINT        NULL,
+    original_currency          VARCHAR(10)   NULL,
+    target_currency_snapshot   VARCHAR(10)   NULL,
+    exchange_rate_snapshot     DECIMAL(18,8) NULL,
+    converted_amount_snapshot  BIGINT        NULL,
+    usd_amount_snapshot        BIGINT        NULL,
+    locaton                    TEXT          NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE outcome_participant (
+    id                         INT           NOT NULL AUTO_INCREMENT,
+    outcome_id                 INT           NOT NULL,
+    user_id                    INT           NOT NULL,
+    shares                     INT           NOT NULL DEFAULT 1,
+    confirm_status             TINYINT       NULL,
+    confirmed_at               DATETIME      NULL,
+    confirmed_by               INT           NULL,
+    PRIMARY KEY (id)
+);